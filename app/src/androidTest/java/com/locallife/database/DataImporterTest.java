@@ -0,0 +1,118 @@
+package com.locallife.database;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.locallife.model.DayRecord;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Restores a backup into a database that already holds days, with ids that collide with
+ * the backup's, and checks every location visit ends up under the day it was recorded on.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DataImporterTest {
+    private static final String SOURCE_DATABASE = "import_test_source.db";
+    private static final String TARGET_DATABASE = "import_test_target.db";
+
+    private Context context;
+    private DatabaseHelper source;
+    private DatabaseHelper target;
+    private File backup;
+
+    @Before
+    public void setUp() throws Exception {
+        context = ApplicationProvider.getApplicationContext();
+        context.deleteDatabase(SOURCE_DATABASE);
+        context.deleteDatabase(TARGET_DATABASE);
+        source = new DatabaseHelper(context, SOURCE_DATABASE);
+        target = new DatabaseHelper(context, TARGET_DATABASE);
+
+        // Backup ids 1 and 2; the local database uses the same ids for different days
+        source.insertDayRecord(dayRecord("2024-01-01", 1000, "Park"));
+        source.insertDayRecord(dayRecord("2024-01-02", 2000, "Museum", "Cafe"));
+        target.insertDayRecord(dayRecord("2023-12-31", 500, "Home"));
+        target.insertDayRecord(dayRecord("2024-01-02", 2500, "Office"));
+
+        backup = new File(context.getCacheDir(), "import_test_backup.ndjson.gz");
+        DataExporter exporter = new DataExporter(source);
+        exporter.export(backup, DataExporter.ALL_TABLES, DataExporter.Format.NDJSON, true, null);
+        exporter.shutdown();
+    }
+
+    @After
+    public void tearDown() {
+        source.close();
+        target.close();
+        context.deleteDatabase(SOURCE_DATABASE);
+        context.deleteDatabase(TARGET_DATABASE);
+        backup.delete();
+    }
+
+    @Test
+    public void keepExistingRestoresNewDaysAndKeepsLocalOnes() throws Exception {
+        DataImporter importer = new DataImporter(target, false);
+        DataImporter.ImportResult result = importer.importFrom(backup, null);
+        importer.shutdown();
+
+        assertEquals(Long.valueOf(1), result.getRowsPerTable().get(DatabaseHelper.TABLE_DAY_RECORDS));
+        assertVisits("2023-12-31", 500, "Home");
+        assertVisits("2024-01-01", 1000, "Park");
+        assertVisits("2024-01-02", 2500, "Office");
+        assertEquals(0, orphanedVisits());
+    }
+
+    @Test
+    public void replaceExistingSwapsTheDayAndItsVisits() throws Exception {
+        DataImporter importer = new DataImporter(target, true);
+        importer.importFrom(backup, null);
+        importer.shutdown();
+
+        assertVisits("2023-12-31", 500, "Home");
+        assertVisits("2024-01-01", 1000, "Park");
+        assertVisits("2024-01-02", 2000, "Museum", "Cafe");
+        assertEquals(0, orphanedVisits());
+    }
+
+    private static DayRecord dayRecord(String date, int steps, String... places) {
+        DayRecord dayRecord = new DayRecord();
+        dayRecord.setDate(date);
+        dayRecord.setStepCount(steps);
+        List<DayRecord.LocationVisit> visits = new ArrayList<>();
+        for (String place : places) {
+            visits.add(new DayRecord.LocationVisit(place, 0, 0));
+        }
+        dayRecord.setLocationVisits(visits);
+        return dayRecord;
+    }
+
+    private void assertVisits(String date, int steps, String... places) {
+        DayRecord dayRecord = target.getDayRecord(date);
+        assertEquals(date + " steps", steps, dayRecord.getStepCount());
+        List<String> actual = new ArrayList<>();
+        for (DayRecord.LocationVisit visit : dayRecord.getLocationVisits()) {
+            actual.add(visit.getPlaceName());
+        }
+        assertEquals(date + " visits", Arrays.asList(places), actual);
+    }
+
+    private long orphanedVisits() {
+        return DatabaseUtils.longForQuery(target.getReadableDatabase(),
+                "SELECT COUNT(*) FROM " + DatabaseHelper.TABLE_LOCATION_VISITS + " WHERE record_id NOT IN "
+                        + "(SELECT id FROM " + DatabaseHelper.TABLE_DAY_RECORDS + ")", null);
+    }
+}
@@ -0,0 +1,45 @@
+package com.locallife.database;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the DatabaseHelper load test against a year of synthetic history on the device's
+ * SQLite. The report is logged under DatabaseLoadTester; the assertions only guard against
+ * failing calls and day lookups that fall back to a table scan.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DatabaseLoadTest {
+
+    @Test
+    public void loadTestRunsEveryMethodWithoutErrors() {
+        Context context = ApplicationProvider.getApplicationContext();
+        DatabaseLoadTester.LoadTestReport report = new DatabaseLoadTester(context).run(1, 50, null);
+
+        assertTrue(report.getGeneration().getFailedTables().toString(),
+                report.getGeneration().getFailedTables().isEmpty());
+        assertTrue(report.getGeneration().getTotalRows() > 0);
+        for (DatabaseLoadTester.MethodStats stats : report.getMethodStats()) {
+            assertEquals(stats.getMethod() + " errors", 0, stats.getErrors());
+        }
+        for (DatabaseLoadTester.ThroughputResult result : report.getThroughput()) {
+            assertTrue(result.getWritePath() + " wrote no rows", result.getRows() > 0);
+        }
+
+        // Point lookups by day go through the epoch_day index rather than scanning the year
+        for (DatabaseLoadTester.MethodStats stats : report.getMethodStats()) {
+            if (stats.getMethod().equals("getDayRecord") || stats.getMethod().equals("getPhotoCountForDate")) {
+                assertTrue(stats.getMethod() + " scanned " + stats.getAvgRowsScanned() + " rows per call: "
+                        + stats.getQueryPlan(), stats.getAvgRowsScanned() < 100);
+            }
+        }
+    }
+}
@@ -0,0 +1,401 @@
+package com.locallife.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.locallife.model.DayRecord;
+import com.locallife.utils.EpochDays;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Load-test harness for DatabaseHelper.
+ * Builds a throwaway database filled by SyntheticDataGenerator, then runs the real
+ * query and write methods against it and reports p50/p99 latency, rows returned and
+ * an estimate of rows scanned (from EXPLAIN QUERY PLAN) per method.
+ */
+public class DatabaseLoadTester {
+    private static final String TAG = "DatabaseLoadTester";
+    private static final String LOAD_TEST_DATABASE = "locallife_loadtest.db";
+    private static final long DEFAULT_SEED = 42L;
+    private static final int THROUGHPUT_ROWS = 5000;
+    private static final int BATCH_SIZE = 500;
+
+    private final Context context;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    private final Random random = new Random(DEFAULT_SEED);
+
+    private DatabaseHelper databaseHelper;
+    private List<String> dates;
+
+    /**
+     * A single measured DatabaseHelper call returning the number of rows it produced
+     */
+    private interface Probe {
+        int run(String date) throws Exception;
+    }
+
+    /**
+     * Latency and row statistics for one DatabaseHelper method
+     */
+    public static class MethodStats {
+        private final String method;
+        private final long[] latenciesNanos;
+        private final long rowsReturned;
+        private final long rowsScanned;
+        private final String queryPlan;
+        private final int errors;
+
+        MethodStats(String method, long[] latenciesNanos, long rowsReturned, long rowsScanned,
+                    String queryPlan, int errors) {
+            this.method = method;
+            this.latenciesNanos = latenciesNanos;
+            this.rowsReturned = rowsReturned;
+            this.rowsScanned = rowsScanned;
+            this.queryPlan = queryPlan;
+            this.errors = errors;
+        }
+
+        public String getMethod() { return method; }
+        public int getCalls() { return latenciesNanos.length; }
+        public int getErrors() { return errors; }
+        public String getQueryPlan() { return queryPlan; }
+
+        public double getP50Ms() { return percentile(0.50); }
+        public double getP99Ms() { return percentile(0.99); }
+        public double getMaxMs() { return latenciesNanos.length == 0 ? 0 : latenciesNanos[latenciesNanos.length - 1] / 1e6; }
+
+        public double getAvgRowsReturned() {
+            return latenciesNanos.length == 0 ? 0 : (double) rowsReturned / latenciesNanos.length;
+        }
+
+        public double getAvgRowsScanned() {
+            return latenciesNanos.length == 0 ? 0 : (double) rowsScanned / latenciesNanos.length;
+        }
+
+        private double percentile(double p) {
+            if (latenciesNanos.length == 0) return 0;
+            int index = (int) Math.ceil(p * latenciesNanos.length) - 1;
+            return latenciesNanos[Math.max(0, Math.min(index, latenciesNanos.length - 1))] / 1e6;
+        }
+    }
+
+    /**
+     * Rows per second for one write path
+     */
+    public static class ThroughputResult {
+        private final String writePath;
+        private final int rows;
+        private final long elapsedNanos;
+
+        ThroughputResult(String writePath, int rows, long elapsedNanos) {
+            this.writePath = writePath;
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getWritePath() { return writePath; }
+        public int getRows() { return rows; }
+        public double getElapsedMs() { return elapsedNanos / 1e6; }
+        public double getRowsPerSecond() { return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos; }
+    }
+
+    /**
+     * Complete load-test result: generated volume plus per-method statistics
+     */
+    public static class LoadTestReport {
+        private final SyntheticDataGenerator.GenerationReport generation;
+        private final List<MethodStats> methodStats = new ArrayList<>();
+        private final List<ThroughputResult> throughput = new ArrayList<>();
+
+        LoadTestReport(SyntheticDataGenerator.GenerationReport generation) {
+            this.generation = generation;
+        }
+
+        public SyntheticDataGenerator.GenerationReport getGeneration() { return generation; }
+        public List<MethodStats> getMethodStats() { return methodStats; }
+        public List<ThroughputResult> getThroughput() { return throughput; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(generation.toString());
+            sb.append(String.format(Locale.US, "%-32s %6s %9s %9s %9s %10s %10s  %s%n",
+                    "method", "calls", "p50 ms", "p99 ms", "max ms", "rows/call", "scan/call", "plan"));
+            for (MethodStats stats : methodStats) {
+                sb.append(String.format(Locale.US, "%-32s %6d %9.3f %9.3f %9.3f %10.1f %10.1f  %s%n",
+                        stats.getMethod(), stats.getCalls(), stats.getP50Ms(), stats.getP99Ms(),
+                        stats.getMaxMs(), stats.getAvgRowsReturned(), stats.getAvgRowsScanned(),
+                        stats.getQueryPlan()));
+                if (stats.getErrors() > 0) {
+                    sb.append("    errors: ").append(stats.getErrors()).append('\n');
+                }
+            }
+            for (ThroughputResult result : throughput) {
+                sb.append(String.format(Locale.US, "%-32s %8d rows %10.1f ms %12.0f rows/s%n",
+                        result.getWritePath(), result.getRows(), result.getElapsedMs(), result.getRowsPerSecond()));
+            }
+            return sb.toString();
+        }
+    }
+
+    public DatabaseLoadTester(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Generate the given years of history into a scratch database, measure every method
+     * with the given number of calls, then delete the scratch database
+     */
+    public LoadTestReport run(int years, int iterations, SyntheticDataGenerator.ProgressListener listener) {
+        context.deleteDatabase(LOAD_TEST_DATABASE);
+        databaseHelper = new DatabaseHelper(context, LOAD_TEST_DATABASE);
+
+        try {
+            SyntheticDataGenerator generator = new SyntheticDataGenerator(databaseHelper, DEFAULT_SEED);
+            LoadTestReport report = new LoadTestReport(generator.generate(years, listener));
+            dates = collectDates();
+
+            measureReads(report, iterations);
+            measureWrites(report, iterations);
+            measureWriteThroughput(report);
+
+            Log.i(TAG, report.toString());
+            return report;
+        } finally {
+            databaseHelper.close();
+            context.deleteDatabase(LOAD_TEST_DATABASE);
+        }
+    }
+
+    private void measureReads(LoadTestReport report, int iterations) {
+        String dayRecords = DatabaseHelper.TABLE_DAY_RECORDS;
+        String photos = DatabaseHelper.TABLE_PHOTO_METADATA;
+        String media = DatabaseHelper.TABLE_MEDIA_CONSUMPTION;
+
+        report.methodStats.add(measure("getDayRecord", iterations, dayRecords,
+                "SELECT * FROM " + dayRecords + " WHERE epoch_day = ?", true,
+                date -> databaseHelper.getDayRecord(date) != null ? 1 : 0));
+
+        // Full history load is expensive; a handful of calls is enough for a stable median
+        report.methodStats.add(measure("getAllDayRecords", Math.max(3, iterations / 50), dayRecords,
+                "SELECT * FROM " + dayRecords + " ORDER BY epoch_day DESC", false,
+                date -> databaseHelper.getAllDayRecords().size()));
+
+        report.methodStats.add(measure("loadEnvironmentalData", iterations, DatabaseHelper.TABLE_AIR_QUALITY,
+                "SELECT * FROM " + DatabaseHelper.TABLE_AIR_QUALITY + " WHERE epoch_day = ?", true,
+                date -> {
+                    databaseHelper.loadEnvironmentalData(new DayRecord(), date);
+                    return 4;
+                }));
+
+        report.methodStats.add(measure("getPhotoMetadataForDate", iterations, photos,
+                "SELECT * FROM " + photos + " WHERE epoch_day = ? ORDER BY date_taken_ms DESC", true,
+                date -> databaseHelper.getPhotoMetadataForDate(date).size()));
+
+        report.methodStats.add(measure("getPhotoCountForDate", iterations, photos,
+                "SELECT COUNT(*) FROM " + photos + " WHERE epoch_day = ?", true,
+                date -> databaseHelper.getPhotoCountForDate(date)));
+
+        report.methodStats.add(measure("getPhotoCountsByTimeOfDay", Math.max(3, iterations / 10), photos,
+                "SELECT time_of_day, COUNT(*) FROM " + photos + " WHERE time_of_day IS NOT NULL GROUP BY time_of_day",
+                false, date -> databaseHelper.getPhotoCountsByTimeOfDay().size()));
+
+        report.methodStats.add(measure("getPhotoCountsByActivityType", Math.max(3, iterations / 10), photos,
+                "SELECT activity_type, COUNT(*) FROM " + photos + " WHERE activity_type IS NOT NULL GROUP BY activity_type",
+                false, date -> databaseHelper.getPhotoCountsByActivityType().size()));
+
+        report.methodStats.add(measure("getMediaConsumptionForDate", iterations, media,
+                "SELECT * FROM " + media + " WHERE epoch_day = ? ORDER BY start_time DESC", true,
+                date -> databaseHelper.getMediaConsumptionForDate(date).size()));
+
+        report.methodStats.add(measure("getTotalMediaMinutesForDate", iterations, media,
+                "SELECT SUM(duration_minutes) FROM " + media + " WHERE epoch_day = ?", true,
+                date -> databaseHelper.getTotalMediaMinutesForDate(date) > 0 ? 1 : 0));
+
+        report.methodStats.add(measure("checkIfRewatch", iterations, media,
+                "SELECT * FROM " + media + " WHERE title = ? AND season = ? AND episode = ?", false,
+                date -> databaseHelper.checkIfRewatch("The Office", 1, 3) ? 1 : 0));
+
+        report.methodStats.add(measure("getRecentlyWatchedShows", Math.max(3, iterations / 10), media,
+                "SELECT DISTINCT title FROM " + media + " WHERE media_type = 'tv' AND created_at >= date('now', '-30 days')",
+                false, date -> databaseHelper.getRecentlyWatchedShows().size()));
+
+        report.methodStats.add(measure("getActiveGoals", iterations, DatabaseHelper.TABLE_GOALS,
+                "SELECT * FROM " + DatabaseHelper.TABLE_GOALS + " WHERE is_active = 1 ORDER BY priority DESC, created_at DESC",
+                false, date -> databaseHelper.getActiveGoals().size()));
+
+        report.methodStats.add(measure("getAllAchievements", iterations, DatabaseHelper.TABLE_ACHIEVEMENTS,
+                "SELECT * FROM " + DatabaseHelper.TABLE_ACHIEVEMENTS + " ORDER BY tier, category",
+                false, date -> databaseHelper.getAllAchievements().size()));
+    }
+
+    private void measureWrites(LoadTestReport report, int iterations) {
+        report.methodStats.add(measure("insertStepData", iterations, null, null, false,
+                date -> {
+                    databaseHelper.insertStepData(date, 100, "hourly");
+                    return 1;
+                }));
+
+        report.methodStats.add(measure("insertBatteryData", iterations, null, null, false,
+                date -> {
+                    databaseHelper.insertBatteryData(date, 50, false, "good");
+                    return 1;
+                }));
+
+        report.methodStats.add(measure("insertScreenTimeData", iterations, null, null, false,
+                date -> {
+                    databaseHelper.insertScreenTimeData(date, "chrome", "com.android.chrome", 60000, date + " 12:00:00");
+                    return 1;
+                }));
+    }
+
+    /**
+     * Compare one-row-per-call inserts against the transactional batch variants
+     */
+    private void measureWriteThroughput(LoadTestReport report) {
+        String date = randomDate();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < THROUGHPUT_ROWS; i++) {
+            databaseHelper.insertStepData(date, i, "hourly");
+        }
+        report.throughput.add(new ThroughputResult("insertStepData x1", THROUGHPUT_ROWS, System.nanoTime() - start));
+
+        start = System.nanoTime();
+        int written = 0;
+        List<DatabaseHelper.StepSample> steps = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < THROUGHPUT_ROWS; i++) {
+            steps.add(new DatabaseHelper.StepSample(date, System.currentTimeMillis(), i, "hourly"));
+            if (steps.size() == BATCH_SIZE) {
+                written += databaseHelper.insertStepDataBatch(steps);
+                steps.clear();
+            }
+        }
+        if (!steps.isEmpty()) {
+            written += databaseHelper.insertStepDataBatch(steps);
+        }
+        report.throughput.add(new ThroughputResult("insertStepDataBatch x" + BATCH_SIZE, written, System.nanoTime() - start));
+
+        start = System.nanoTime();
+        for (int i = 0; i < THROUGHPUT_ROWS; i++) {
+            databaseHelper.insertBatteryData(date, i % 100, false, "good");
+        }
+        report.throughput.add(new ThroughputResult("insertBatteryData x1", THROUGHPUT_ROWS, System.nanoTime() - start));
+
+        start = System.nanoTime();
+        written = 0;
+        List<DatabaseHelper.BatterySample> battery = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < THROUGHPUT_ROWS; i++) {
+            battery.add(new DatabaseHelper.BatterySample(date, System.currentTimeMillis(), i % 100, false, "good"));
+            if (battery.size() == BATCH_SIZE) {
+                written += databaseHelper.insertBatteryDataBatch(battery);
+                battery.clear();
+            }
+        }
+        if (!battery.isEmpty()) {
+            written += databaseHelper.insertBatteryDataBatch(battery);
+        }
+        report.throughput.add(new ThroughputResult("insertBatteryDataBatch x" + BATCH_SIZE, written, System.nanoTime() - start));
+    }
+
+    /**
+     * Time a probe over random dates from the generated range. When an explain query is given,
+     * rows scanned are estimated as the table size for a full scan and rows returned otherwise.
+     */
+    private MethodStats measure(String method, int iterations, String table, String explainSql,
+                                boolean explainTakesDate, Probe probe) {
+        long[] latencies = new long[iterations];
+        long rowsReturned = 0;
+        int errors = 0;
+
+        // One untimed call to warm the page cache and statement cache
+        try {
+            probe.run(randomDate());
+        } catch (Exception e) {
+            Log.w(TAG, method + " warm-up failed", e);
+        }
+
+        for (int i = 0; i < iterations; i++) {
+            String date = randomDate();
+            long start = System.nanoTime();
+            try {
+                rowsReturned += probe.run(date);
+            } catch (Exception e) {
+                errors++;
+            }
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+
+        String plan = "write";
+        long rowsScanned = rowsReturned;
+        if (explainSql != null) {
+            plan = explain(explainSql, explainTakesDate
+                    ? new String[]{String.valueOf(EpochDays.fromDateKey(randomDate()))} : null);
+            if (isFullScan(plan)) {
+                rowsScanned = (long) countRows(table) * iterations;
+            }
+        }
+
+        return new MethodStats(method, latencies, rowsReturned, rowsScanned, plan, errors);
+    }
+
+    private String explain(String sql, String[] args) {
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        StringBuilder plan = new StringBuilder();
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        try {
+            int detailIndex = cursor.getColumnIndex("detail");
+            while (cursor.moveToNext()) {
+                if (plan.length() > 0) plan.append("; ");
+                plan.append(cursor.getString(detailIndex));
+            }
+        } finally {
+            cursor.close();
+        }
+        return plan.toString();
+    }
+
+    private boolean isFullScan(String plan) {
+        // "SCAN t" without an index is a table scan; "SCAN t USING COVERING INDEX" still reads every entry
+        return plan.startsWith("SCAN") || plan.contains("; SCAN");
+    }
+
+    private int countRows(String table) {
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM " + table, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private List<String> collectDates() {
+        List<String> result = new ArrayList<>();
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(
+                "SELECT date FROM " + DatabaseHelper.TABLE_DAY_RECORDS, null);
+        try {
+            while (cursor.moveToNext()) {
+                result.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        if (result.isEmpty()) {
+            result.add(dateFormat.format(Calendar.getInstance().getTime()));
+        }
+        return result;
+    }
+
+    private String randomDate() {
+        return dates.get(random.nextInt(dates.size()));
+    }
+}
@@ -0,0 +1,135 @@
+package com.locallife.service;
+
+import android.util.Log;
+
+import com.locallife.database.QueryMetrics;
+import com.locallife.model.DayRecord;
+import com.locallife.model.PredictionResult;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Benchmark for the weekly forecast: the 42 slots scored one at a time the way
+ * predictActivity did before batching, against one predictActivities batch. Reports user
+ * context builds, DatabaseHelper calls counted by QueryMetrics, and wall time per
+ * forecast. The prediction cache is cleared before every batch so it does the full work.
+ */
+public class PredictionBatchBenchmark {
+    private static final String TAG = "PredictionBatchBenchmark";
+
+    /**
+     * Cost of one way of producing the weekly forecast
+     */
+    public static class PathResult {
+        private final String path;
+        private final int slots;
+        private final int contextLoads;
+        private final long queries;
+        private final long nanos;
+        private final int rounds;
+
+        PathResult(String path, int slots, int contextLoads, long queries, long nanos, int rounds) {
+            this.path = path;
+            this.slots = slots;
+            this.contextLoads = contextLoads;
+            this.queries = queries;
+            this.nanos = nanos;
+            this.rounds = rounds;
+        }
+
+        public String getPath() { return path; }
+        public int getSlots() { return slots; }
+        public double getContextLoadsPerForecast() { return rounds == 0 ? 0 : (double) contextLoads / rounds; }
+        public double getQueriesPerForecast() { return rounds == 0 ? 0 : (double) queries / rounds; }
+        public double getMsPerForecast() { return rounds == 0 ? 0 : nanos / 1e6 / rounds; }
+    }
+
+    public static class BenchmarkReport {
+        private PathResult perSlot;
+        private PathResult batched;
+
+        public PathResult getPerSlot() { return perSlot; }
+        public PathResult getBatched() { return batched; }
+        public double getSpeedup() { return batched.getMsPerForecast() == 0 ? 0 : perSlot.getMsPerForecast() / batched.getMsPerForecast(); }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "%-10s %6s %10s %10s %12s%n",
+                    "path", "slots", "contexts", "queries", "ms/forecast"));
+            for (PathResult result : new PathResult[]{perSlot, batched}) {
+                sb.append(String.format(Locale.US, "%-10s %6d %10.1f %10.1f %12.2f%n",
+                        result.getPath(), result.getSlots(), result.getContextLoadsPerForecast(),
+                        result.getQueriesPerForecast(), result.getMsPerForecast()));
+            }
+            sb.append(String.format(Locale.US, "speedup %.1fx%n", getSpeedup()));
+            return sb.toString();
+        }
+    }
+
+    private final ActivityPredictionEngine engine;
+
+    public PredictionBatchBenchmark(ActivityPredictionEngine engine) {
+        this.engine = engine;
+    }
+
+    /**
+     * Produce the weekly forecast the given number of times along each path
+     */
+    public BenchmarkReport run(int rounds) {
+        DayRecord weather = new DayRecord();
+        weather.setTemperature(18.5f);
+        weather.setHumidity(62f);
+        weather.setWeatherCondition("Partly cloudy");
+        weather.setWindSpeed(3.2f);
+        weather.setUvIndex(4.0);
+        weather.setAirQualityIndex(42);
+        weather.setMoonPhase("Waxing Gibbous");
+        weather.setDayLengthMinutes(760);
+        List<ActivityPredictionEngine.PredictionSlot> slots =
+                ActivityPredictionEngine.weeklySlots(new Date(), weather);
+
+        BenchmarkReport report = new BenchmarkReport();
+
+        int loadsBefore = engine.getUserContextLoadCount();
+        long queriesBefore = queryCount();
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (ActivityPredictionEngine.PredictionSlot slot : slots) {
+                engine.predictSlotUnbatched(slot);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        report.perSlot = new PathResult("per-slot", slots.size(), engine.getUserContextLoadCount() - loadsBefore,
+                queryCount() - queriesBefore, nanos, rounds);
+
+        loadsBefore = engine.getUserContextLoadCount();
+        queriesBefore = queryCount();
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            engine.clearCache();
+            List<PredictionResult> results = engine.predictActivities(slots);
+            if (results.size() != slots.size()) {
+                throw new IllegalStateException("Batch returned " + results.size() + " of " + slots.size() + " slots");
+            }
+        }
+        nanos = System.nanoTime() - start;
+        report.batched = new PathResult("batched", slots.size(), engine.getUserContextLoadCount() - loadsBefore,
+                queryCount() - queriesBefore, nanos, rounds);
+
+        engine.clearCache();
+        Log.i(TAG, report.toString());
+        return report;
+    }
+
+    // Calls recorded so far across every DatabaseHelper method
+    private long queryCount() {
+        long calls = 0;
+        for (QueryMetrics.MethodSnapshot method : engine.getQueryMetrics().snapshot()) {
+            calls += method.getCalls();
+        }
+        return calls;
+    }
+}
@@ -0,0 +1,51 @@
+package com.locallife.service;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the weekly forecast benchmark on the device. The report is logged under
+ * PredictionBatchBenchmark; the assertions check the batch builds one user context and
+ * reads the database a fixed number of times per forecast, where the per-slot path does
+ * both for every slot.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PredictionBatchTest {
+    private ActivityPredictionEngine engine;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        engine = new ActivityPredictionEngine(context);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    public void weeklyForecastBuildsOneUserContextPerBatch() {
+        PredictionBatchBenchmark.BenchmarkReport report = new PredictionBatchBenchmark(engine).run(3);
+        PredictionBatchBenchmark.PathResult perSlot = report.getPerSlot();
+        PredictionBatchBenchmark.PathResult batched = report.getBatched();
+
+        assertEquals(perSlot.getSlots(), batched.getSlots());
+        assertEquals(1.0, batched.getContextLoadsPerForecast(), 0);
+        assertEquals(perSlot.getSlots(), perSlot.getContextLoadsPerForecast(), 0);
+        // Today's record, plus the recent days when there is one
+        assertTrue("batch ran " + batched.getQueriesPerForecast() + " queries",
+                batched.getQueriesPerForecast() >= 1 && batched.getQueriesPerForecast() <= 2);
+        assertEquals(perSlot.getSlots() * batched.getQueriesPerForecast(), perSlot.getQueriesPerForecast(), 0);
+    }
+}
@@ -24,6 +24,7 @@ import com.locallife.model.MediaConsumption;
 import com.locallife.service.PhotoMetadataService;
 import com.locallife.service.WeatherService;
 import com.locallife.service.LocationService;
+import com.locallife.service.MediaSessionizer;
 import com.locallife.service.MediaTrackingService;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -613,6 +614,33 @@ public class DashboardFragment extends Fragment implements ActivityAdapter.OnAct
             }
         }
         
+        // Watch time over the week, read from the daily rollups
+        MediaSessionizer.MediaInsights week = mediaTrackingService.getWeeklyInsights();
+        if (week.totalMinutes > 0) {
+            String insightText = "You watched " + week.getFormattedTotalTime() + " of media in the last 7 days";
+            if (!week.minutesByShow.isEmpty()) {
+                // Shows come ordered by watch time
+                insightText += ", most of it " + week.minutesByShow.keySet().iterator().next();
+            }
+            String changeText = week.bingeCount > 0
+                ? week.bingeCount + (week.bingeCount == 1 ? " binge session" : " binge sessions")
+                : "No binge sessions";
+            
+            // Same thresholds as the daily insight, over seven days
+            int priority = 1;
+            if (week.totalMinutes > 7 * 180) {
+                priority = 3;
+            } else if (week.totalMinutes > 7 * 60) {
+                priority = 2;
+            }
+            
+            insights.add(new InsightAdapter.Insight(
+                "Media This Week", insightText,
+                week.getFormattedTotalTime(), changeText,
+                android.R.drawable.ic_menu_slideshow, priority, "media",
+                System.currentTimeMillis()));
+        }
+        
         // Update the adapter
         if (getActivity() != null) {
             getActivity().runOnUiThread(() -> {
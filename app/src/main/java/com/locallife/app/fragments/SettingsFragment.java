@@ -9,17 +9,22 @@ import android.widget.CompoundButton;
 import android.widget.LinearLayout;
 import android.widget.Switch;
 import android.widget.TextView;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.fragment.app.Fragment;
 import com.locallife.app.R;
+import com.locallife.database.DataExporter;
+import com.locallife.database.DataImporter;
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.DayRecord;
 import com.locallife.model.PhotoMetadata;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -56,6 +61,11 @@ public class SettingsFragment extends Fragment {
     private TextView tvUserName;
     private TextView tvUserEmail;
     private TextView tvAppVersion;
+    
+    private DataExporter dataExporter;
+    private DataImporter dataImporter;
+    private final ActivityResultLauncher<String[]> importLauncher =
+            registerForActivityResult(new ActivityResultContracts.OpenDocument(), this::importBackup);
 
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container,
@@ -75,6 +85,18 @@ public class SettingsFragment extends Fragment {
         loadUserSettings();
     }
 
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        // Lets a running transfer finish but stops the worker threads afterwards
+        if (dataExporter != null) {
+            dataExporter.shutdown();
+        }
+        if (dataImporter != null) {
+            dataImporter.shutdown();
+        }
+    }
+
     private void initializeViews(View view) {
         // Layout items
         llProfile = view.findViewById(R.id.ll_profile);
@@ -286,7 +308,7 @@ public class SettingsFragment extends Fragment {
      * Show dialog for data export options
      */
     private void showExportDialog() {
-        String[] options = {"Export to CSV", "Export to JSON", "Export All Data"};
+        String[] options = {"Export to CSV", "Export Full Backup", "Export All Data", "Import Backup"};
         
         new AlertDialog.Builder(requireContext())
                 .setTitle("Export Data")
@@ -301,115 +323,153 @@ public class SettingsFragment extends Fragment {
                         case 2:
                             exportAllData();
                             break;
+                        case 3:
+                            importLauncher.launch(new String[]{"*/*"});
+                            break;
                     }
                 })
                 .show();
     }
     
     /**
-     * Export daily records to CSV format
+     * Export daily records to CSV, one readable row per day, in the background
      */
     private void exportToCSV() {
-        try {
-            DatabaseHelper db = DatabaseHelper.getInstance(getContext());
-            List<DayRecord> records = db.getAllDayRecords();
-            
-            if (records.isEmpty()) {
-                showMessage("No data to export");
-                return;
-            }
-            
-            // Create CSV file
-            String fileName = "locallife_data_" + new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date()) + ".csv";
-            File file = new File(getContext().getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
-            
-            FileWriter writer = new FileWriter(file);
-            
-            // Write CSV header
-            writer.append("Date,Steps,Places Visited,Screen Time (min),Battery Usage %,Activity Score,Temperature,Weather,Primary Location\n");
-            
-            // Write data rows
-            for (DayRecord record : records) {
-                writer.append(String.valueOf(record.getDate())).append(",");
-                writer.append(String.valueOf(record.getStepCount())).append(",");
-                writer.append(String.valueOf(record.getPlacesVisited())).append(",");
-                writer.append(String.valueOf(record.getScreenTimeMinutes())).append(",");
-                writer.append(String.valueOf(record.getBatteryUsagePercent())).append(",");
-                writer.append(String.valueOf(record.getActivityScore())).append(",");
-                writer.append(String.valueOf(record.getTemperature())).append(",");
-                writer.append(String.valueOf(record.getWeatherCondition())).append(",");
-                writer.append(String.valueOf(record.getPrimaryLocation())).append("\n");
-            }
-            
-            writer.close();
-            
-            // Share the file
-            shareFile(file, "text/csv");
-            
-        } catch (IOException e) {
-            showMessage("Error exporting data: " + e.getMessage());
-        }
+        File file = exportFile("locallife_data_" + exportDateStamp() + ".csv");
+        AlertDialog progressDialog = showProgressDialog("Exporting data...");
+        getDataExporter().exportDailySummaryAsync(file, exportProgress(progressDialog),
+                exportCallback(progressDialog, "text/csv"));
     }
     
     /**
-     * Export daily records to JSON format
+     * Export every table as gzip-compressed NDJSON; the file can be restored with Import Backup
      */
     private void exportToJSON() {
-        try {
-            DatabaseHelper db = DatabaseHelper.getInstance(getContext());
-            List<DayRecord> records = db.getAllDayRecords();
-            
-            if (records.isEmpty()) {
-                showMessage("No data to export");
-                return;
+        File file = exportFile("locallife_backup_" + exportDateStamp() + ".ndjson.gz");
+        AlertDialog progressDialog = showProgressDialog("Exporting data...");
+        getDataExporter().exportAsync(file, DataExporter.ALL_TABLES, DataExporter.Format.NDJSON, true,
+                exportProgress(progressDialog), exportCallback(progressDialog, "application/gzip"));
+    }
+    
+    private String exportDateStamp() {
+        return new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date());
+    }
+    
+    private File exportFile(String fileName) {
+        return new File(requireContext().getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
+    }
+    
+    private DataExporter.ProgressListener exportProgress(AlertDialog progressDialog) {
+        return (table, tableRows, totalWritten, totalRows) -> updateProgress(progressDialog,
+                "Exporting " + table + "\n" + totalWritten + " of " + totalRows + " rows");
+    }
+    
+    /**
+     * Dismiss the progress dialog once the export finishes, then share the file
+     */
+    private DataExporter.ExportCallback exportCallback(AlertDialog progressDialog, String mimeType) {
+        return new DataExporter.ExportCallback() {
+            @Override
+            public void onComplete(DataExporter.ExportResult result) {
+                runOnUi(() -> {
+                    progressDialog.dismiss();
+                    if (result.getTotalRows() == 0) {
+                        showMessage("No data to export");
+                    } else {
+                        shareFile(result.getFile(), mimeType);
+                    }
+                });
             }
             
-            // Create JSON file
-            String fileName = "locallife_data_" + new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date()) + ".json";
-            File file = new File(getContext().getExternalFilesDir(Environment.DIRECTORY_DOCUMENTS), fileName);
-            
-            FileWriter writer = new FileWriter(file);
-            
-            // Write JSON
-            writer.append("{\n");
-            writer.append("  \"export_date\": \"").append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(new Date())).append("\",\n");
-            writer.append("  \"app_version\": \"1.0.0\",\n");
-            writer.append("  \"data_type\": \"daily_records\",\n");
-            writer.append("  \"records\": [\n");
-            
-            for (int i = 0; i < records.size(); i++) {
-                DayRecord record = records.get(i);
-                writer.append("    {\n");
-                writer.append("      \"date\": \"").append(record.getDate()).append("\",\n");
-                writer.append("      \"step_count\": ").append(String.valueOf(record.getStepCount())).append(",\n");
-                writer.append("      \"places_visited\": ").append(String.valueOf(record.getPlacesVisited())).append(",\n");
-                writer.append("      \"screen_time_minutes\": ").append(String.valueOf(record.getScreenTimeMinutes())).append(",\n");
-                writer.append("      \"battery_usage_percent\": ").append(String.valueOf(record.getBatteryUsagePercent())).append(",\n");
-                writer.append("      \"activity_score\": ").append(String.valueOf(record.getActivityScore())).append(",\n");
-                writer.append("      \"temperature\": ").append(String.valueOf(record.getTemperature())).append(",\n");
-                writer.append("      \"humidity\": ").append(String.valueOf(record.getHumidity())).append(",\n");
-                writer.append("      \"weather_condition\": \"").append(record.getWeatherCondition() != null ? record.getWeatherCondition() : "").append("\",\n");
-                writer.append("      \"primary_location\": \"").append(record.getPrimaryLocation() != null ? record.getPrimaryLocation() : "").append("\",\n");
-                writer.append("      \"phone_unlocks\": ").append(String.valueOf(record.getPhoneUnlocks())).append(",\n");
-                writer.append("      \"photo_count\": ").append(String.valueOf(record.getPhotoCount())).append("\n");
-                writer.append("    }");
-                
-                if (i < records.size() - 1) {
-                    writer.append(",");
-                }
-                writer.append("\n");
+            @Override
+            public void onError(Exception error) {
+                runOnUi(() -> {
+                    progressDialog.dismiss();
+                    showMessage("Error exporting data: " + error.getMessage());
+                });
             }
-            
-            writer.append("  ]\n");
-            writer.append("}\n");
-            
-            writer.close();
-            
-            // Share the file
-            shareFile(file, "application/json");
-            
+        };
+    }
+    
+    /**
+     * Load a backup picked by the user, keeping any rows that already exist
+     */
+    private void importBackup(Uri uri) {
+        if (uri == null) {
+            return;
+        }
+        
+        InputStream input;
+        try {
+            input = requireContext().getContentResolver().openInputStream(uri);
         } catch (IOException e) {
-            showMessage("Error exporting data: " + e.getMessage());
+            showMessage("Error opening backup: " + e.getMessage());
+            return;
+        }
+        if (input == null) {
+            showMessage("Error opening backup");
+            return;
+        }
+        
+        AlertDialog progressDialog = showProgressDialog("Importing data...");
+        getDataImporter().importAsync(input,
+                (table, totalImported) -> updateProgress(progressDialog,
+                        "Importing " + table + "\n" + totalImported + " rows"),
+                new DataImporter.ImportCallback() {
+                    @Override
+                    public void onComplete(DataImporter.ImportResult result) {
+                        runOnUi(() -> {
+                            progressDialog.dismiss();
+                            showMessage("Imported " + result.getTotalRows() + " rows in "
+                                    + (result.getDurationMs() / 1000.0) + " s");
+                        });
+                    }
+                    
+                    @Override
+                    public void onError(Exception error) {
+                        runOnUi(() -> {
+                            progressDialog.dismiss();
+                            showMessage("Error importing data: " + error.getMessage());
+                        });
+                    }
+                });
+    }
+    
+    private DataExporter getDataExporter() {
+        if (dataExporter == null) {
+            dataExporter = new DataExporter(DatabaseHelper.getInstance(requireContext()));
+        }
+        return dataExporter;
+    }
+    
+    private DataImporter getDataImporter() {
+        if (dataImporter == null) {
+            dataImporter = new DataImporter(DatabaseHelper.getInstance(requireContext()), false);
+        }
+        return dataImporter;
+    }
+    
+    private AlertDialog showProgressDialog(String message) {
+        AlertDialog dialog = new AlertDialog.Builder(requireContext())
+                .setTitle("Data Transfer")
+                .setMessage(message)
+                .setCancelable(false)
+                .create();
+        dialog.show();
+        return dialog;
+    }
+    
+    private void updateProgress(AlertDialog dialog, String message) {
+        runOnUi(() -> {
+            if (dialog.isShowing()) {
+                dialog.setMessage(message);
+            }
+        });
+    }
+    
+    private void runOnUi(Runnable action) {
+        if (getActivity() != null && isAdded()) {
+            getActivity().runOnUiThread(action);
         }
     }
     
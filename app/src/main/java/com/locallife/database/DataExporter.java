@@ -0,0 +1,430 @@
+package com.locallife.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Base64;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams database tables to CSV or NDJSON without loading them into memory.
+ * Each table is read in keyset pages (rowid > last LIMIT n) through a forward-only
+ * cursor and written through a buffered, optionally gzip-compressed writer, so at most
+ * one page of rows is alive at a time however long the history is.
+ *
+ * CSV files hold one section per table: a "#table,name" marker, a header row, then rows.
+ * NULL is written as an empty field and empty strings as "". NDJSON files hold one
+ * object per row with the table name under "_table". BLOBs are written as base64 text in
+ * both. DataImporter reads both back. The daily summary is a plain CSV of day_records
+ * for people and spreadsheets; it is not a backup and is not read back.
+ */
+public class DataExporter {
+    private static final String TAG = "DataExporter";
+
+    static final int PAGE_SIZE = 500;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // Report progress every this many rows so callbacks don't dominate the export
+    private static final int PROGRESS_INTERVAL_ROWS = 1000;
+
+    static final String CSV_TABLE_MARKER = "#table";
+    static final String NDJSON_TABLE_KEY = "_table";
+
+    /**
+     * Every user-data table, parents before children so imports satisfy foreign keys
+     */
+    public static final String[] ALL_TABLES = {
+            DatabaseHelper.TABLE_DAY_RECORDS, DatabaseHelper.TABLE_LOCATION_VISITS,
+            DatabaseHelper.TABLE_STEP_DATA, DatabaseHelper.TABLE_WEATHER_DATA,
+            DatabaseHelper.TABLE_BATTERY_DATA, DatabaseHelper.TABLE_SCREEN_TIME,
+            DatabaseHelper.TABLE_PHOTO_METADATA, DatabaseHelper.TABLE_MEDIA_CONSUMPTION,
+            DatabaseHelper.TABLE_AIR_QUALITY, DatabaseHelper.TABLE_MOON_PHASE,
+            DatabaseHelper.TABLE_UV_INDEX, DatabaseHelper.TABLE_DAYLIGHT_DATA,
+            DatabaseHelper.TABLE_GOALS, DatabaseHelper.TABLE_ACHIEVEMENTS,
+            DatabaseHelper.TABLE_USER_LEVEL, DatabaseHelper.TABLE_SERIES_BLOBS
+    };
+
+    // day_records columns in the daily summary, and their header labels
+    private static final String[] SUMMARY_COLUMNS = {
+            "date", "step_count", "places_visited", "screen_time_minutes", "battery_usage_percent",
+            "activity_score", "temperature", "weather_condition", "primary_location"
+    };
+    private static final String SUMMARY_HEADER = "Date,Steps,Places Visited,Screen Time (min),"
+            + "Battery Usage %,Activity Score,Temperature,Weather,Primary Location";
+
+    public enum Format {
+        CSV, NDJSON
+    }
+
+    public interface ProgressListener {
+        void onProgress(String table, long tableRowsWritten, long totalRowsWritten, long totalRows);
+    }
+
+    public interface ExportCallback {
+        void onComplete(ExportResult result);
+        void onError(Exception error);
+    }
+
+    /**
+     * Rows written per table plus size and timing of an export
+     */
+    public static class ExportResult {
+        private final File file;
+        private final Map<String, Long> rowsPerTable = new LinkedHashMap<>();
+        private long totalRows;
+        private long durationMs;
+
+        ExportResult(File file) {
+            this.file = file;
+        }
+
+        public File getFile() { return file; }
+        public Map<String, Long> getRowsPerTable() { return rowsPerTable; }
+        public long getTotalRows() { return totalRows; }
+        public long getDurationMs() { return durationMs; }
+        public long getFileSizeBytes() { return file.length(); }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public DataExporter(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Run export() on a background thread; the callback runs on that thread too
+     */
+    public void exportAsync(File file, String[] tables, Format format, boolean gzip,
+                            ProgressListener listener, ExportCallback callback) {
+        executor.execute(() -> {
+            try {
+                callback.onComplete(export(file, tables, format, gzip, listener));
+            } catch (Exception e) {
+                Log.e(TAG, "Export to " + file + " failed", e);
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Run exportDailySummary() on a background thread; the callback runs on that thread too
+     */
+    public void exportDailySummaryAsync(File file, ProgressListener listener, ExportCallback callback) {
+        executor.execute(() -> {
+            try {
+                callback.onComplete(exportDailySummary(file, listener));
+            } catch (Exception e) {
+                Log.e(TAG, "Export to " + file + " failed", e);
+                callback.onError(e);
+            }
+        });
+    }
+
+    /**
+     * Export the given tables to a file. The file is deleted if the export fails part way.
+     */
+    public ExportResult export(File file, String[] tables, Format format, boolean gzip,
+                               ProgressListener listener) throws IOException {
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        long totalRows = 0;
+        for (String table : tables) {
+            totalRows += DatabaseUtils.queryNumEntries(db, table);
+        }
+        long expectedRows = totalRows;
+
+        return write(file, gzip, (writer, result) -> {
+            for (String table : tables) {
+                long written = exportTable(db, writer, table, format, result.totalRows, expectedRows, listener);
+                result.rowsPerTable.put(table, written);
+                result.totalRows += written;
+            }
+        });
+    }
+
+    /**
+     * Export one CSV row per day, newest first, with the columns and headers shown to users.
+     * The file is deleted if the export fails part way.
+     */
+    public ExportResult exportDailySummary(File file, ProgressListener listener) throws IOException {
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        String table = DatabaseHelper.TABLE_DAY_RECORDS;
+        long totalRows = DatabaseUtils.queryNumEntries(db, table);
+
+        return write(file, false, (writer, result) -> {
+            writer.write(SUMMARY_HEADER);
+            writer.write('\n');
+
+            // Keyset pages by epoch_day, which is unique per day like the date it is derived from
+            String sql = "SELECT " + String.join(", ", SUMMARY_COLUMNS) + ", epoch_day FROM " + table
+                    + " WHERE epoch_day < ? ORDER BY epoch_day DESC LIMIT " + PAGE_SIZE;
+            long lastEpochDay = Long.MAX_VALUE;
+            long written = 0;
+            while (true) {
+                Cursor cursor = db.rawQuery(sql, new String[]{String.valueOf(lastEpochDay)});
+                int pageRows = 0;
+                try {
+                    while (cursor.moveToNext()) {
+                        lastEpochDay = cursor.getLong(SUMMARY_COLUMNS.length);
+                        writeSummaryRow(writer, cursor);
+                        pageRows++;
+                        written++;
+                        if (listener != null && written % PROGRESS_INTERVAL_ROWS == 0) {
+                            listener.onProgress(table, written, written, totalRows);
+                        }
+                    }
+                } finally {
+                    cursor.close();
+                }
+                if (pageRows < PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            if (listener != null) {
+                listener.onProgress(table, written, written, totalRows);
+            }
+            result.rowsPerTable.put(table, written);
+            result.totalRows = written;
+        });
+    }
+
+    private interface FileContent {
+        void write(Writer writer, ExportResult result) throws IOException;
+    }
+
+    private ExportResult write(File file, boolean gzip, FileContent content) throws IOException {
+        long started = System.currentTimeMillis();
+        ExportResult result = new ExportResult(file);
+
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), WRITE_BUFFER_SIZE);
+        boolean success = false;
+        try {
+            if (gzip) {
+                out = new GZIPOutputStream(out, WRITE_BUFFER_SIZE);
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+            // No enclosing transaction: it would hold the write connection for the whole export.
+            // Keyset paging stays correct while collectors append; new rows simply land in later pages.
+            content.write(writer, result);
+            writer.flush();
+            writer.close();
+            success = true;
+        } finally {
+            if (!success) {
+                try {
+                    out.close();
+                } catch (IOException ignored) {
+                    // Already failing; the original exception is more useful
+                }
+                if (!file.delete()) {
+                    Log.w(TAG, "Could not delete partial export " + file);
+                }
+            }
+        }
+
+        result.durationMs = System.currentTimeMillis() - started;
+        Log.d(TAG, "Exported " + result.totalRows + " rows to " + file.getName() + " in "
+                + result.durationMs + " ms (" + file.length() + " bytes)");
+        return result;
+    }
+
+    private long exportTable(SQLiteDatabase db, Writer writer, String table, Format format,
+                             long rowsBefore, long totalRows, ProgressListener listener) throws IOException {
+        long lastRowId = Long.MIN_VALUE;
+        long written = 0;
+        String[] columns = null;
+
+        if (format == Format.CSV) {
+            writer.write(CSV_TABLE_MARKER);
+            writer.write(',');
+            writer.write(table);
+            writer.write('\n');
+        }
+
+        while (true) {
+            // Column 0 is the rowid used for paging; it is not exported
+            Cursor cursor = db.rawQuery("SELECT rowid AS _export_rowid, * FROM " + table
+                    + " WHERE rowid > ? ORDER BY rowid LIMIT " + PAGE_SIZE,
+                    new String[]{String.valueOf(lastRowId)});
+            int pageRows = 0;
+            try {
+                if (columns == null) {
+                    columns = cursor.getColumnNames();
+                    if (format == Format.CSV) {
+                        writeCsvHeader(writer, columns);
+                    }
+                }
+                while (cursor.moveToNext()) {
+                    lastRowId = cursor.getLong(0);
+                    if (format == Format.CSV) {
+                        writeCsvRow(writer, cursor, columns.length);
+                    } else {
+                        writeJsonRow(writer, cursor, columns, table);
+                    }
+                    pageRows++;
+                    written++;
+                    if (listener != null && written % PROGRESS_INTERVAL_ROWS == 0) {
+                        listener.onProgress(table, written, rowsBefore + written, totalRows);
+                    }
+                }
+            } finally {
+                cursor.close();
+            }
+            if (pageRows < PAGE_SIZE) {
+                break;
+            }
+        }
+
+        if (listener != null) {
+            listener.onProgress(table, written, rowsBefore + written, totalRows);
+        }
+        return written;
+    }
+
+    private static void writeCsvHeader(Writer writer, String[] columns) throws IOException {
+        for (int i = 1; i < columns.length; i++) {
+            if (i > 1) writer.write(',');
+            writeCsvString(writer, columns[i]);
+        }
+        writer.write('\n');
+    }
+
+    private static void writeCsvRow(Writer writer, Cursor cursor, int columnCount) throws IOException {
+        for (int i = 1; i < columnCount; i++) {
+            if (i > 1) writer.write(',');
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_NULL:
+                    break;
+                case Cursor.FIELD_TYPE_INTEGER:
+                    writer.write(Long.toString(cursor.getLong(i)));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    writer.write(Double.toString(cursor.getDouble(i)));
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    writeCsvString(writer, cursor.getString(i));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    writeCsvString(writer, Base64.encodeToString(cursor.getBlob(i), Base64.NO_WRAP));
+                    break;
+                default:
+                    break;
+            }
+        }
+        writer.write('\n');
+    }
+
+    private static void writeSummaryRow(Writer writer, Cursor cursor) throws IOException {
+        for (int i = 0; i < SUMMARY_COLUMNS.length; i++) {
+            if (i > 0) writer.write(',');
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    writer.write(Long.toString(cursor.getLong(i)));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    writer.write(Double.toString(cursor.getDouble(i)));
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    String value = cursor.getString(i);
+                    // Quoted only when needed, so dates and plain names read as they did before
+                    if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+                        writeCsvString(writer, value);
+                    } else {
+                        writer.write(value);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Strings are always quoted so an empty string stays distinguishable from NULL
+     */
+    private static void writeCsvString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static void writeJsonRow(Writer writer, Cursor cursor, String[] columns, String table) throws IOException {
+        writer.write("{\"");
+        writer.write(NDJSON_TABLE_KEY);
+        writer.write("\":");
+        writeJsonString(writer, table);
+        for (int i = 1; i < columns.length; i++) {
+            writer.write(',');
+            writeJsonString(writer, columns[i]);
+            writer.write(':');
+            switch (cursor.getType(i)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    writer.write(Long.toString(cursor.getLong(i)));
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    double value = cursor.getDouble(i);
+                    // JSON has no NaN/Infinity literals
+                    writer.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+                    break;
+                case Cursor.FIELD_TYPE_STRING:
+                    writeJsonString(writer, cursor.getString(i));
+                    break;
+                case Cursor.FIELD_TYPE_BLOB:
+                    writeJsonString(writer, Base64.encodeToString(cursor.getBlob(i), Base64.NO_WRAP));
+                    break;
+                default:
+                    writer.write("null");
+                    break;
+            }
+        }
+        writer.write("}\n");
+    }
+
+    private static void writeJsonString(Writer writer, String value) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': writer.write("\\\""); break;
+                case '\\': writer.write("\\\\"); break;
+                case '\n': writer.write("\\n"); break;
+                case '\r': writer.write("\\r"); break;
+                case '\t': writer.write("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format(Locale.US, "\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+            }
+        }
+        writer.write('"');
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
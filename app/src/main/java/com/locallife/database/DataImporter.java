@@ -0,0 +1,534 @@
+package com.locallife.database;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Base64;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Loads files written by DataExporter back into the database.
+ * Gzip and the CSV/NDJSON format are detected from the content. Rows are inserted
+ * through one compiled statement per table, committing every IMPORT_BATCH_ROWS rows so
+ * a multi-year history loads in a handful of large transactions without starving the
+ * collectors. Only known tables and columns that exist in the current schema are written.
+ * Rows get new row ids, so a backup can be restored into a database that already holds
+ * data: location visits are re-pointed at the ids their days were given, and the visits
+ * of a day that is kept rather than restored are dropped with it.
+ */
+public class DataImporter {
+    private static final String TAG = "DataImporter";
+
+    private static final int IMPORT_BATCH_ROWS = 5000;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL_ROWS = 1000;
+
+    private static final String DATE_COLUMN = "date";
+    private static final String RECORD_ID_COLUMN = "record_id";
+
+    public interface ProgressListener {
+        void onProgress(String table, long totalRowsImported);
+    }
+
+    public interface ImportCallback {
+        void onComplete(ImportResult result);
+        void onError(Exception error);
+    }
+
+    /**
+     * Rows imported per table, and rows skipped because their table or format was unknown,
+     * they were already present, or their day was not restored
+     */
+    public static class ImportResult {
+        private final Map<String, Long> rowsPerTable = new LinkedHashMap<>();
+        private long totalRows;
+        private long skippedRows;
+        private long durationMs;
+
+        void addRow(String table) {
+            Long current = rowsPerTable.get(table);
+            rowsPerTable.put(table, (current != null ? current : 0L) + 1);
+            totalRows++;
+        }
+
+        public Map<String, Long> getRowsPerTable() { return rowsPerTable; }
+        public long getTotalRows() { return totalRows; }
+        public long getSkippedRows() { return skippedRows; }
+        public long getDurationMs() { return durationMs; }
+    }
+
+    /**
+     * Compiled insert for one table, with each bound column's position in the source row.
+     * The primary key is not bound; its source position is kept to map old ids to new ones.
+     */
+    private static class TableInsert {
+        final String table;
+        final SQLiteStatement statement;
+        final String[] columns;
+        final int[] sourceIndexes;
+        // BLOB columns arrive as base64 text
+        final boolean[] blobColumns;
+        final String keyColumn;
+        final int keySourceIndex;
+        // Position of record_id in columns for location_visits, of date for day_records, or -1
+        final int recordIdColumn;
+        final int dateColumn;
+        // In replace mode, deletes the visits of the local day a restored day_records row replaces
+        final SQLiteStatement deleteVisits;
+
+        TableInsert(String table, SQLiteStatement statement, String[] columns, int[] sourceIndexes,
+                    boolean[] blobColumns, String keyColumn, int keySourceIndex, SQLiteStatement deleteVisits) {
+            this.table = table;
+            this.statement = statement;
+            this.columns = columns;
+            this.sourceIndexes = sourceIndexes;
+            this.blobColumns = blobColumns;
+            this.keyColumn = keyColumn;
+            this.keySourceIndex = keySourceIndex;
+            this.recordIdColumn = DatabaseHelper.TABLE_LOCATION_VISITS.equals(table)
+                    ? Arrays.asList(columns).indexOf(RECORD_ID_COLUMN) : -1;
+            this.dateColumn = DatabaseHelper.TABLE_DAY_RECORDS.equals(table)
+                    ? Arrays.asList(columns).indexOf(DATE_COLUMN) : -1;
+            this.deleteVisits = deleteVisits;
+        }
+
+        void close() {
+            statement.close();
+            if (deleteVisits != null) {
+                deleteVisits.close();
+            }
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+    private final boolean replaceExisting;
+    private final Set<String> knownTables = new HashSet<>(Arrays.asList(DataExporter.ALL_TABLES));
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /**
+     * @param replaceExisting overwrite rows whose unique key (a day's date, a photo's path)
+     *                        already exists instead of keeping them
+     */
+    public DataImporter(DatabaseHelper databaseHelper, boolean replaceExisting) {
+        this.databaseHelper = databaseHelper;
+        this.replaceExisting = replaceExisting;
+    }
+
+    /**
+     * Run importFrom() on a background thread; the callback runs on that thread too.
+     * The stream is closed when the import finishes.
+     */
+    public void importAsync(InputStream input, ProgressListener listener, ImportCallback callback) {
+        executor.execute(() -> {
+            try {
+                callback.onComplete(importFrom(input, listener));
+            } catch (Exception e) {
+                Log.e(TAG, "Import failed", e);
+                callback.onError(e);
+            } finally {
+                try {
+                    input.close();
+                } catch (IOException ignored) {
+                    // Nothing useful to do if closing the source fails
+                }
+            }
+        });
+    }
+
+    public ImportResult importFrom(File file, ProgressListener listener) throws IOException {
+        InputStream input = new FileInputStream(file);
+        try {
+            return importFrom(input, listener);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Import every row in the stream. Rows committed before a failure stay in the database.
+     */
+    public ImportResult importFrom(InputStream input, ProgressListener listener) throws IOException {
+        long started = System.currentTimeMillis();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(maybeGunzip(input), StandardCharsets.UTF_8), READ_BUFFER_SIZE);
+
+        ImportResult result = new ImportResult();
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        Map<String, TableInsert> inserts = new HashMap<>();
+        // day_records id in the file -> id it was restored under; day_records precede location_visits
+        Map<Long, Long> recordIds = new HashMap<>();
+        int rowsInBatch = 0;
+
+        db.beginTransactionNonExclusive();
+        try {
+            reader.mark(1);
+            int first = reader.read();
+            reader.reset();
+            if (first == '{') {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isEmpty()) continue;
+                    String table = importJsonRow(db, line, inserts, recordIds, result);
+                    if (table != null) {
+                        rowsInBatch = commitIfFull(db, rowsInBatch + 1);
+                        reportProgress(listener, table, result);
+                    }
+                }
+            } else {
+                CsvReader csv = new CsvReader(reader);
+                String table = null;
+                TableInsert insert = null;
+                List<String> record;
+                while ((record = csv.readRecord()) != null) {
+                    if (record.size() == 2 && DataExporter.CSV_TABLE_MARKER.equals(record.get(0))) {
+                        table = knownTables.contains(record.get(1)) ? record.get(1) : null;
+                        // The header row follows the marker
+                        List<String> header = csv.readRecord();
+                        insert = null;
+                        if (table == null) {
+                            Log.w(TAG, "Skipping unknown table " + record.get(1));
+                        } else if (header != null) {
+                            insert = prepareInsert(db, table, header);
+                            TableInsert previous = inserts.put(table, insert);
+                            if (previous != null) {
+                                previous.close();
+                            }
+                        }
+                        continue;
+                    }
+                    if (insert == null) {
+                        result.skippedRows++;
+                        continue;
+                    }
+                    Object[] values = new Object[insert.sourceIndexes.length];
+                    for (int i = 0; i < values.length; i++) {
+                        int source = insert.sourceIndexes[i];
+                        values[i] = source < record.size() ? record.get(source) : null;
+                    }
+                    Object key = insert.keySourceIndex >= 0 && insert.keySourceIndex < record.size()
+                            ? record.get(insert.keySourceIndex) : null;
+                    insertRow(insert, values, key, recordIds, result);
+                    rowsInBatch = commitIfFull(db, rowsInBatch + 1);
+                    reportProgress(listener, table, result);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            for (TableInsert insert : inserts.values()) {
+                insert.close();
+            }
+        }
+
+        result.durationMs = System.currentTimeMillis() - started;
+        Log.d(TAG, "Imported " + result.totalRows + " rows (" + result.skippedRows + " skipped) in "
+                + result.durationMs + " ms");
+        return result;
+    }
+
+    /**
+     * Commit the current batch once it is full and start the next one
+     */
+    private static int commitIfFull(SQLiteDatabase db, int rowsInBatch) {
+        if (rowsInBatch < IMPORT_BATCH_ROWS) {
+            return rowsInBatch;
+        }
+        db.setTransactionSuccessful();
+        db.endTransaction();
+        db.beginTransactionNonExclusive();
+        return 0;
+    }
+
+    private static void reportProgress(ProgressListener listener, String table, ImportResult result) {
+        if (listener != null && result.totalRows % PROGRESS_INTERVAL_ROWS == 0) {
+            listener.onProgress(table, result.totalRows);
+        }
+    }
+
+    /**
+     * Insert one NDJSON row; returns its table, or null if the row was skipped
+     */
+    private String importJsonRow(SQLiteDatabase db, String line, Map<String, TableInsert> inserts,
+                                  Map<Long, Long> recordIds, ImportResult result) throws IOException {
+        JSONObject row;
+        try {
+            row = new JSONObject(line);
+        } catch (JSONException e) {
+            result.skippedRows++;
+            return null;
+        }
+
+        String table = row.optString(DataExporter.NDJSON_TABLE_KEY, null);
+        if (table == null || !knownTables.contains(table)) {
+            result.skippedRows++;
+            return null;
+        }
+
+        TableInsert insert = inserts.get(table);
+        if (insert == null) {
+            List<String> header = new ArrayList<>();
+            for (Iterator<String> keys = row.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                if (!DataExporter.NDJSON_TABLE_KEY.equals(key)) {
+                    header.add(key);
+                }
+            }
+            insert = prepareInsert(db, table, header);
+            inserts.put(table, insert);
+        }
+
+        Object[] values = new Object[insert.columns.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = row.opt(insert.columns[i]);
+        }
+        insertRow(insert, values, insert.keyColumn != null ? row.opt(insert.keyColumn) : null, recordIds, result);
+        return table;
+    }
+
+    /**
+     * Insert one row under a new id. A location visit is bound to the id its day was restored
+     * under and skipped if that day was not restored; a restored day's id is recorded.
+     */
+    private static void insertRow(TableInsert insert, Object[] values, Object key, Map<Long, Long> recordIds,
+                                  ImportResult result) {
+        SQLiteStatement statement = insert.statement;
+        statement.clearBindings();
+        for (int i = 0; i < values.length; i++) {
+            if (insert.blobColumns[i] && values[i] instanceof String) {
+                statement.bindBlob(i + 1, Base64.decode((String) values[i], Base64.NO_WRAP));
+            } else {
+                bindValue(statement, i + 1, values[i]);
+            }
+        }
+
+        if (insert.recordIdColumn >= 0) {
+            Long backupRecordId = toLong(values[insert.recordIdColumn]);
+            Long recordId = backupRecordId != null ? recordIds.get(backupRecordId) : null;
+            if (recordId == null) {
+                result.skippedRows++;
+                return;
+            }
+            statement.bindLong(insert.recordIdColumn + 1, recordId);
+        }
+        if (insert.deleteVisits != null && insert.dateColumn >= 0) {
+            // REPLACE deletes the local day and inserts a new row, which would orphan its visits
+            insert.deleteVisits.clearBindings();
+            bindValue(insert.deleteVisits, 1, values[insert.dateColumn]);
+            insert.deleteVisits.executeUpdateDelete();
+        }
+
+        long rowId = statement.executeInsert();
+        if (rowId == -1) {
+            // Ignored because a row with the same unique key is already present
+            result.skippedRows++;
+            return;
+        }
+        if (DatabaseHelper.TABLE_DAY_RECORDS.equals(insert.table)) {
+            Long backupId = toLong(key);
+            if (backupId != null) {
+                recordIds.put(backupId, rowId);
+            }
+        }
+        result.addRow(insert.table);
+    }
+
+    private static void bindValue(SQLiteStatement statement, int index, Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            statement.bindNull(index);
+        } else if (value instanceof Integer || value instanceof Long) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else {
+            // Column affinity turns numeric CSV text back into INTEGER/REAL
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    private static Long toLong(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compile an insert for the header columns that exist in the current schema
+     */
+    private TableInsert prepareInsert(SQLiteDatabase db, String table, List<String> header) {
+        Set<String> schemaColumns = new HashSet<>();
+        Set<String> blobColumns = new HashSet<>();
+        String keyColumn = null;
+        int keyColumns = 0;
+        Cursor cursor = db.rawQuery("PRAGMA table_info(" + table + ")", null);
+        try {
+            int nameIndex = cursor.getColumnIndex("name");
+            int typeIndex = cursor.getColumnIndex("type");
+            int pkIndex = cursor.getColumnIndex("pk");
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(nameIndex);
+                schemaColumns.add(name);
+                if ("BLOB".equalsIgnoreCase(cursor.getString(typeIndex))) {
+                    blobColumns.add(name);
+                }
+                if (cursor.getInt(pkIndex) > 0) {
+                    keyColumns++;
+                    // Only a single INTEGER PRIMARY KEY is a row id; composite keys are data
+                    keyColumn = "INTEGER".equalsIgnoreCase(cursor.getString(typeIndex)) ? name : null;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        if (keyColumns != 1) {
+            keyColumn = null;
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<Integer> sourceIndexes = new ArrayList<>();
+        int keySourceIndex = -1;
+        for (int i = 0; i < header.size(); i++) {
+            String column = header.get(i);
+            if (column != null && column.equals(keyColumn)) {
+                // Rows get new ids; the old one only maps location visits to their day
+                keySourceIndex = i;
+            } else if (column != null && schemaColumns.contains(column)) {
+                columns.add(column);
+                sourceIndexes.add(i);
+            } else {
+                Log.w(TAG, "Ignoring column " + column + " not present in " + table);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder(replaceExisting ? "INSERT OR REPLACE INTO " : "INSERT OR IGNORE INTO ")
+                .append(table).append(" (");
+        StringBuilder placeholders = new StringBuilder();
+        int[] indexes = new int[columns.size()];
+        boolean[] blobs = new boolean[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+                placeholders.append(", ");
+            }
+            sql.append(columns.get(i));
+            placeholders.append('?');
+            indexes[i] = sourceIndexes.get(i);
+            blobs[i] = blobColumns.contains(columns.get(i));
+        }
+        sql.append(") VALUES (").append(placeholders).append(')');
+
+        SQLiteStatement deleteVisits = null;
+        if (replaceExisting && DatabaseHelper.TABLE_DAY_RECORDS.equals(table) && columns.contains(DATE_COLUMN)) {
+            deleteVisits = db.compileStatement("DELETE FROM " + DatabaseHelper.TABLE_LOCATION_VISITS
+                    + " WHERE " + RECORD_ID_COLUMN + " IN (SELECT " + keyColumn + " FROM "
+                    + DatabaseHelper.TABLE_DAY_RECORDS + " WHERE " + DATE_COLUMN + " = ?)");
+        }
+
+        return new TableInsert(table, db.compileStatement(sql.toString()), columns.toArray(new String[0]), indexes,
+                blobs, keyColumn, keySourceIndex, deleteVisits);
+    }
+
+    private static InputStream maybeGunzip(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, READ_BUFFER_SIZE);
+        buffered.mark(2);
+        int b1 = buffered.read();
+        int b2 = buffered.read();
+        buffered.reset();
+        boolean gzip = b1 == (GZIPInputStream.GZIP_MAGIC & 0xff) && b2 == (GZIPInputStream.GZIP_MAGIC >> 8);
+        return gzip ? new GZIPInputStream(buffered, READ_BUFFER_SIZE) : buffered;
+    }
+
+    /**
+     * Minimal RFC 4180 reader matching DataExporter's output: quoted fields may contain
+     * commas, quotes and newlines; an unquoted empty field reads as null.
+     */
+    private static class CsvReader {
+        private final BufferedReader reader;
+        private final StringBuilder field = new StringBuilder();
+
+        CsvReader(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        List<String> readRecord() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+
+            List<String> record = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean inQuotes = false;
+            while (true) {
+                if (inQuotes) {
+                    if (c == -1) {
+                        throw new IOException("Unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        int next = reader.read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            inQuotes = false;
+                            reader.reset();
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                    inQuotes = true;
+                } else if (c == ',') {
+                    record.add(quoted || field.length() > 0 ? field.toString() : null);
+                    field.setLength(0);
+                    quoted = false;
+                } else if (c == '\n' || c == -1) {
+                    record.add(quoted || field.length() > 0 ? field.toString() : null);
+                    return record;
+                } else if (c != '\r') {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -5,6 +5,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
 
 import com.locallife.model.DayRecord;
@@ -13,10 +14,13 @@ import com.locallife.model.MediaConsumption;
 import com.locallife.model.Goal;
 import com.locallife.model.Achievement;
 import com.locallife.model.UserLevel;
+import com.locallife.utils.EpochDays;
+import com.locallife.utils.HourlyHistogram;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -29,28 +33,32 @@ import java.util.Map;
 public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String TAG = "DatabaseHelper";
     private static final String DATABASE_NAME = "locallife.db";
-    private static final int DATABASE_VERSION = 8;
+    private static final int DATABASE_VERSION = 13;
+    
+    // Page cache per connection, in KiB (negative cache_size means KiB rather than pages)
+    private static final int CACHE_SIZE_KB = 4096;
     
     // Date format for database storage
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
     private static final SimpleDateFormat DATETIME_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
     
     // Table names
-    private static final String TABLE_DAY_RECORDS = "day_records";
-    private static final String TABLE_LOCATION_VISITS = "location_visits";
-    private static final String TABLE_STEP_DATA = "step_data";
-    private static final String TABLE_WEATHER_DATA = "weather_data";
-    private static final String TABLE_BATTERY_DATA = "battery_data";
-    private static final String TABLE_SCREEN_TIME = "screen_time";
-    private static final String TABLE_PHOTO_METADATA = "photo_metadata";
-    private static final String TABLE_AIR_QUALITY = "air_quality";
-    private static final String TABLE_MOON_PHASE = "moon_phase";
-    private static final String TABLE_UV_INDEX = "uv_index";
-    private static final String TABLE_DAYLIGHT_DATA = "daylight_data";
-    private static final String TABLE_MEDIA_CONSUMPTION = "media_consumption";
-    private static final String TABLE_GOALS = "goals";
-    private static final String TABLE_ACHIEVEMENTS = "achievements";
-    private static final String TABLE_USER_LEVEL = "user_level";
+    static final String TABLE_DAY_RECORDS = "day_records";
+    static final String TABLE_LOCATION_VISITS = "location_visits";
+    static final String TABLE_STEP_DATA = "step_data";
+    static final String TABLE_WEATHER_DATA = "weather_data";
+    static final String TABLE_BATTERY_DATA = "battery_data";
+    static final String TABLE_SCREEN_TIME = "screen_time";
+    static final String TABLE_PHOTO_METADATA = "photo_metadata";
+    static final String TABLE_AIR_QUALITY = "air_quality";
+    static final String TABLE_MOON_PHASE = "moon_phase";
+    static final String TABLE_UV_INDEX = "uv_index";
+    static final String TABLE_DAYLIGHT_DATA = "daylight_data";
+    static final String TABLE_MEDIA_CONSUMPTION = "media_consumption";
+    static final String TABLE_GOALS = "goals";
+    static final String TABLE_ACHIEVEMENTS = "achievements";
+    static final String TABLE_USER_LEVEL = "user_level";
+    static final String TABLE_SERIES_BLOBS = "series_blobs";
     
     // Day Records table columns
     private static final String KEY_ID = "id";
@@ -69,6 +77,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String KEY_SCREEN_TIME_MINUTES = "screen_time_minutes";
     private static final String KEY_BATTERY_USAGE_PERCENT = "battery_usage_percent";
     private static final String KEY_PHONE_UNLOCKS = "phone_unlocks";
+    private static final String KEY_HOURLY_STEPS = "hourly_steps";
+    private static final String KEY_HOURLY_SCREEN_SECONDS = "hourly_screen_seconds";
     private static final String KEY_PHYSICAL_ACTIVITY_SCORE = "physical_activity_score";
     private static final String KEY_SOCIAL_ACTIVITY_SCORE = "social_activity_score";
     private static final String KEY_PRODUCTIVITY_SCORE = "productivity_score";
@@ -78,6 +88,15 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String KEY_CREATED_AT = "created_at";
     private static final String KEY_UPDATED_AT = "updated_at";
     
+    // Integer date/time columns (version 9); the TEXT columns are still written alongside them
+    private static final String KEY_EPOCH_DAY = "epoch_day";
+    private static final String KEY_TIMESTAMP_MS = "timestamp_ms";
+    private static final String KEY_CREATED_AT_MS = "created_at_ms";
+    private static final String KEY_UPDATED_AT_MS = "updated_at_ms";
+    private static final String KEY_ARRIVAL_MS = "arrival_ms";
+    private static final String KEY_DEPARTURE_MS = "departure_ms";
+    private static final String KEY_DATE_TAKEN_MS = "date_taken_ms";
+    
     // Location Visits table columns
     private static final String KEY_RECORD_ID = "record_id";
     private static final String KEY_PLACE_NAME = "place_name";
@@ -103,6 +122,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     private static final String KEY_BATTERY_LEVEL = "battery_level";
     private static final String KEY_IS_CHARGING = "is_charging";
     private static final String KEY_BATTERY_HEALTH = "battery_health";
+    private static final String KEY_BATTERY_MIN_LEVEL = "battery_min_level";
+    private static final String KEY_BATTERY_MAX_LEVEL = "battery_max_level";
+    private static final String KEY_SAMPLE_COUNT = "sample_count";
     
     // Screen Time table columns
     private static final String KEY_APP_NAME = "app_name";
@@ -242,10 +264,93 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     private static DatabaseHelper instance;
     
+    private final QueryMetrics metrics = new QueryMetrics();
+    
+    // Precompiled statements for the high-frequency writers, compiled on first use
+    private SQLiteStatement stepInsertStatement;
+    private SQLiteStatement batteryInsertStatement;
+    private SQLiteStatement screenTimeInsertStatement;
+    private SQLiteStatement locationVisitInsertStatement;
+    
+    /**
+     * One step_data row for bulk inserts
+     */
+    public static class StepSample {
+        public final String date;
+        public final long timestamp;
+        public final int steps;
+        public final String stepType;
+        
+        public StepSample(String date, long timestamp, int steps, String stepType) {
+            this.date = date;
+            this.timestamp = timestamp;
+            this.steps = steps;
+            this.stepType = stepType;
+        }
+    }
+    
+    /**
+     * One battery_data row for bulk inserts. A raw reading has min = max = level and a
+     * sample count of one; a downsampled bucket carries the average in batteryLevel.
+     */
+    public static class BatterySample {
+        public final String date;
+        public final long timestamp;
+        public final int batteryLevel;
+        public final boolean isCharging;
+        public final String batteryHealth;
+        public final int minLevel;
+        public final int maxLevel;
+        public final int sampleCount;
+        
+        public BatterySample(String date, long timestamp, int batteryLevel, boolean isCharging, String batteryHealth) {
+            this(date, timestamp, batteryLevel, isCharging, batteryHealth, batteryLevel, batteryLevel, 1);
+        }
+        
+        public BatterySample(String date, long timestamp, int batteryLevel, boolean isCharging, String batteryHealth,
+                             int minLevel, int maxLevel, int sampleCount) {
+            this.date = date;
+            this.timestamp = timestamp;
+            this.batteryLevel = batteryLevel;
+            this.isCharging = isCharging;
+            this.batteryHealth = batteryHealth;
+            this.minLevel = minLevel;
+            this.maxLevel = maxLevel;
+            this.sampleCount = sampleCount;
+        }
+    }
+    
+    /**
+     * One screen_time row for bulk inserts
+     */
+    public static class ScreenTimeSample {
+        public final String date;
+        public final String appName;
+        public final String packageName;
+        public final int usageTime;
+        public final String lastUsed;
+        
+        public ScreenTimeSample(String date, String appName, String packageName, int usageTime, String lastUsed) {
+            this.date = date;
+            this.appName = appName;
+            this.packageName = packageName;
+            this.usageTime = usageTime;
+            this.lastUsed = lastUsed;
+        }
+    }
+    
     private DatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
     }
-    
+
+    /**
+     * Open a separate database file with the same schema, used by the load-test harness
+     * so synthetic data never touches the user's database
+     */
+    DatabaseHelper(Context context, String databaseName) {
+        super(context, databaseName, null, DATABASE_VERSION);
+    }
+
     public static synchronized DatabaseHelper getInstance(Context context) {
         if (instance == null) {
             instance = new DatabaseHelper(context.getApplicationContext());
@@ -253,6 +358,25 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         return instance;
     }
     
+    /**
+     * Per-method call counts, latency histograms and row counts for this helper
+     */
+    public QueryMetrics getQueryMetrics() {
+        return metrics;
+    }
+    
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        
+        // WAL lets readers run alongside the collectors' writes and turns each commit into an append
+        db.enableWriteAheadLogging();
+        // With WAL, NORMAL only syncs at checkpoints and is still safe against app crashes
+        db.execSQL("PRAGMA synchronous = NORMAL");
+        db.execSQL("PRAGMA cache_size = -" + CACHE_SIZE_KB);
+        db.execSQL("PRAGMA temp_store = MEMORY");
+    }
+    
     @Override
     public void onCreate(SQLiteDatabase db) {
         createTables(db);
@@ -263,7 +387,27 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
         Log.w(TAG, "Upgrading database from version " + oldVersion + " to " + newVersion);
         
-        // Drop all tables and recreate
+        if (oldVersion >= 8) {
+            if (oldVersion < 9) {
+                migrateToEpochColumns(db);
+            }
+            if (oldVersion < 10) {
+                addBatteryBucketColumns(db);
+            }
+            if (oldVersion < 11) {
+                db.execSQL("ALTER TABLE " + TABLE_DAY_RECORDS + " ADD COLUMN " + KEY_HOURLY_STEPS + " TEXT");
+                db.execSQL("ALTER TABLE " + TABLE_DAY_RECORDS + " ADD COLUMN " + KEY_HOURLY_SCREEN_SECONDS + " TEXT");
+            }
+            if (oldVersion < 12) {
+                replaceLocationVisitsIndex(db);
+            }
+            if (oldVersion < 13) {
+                createSeriesBlobsTable(db);
+            }
+            return;
+        }
+        
+        // Versions before 8 are not migrated; drop all tables and recreate
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_DAY_RECORDS);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_LOCATION_VISITS);
         db.execSQL("DROP TABLE IF EXISTS " + TABLE_STEP_DATA);
@@ -283,11 +427,115 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         onCreate(db);
     }
     
+    /**
+     * Version 9: add integer epoch-day and epoch-millis columns next to the TEXT dates,
+     * backfill them from the existing rows and swap the date indexes over to them
+     */
+    private void migrateToEpochColumns(SQLiteDatabase db) {
+        String[] dayKeyedTables = {TABLE_DAY_RECORDS, TABLE_STEP_DATA, TABLE_WEATHER_DATA, TABLE_BATTERY_DATA,
+                TABLE_SCREEN_TIME, TABLE_PHOTO_METADATA, TABLE_MEDIA_CONSUMPTION, TABLE_AIR_QUALITY,
+                TABLE_MOON_PHASE, TABLE_UV_INDEX, TABLE_DAYLIGHT_DATA};
+        
+        for (String table : dayKeyedTables) {
+            addIntegerColumn(db, table, KEY_EPOCH_DAY);
+        }
+        addIntegerColumn(db, TABLE_DAY_RECORDS, KEY_CREATED_AT_MS);
+        addIntegerColumn(db, TABLE_DAY_RECORDS, KEY_UPDATED_AT_MS);
+        addIntegerColumn(db, TABLE_LOCATION_VISITS, KEY_ARRIVAL_MS);
+        addIntegerColumn(db, TABLE_LOCATION_VISITS, KEY_DEPARTURE_MS);
+        addIntegerColumn(db, TABLE_STEP_DATA, KEY_TIMESTAMP_MS);
+        addIntegerColumn(db, TABLE_WEATHER_DATA, KEY_TIMESTAMP_MS);
+        addIntegerColumn(db, TABLE_BATTERY_DATA, KEY_TIMESTAMP_MS);
+        addIntegerColumn(db, TABLE_PHOTO_METADATA, KEY_DATE_TAKEN_MS);
+        
+        long started = System.currentTimeMillis();
+        int backfilled = 0;
+        backfilled += backfillColumns(db, TABLE_DAY_RECORDS, KEY_EPOCH_DAY + " = " + epochDaySql(KEY_DATE) + ", "
+                + KEY_CREATED_AT_MS + " = " + epochMillisSql(KEY_CREATED_AT) + ", "
+                + KEY_UPDATED_AT_MS + " = " + epochMillisSql(KEY_UPDATED_AT));
+        backfilled += backfillColumns(db, TABLE_LOCATION_VISITS, KEY_ARRIVAL_MS + " = " + epochMillisSql(KEY_ARRIVAL_TIME) + ", "
+                + KEY_DEPARTURE_MS + " = " + epochMillisSql(KEY_DEPARTURE_TIME));
+        for (String table : new String[]{TABLE_STEP_DATA, TABLE_WEATHER_DATA, TABLE_BATTERY_DATA}) {
+            backfilled += backfillColumns(db, table, KEY_EPOCH_DAY + " = " + epochDaySql(KEY_DATE) + ", "
+                    + KEY_TIMESTAMP_MS + " = " + epochMillisSql(KEY_TIMESTAMP));
+        }
+        backfilled += backfillColumns(db, TABLE_PHOTO_METADATA, KEY_EPOCH_DAY + " = " + epochDaySql(KEY_DATE) + ", "
+                + KEY_DATE_TAKEN_MS + " = " + epochMillisSql(KEY_DATE_TAKEN));
+        for (String table : new String[]{TABLE_SCREEN_TIME, TABLE_MEDIA_CONSUMPTION, TABLE_AIR_QUALITY,
+                TABLE_MOON_PHASE, TABLE_UV_INDEX, TABLE_DAYLIGHT_DATA}) {
+            backfilled += backfillColumns(db, table, KEY_EPOCH_DAY + " = " + epochDaySql(KEY_DATE));
+        }
+        
+        // The TEXT date indexes are no longer used by any query; the epoch_day ones replace them
+        for (String table : dayKeyedTables) {
+            db.execSQL("DROP INDEX IF EXISTS idx_" + table + "_date");
+        }
+        createIndexes(db);
+        
+        Log.i(TAG, "Backfilled " + backfilled + " rows with integer dates in "
+                + (System.currentTimeMillis() - started) + " ms");
+    }
+    
+    /**
+     * Version 10: battery_data rows become 15-minute buckets; existing raw rows are
+     * buckets of one sample
+     */
+    private void addBatteryBucketColumns(SQLiteDatabase db) {
+        addIntegerColumn(db, TABLE_BATTERY_DATA, KEY_BATTERY_MIN_LEVEL);
+        addIntegerColumn(db, TABLE_BATTERY_DATA, KEY_BATTERY_MAX_LEVEL);
+        addIntegerColumn(db, TABLE_BATTERY_DATA, KEY_SAMPLE_COUNT);
+        backfillColumns(db, TABLE_BATTERY_DATA, KEY_BATTERY_MIN_LEVEL + " = " + KEY_BATTERY_LEVEL + ", "
+                + KEY_BATTERY_MAX_LEVEL + " = " + KEY_BATTERY_LEVEL + ", " + KEY_SAMPLE_COUNT + " = 1");
+    }
+    
+    /**
+     * Version 12: visits are read per record in arrival order, so the single-column
+     * record_id index is replaced by one on (record_id, arrival_ms). Databases migrated to
+     * version 9 kept the old index, since the composite one was created under the same name.
+     */
+    private void replaceLocationVisitsIndex(SQLiteDatabase db) {
+        db.execSQL("DROP INDEX IF EXISTS idx_location_visits_record_id");
+        createIndexes(db);
+    }
+    
+    private static void addIntegerColumn(SQLiteDatabase db, String table, String column) {
+        db.execSQL("ALTER TABLE " + table + " ADD COLUMN " + column + " INTEGER");
+    }
+    
+    /**
+     * Fill new columns on every row of the table in a single UPDATE. This runs inside the one
+     * transaction SQLiteOpenHelper holds for onUpgrade, so the whole migration commits at once
+     * and an interrupted one rolls back and reruns on the next open.
+     */
+    private static int backfillColumns(SQLiteDatabase db, String table, String assignments) {
+        SQLiteStatement statement = db.compileStatement("UPDATE " + table + " SET " + assignments);
+        try {
+            return statement.executeUpdateDelete();
+        } finally {
+            statement.close();
+        }
+    }
+    
+    /**
+     * SQL expression turning a 'yyyy-MM-dd' column into days since 1970-01-01
+     */
+    private static String epochDaySql(String column) {
+        return "CAST(julianday(" + column + ") - 2440587.5 AS INTEGER)";
+    }
+    
+    /**
+     * SQL expression turning a local 'yyyy-MM-dd HH:mm:ss' column into epoch millis; NULL stays NULL
+     */
+    private static String epochMillisSql(String column) {
+        return "CAST(ROUND((julianday(" + column + ", 'utc') - 2440587.5) * 86400000) AS INTEGER)";
+    }
+    
     private void createTables(SQLiteDatabase db) {
         // Day Records table
         String CREATE_DAY_RECORDS_TABLE = "CREATE TABLE " + TABLE_DAY_RECORDS + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT UNIQUE NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_STEP_COUNT + " INTEGER DEFAULT 0,"
                 + KEY_TOTAL_DISTANCE + " REAL DEFAULT 0,"
                 + KEY_ACTIVE_MINUTES + " INTEGER DEFAULT 0,"
@@ -314,8 +562,12 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + "binge_watching_minutes INTEGER DEFAULT 0,"
                 + "unique_media_platforms INTEGER DEFAULT 0,"
                 + "media_consumption_score REAL DEFAULT 0,"
+                + KEY_HOURLY_STEPS + " TEXT,"
+                + KEY_HOURLY_SCREEN_SECONDS + " TEXT,"
                 + KEY_CREATED_AT + " TEXT NOT NULL,"
-                + KEY_UPDATED_AT + " TEXT NOT NULL"
+                + KEY_UPDATED_AT + " TEXT NOT NULL,"
+                + KEY_CREATED_AT_MS + " INTEGER,"
+                + KEY_UPDATED_AT_MS + " INTEGER"
                 + ")";
         
         // Location Visits table
@@ -327,6 +579,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + KEY_LONGITUDE + " REAL NOT NULL,"
                 + KEY_ARRIVAL_TIME + " TEXT NOT NULL,"
                 + KEY_DEPARTURE_TIME + " TEXT,"
+                + KEY_ARRIVAL_MS + " INTEGER,"
+                + KEY_DEPARTURE_MS + " INTEGER,"
                 + KEY_DURATION_MINUTES + " INTEGER DEFAULT 0,"
                 + KEY_PLACE_CATEGORY + " TEXT,"
                 + "FOREIGN KEY(" + KEY_RECORD_ID + ") REFERENCES " + TABLE_DAY_RECORDS + "(" + KEY_ID + ")"
@@ -337,6 +591,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
+                + KEY_TIMESTAMP_MS + " INTEGER,"
                 + KEY_STEPS + " INTEGER NOT NULL,"
                 + KEY_STEP_TYPE + " TEXT DEFAULT 'hourly'"
                 + ")";
@@ -346,6 +602,8 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
+                + KEY_TIMESTAMP_MS + " INTEGER,"
                 + KEY_LOCATION + " TEXT,"
                 + KEY_TEMPERATURE + " REAL,"
                 + KEY_HUMIDITY + " REAL,"
@@ -361,15 +619,21 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
+                + KEY_TIMESTAMP_MS + " INTEGER,"
                 + KEY_BATTERY_LEVEL + " INTEGER,"
                 + KEY_IS_CHARGING + " INTEGER,"
-                + KEY_BATTERY_HEALTH + " TEXT"
+                + KEY_BATTERY_HEALTH + " TEXT,"
+                + KEY_BATTERY_MIN_LEVEL + " INTEGER,"
+                + KEY_BATTERY_MAX_LEVEL + " INTEGER,"
+                + KEY_SAMPLE_COUNT + " INTEGER"
                 + ")";
         
         // Screen Time table
         String CREATE_SCREEN_TIME_TABLE = "CREATE TABLE " + TABLE_SCREEN_TIME + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_APP_NAME + " TEXT,"
                 + KEY_PACKAGE_NAME + " TEXT,"
                 + KEY_USAGE_TIME + " INTEGER,"
@@ -382,7 +646,9 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + KEY_PHOTO_URI + " TEXT NOT NULL,"
                 + KEY_PHOTO_PATH + " TEXT UNIQUE NOT NULL,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_DATE_TAKEN + " TEXT,"
+                + KEY_DATE_TAKEN_MS + " INTEGER,"
                 + KEY_DATE_MODIFIED + " TEXT,"
                 + KEY_LATITUDE + " REAL DEFAULT 0,"
                 + KEY_LONGITUDE + " REAL DEFAULT 0,"
@@ -419,6 +685,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_AIR_QUALITY_TABLE = "CREATE TABLE " + TABLE_AIR_QUALITY + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
                 + KEY_LATITUDE + " REAL NOT NULL,"
                 + KEY_LONGITUDE + " REAL NOT NULL,"
@@ -437,6 +704,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_MOON_PHASE_TABLE = "CREATE TABLE " + TABLE_MOON_PHASE + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
                 + KEY_MOON_PHASE + " TEXT,"
                 + KEY_MOON_PHASE_INDEX + " INTEGER,"
@@ -452,6 +720,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_UV_INDEX_TABLE = "CREATE TABLE " + TABLE_UV_INDEX + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
                 + KEY_LATITUDE + " REAL NOT NULL,"
                 + KEY_LONGITUDE + " REAL NOT NULL,"
@@ -469,6 +738,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_DAYLIGHT_DATA_TABLE = "CREATE TABLE " + TABLE_DAYLIGHT_DATA + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + KEY_TIMESTAMP + " TEXT NOT NULL,"
                 + KEY_LATITUDE + " REAL NOT NULL,"
                 + KEY_LONGITUDE + " REAL NOT NULL,"
@@ -498,6 +768,7 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         String CREATE_MEDIA_CONSUMPTION_TABLE = "CREATE TABLE " + TABLE_MEDIA_CONSUMPTION + "("
                 + KEY_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + KEY_DATE + " TEXT NOT NULL,"
+                + KEY_EPOCH_DAY + " INTEGER,"
                 + "media_type TEXT NOT NULL,"
                 + "title TEXT NOT NULL,"
                 + "platform TEXT,"
@@ -592,26 +863,42 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 + ")";
         
         db.execSQL(CREATE_USER_LEVEL_TABLE);
+        
+        createSeriesBlobsTable(db);
+    }
+    
+    /**
+     * Version 13: one TimeSeriesCodec blob per metric and day. Earlier builds created the
+     * table lazily outside the schema, hence IF NOT EXISTS.
+     */
+    private static void createSeriesBlobsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SERIES_BLOBS + " ("
+                + "metric TEXT NOT NULL, "
+                + KEY_EPOCH_DAY + " INTEGER NOT NULL, "
+                + "sample_count INTEGER NOT NULL, "
+                + "data BLOB NOT NULL, "
+                + "PRIMARY KEY (metric, " + KEY_EPOCH_DAY + "))");
     }
     
     private void createIndexes(SQLiteDatabase db) {
-        // Create indexes for better performance
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_day_records_date ON " + TABLE_DAY_RECORDS + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_location_visits_record_id ON " + TABLE_LOCATION_VISITS + "(" + KEY_RECORD_ID + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_step_data_date ON " + TABLE_STEP_DATA + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_weather_data_date ON " + TABLE_WEATHER_DATA + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_battery_data_date ON " + TABLE_BATTERY_DATA + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_screen_time_date ON " + TABLE_SCREEN_TIME + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_photo_metadata_date ON " + TABLE_PHOTO_METADATA + "(" + KEY_DATE + ")");
+        // Create indexes for better performance; date lookups go through the integer epoch_day columns
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_day_records_epoch_day ON " + TABLE_DAY_RECORDS + "(" + KEY_EPOCH_DAY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_location_visits_record_arrival ON " + TABLE_LOCATION_VISITS + "(" + KEY_RECORD_ID + ", " + KEY_ARRIVAL_MS + ")");
+        // Covering indexes so per-day step and battery series are read without touching the table
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_step_data_epoch_day ON " + TABLE_STEP_DATA + "(" + KEY_EPOCH_DAY + ", " + KEY_TIMESTAMP_MS + ", " + KEY_STEPS + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_battery_data_epoch_day ON " + TABLE_BATTERY_DATA + "(" + KEY_EPOCH_DAY + ", " + KEY_TIMESTAMP_MS + ", " + KEY_BATTERY_LEVEL + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_weather_data_epoch_day ON " + TABLE_WEATHER_DATA + "(" + KEY_EPOCH_DAY + ", " + KEY_TIMESTAMP_MS + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_screen_time_epoch_day ON " + TABLE_SCREEN_TIME + "(" + KEY_EPOCH_DAY + ", " + KEY_USAGE_TIME + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_photo_metadata_epoch_day ON " + TABLE_PHOTO_METADATA + "(" + KEY_EPOCH_DAY + ", " + KEY_DATE_TAKEN_MS + ")");
         db.execSQL("CREATE INDEX IF NOT EXISTS idx_photo_metadata_path ON " + TABLE_PHOTO_METADATA + "(" + KEY_PHOTO_PATH + ")");
         db.execSQL("CREATE INDEX IF NOT EXISTS idx_photo_metadata_date_taken ON " + TABLE_PHOTO_METADATA + "(" + KEY_DATE_TAKEN + ")");
         
         // Environmental data indexes
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_air_quality_date ON " + TABLE_AIR_QUALITY + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_moon_phase_date ON " + TABLE_MOON_PHASE + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_uv_index_date ON " + TABLE_UV_INDEX + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_media_consumption_date ON " + TABLE_MEDIA_CONSUMPTION + "(" + KEY_DATE + ")");
-        db.execSQL("CREATE INDEX IF NOT EXISTS idx_daylight_data_date ON " + TABLE_DAYLIGHT_DATA + "(" + KEY_DATE + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_air_quality_epoch_day ON " + TABLE_AIR_QUALITY + "(" + KEY_EPOCH_DAY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_moon_phase_epoch_day ON " + TABLE_MOON_PHASE + "(" + KEY_EPOCH_DAY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_uv_index_epoch_day ON " + TABLE_UV_INDEX + "(" + KEY_EPOCH_DAY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_media_consumption_epoch_day ON " + TABLE_MEDIA_CONSUMPTION + "(" + KEY_EPOCH_DAY + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_daylight_data_epoch_day ON " + TABLE_DAYLIGHT_DATA + "(" + KEY_EPOCH_DAY + ")");
         
         // Goal table indexes
         db.execSQL("CREATE INDEX IF NOT EXISTS idx_goals_active ON " + TABLE_GOALS + "(" + KEY_GOAL_IS_ACTIVE + ")");
@@ -631,115 +918,191 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     // Day Records CRUD operations
     public long insertDayRecord(DayRecord dayRecord) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, dayRecord.getDate());
-        values.put(KEY_STEP_COUNT, dayRecord.getStepCount());
-        values.put(KEY_TOTAL_DISTANCE, dayRecord.getTotalDistance());
-        values.put(KEY_ACTIVE_MINUTES, dayRecord.getActiveMinutes());
-        values.put(KEY_ACTIVITY_SCORE, dayRecord.getActivityScore());
-        values.put(KEY_TEMPERATURE, dayRecord.getTemperature());
-        values.put(KEY_HUMIDITY, dayRecord.getHumidity());
-        values.put(KEY_WEATHER_CONDITION, dayRecord.getWeatherCondition());
-        values.put(KEY_WIND_SPEED, dayRecord.getWindSpeed());
-        values.put(KEY_PLACES_VISITED, dayRecord.getPlacesVisited());
-        values.put(KEY_PRIMARY_LOCATION, dayRecord.getPrimaryLocation());
-        values.put(KEY_TOTAL_TRAVEL_DISTANCE, dayRecord.getTotalTravelDistance());
-        values.put(KEY_SCREEN_TIME_MINUTES, dayRecord.getScreenTimeMinutes());
-        values.put(KEY_BATTERY_USAGE_PERCENT, dayRecord.getBatteryUsagePercent());
-        values.put(KEY_PHONE_UNLOCKS, dayRecord.getPhoneUnlocks());
-        values.put(KEY_PHYSICAL_ACTIVITY_SCORE, dayRecord.getPhysicalActivityScore());
-        values.put(KEY_SOCIAL_ACTIVITY_SCORE, dayRecord.getSocialActivityScore());
-        values.put(KEY_PRODUCTIVITY_SCORE, dayRecord.getProductivityScore());
-        values.put(KEY_OVERALL_WELLBEING_SCORE, dayRecord.getOverallWellbeingScore());
-        values.put(KEY_PHOTO_COUNT, dayRecord.getPhotoCount());
-        values.put(KEY_PHOTO_ACTIVITY_SCORE, dayRecord.getPhotoActivityScore());
-        values.put("total_media_minutes", dayRecord.getTotalMediaMinutes());
-        values.put("video_minutes", dayRecord.getVideoMinutes());
-        values.put("audio_minutes", dayRecord.getAudioMinutes());
-        values.put("binge_watching_minutes", dayRecord.getBingeWatchingMinutes());
-        values.put("unique_media_platforms", dayRecord.getUniqueMediaPlatforms());
-        values.put("media_consumption_score", dayRecord.getMediaConsumptionScore());
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(dayRecord.getCreatedAt()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(dayRecord.getUpdatedAt()));
-        
-        long id = db.insertOrThrow(TABLE_DAY_RECORDS, null, values);
-        dayRecord.setId(id);
-        
-        // Insert location visits
-        for (DayRecord.LocationVisit visit : dayRecord.getLocationVisits()) {
-            insertLocationVisit(id, visit);
-        }
-        
-        return id;
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_DATE, dayRecord.getDate());
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(dayRecord.getDate()));
+            values.put(KEY_STEP_COUNT, dayRecord.getStepCount());
+            values.put(KEY_TOTAL_DISTANCE, dayRecord.getTotalDistance());
+            values.put(KEY_ACTIVE_MINUTES, dayRecord.getActiveMinutes());
+            values.put(KEY_ACTIVITY_SCORE, dayRecord.getActivityScore());
+            values.put(KEY_TEMPERATURE, dayRecord.getTemperature());
+            values.put(KEY_HUMIDITY, dayRecord.getHumidity());
+            values.put(KEY_WEATHER_CONDITION, dayRecord.getWeatherCondition());
+            values.put(KEY_WIND_SPEED, dayRecord.getWindSpeed());
+            values.put(KEY_PLACES_VISITED, dayRecord.getPlacesVisited());
+            values.put(KEY_PRIMARY_LOCATION, dayRecord.getPrimaryLocation());
+            values.put(KEY_TOTAL_TRAVEL_DISTANCE, dayRecord.getTotalTravelDistance());
+            values.put(KEY_SCREEN_TIME_MINUTES, dayRecord.getScreenTimeMinutes());
+            values.put(KEY_BATTERY_USAGE_PERCENT, dayRecord.getBatteryUsagePercent());
+            values.put(KEY_PHONE_UNLOCKS, dayRecord.getPhoneUnlocks());
+            values.put(KEY_PHYSICAL_ACTIVITY_SCORE, dayRecord.getPhysicalActivityScore());
+            values.put(KEY_SOCIAL_ACTIVITY_SCORE, dayRecord.getSocialActivityScore());
+            values.put(KEY_PRODUCTIVITY_SCORE, dayRecord.getProductivityScore());
+            values.put(KEY_OVERALL_WELLBEING_SCORE, dayRecord.getOverallWellbeingScore());
+            values.put(KEY_PHOTO_COUNT, dayRecord.getPhotoCount());
+            values.put(KEY_PHOTO_ACTIVITY_SCORE, dayRecord.getPhotoActivityScore());
+            values.put("total_media_minutes", dayRecord.getTotalMediaMinutes());
+            values.put("video_minutes", dayRecord.getVideoMinutes());
+            values.put("audio_minutes", dayRecord.getAudioMinutes());
+            values.put("binge_watching_minutes", dayRecord.getBingeWatchingMinutes());
+            values.put("unique_media_platforms", dayRecord.getUniqueMediaPlatforms());
+            values.put("media_consumption_score", dayRecord.getMediaConsumptionScore());
+            values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(dayRecord.getCreatedAt()));
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(dayRecord.getUpdatedAt()));
+            values.put(KEY_CREATED_AT_MS, dayRecord.getCreatedAt().getTime());
+            values.put(KEY_UPDATED_AT_MS, dayRecord.getUpdatedAt().getTime());
+            
+            long id;
+            db.beginTransactionNonExclusive();
+            try {
+                id = db.insertOrThrow(TABLE_DAY_RECORDS, null, values);
+                dayRecord.setId(id);
+                
+                // Insert location visits
+                for (DayRecord.LocationVisit visit : dayRecord.getLocationVisits()) {
+                    insertLocationVisit(id, visit);
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            
+            metricsRows = 1 + dayRecord.getLocationVisits().size();
+            return id;
+        } finally {
+            metrics.end("insertDayRecord", metricsStart, 0, metricsRows);
+        }
     }
     
     public DayRecord getDayRecord(String date) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_DAY_RECORDS, null, KEY_DATE + "=?", 
-                new String[]{date}, null, null, null);
-        
-        DayRecord dayRecord = null;
-        if (cursor.moveToFirst()) {
-            dayRecord = cursorToDayRecord(cursor);
-            // Load location visits
-            dayRecord.setLocationVisits(getLocationVisits(dayRecord.getId()));
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_DAY_RECORDS, null, KEY_EPOCH_DAY + "=?", 
+                    new String[]{String.valueOf(EpochDays.fromDateKey(date))}, null, null, null);
+            
+            DayRecord dayRecord = null;
+            if (cursor.moveToFirst()) {
+                dayRecord = cursorToDayRecord(cursor);
+                // Load location visits
+                dayRecord.setLocationVisits(getLocationVisits(dayRecord.getId()));
+            }
+            cursor.close();
+            metricsRows = dayRecord != null ? 1 : 0;
+            return dayRecord;
+        } finally {
+            metrics.end("getDayRecord", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    public DayRecord getTodayRecord() {
+        return getDayRecord(EpochDays.toDateKey(EpochDays.today()));
+    }
+    
+    /**
+     * The most recent day records, newest first
+     */
+    public List<DayRecord> getRecentDayRecords(int count) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<DayRecord> dayRecords = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_DAY_RECORDS, null, null, null, null, null, KEY_EPOCH_DAY + " DESC",
+                    String.valueOf(count));
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    dayRecords.add(cursorToDayRecord(cursor));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            if (!dayRecords.isEmpty()) {
+                attachLocationVisits(dayRecords, KEY_RECORD_ID + " >= ? AND " + KEY_RECORD_ID + " <= ?",
+                        recordIdRange(dayRecords));
+            }
+            metricsRows = dayRecords.size();
+            return dayRecords;
+        } finally {
+            metrics.end("getRecentDayRecords", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        return dayRecord;
     }
     
     public List<DayRecord> getAllDayRecords() {
-        List<DayRecord> dayRecords = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_DAY_RECORDS, null, null, null, null, null, KEY_DATE + " DESC");
-        
-        if (cursor.moveToFirst()) {
-            do {
-                DayRecord dayRecord = cursorToDayRecord(cursor);
-                dayRecord.setLocationVisits(getLocationVisits(dayRecord.getId()));
-                dayRecords.add(dayRecord);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<DayRecord> dayRecords = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_DAY_RECORDS, null, null, null, null, null, KEY_EPOCH_DAY + " DESC");
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    dayRecords.add(cursorToDayRecord(cursor));
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            // Every record's visits in one query instead of one per record
+            attachLocationVisits(dayRecords, null, null);
+            metricsRows = dayRecords.size();
+            return dayRecords;
+        } finally {
+            metrics.end("getAllDayRecords", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        return dayRecords;
     }
     
     public int updateDayRecord(DayRecord dayRecord) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_STEP_COUNT, dayRecord.getStepCount());
-        values.put(KEY_TOTAL_DISTANCE, dayRecord.getTotalDistance());
-        values.put(KEY_ACTIVE_MINUTES, dayRecord.getActiveMinutes());
-        values.put(KEY_ACTIVITY_SCORE, dayRecord.getActivityScore());
-        values.put(KEY_TEMPERATURE, dayRecord.getTemperature());
-        values.put(KEY_HUMIDITY, dayRecord.getHumidity());
-        values.put(KEY_WEATHER_CONDITION, dayRecord.getWeatherCondition());
-        values.put(KEY_WIND_SPEED, dayRecord.getWindSpeed());
-        values.put(KEY_PLACES_VISITED, dayRecord.getPlacesVisited());
-        values.put(KEY_PRIMARY_LOCATION, dayRecord.getPrimaryLocation());
-        values.put(KEY_TOTAL_TRAVEL_DISTANCE, dayRecord.getTotalTravelDistance());
-        values.put(KEY_SCREEN_TIME_MINUTES, dayRecord.getScreenTimeMinutes());
-        values.put(KEY_BATTERY_USAGE_PERCENT, dayRecord.getBatteryUsagePercent());
-        values.put(KEY_PHONE_UNLOCKS, dayRecord.getPhoneUnlocks());
-        values.put(KEY_PHYSICAL_ACTIVITY_SCORE, dayRecord.getPhysicalActivityScore());
-        values.put(KEY_SOCIAL_ACTIVITY_SCORE, dayRecord.getSocialActivityScore());
-        values.put(KEY_PRODUCTIVITY_SCORE, dayRecord.getProductivityScore());
-        values.put(KEY_OVERALL_WELLBEING_SCORE, dayRecord.getOverallWellbeingScore());
-        values.put(KEY_PHOTO_COUNT, dayRecord.getPhotoCount());
-        values.put(KEY_PHOTO_ACTIVITY_SCORE, dayRecord.getPhotoActivityScore());
-        values.put("total_media_minutes", dayRecord.getTotalMediaMinutes());
-        values.put("video_minutes", dayRecord.getVideoMinutes());
-        values.put("audio_minutes", dayRecord.getAudioMinutes());
-        values.put("binge_watching_minutes", dayRecord.getBingeWatchingMinutes());
-        values.put("unique_media_platforms", dayRecord.getUniqueMediaPlatforms());
-        values.put("media_consumption_score", dayRecord.getMediaConsumptionScore());
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.update(TABLE_DAY_RECORDS, values, KEY_ID + "=?", 
-                new String[]{String.valueOf(dayRecord.getId())});
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_STEP_COUNT, dayRecord.getStepCount());
+            values.put(KEY_TOTAL_DISTANCE, dayRecord.getTotalDistance());
+            values.put(KEY_ACTIVE_MINUTES, dayRecord.getActiveMinutes());
+            values.put(KEY_ACTIVITY_SCORE, dayRecord.getActivityScore());
+            values.put(KEY_TEMPERATURE, dayRecord.getTemperature());
+            values.put(KEY_HUMIDITY, dayRecord.getHumidity());
+            values.put(KEY_WEATHER_CONDITION, dayRecord.getWeatherCondition());
+            values.put(KEY_WIND_SPEED, dayRecord.getWindSpeed());
+            values.put(KEY_PLACES_VISITED, dayRecord.getPlacesVisited());
+            values.put(KEY_PRIMARY_LOCATION, dayRecord.getPrimaryLocation());
+            values.put(KEY_TOTAL_TRAVEL_DISTANCE, dayRecord.getTotalTravelDistance());
+            values.put(KEY_SCREEN_TIME_MINUTES, dayRecord.getScreenTimeMinutes());
+            values.put(KEY_BATTERY_USAGE_PERCENT, dayRecord.getBatteryUsagePercent());
+            values.put(KEY_PHONE_UNLOCKS, dayRecord.getPhoneUnlocks());
+            values.put(KEY_PHYSICAL_ACTIVITY_SCORE, dayRecord.getPhysicalActivityScore());
+            values.put(KEY_SOCIAL_ACTIVITY_SCORE, dayRecord.getSocialActivityScore());
+            values.put(KEY_PRODUCTIVITY_SCORE, dayRecord.getProductivityScore());
+            values.put(KEY_OVERALL_WELLBEING_SCORE, dayRecord.getOverallWellbeingScore());
+            values.put(KEY_PHOTO_COUNT, dayRecord.getPhotoCount());
+            values.put(KEY_PHOTO_ACTIVITY_SCORE, dayRecord.getPhotoActivityScore());
+            values.put("total_media_minutes", dayRecord.getTotalMediaMinutes());
+            values.put("video_minutes", dayRecord.getVideoMinutes());
+            values.put("audio_minutes", dayRecord.getAudioMinutes());
+            values.put("binge_watching_minutes", dayRecord.getBingeWatchingMinutes());
+            values.put("unique_media_platforms", dayRecord.getUniqueMediaPlatforms());
+            values.put("media_consumption_score", dayRecord.getMediaConsumptionScore());
+            Date now = new Date();
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(now));
+            values.put(KEY_UPDATED_AT_MS, now.getTime());
+            
+            int result = db.update(TABLE_DAY_RECORDS, values, KEY_ID + "=?", 
+                    new String[]{String.valueOf(dayRecord.getId())});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("updateDayRecord", metricsStart, 0, metricsRows);
+        }
     }
     
     private DayRecord cursorToDayRecord(Cursor cursor) {
@@ -775,295 +1138,697 @@ public class DatabaseHelper extends SQLiteOpenHelper {
         dayRecord.setUniqueMediaPlatforms(cursor.getInt(cursor.getColumnIndex("unique_media_platforms")));
         dayRecord.setMediaConsumptionScore(cursor.getFloat(cursor.getColumnIndex("media_consumption_score")));
         
-        try {
-            dayRecord.setCreatedAt(DATETIME_FORMAT.parse(cursor.getString(cursor.getColumnIndex(KEY_CREATED_AT))));
-            dayRecord.setUpdatedAt(DATETIME_FORMAT.parse(cursor.getString(cursor.getColumnIndex(KEY_UPDATED_AT))));
-        } catch (ParseException e) {
-            Log.e(TAG, "Error parsing date", e);
-        }
+        // Hourly counters ride along with the row, so hour-of-day analytics need no extra query;
+        // they are parsed only if read
+        dayRecord.setStoredHourlyCounts(cursor.getString(cursor.getColumnIndex(KEY_HOURLY_STEPS)),
+                cursor.getString(cursor.getColumnIndex(KEY_HOURLY_SCREEN_SECONDS)));
+        
+        dayRecord.setCreatedAt(new Date(cursor.getLong(cursor.getColumnIndex(KEY_CREATED_AT_MS))));
+        dayRecord.setUpdatedAt(new Date(cursor.getLong(cursor.getColumnIndex(KEY_UPDATED_AT_MS))));
         
         return dayRecord;
     }
     
+    /**
+     * Hour-of-day counters kept on day_records; each collector flushes only its own column
+     * so it never overwrites another collector's counts with a stale copy
+     */
+    public enum HourlyMetric {
+        STEPS(KEY_HOURLY_STEPS),
+        SCREEN_SECONDS(KEY_HOURLY_SCREEN_SECONDS);
+        
+        final String column;
+        
+        HourlyMetric(String column) {
+            this.column = column;
+        }
+    }
+    
+    /**
+     * Store a day's int[24] counters; the day record must already exist
+     */
+    public int updateHourlyCounts(String date, HourlyMetric metric, int[] counts) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            ContentValues values = new ContentValues();
+            values.put(metric.column, HourlyHistogram.format(counts));
+            int result = getWritableDatabase().update(TABLE_DAY_RECORDS, values, KEY_EPOCH_DAY + "=?",
+                    new String[]{String.valueOf(EpochDays.fromDateKey(date))});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("updateHourlyCounts", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    /**
+     * Sum the counters of every day in [firstDay, lastDay]
+     */
+    public int[] getHourlyTotals(HourlyMetric metric, int firstDay, int lastDay) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            int[] totals = new int[HourlyHistogram.HOURS];
+            int rows = 0;
+            Cursor cursor = getReadableDatabase().query(TABLE_DAY_RECORDS, new String[]{metric.column},
+                    KEY_EPOCH_DAY + " BETWEEN ? AND ? AND " + metric.column + " IS NOT NULL",
+                    new String[]{String.valueOf(firstDay), String.valueOf(lastDay)}, null, null, null);
+            try {
+                while (cursor.moveToNext()) {
+                    HourlyHistogram.addInto(totals, HourlyHistogram.parse(cursor.getString(0)));
+                    rows++;
+                }
+            } finally {
+                cursor.close();
+            }
+            metricsRows = rows;
+            return totals;
+        } finally {
+            metrics.end("getHourlyTotals", metricsStart, metricsRows, 0);
+        }
+    }
+    
     // Location Visits operations
+    // Called inside insertDayRecord's transaction
     private void insertLocationVisit(long recordId, DayRecord.LocationVisit visit) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_RECORD_ID, recordId);
-        values.put(KEY_PLACE_NAME, visit.getPlaceName());
-        values.put(KEY_LATITUDE, visit.getLatitude());
-        values.put(KEY_LONGITUDE, visit.getLongitude());
-        values.put(KEY_ARRIVAL_TIME, DATETIME_FORMAT.format(visit.getArrivalTime()));
-        if (visit.getDepartureTime() != null) {
-            values.put(KEY_DEPARTURE_TIME, DATETIME_FORMAT.format(visit.getDepartureTime()));
+        SQLiteStatement statement = getLocationVisitInsertStatement();
+        synchronized (statement) {
+            statement.clearBindings();
+            statement.bindLong(1, recordId);
+            bindNullableString(statement, 2, visit.getPlaceName());
+            statement.bindDouble(3, visit.getLatitude());
+            statement.bindDouble(4, visit.getLongitude());
+            statement.bindString(5, DATETIME_FORMAT.format(visit.getArrivalTime()));
+            bindNullableString(statement, 6, visit.getDepartureTime() != null ?
+                    DATETIME_FORMAT.format(visit.getDepartureTime()) : null);
+            statement.bindLong(7, visit.getDurationMinutes());
+            bindNullableString(statement, 8, visit.getPlaceCategory());
+            statement.bindLong(9, visit.getArrivalTime().getTime());
+            if (visit.getDepartureTime() != null) {
+                statement.bindLong(10, visit.getDepartureTime().getTime());
+            } else {
+                statement.bindNull(10);
+            }
+            statement.executeInsert();
+        }
+    }
+    
+    /**
+     * Load the visits matching the selection in one query and hand each record its own,
+     * in arrival order; visits of records not in the list are skipped
+     */
+    private void attachLocationVisits(List<DayRecord> dayRecords, String selection, String[] selectionArgs) {
+        Map<Long, DayRecord> byId = new HashMap<>();
+        for (DayRecord dayRecord : dayRecords) {
+            dayRecord.setLocationVisits(new ArrayList<>());
+            byId.put(dayRecord.getId(), dayRecord);
         }
-        values.put(KEY_DURATION_MINUTES, visit.getDurationMinutes());
-        values.put(KEY_PLACE_CATEGORY, visit.getPlaceCategory());
         
-        db.insert(TABLE_LOCATION_VISITS, null, values);
+        Cursor cursor = getReadableDatabase().query(TABLE_LOCATION_VISITS, null, selection, selectionArgs,
+                null, null, KEY_RECORD_ID + " ASC, " + KEY_ARRIVAL_MS + " ASC");
+        try {
+            int recordIdIndex = cursor.getColumnIndex(KEY_RECORD_ID);
+            while (cursor.moveToNext()) {
+                DayRecord dayRecord = byId.get(cursor.getLong(recordIdIndex));
+                if (dayRecord != null) {
+                    dayRecord.getLocationVisits().add(cursorToLocationVisit(cursor));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+    
+    private static String[] recordIdRange(List<DayRecord> dayRecords) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (DayRecord dayRecord : dayRecords) {
+            min = Math.min(min, dayRecord.getId());
+            max = Math.max(max, dayRecord.getId());
+        }
+        return new String[]{String.valueOf(min), String.valueOf(max)};
     }
     
     private List<DayRecord.LocationVisit> getLocationVisits(long recordId) {
         List<DayRecord.LocationVisit> visits = new ArrayList<>();
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.query(TABLE_LOCATION_VISITS, null, KEY_RECORD_ID + "=?", 
-                new String[]{String.valueOf(recordId)}, null, null, KEY_ARRIVAL_TIME + " ASC");
+                new String[]{String.valueOf(recordId)}, null, null, KEY_ARRIVAL_MS + " ASC");
         
         if (cursor.moveToFirst()) {
             do {
-                DayRecord.LocationVisit visit = new DayRecord.LocationVisit(
-                        cursor.getString(cursor.getColumnIndex(KEY_PLACE_NAME)),
-                        cursor.getDouble(cursor.getColumnIndex(KEY_LATITUDE)),
-                        cursor.getDouble(cursor.getColumnIndex(KEY_LONGITUDE))
-                );
-                
-                try {
-                    visit.setArrivalTime(DATETIME_FORMAT.parse(cursor.getString(cursor.getColumnIndex(KEY_ARRIVAL_TIME))));
-                    String departureTime = cursor.getString(cursor.getColumnIndex(KEY_DEPARTURE_TIME));
-                    if (departureTime != null) {
-                        visit.setDepartureTime(DATETIME_FORMAT.parse(departureTime));
-                    }
-                } catch (ParseException e) {
-                    Log.e(TAG, "Error parsing visit times", e);
-                }
-                
-                visit.setDurationMinutes(cursor.getInt(cursor.getColumnIndex(KEY_DURATION_MINUTES)));
-                visit.setPlaceCategory(cursor.getString(cursor.getColumnIndex(KEY_PLACE_CATEGORY)));
-                visits.add(visit);
+                visits.add(cursorToLocationVisit(cursor));
             } while (cursor.moveToNext());
         }
         cursor.close();
         return visits;
     }
     
+    private static DayRecord.LocationVisit cursorToLocationVisit(Cursor cursor) {
+        DayRecord.LocationVisit visit = new DayRecord.LocationVisit(
+                cursor.getString(cursor.getColumnIndex(KEY_PLACE_NAME)),
+                cursor.getDouble(cursor.getColumnIndex(KEY_LATITUDE)),
+                cursor.getDouble(cursor.getColumnIndex(KEY_LONGITUDE))
+        );
+        
+        visit.setArrivalTime(new Date(cursor.getLong(cursor.getColumnIndex(KEY_ARRIVAL_MS))));
+        int departureIndex = cursor.getColumnIndex(KEY_DEPARTURE_MS);
+        if (!cursor.isNull(departureIndex)) {
+            visit.setDepartureTime(new Date(cursor.getLong(departureIndex)));
+        }
+        
+        visit.setDurationMinutes(cursor.getInt(cursor.getColumnIndex(KEY_DURATION_MINUTES)));
+        visit.setPlaceCategory(cursor.getString(cursor.getColumnIndex(KEY_PLACE_CATEGORY)));
+        return visit;
+    }
+    
     // Step data operations
     public void insertStepData(String date, int steps, String stepType) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            insertStepDataBatch(Collections.singletonList(
+                    new StepSample(date, System.currentTimeMillis(), steps, stepType)), false);
+            metricsRows = 1;
+        } finally {
+            metrics.end("insertStepData", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    /**
+     * Insert many step samples in a single transaction
+     */
+    public int insertStepDataBatch(List<StepSample> samples) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            int written = insertStepDataBatch(samples, true);
+            metricsRows = written;
+            return written;
+        } finally {
+            metrics.end("insertStepDataBatch", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    private int insertStepDataBatch(List<StepSample> samples, boolean logErrors) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        SQLiteStatement statement = getStepInsertStatement();
+        int written = 0;
         
-        values.put(KEY_DATE, date);
-        values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_STEPS, steps);
-        values.put(KEY_STEP_TYPE, stepType);
+        // Take the write connection before the statement lock so lock order is always connection -> statement
+        db.beginTransactionNonExclusive();
+        try {
+            synchronized (statement) {
+                for (StepSample sample : samples) {
+                    statement.clearBindings();
+                    statement.bindString(1, sample.date);
+                    statement.bindString(2, DATETIME_FORMAT.format(new Date(sample.timestamp)));
+                    statement.bindLong(3, sample.steps);
+                    bindNullableString(statement, 4, sample.stepType);
+                    statement.bindLong(5, EpochDays.fromDateKey(sample.date));
+                    statement.bindLong(6, sample.timestamp);
+                    if (statement.executeInsert() != -1) {
+                        written++;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         
-        db.insert(TABLE_STEP_DATA, null, values);
+        if (logErrors && written < samples.size()) {
+            Log.w(TAG, "Step batch wrote " + written + " of " + samples.size() + " rows");
+        }
+        return written;
     }
     
     // Weather data operations
     public void insertWeatherData(String date, String location, float temperature, float humidity, 
                                   String condition, int weatherCode, float windSpeed, float precipitation, float cloudCover) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, date);
-        values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_LOCATION, location);
-        values.put(KEY_TEMPERATURE, temperature);
-        values.put(KEY_HUMIDITY, humidity);
-        values.put(KEY_WEATHER_CONDITION, condition);
-        values.put(KEY_WEATHER_CODE, weatherCode);
-        values.put(KEY_WIND_SPEED, windSpeed);
-        values.put(KEY_PRECIPITATION, precipitation);
-        values.put(KEY_CLOUD_COVER, cloudCover);
-        
-        db.insert(TABLE_WEATHER_DATA, null, values);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            Date now = new Date();
+            values.put(KEY_DATE, date);
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(date));
+            values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(now));
+            values.put(KEY_TIMESTAMP_MS, now.getTime());
+            values.put(KEY_LOCATION, location);
+            values.put(KEY_TEMPERATURE, temperature);
+            values.put(KEY_HUMIDITY, humidity);
+            values.put(KEY_WEATHER_CONDITION, condition);
+            values.put(KEY_WEATHER_CODE, weatherCode);
+            values.put(KEY_WIND_SPEED, windSpeed);
+            values.put(KEY_PRECIPITATION, precipitation);
+            values.put(KEY_CLOUD_COVER, cloudCover);
+            
+            db.insert(TABLE_WEATHER_DATA, null, values);
+            metricsRows = 1;
+        } finally {
+            metrics.end("insertWeatherData", metricsStart, 0, metricsRows);
+        }
     }
     
     // Battery data operations
     public void insertBatteryData(String date, int batteryLevel, boolean isCharging, String batteryHealth) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            insertBatteryDataBatch(Collections.singletonList(
+                    new BatterySample(date, System.currentTimeMillis(), batteryLevel, isCharging, batteryHealth)), false);
+            metricsRows = 1;
+        } finally {
+            metrics.end("insertBatteryData", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    /**
+     * Insert many battery samples in a single transaction
+     */
+    public int insertBatteryDataBatch(List<BatterySample> samples) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            int written = insertBatteryDataBatch(samples, true);
+            metricsRows = written;
+            return written;
+        } finally {
+            metrics.end("insertBatteryDataBatch", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    private int insertBatteryDataBatch(List<BatterySample> samples, boolean logErrors) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
+        SQLiteStatement statement = getBatteryInsertStatement();
+        int written = 0;
         
-        values.put(KEY_DATE, date);
-        values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_BATTERY_LEVEL, batteryLevel);
-        values.put(KEY_IS_CHARGING, isCharging ? 1 : 0);
-        values.put(KEY_BATTERY_HEALTH, batteryHealth);
+        db.beginTransactionNonExclusive();
+        try {
+            synchronized (statement) {
+                for (BatterySample sample : samples) {
+                    statement.clearBindings();
+                    statement.bindString(1, sample.date);
+                    statement.bindString(2, DATETIME_FORMAT.format(new Date(sample.timestamp)));
+                    statement.bindLong(3, sample.batteryLevel);
+                    statement.bindLong(4, sample.isCharging ? 1 : 0);
+                    bindNullableString(statement, 5, sample.batteryHealth);
+                    statement.bindLong(6, EpochDays.fromDateKey(sample.date));
+                    statement.bindLong(7, sample.timestamp);
+                    statement.bindLong(8, sample.minLevel);
+                    statement.bindLong(9, sample.maxLevel);
+                    statement.bindLong(10, sample.sampleCount);
+                    if (statement.executeInsert() != -1) {
+                        written++;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         
-        db.insert(TABLE_BATTERY_DATA, null, values);
+        if (logErrors && written < samples.size()) {
+            Log.w(TAG, "Battery batch wrote " + written + " of " + samples.size() + " rows");
+        }
+        return written;
     }
     
     // Screen time operations
     public void insertScreenTimeData(String date, String appName, String packageName, int usageTime, String lastUsed) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, date);
-        values.put(KEY_APP_NAME, appName);
-        values.put(KEY_PACKAGE_NAME, packageName);
-        values.put(KEY_USAGE_TIME, usageTime);
-        values.put(KEY_LAST_USED, lastUsed);
-        
-        db.insert(TABLE_SCREEN_TIME, null, values);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            insertScreenTimeDataBatch(Collections.singletonList(
+                    new ScreenTimeSample(date, appName, packageName, usageTime, lastUsed)), false);
+            metricsRows = 1;
+        } finally {
+            metrics.end("insertScreenTimeData", metricsStart, 0, metricsRows);
+        }
     }
     
-    // Utility methods
-    public void deleteOldRecords(int daysToKeep) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        String dateLimit = DATE_FORMAT.format(new Date(System.currentTimeMillis() - (daysToKeep * 24 * 60 * 60 * 1000)));
-        
-        db.delete(TABLE_DAY_RECORDS, KEY_DATE + " < ?", new String[]{dateLimit});
-        db.delete(TABLE_STEP_DATA, KEY_DATE + " < ?", new String[]{dateLimit});
-        db.delete(TABLE_WEATHER_DATA, KEY_DATE + " < ?", new String[]{dateLimit});
-        db.delete(TABLE_BATTERY_DATA, KEY_DATE + " < ?", new String[]{dateLimit});
-        db.delete(TABLE_SCREEN_TIME, KEY_DATE + " < ?", new String[]{dateLimit});
-        db.delete(TABLE_PHOTO_METADATA, KEY_DATE + " < ?", new String[]{dateLimit});
+    /**
+     * Insert many per-app screen time rows in a single transaction
+     */
+    public int insertScreenTimeDataBatch(List<ScreenTimeSample> samples) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            int written = insertScreenTimeDataBatch(samples, true);
+            metricsRows = written;
+            return written;
+        } finally {
+            metrics.end("insertScreenTimeDataBatch", metricsStart, 0, metricsRows);
+        }
     }
     
-    // Photo Metadata CRUD operations
-    public long insertPhotoMetadata(PhotoMetadata photoMetadata) {
+    private int insertScreenTimeDataBatch(List<ScreenTimeSample> samples, boolean logErrors) {
         SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_PHOTO_URI, photoMetadata.getPhotoUri());
-        values.put(KEY_PHOTO_PATH, photoMetadata.getPhotoPath());
-        values.put(KEY_DATE, DATE_FORMAT.format(photoMetadata.getDateTaken()));
-        values.put(KEY_DATE_TAKEN, photoMetadata.getDateTaken() != null ? 
-                DATETIME_FORMAT.format(photoMetadata.getDateTaken()) : null);
-        values.put(KEY_DATE_MODIFIED, photoMetadata.getDateModified() != null ? 
-                DATETIME_FORMAT.format(photoMetadata.getDateModified()) : null);
-        values.put(KEY_LATITUDE, photoMetadata.getLatitude());
-        values.put(KEY_LONGITUDE, photoMetadata.getLongitude());
-        values.put(KEY_ALTITUDE, photoMetadata.getAltitude());
-        values.put(KEY_LOCATION_NAME, photoMetadata.getLocationName());
-        values.put(KEY_CAMERA_MAKE, photoMetadata.getCameraMake());
-        values.put(KEY_CAMERA_MODEL, photoMetadata.getCameraModel());
-        values.put(KEY_IMAGE_WIDTH, photoMetadata.getImageWidth());
-        values.put(KEY_IMAGE_HEIGHT, photoMetadata.getImageHeight());
-        values.put(KEY_ORIENTATION, photoMetadata.getOrientation());
-        values.put(KEY_FLASH_MODE, photoMetadata.getFlashMode());
-        values.put(KEY_FOCAL_LENGTH, photoMetadata.getFocalLength());
-        values.put(KEY_APERTURE, photoMetadata.getAperture());
-        values.put(KEY_SHUTTER_SPEED, photoMetadata.getShutterSpeed());
-        values.put(KEY_ISO, photoMetadata.getIso());
-        values.put(KEY_WHITE_BALANCE, photoMetadata.getWhiteBalance());
-        values.put(KEY_FILE_SIZE, photoMetadata.getFileSize());
-        values.put(KEY_MIME_TYPE, photoMetadata.getMimeType());
-        values.put(KEY_HAS_LOCATION_DATA, photoMetadata.hasLocationData() ? 1 : 0);
-        values.put(KEY_ACTIVITY_TYPE, photoMetadata.getActivityType());
-        values.put(KEY_ACTIVITY_SCORE, photoMetadata.getActivityScore());
-        values.put(KEY_TIME_OF_DAY, photoMetadata.getTimeOfDay());
-        values.put(KEY_SEASON, photoMetadata.getSeason());
-        values.put(KEY_IS_OUTDOOR, photoMetadata.isOutdoor() ? 1 : 0);
-        values.put(KEY_HAS_PEOPLE, photoMetadata.hasPeople() ? 1 : 0);
-        values.put(KEY_DOMINANT_COLORS, photoMetadata.getDominantColors());
-        values.put(KEY_IS_PROCESSED, photoMetadata.isProcessed() ? 1 : 0);
-        values.put(KEY_PROCESSING_ERROR, photoMetadata.getProcessingError());
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(photoMetadata.getCreatedAt()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(photoMetadata.getUpdatedAt()));
-        
-        long id = db.insertOrThrow(TABLE_PHOTO_METADATA, null, values);
-        photoMetadata.setId(id);
-        return id;
-    }
-    
-    public List<PhotoMetadata> getPhotoMetadataForDate(String date) {
-        List<PhotoMetadata> photoMetadataList = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        SQLiteStatement statement = getScreenTimeInsertStatement();
+        int written = 0;
         
-        Cursor cursor = db.query(TABLE_PHOTO_METADATA, null, KEY_DATE + "=?", 
-                new String[]{date}, null, null, KEY_DATE_TAKEN + " DESC");
+        db.beginTransactionNonExclusive();
+        try {
+            synchronized (statement) {
+                for (ScreenTimeSample sample : samples) {
+                    statement.clearBindings();
+                    statement.bindString(1, sample.date);
+                    bindNullableString(statement, 2, sample.appName);
+                    bindNullableString(statement, 3, sample.packageName);
+                    statement.bindLong(4, sample.usageTime);
+                    bindNullableString(statement, 5, sample.lastUsed);
+                    statement.bindLong(6, EpochDays.fromDateKey(sample.date));
+                    if (statement.executeInsert() != -1) {
+                        written++;
+                    }
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
         
-        if (cursor.moveToFirst()) {
-            do {
-                PhotoMetadata photoMetadata = cursorToPhotoMetadata(cursor);
-                photoMetadataList.add(photoMetadata);
-            } while (cursor.moveToNext());
+        if (logErrors && written < samples.size()) {
+            Log.w(TAG, "Screen time batch wrote " + written + " of " + samples.size() + " rows");
         }
-        cursor.close();
-        return photoMetadataList;
+        return written;
     }
     
-    public boolean isPhotoMetadataExists(String photoPath) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_PHOTO_METADATA, new String[]{KEY_ID}, 
-                KEY_PHOTO_PATH + "=?", new String[]{photoPath}, null, null, null);
-        
-        boolean exists = cursor.getCount() > 0;
-        cursor.close();
-        return exists;
+    // Compiled statement helpers
+    private synchronized SQLiteStatement getStepInsertStatement() {
+        if (stepInsertStatement == null) {
+            stepInsertStatement = getWritableDatabase().compileStatement("INSERT INTO " + TABLE_STEP_DATA + " ("
+                    + KEY_DATE + ", " + KEY_TIMESTAMP + ", " + KEY_STEPS + ", " + KEY_STEP_TYPE + ", "
+                    + KEY_EPOCH_DAY + ", " + KEY_TIMESTAMP_MS + ") VALUES (?, ?, ?, ?, ?, ?)");
+        }
+        return stepInsertStatement;
     }
     
-    public int getPhotoCountForDate(String date) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_PHOTO_METADATA, new String[]{"COUNT(*)"}, 
-                KEY_DATE + "=?", new String[]{date}, null, null, null);
-        
-        int count = 0;
-        if (cursor.moveToFirst()) {
-            count = cursor.getInt(0);
+    private synchronized SQLiteStatement getBatteryInsertStatement() {
+        if (batteryInsertStatement == null) {
+            batteryInsertStatement = getWritableDatabase().compileStatement("INSERT INTO " + TABLE_BATTERY_DATA + " ("
+                    + KEY_DATE + ", " + KEY_TIMESTAMP + ", " + KEY_BATTERY_LEVEL + ", " + KEY_IS_CHARGING + ", "
+                    + KEY_BATTERY_HEALTH + ", " + KEY_EPOCH_DAY + ", " + KEY_TIMESTAMP_MS + ", "
+                    + KEY_BATTERY_MIN_LEVEL + ", " + KEY_BATTERY_MAX_LEVEL + ", " + KEY_SAMPLE_COUNT
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
         }
-        cursor.close();
-        return count;
+        return batteryInsertStatement;
     }
     
-    public Map<String, Integer> getPhotoCountsByTimeOfDay() {
-        Map<String, Integer> counts = new HashMap<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_PHOTO_METADATA, 
-                new String[]{KEY_TIME_OF_DAY, "COUNT(*)"}, 
-                KEY_TIME_OF_DAY + " IS NOT NULL", null, 
-                KEY_TIME_OF_DAY, null, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                String timeOfDay = cursor.getString(0);
-                int count = cursor.getInt(1);
-                counts.put(timeOfDay, count);
-            } while (cursor.moveToNext());
+    private synchronized SQLiteStatement getScreenTimeInsertStatement() {
+        if (screenTimeInsertStatement == null) {
+            screenTimeInsertStatement = getWritableDatabase().compileStatement("INSERT INTO " + TABLE_SCREEN_TIME + " ("
+                    + KEY_DATE + ", " + KEY_APP_NAME + ", " + KEY_PACKAGE_NAME + ", " + KEY_USAGE_TIME + ", "
+                    + KEY_LAST_USED + ", " + KEY_EPOCH_DAY + ") VALUES (?, ?, ?, ?, ?, ?)");
         }
-        cursor.close();
-        return counts;
+        return screenTimeInsertStatement;
     }
     
-    public Map<String, Integer> getPhotoCountsByDayOfWeek() {
-        Map<String, Integer> counts = new HashMap<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        // This would need to be implemented with date manipulation
-        // For now, returning empty map
-        return counts;
+    private synchronized SQLiteStatement getLocationVisitInsertStatement() {
+        if (locationVisitInsertStatement == null) {
+            locationVisitInsertStatement = getWritableDatabase().compileStatement("INSERT INTO " + TABLE_LOCATION_VISITS + " ("
+                    + KEY_RECORD_ID + ", " + KEY_PLACE_NAME + ", " + KEY_LATITUDE + ", " + KEY_LONGITUDE + ", "
+                    + KEY_ARRIVAL_TIME + ", " + KEY_DEPARTURE_TIME + ", " + KEY_DURATION_MINUTES + ", "
+                    + KEY_PLACE_CATEGORY + ", " + KEY_ARRIVAL_MS + ", " + KEY_DEPARTURE_MS
+                    + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        return locationVisitInsertStatement;
     }
     
-    public Map<String, Integer> getPhotoCountsByActivityType() {
-        Map<String, Integer> counts = new HashMap<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_PHOTO_METADATA, 
-                new String[]{KEY_ACTIVITY_TYPE, "COUNT(*)"}, 
-                KEY_ACTIVITY_TYPE + " IS NOT NULL", null, 
-                KEY_ACTIVITY_TYPE, null, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                String activityType = cursor.getString(0);
-                int count = cursor.getInt(1);
-                counts.put(activityType, count);
-            } while (cursor.moveToNext());
+    private synchronized void releaseCompiledStatements() {
+        SQLiteStatement[] statements = {stepInsertStatement, batteryInsertStatement,
+                screenTimeInsertStatement, locationVisitInsertStatement};
+        for (SQLiteStatement statement : statements) {
+            if (statement != null) {
+                statement.close();
+            }
         }
-        cursor.close();
-        return counts;
+        stepInsertStatement = null;
+        batteryInsertStatement = null;
+        screenTimeInsertStatement = null;
+        locationVisitInsertStatement = null;
     }
     
-    public void deleteOldPhotoMetadata(int daysToKeep) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        String dateLimit = DATE_FORMAT.format(new Date(System.currentTimeMillis() - (daysToKeep * 24 * 60 * 60 * 1000)));
-        
-        db.delete(TABLE_PHOTO_METADATA, KEY_DATE + " < ?", new String[]{dateLimit});
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
+        }
     }
     
-    private PhotoMetadata cursorToPhotoMetadata(Cursor cursor) {
-        PhotoMetadata photoMetadata = new PhotoMetadata();
-        photoMetadata.setId(cursor.getLong(cursor.getColumnIndex(KEY_ID)));
-        photoMetadata.setPhotoUri(cursor.getString(cursor.getColumnIndex(KEY_PHOTO_URI)));
+    // Utility methods
+    
+    /**
+     * Delete day records and photo metadata older than the given number of days. The raw
+     * sensor tables are rolled up by RetentionCompactor and deleted by deleteOldSensorRecords.
+     */
+    public void deleteOldRecords(int daysToKeep) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            String[] dayLimit = {String.valueOf(EpochDays.today() - daysToKeep)};
+            
+            int deletedRows = 0;
+            deletedRows += db.delete(TABLE_DAY_RECORDS, KEY_EPOCH_DAY + " < ?", dayLimit);
+            deletedRows += db.delete(TABLE_PHOTO_METADATA, KEY_EPOCH_DAY + " < ?", dayLimit);
+            metricsRows = deletedRows;
+        } finally {
+            metrics.end("deleteOldRecords", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    /**
+     * Delete step, weather, battery and screen time rows older than the given number of days
+     */
+    public void deleteOldSensorRecords(int daysToKeep) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            String[] dayLimit = {String.valueOf(EpochDays.today() - daysToKeep)};
+            
+            int deletedRows = 0;
+            deletedRows += db.delete(TABLE_STEP_DATA, KEY_EPOCH_DAY + " < ?", dayLimit);
+            deletedRows += db.delete(TABLE_WEATHER_DATA, KEY_EPOCH_DAY + " < ?", dayLimit);
+            deletedRows += db.delete(TABLE_BATTERY_DATA, KEY_EPOCH_DAY + " < ?", dayLimit);
+            deletedRows += db.delete(TABLE_SCREEN_TIME, KEY_EPOCH_DAY + " < ?", dayLimit);
+            metricsRows = deletedRows;
+        } finally {
+            metrics.end("deleteOldSensorRecords", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    // Photo Metadata CRUD operations
+    public long insertPhotoMetadata(PhotoMetadata photoMetadata) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_PHOTO_URI, photoMetadata.getPhotoUri());
+            values.put(KEY_PHOTO_PATH, photoMetadata.getPhotoPath());
+            values.put(KEY_DATE, DATE_FORMAT.format(photoMetadata.getDateTaken()));
+            values.put(KEY_EPOCH_DAY, EpochDays.fromMillis(photoMetadata.getDateTaken().getTime()));
+            values.put(KEY_DATE_TAKEN, photoMetadata.getDateTaken() != null ? 
+                    DATETIME_FORMAT.format(photoMetadata.getDateTaken()) : null);
+            values.put(KEY_DATE_TAKEN_MS, photoMetadata.getDateTaken() != null ? 
+                    photoMetadata.getDateTaken().getTime() : null);
+            values.put(KEY_DATE_MODIFIED, photoMetadata.getDateModified() != null ? 
+                    DATETIME_FORMAT.format(photoMetadata.getDateModified()) : null);
+            values.put(KEY_LATITUDE, photoMetadata.getLatitude());
+            values.put(KEY_LONGITUDE, photoMetadata.getLongitude());
+            values.put(KEY_ALTITUDE, photoMetadata.getAltitude());
+            values.put(KEY_LOCATION_NAME, photoMetadata.getLocationName());
+            values.put(KEY_CAMERA_MAKE, photoMetadata.getCameraMake());
+            values.put(KEY_CAMERA_MODEL, photoMetadata.getCameraModel());
+            values.put(KEY_IMAGE_WIDTH, photoMetadata.getImageWidth());
+            values.put(KEY_IMAGE_HEIGHT, photoMetadata.getImageHeight());
+            values.put(KEY_ORIENTATION, photoMetadata.getOrientation());
+            values.put(KEY_FLASH_MODE, photoMetadata.getFlashMode());
+            values.put(KEY_FOCAL_LENGTH, photoMetadata.getFocalLength());
+            values.put(KEY_APERTURE, photoMetadata.getAperture());
+            values.put(KEY_SHUTTER_SPEED, photoMetadata.getShutterSpeed());
+            values.put(KEY_ISO, photoMetadata.getIso());
+            values.put(KEY_WHITE_BALANCE, photoMetadata.getWhiteBalance());
+            values.put(KEY_FILE_SIZE, photoMetadata.getFileSize());
+            values.put(KEY_MIME_TYPE, photoMetadata.getMimeType());
+            values.put(KEY_HAS_LOCATION_DATA, photoMetadata.hasLocationData() ? 1 : 0);
+            values.put(KEY_ACTIVITY_TYPE, photoMetadata.getActivityType());
+            values.put(KEY_ACTIVITY_SCORE, photoMetadata.getActivityScore());
+            values.put(KEY_TIME_OF_DAY, photoMetadata.getTimeOfDay());
+            values.put(KEY_SEASON, photoMetadata.getSeason());
+            values.put(KEY_IS_OUTDOOR, photoMetadata.isOutdoor() ? 1 : 0);
+            values.put(KEY_HAS_PEOPLE, photoMetadata.hasPeople() ? 1 : 0);
+            values.put(KEY_DOMINANT_COLORS, photoMetadata.getDominantColors());
+            values.put(KEY_IS_PROCESSED, photoMetadata.isProcessed() ? 1 : 0);
+            values.put(KEY_PROCESSING_ERROR, photoMetadata.getProcessingError());
+            values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(photoMetadata.getCreatedAt()));
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(photoMetadata.getUpdatedAt()));
+            
+            long id = db.insertOrThrow(TABLE_PHOTO_METADATA, null, values);
+            photoMetadata.setId(id);
+            metricsRows = 1;
+            return id;
+        } finally {
+            metrics.end("insertPhotoMetadata", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    public List<PhotoMetadata> getPhotoMetadataForDate(String date) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<PhotoMetadata> photoMetadataList = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_PHOTO_METADATA, null, KEY_EPOCH_DAY + "=?", 
+                    new String[]{String.valueOf(EpochDays.fromDateKey(date))}, null, null, KEY_DATE_TAKEN_MS + " DESC");
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    PhotoMetadata photoMetadata = cursorToPhotoMetadata(cursor);
+                    photoMetadataList.add(photoMetadata);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            metricsRows = photoMetadataList.size();
+            return photoMetadataList;
+        } finally {
+            metrics.end("getPhotoMetadataForDate", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    public boolean isPhotoMetadataExists(String photoPath) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_PHOTO_METADATA, new String[]{KEY_ID}, 
+                    KEY_PHOTO_PATH + "=?", new String[]{photoPath}, null, null, null);
+            
+            boolean exists = cursor.getCount() > 0;
+            cursor.close();
+            metricsRows = exists ? 1 : 0;
+            return exists;
+        } finally {
+            metrics.end("isPhotoMetadataExists", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    public int getPhotoCountForDate(String date) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_PHOTO_METADATA, new String[]{"COUNT(*)"}, 
+                    KEY_EPOCH_DAY + "=?", new String[]{String.valueOf(EpochDays.fromDateKey(date))}, null, null, null);
+            
+            int count = 0;
+            if (cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+            cursor.close();
+            metricsRows = count;
+            return count;
+        } finally {
+            metrics.end("getPhotoCountForDate", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    public Map<String, Integer> getPhotoCountsByTimeOfDay() {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_PHOTO_METADATA, 
+                    new String[]{KEY_TIME_OF_DAY, "COUNT(*)"}, 
+                    KEY_TIME_OF_DAY + " IS NOT NULL", null, 
+                    KEY_TIME_OF_DAY, null, null);
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    String timeOfDay = cursor.getString(0);
+                    int count = cursor.getInt(1);
+                    counts.put(timeOfDay, count);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            metricsRows = counts.size();
+            return counts;
+        } finally {
+            metrics.end("getPhotoCountsByTimeOfDay", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    public Map<String, Integer> getPhotoCountsByDayOfWeek() {
+        Map<String, Integer> counts = new HashMap<>();
+        SQLiteDatabase db = this.getReadableDatabase();
+        
+        // This would need to be implemented with date manipulation
+        // For now, returning empty map
+        return counts;
+    }
+    
+    public Map<String, Integer> getPhotoCountsByActivityType() {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            Map<String, Integer> counts = new HashMap<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_PHOTO_METADATA, 
+                    new String[]{KEY_ACTIVITY_TYPE, "COUNT(*)"}, 
+                    KEY_ACTIVITY_TYPE + " IS NOT NULL", null, 
+                    KEY_ACTIVITY_TYPE, null, null);
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    String activityType = cursor.getString(0);
+                    int count = cursor.getInt(1);
+                    counts.put(activityType, count);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            metricsRows = counts.size();
+            return counts;
+        } finally {
+            metrics.end("getPhotoCountsByActivityType", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    public void deleteOldPhotoMetadata(int daysToKeep) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            String[] dayLimit = {String.valueOf(EpochDays.today() - daysToKeep)};
+            
+            int deletedRows = db.delete(TABLE_PHOTO_METADATA, KEY_EPOCH_DAY + " < ?", dayLimit);
+            metricsRows = deletedRows;
+        } finally {
+            metrics.end("deleteOldPhotoMetadata", metricsStart, 0, metricsRows);
+        }
+    }
+    
+    private PhotoMetadata cursorToPhotoMetadata(Cursor cursor) {
+        PhotoMetadata photoMetadata = new PhotoMetadata();
+        photoMetadata.setId(cursor.getLong(cursor.getColumnIndex(KEY_ID)));
+        photoMetadata.setPhotoUri(cursor.getString(cursor.getColumnIndex(KEY_PHOTO_URI)));
         photoMetadata.setPhotoPath(cursor.getString(cursor.getColumnIndex(KEY_PHOTO_PATH)));
         
         try {
-            String dateTaken = cursor.getString(cursor.getColumnIndex(KEY_DATE_TAKEN));
-            if (dateTaken != null) {
-                photoMetadata.setDateTaken(DATETIME_FORMAT.parse(dateTaken));
+            int dateTakenIndex = cursor.getColumnIndex(KEY_DATE_TAKEN_MS);
+            if (!cursor.isNull(dateTakenIndex)) {
+                photoMetadata.setDateTaken(new Date(cursor.getLong(dateTakenIndex)));
             }
             
             String dateModified = cursor.getString(cursor.getColumnIndex(KEY_DATE_MODIFIED));
@@ -1112,159 +1877,218 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     public long insertAirQualityData(String date, double latitude, double longitude, 
                                    int aqi, double pm25, double pm10, double no2, 
-                                   double o3, double co, String source) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, date);
-        values.put(KEY_LATITUDE, latitude);
-        values.put(KEY_LONGITUDE, longitude);
-        values.put("aqi", aqi);
-        values.put("pm25", pm25);
-        values.put("pm10", pm10);
-        values.put("no2", no2);
-        values.put("o3", o3);
-        values.put("co", co);
-        values.put("source", source);
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insertOrThrow(TABLE_AIR_QUALITY, null, values);
+                                   double o3, double co) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_DATE, date);
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(date));
+            values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
+            values.put(KEY_LATITUDE, latitude);
+            values.put(KEY_LONGITUDE, longitude);
+            values.put(KEY_AIR_QUALITY_INDEX, aqi);
+            values.put(KEY_PM25_LEVEL, pm25);
+            values.put(KEY_PM10_LEVEL, pm10);
+            values.put(KEY_NO2_LEVEL, no2);
+            values.put(KEY_O3_LEVEL, o3);
+            values.put(KEY_CO_LEVEL, co);
+            values.put(KEY_AIR_QUALITY_IMPACT, calculateAirQualityImpact(aqi));
+            
+            long result = db.insertOrThrow(TABLE_AIR_QUALITY, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertAirQualityData", metricsStart, 0, metricsRows);
+        }
     }
     
     public long insertMoonPhaseData(String date, String phase, double illumination, 
-                                  int age, boolean isSupermoon, String activityRecommendation) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, date);
-        values.put("phase", phase);
-        values.put("illumination", illumination);
-        values.put("age", age);
-        values.put("is_supermoon", isSupermoon ? 1 : 0);
-        values.put("activity_recommendation", activityRecommendation);
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insertOrThrow(TABLE_MOON_PHASE, null, values);
+                                  int age, boolean isSupermoon) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_DATE, date);
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(date));
+            values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
+            values.put(KEY_MOON_PHASE, phase);
+            values.put(KEY_MOON_ILLUMINATION, illumination);
+            values.put(KEY_MOON_AGE, age);
+            values.put(KEY_IS_SUPERMOON, isSupermoon ? 1 : 0);
+            values.put(KEY_MOON_ACTIVITY_IMPACT, calculateMoonPhaseImpact(phase));
+            
+            long result = db.insertOrThrow(TABLE_MOON_PHASE, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertMoonPhaseData", metricsStart, 0, metricsRows);
+        }
     }
     
     public long insertUVIndexData(String date, double latitude, double longitude, 
                                 double uvIndex, int burnTime, int tanTime, 
-                                int vitaminDTime, String recommendation) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, date);
-        values.put(KEY_LATITUDE, latitude);
-        values.put(KEY_LONGITUDE, longitude);
-        values.put("uv_index", uvIndex);
-        values.put("burn_time", burnTime);
-        values.put("tan_time", tanTime);
-        values.put("vitamin_d_time", vitaminDTime);
-        values.put("recommendation", recommendation);
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insertOrThrow(TABLE_UV_INDEX, null, values);
+                                int vitaminDTime) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_DATE, date);
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(date));
+            values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
+            values.put(KEY_LATITUDE, latitude);
+            values.put(KEY_LONGITUDE, longitude);
+            values.put(KEY_UV_INDEX, uvIndex);
+            values.put(KEY_BURN_TIME, burnTime);
+            values.put(KEY_TAN_TIME, tanTime);
+            values.put(KEY_VITAMIN_D_TIME, vitaminDTime);
+            values.put(KEY_UV_ACTIVITY_IMPACT, calculateUVImpact(uvIndex));
+            
+            long result = db.insertOrThrow(TABLE_UV_INDEX, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertUVIndexData", metricsStart, 0, metricsRows);
+        }
     }
     
     public long insertSunriseSunsetData(String date, double latitude, double longitude, 
                                       String sunrise, String sunset, int daylightDuration, 
-                                      String civilTwilight, String nauticalTwilight, 
-                                      String astronomicalTwilight, String circadianPhase) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, date);
-        values.put(KEY_LATITUDE, latitude);
-        values.put(KEY_LONGITUDE, longitude);
-        values.put("sunrise", sunrise);
-        values.put("sunset", sunset);
-        values.put("daylight_duration", daylightDuration);
-        values.put("civil_twilight", civilTwilight);
-        values.put("nautical_twilight", nauticalTwilight);
-        values.put("astronomical_twilight", astronomicalTwilight);
-        values.put("circadian_phase", circadianPhase);
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insertOrThrow(TABLE_DAYLIGHT_DATA, null, values);
+                                      String circadianPhase) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_DATE, date);
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(date));
+            values.put(KEY_TIMESTAMP, DATETIME_FORMAT.format(new Date()));
+            values.put(KEY_LATITUDE, latitude);
+            values.put(KEY_LONGITUDE, longitude);
+            values.put(KEY_SUNRISE_TIME, sunrise);
+            values.put(KEY_SUNSET_TIME, sunset);
+            values.put(KEY_DAY_LENGTH, daylightDuration);
+            // The phase itself has no column; the score derived from it does
+            values.put(KEY_CIRCADIAN_SCORE, calculateCircadianImpact(circadianPhase));
+            
+            long result = db.insertOrThrow(TABLE_DAYLIGHT_DATA, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertSunriseSunsetData", metricsStart, 0, metricsRows);
+        }
     }
     
     // Environmental Data Retrieval Methods
     
     public void loadEnvironmentalData(DayRecord dayRecord, String date) {
-        loadAirQualityData(dayRecord, date);
-        loadMoonPhaseData(dayRecord, date);
-        loadUVIndexData(dayRecord, date);
-        loadDaylightData(dayRecord, date);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            String epochDay = String.valueOf(EpochDays.fromDateKey(date));
+            int rowsRead = 0;
+            rowsRead += loadAirQualityData(dayRecord, epochDay);
+            rowsRead += loadMoonPhaseData(dayRecord, epochDay);
+            rowsRead += loadUVIndexData(dayRecord, epochDay);
+            rowsRead += loadDaylightData(dayRecord, date, epochDay);
+            metricsRows = rowsRead;
+        } finally {
+            metrics.end("loadEnvironmentalData", metricsStart, metricsRows, 0);
+        }
     }
     
-    private void loadAirQualityData(DayRecord dayRecord, String date) {
+    private int loadAirQualityData(DayRecord dayRecord, String epochDay) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_AIR_QUALITY, null, KEY_DATE + "=?", 
-                new String[]{date}, null, null, null);
+        Cursor cursor = db.query(TABLE_AIR_QUALITY, null, KEY_EPOCH_DAY + "=?", 
+                new String[]{epochDay}, null, null, null);
         
+        int rowsRead = 0;
         if (cursor.moveToFirst()) {
-            dayRecord.setAqi(cursor.getInt(cursor.getColumnIndex("aqi")));
-            dayRecord.setPm25Level(cursor.getFloat(cursor.getColumnIndex("pm25")));
-            dayRecord.setPm10Level(cursor.getFloat(cursor.getColumnIndex("pm10")));
-            dayRecord.setNo2Level(cursor.getFloat(cursor.getColumnIndex("no2")));
-            dayRecord.setO3Level(cursor.getFloat(cursor.getColumnIndex("o3")));
-            dayRecord.setCoLevel(cursor.getFloat(cursor.getColumnIndex("co")));
-            // Calculate activity impact based on AQI
-            dayRecord.setAirQualityActivityImpact(calculateAirQualityImpact(dayRecord.getAqi()));
+            rowsRead = 1;
+            dayRecord.setAirQualityIndex(cursor.getInt(cursor.getColumnIndex(KEY_AIR_QUALITY_INDEX)));
+            dayRecord.setPm25Level(cursor.getFloat(cursor.getColumnIndex(KEY_PM25_LEVEL)));
+            dayRecord.setPm10Level(cursor.getFloat(cursor.getColumnIndex(KEY_PM10_LEVEL)));
+            dayRecord.setNo2Level(cursor.getFloat(cursor.getColumnIndex(KEY_NO2_LEVEL)));
+            dayRecord.setO3Level(cursor.getFloat(cursor.getColumnIndex(KEY_O3_LEVEL)));
+            dayRecord.setCoLevel(cursor.getFloat(cursor.getColumnIndex(KEY_CO_LEVEL)));
+            dayRecord.setAirQualityActivityImpact(cursor.getFloat(cursor.getColumnIndex(KEY_AIR_QUALITY_IMPACT)));
         }
         cursor.close();
+        return rowsRead;
     }
     
-    private void loadMoonPhaseData(DayRecord dayRecord, String date) {
+    private int loadMoonPhaseData(DayRecord dayRecord, String epochDay) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_MOON_PHASE, null, KEY_DATE + "=?", 
-                new String[]{date}, null, null, null);
+        Cursor cursor = db.query(TABLE_MOON_PHASE, null, KEY_EPOCH_DAY + "=?", 
+                new String[]{epochDay}, null, null, null);
         
+        int rowsRead = 0;
         if (cursor.moveToFirst()) {
-            dayRecord.setMoonPhase(cursor.getString(cursor.getColumnIndex("phase")));
-            dayRecord.setMoonIllumination(cursor.getDouble(cursor.getColumnIndex("illumination")));
-            dayRecord.setMoonAge(cursor.getInt(cursor.getColumnIndex("age")));
-            dayRecord.setSupermoon(cursor.getInt(cursor.getColumnIndex("is_supermoon")) == 1);
-            // Calculate activity impact based on moon phase
-            dayRecord.setMoonPhaseActivityImpact(calculateMoonPhaseImpact(dayRecord.getMoonPhase()));
+            rowsRead = 1;
+            dayRecord.setMoonPhase(cursor.getString(cursor.getColumnIndex(KEY_MOON_PHASE)));
+            dayRecord.setMoonIllumination(cursor.getDouble(cursor.getColumnIndex(KEY_MOON_ILLUMINATION)));
+            dayRecord.setMoonAge(cursor.getDouble(cursor.getColumnIndex(KEY_MOON_AGE)));
+            dayRecord.setSupermoon(cursor.getInt(cursor.getColumnIndex(KEY_IS_SUPERMOON)) == 1);
+            dayRecord.setMoonPhaseActivityImpact(cursor.getFloat(cursor.getColumnIndex(KEY_MOON_ACTIVITY_IMPACT)));
         }
         cursor.close();
+        return rowsRead;
     }
     
-    private void loadUVIndexData(DayRecord dayRecord, String date) {
+    private int loadUVIndexData(DayRecord dayRecord, String epochDay) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_UV_INDEX, null, KEY_DATE + "=?", 
-                new String[]{date}, null, null, null);
+        Cursor cursor = db.query(TABLE_UV_INDEX, null, KEY_EPOCH_DAY + "=?", 
+                new String[]{epochDay}, null, null, null);
         
+        int rowsRead = 0;
         if (cursor.moveToFirst()) {
-            dayRecord.setUvIndex(cursor.getDouble(cursor.getColumnIndex("uv_index")));
-            dayRecord.setBurnTimeMinutes(cursor.getInt(cursor.getColumnIndex("burn_time")));
-            dayRecord.setTanTimeMinutes(cursor.getInt(cursor.getColumnIndex("tan_time")));
-            dayRecord.setVitaminDTimeMinutes(cursor.getInt(cursor.getColumnIndex("vitamin_d_time")));
-            // Calculate activity impact based on UV index
-            dayRecord.setUvActivityImpact(calculateUVImpact(dayRecord.getUvIndex()));
+            rowsRead = 1;
+            dayRecord.setUvIndex(cursor.getDouble(cursor.getColumnIndex(KEY_UV_INDEX)));
+            dayRecord.setBurnTimeMinutes(cursor.getInt(cursor.getColumnIndex(KEY_BURN_TIME)));
+            dayRecord.setTanTimeMinutes(cursor.getInt(cursor.getColumnIndex(KEY_TAN_TIME)));
+            dayRecord.setVitaminDTimeMinutes(cursor.getDouble(cursor.getColumnIndex(KEY_VITAMIN_D_TIME)));
+            dayRecord.setUvActivityImpact(cursor.getFloat(cursor.getColumnIndex(KEY_UV_ACTIVITY_IMPACT)));
         }
         cursor.close();
+        return rowsRead;
     }
     
-    private void loadDaylightData(DayRecord dayRecord, String date) {
+    private int loadDaylightData(DayRecord dayRecord, String date, String epochDay) {
         SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_DAYLIGHT_DATA, null, KEY_DATE + "=?", 
-                new String[]{date}, null, null, null);
+        Cursor cursor = db.query(TABLE_DAYLIGHT_DATA, null, KEY_EPOCH_DAY + "=?", 
+                new String[]{epochDay}, null, null, null);
         
+        int rowsRead = 0;
         if (cursor.moveToFirst()) {
-            dayRecord.setSunriseTime(cursor.getString(cursor.getColumnIndex("sunrise")));
-            dayRecord.setSunsetTime(cursor.getString(cursor.getColumnIndex("sunset")));
-            dayRecord.setDayLengthMinutes(cursor.getLong(cursor.getColumnIndex("daylight_duration")));
-            dayRecord.setCurrentCircadianPhase(cursor.getString(cursor.getColumnIndex("circadian_phase")));
-            // Calculate activity impact based on circadian rhythm
-            dayRecord.setCircadianActivityScore(calculateCircadianImpact(dayRecord.getCurrentCircadianPhase()));
+            rowsRead = 1;
+            dayRecord.setSunriseTime(parseTimeOnDate(date, cursor.getString(cursor.getColumnIndex(KEY_SUNRISE_TIME))));
+            dayRecord.setSunsetTime(parseTimeOnDate(date, cursor.getString(cursor.getColumnIndex(KEY_SUNSET_TIME))));
+            dayRecord.setDayLengthMinutes(cursor.getLong(cursor.getColumnIndex(KEY_DAY_LENGTH)));
+            dayRecord.setCircadianActivityScore(cursor.getFloat(cursor.getColumnIndex(KEY_CIRCADIAN_SCORE)));
         }
         cursor.close();
+        return rowsRead;
+    }
+    
+    /**
+     * The given HH:mm time of day on the given date, or null if either is missing or malformed
+     */
+    private static Date parseTimeOnDate(String date, String time) {
+        if (date == null || time == null) {
+            return null;
+        }
+        try {
+            return DATETIME_FORMAT.parse(date + " " + time + ":00");
+        } catch (ParseException e) {
+            return null;
+        }
     }
     
     // Helper methods for calculating environmental impacts
@@ -1315,65 +2139,190 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     // Media Consumption CRUD operations
     public long insertMediaConsumption(MediaConsumption media) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_DATE, media.getDate());
-        values.put("media_type", media.getMediaType());
-        values.put("title", media.getTitle());
-        values.put("platform", media.getPlatform());
-        values.put("duration_minutes", media.getDurationMinutes());
-        values.put("genre", media.getGenre());
-        values.put("source", media.getSource());
-        values.put("start_time", media.getStartTime() != null ? DATETIME_FORMAT.format(media.getStartTime()) : null);
-        values.put("end_time", media.getEndTime() != null ? DATETIME_FORMAT.format(media.getEndTime()) : null);
-        values.put("metadata", media.getMetadata());
-        values.put("show_id", media.getShowId());
-        values.put("season", media.getSeason());
-        values.put("episode", media.getEpisode());
-        values.put("channel", media.getChannel());
-        values.put("director", media.getDirector());
-        values.put("artist", media.getArtist());
-        values.put("album", media.getAlbum());
-        values.put("is_rewatch", media.isRewatch() ? 1 : 0);
-        values.put("rating", media.getRating());
-        values.put("notes", media.getNotes());
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(media.getCreatedAt()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(media.getUpdatedAt()));
-        
-        long id = db.insert(TABLE_MEDIA_CONSUMPTION, null, values);
-        media.setId((int) id);
-        
-        return id;
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_DATE, media.getDate());
+            values.put(KEY_EPOCH_DAY, EpochDays.fromDateKey(media.getDate()));
+            values.put("media_type", media.getMediaType());
+            values.put("title", media.getTitle());
+            values.put("platform", media.getPlatform());
+            values.put("duration_minutes", media.getDurationMinutes());
+            values.put("genre", media.getGenre());
+            values.put("source", media.getSource());
+            values.put("start_time", media.getStartTime() != null ? DATETIME_FORMAT.format(media.getStartTime()) : null);
+            values.put("end_time", media.getEndTime() != null ? DATETIME_FORMAT.format(media.getEndTime()) : null);
+            values.put("metadata", media.getMetadata());
+            values.put("show_id", media.getShowId());
+            values.put("season", media.getSeason());
+            values.put("episode", media.getEpisode());
+            values.put("channel", media.getChannel());
+            values.put("director", media.getDirector());
+            values.put("artist", media.getArtist());
+            values.put("album", media.getAlbum());
+            values.put("is_rewatch", media.isRewatch() ? 1 : 0);
+            values.put("rating", media.getRating());
+            values.put("notes", media.getNotes());
+            values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(media.getCreatedAt()));
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(media.getUpdatedAt()));
+            
+            long id = db.insert(TABLE_MEDIA_CONSUMPTION, null, values);
+            media.setId((int) id);
+            
+            metricsRows = 1;
+            return id;
+        } finally {
+            metrics.end("insertMediaConsumption", metricsStart, 0, metricsRows);
+        }
     }
     
     public int updateMediaConsumption(MediaConsumption media) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put("duration_minutes", media.getDurationMinutes());
-        values.put("genre", media.getGenre());
-        values.put("end_time", media.getEndTime() != null ? DATETIME_FORMAT.format(media.getEndTime()) : null);
-        values.put("metadata", media.getMetadata());
-        values.put("is_rewatch", media.isRewatch() ? 1 : 0);
-        values.put("rating", media.getRating());
-        values.put("notes", media.getNotes());
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(media.getUpdatedAt()));
-        
-        return db.update(TABLE_MEDIA_CONSUMPTION, values, KEY_ID + " = ?", 
-                new String[]{String.valueOf(media.getId())});
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put("duration_minutes", media.getDurationMinutes());
+            values.put("genre", media.getGenre());
+            values.put("end_time", media.getEndTime() != null ? DATETIME_FORMAT.format(media.getEndTime()) : null);
+            values.put("metadata", media.getMetadata());
+            values.put("is_rewatch", media.isRewatch() ? 1 : 0);
+            values.put("rating", media.getRating());
+            values.put("notes", media.getNotes());
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(media.getUpdatedAt()));
+            
+            int result = db.update(TABLE_MEDIA_CONSUMPTION, values, KEY_ID + " = ?", 
+                    new String[]{String.valueOf(media.getId())});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("updateMediaConsumption", metricsStart, 0, metricsRows);
+        }
     }
     
     public List<MediaConsumption> getMediaConsumptionForDate(String date) {
-        List<MediaConsumption> mediaList = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<MediaConsumption> mediaList = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, KEY_EPOCH_DAY + " = ?", 
+                    new String[]{String.valueOf(EpochDays.fromDateKey(date))}, null, null, "start_time DESC");
+            
+            while (cursor.moveToNext()) {
+                mediaList.add(cursorToMediaConsumption(cursor));
+            }
+            
+            cursor.close();
+            metricsRows = mediaList.size();
+            return mediaList;
+        } finally {
+            metrics.end("getMediaConsumptionForDate", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    /**
+     * One page of media rows that have a start time, in (start_time, id) order. Pass the
+     * last row's start time and id to continue; null and 0 start from the beginning.
+     */
+    public List<MediaConsumption> getTimedMediaConsumptionPage(String afterStartTime, int afterId, int limit) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<MediaConsumption> mediaList = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            String selection = "start_time IS NOT NULL";
+            String[] selectionArgs = null;
+            if (afterStartTime != null) {
+                selection += " AND (start_time > ? OR (start_time = ? AND " + KEY_ID + " > ?))";
+                selectionArgs = new String[]{afterStartTime, afterStartTime, String.valueOf(afterId)};
+            }
+            Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, selection, selectionArgs,
+                    null, null, "start_time ASC, " + KEY_ID + " ASC", String.valueOf(limit));
+            
+            while (cursor.moveToNext()) {
+                mediaList.add(cursorToMediaConsumption(cursor));
+            }
+            
+            cursor.close();
+            metricsRows = mediaList.size();
+            return mediaList;
+        } finally {
+            metrics.end("getTimedMediaConsumptionPage", metricsStart, metricsRows, 0);
+        }
+    }
+    
+    private MediaConsumption cursorToMediaConsumption(Cursor cursor) {
+        MediaConsumption media = new MediaConsumption();
+        media.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
+        media.setDate(cursor.getString(cursor.getColumnIndex(KEY_DATE)));
+        media.setMediaType(cursor.getString(cursor.getColumnIndex("media_type")));
+        media.setTitle(cursor.getString(cursor.getColumnIndex("title")));
+        media.setPlatform(cursor.getString(cursor.getColumnIndex("platform")));
+        media.setDurationMinutes(cursor.getInt(cursor.getColumnIndex("duration_minutes")));
+        media.setGenre(cursor.getString(cursor.getColumnIndex("genre")));
+        media.setSource(cursor.getString(cursor.getColumnIndex("source")));
         
-        Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, KEY_DATE + " = ?", 
-                new String[]{date}, null, null, "start_time DESC");
+        // Parse dates
+        try {
+            String startTimeStr = cursor.getString(cursor.getColumnIndex("start_time"));
+            if (startTimeStr != null) {
+                media.setStartTime(DATETIME_FORMAT.parse(startTimeStr));
+            }
+            
+            String endTimeStr = cursor.getString(cursor.getColumnIndex("end_time"));
+            if (endTimeStr != null) {
+                media.setEndTime(DATETIME_FORMAT.parse(endTimeStr));
+            }
+            
+            String createdAtStr = cursor.getString(cursor.getColumnIndex(KEY_CREATED_AT));
+            if (createdAtStr != null) {
+                media.setCreatedAt(DATETIME_FORMAT.parse(createdAtStr));
+            }
+            
+            String updatedAtStr = cursor.getString(cursor.getColumnIndex(KEY_UPDATED_AT));
+            if (updatedAtStr != null) {
+                media.setUpdatedAt(DATETIME_FORMAT.parse(updatedAtStr));
+            }
+        } catch (ParseException e) {
+            Log.e(TAG, "Error parsing media consumption dates", e);
+        }
         
-        if (cursor.moveToFirst()) {
-            do {
-                MediaConsumption media = new MediaConsumption();
+        media.setMetadata(cursor.getString(cursor.getColumnIndex("metadata")));
+        media.setShowId(cursor.getString(cursor.getColumnIndex("show_id")));
+        media.setSeason(cursor.getInt(cursor.getColumnIndex("season")));
+        media.setEpisode(cursor.getInt(cursor.getColumnIndex("episode")));
+        media.setChannel(cursor.getString(cursor.getColumnIndex("channel")));
+        media.setDirector(cursor.getString(cursor.getColumnIndex("director")));
+        media.setArtist(cursor.getString(cursor.getColumnIndex("artist")));
+        media.setAlbum(cursor.getString(cursor.getColumnIndex("album")));
+        media.setRewatch(cursor.getInt(cursor.getColumnIndex("is_rewatch")) == 1);
+        media.setRating(cursor.getInt(cursor.getColumnIndex("rating")));
+        media.setNotes(cursor.getString(cursor.getColumnIndex("notes")));
+        
+        return media;
+    }
+    
+    public MediaConsumption getExistingMediaRecord(String date, String packageName) {
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, 
+                    KEY_EPOCH_DAY + " = ? AND metadata LIKE ?", 
+                    new String[]{String.valueOf(EpochDays.fromDateKey(date)), "%" + packageName + "%"}, 
+                    null, null, null);
+            
+            MediaConsumption media = null;
+            if (cursor.moveToFirst()) {
+                media = new MediaConsumption();
                 media.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
                 media.setDate(cursor.getString(cursor.getColumnIndex(KEY_DATE)));
                 media.setMediaType(cursor.getString(cursor.getColumnIndex("media_type")));
@@ -1382,157 +2331,123 @@ public class DatabaseHelper extends SQLiteOpenHelper {
                 media.setDurationMinutes(cursor.getInt(cursor.getColumnIndex("duration_minutes")));
                 media.setGenre(cursor.getString(cursor.getColumnIndex("genre")));
                 media.setSource(cursor.getString(cursor.getColumnIndex("source")));
+                media.setMetadata(cursor.getString(cursor.getColumnIndex("metadata")));
                 
-                // Parse dates
                 try {
-                    String startTimeStr = cursor.getString(cursor.getColumnIndex("start_time"));
-                    if (startTimeStr != null) {
-                        media.setStartTime(DATETIME_FORMAT.parse(startTimeStr));
-                    }
-                    
-                    String endTimeStr = cursor.getString(cursor.getColumnIndex("end_time"));
-                    if (endTimeStr != null) {
-                        media.setEndTime(DATETIME_FORMAT.parse(endTimeStr));
-                    }
-                    
-                    String createdAtStr = cursor.getString(cursor.getColumnIndex(KEY_CREATED_AT));
-                    if (createdAtStr != null) {
-                        media.setCreatedAt(DATETIME_FORMAT.parse(createdAtStr));
-                    }
-                    
                     String updatedAtStr = cursor.getString(cursor.getColumnIndex(KEY_UPDATED_AT));
                     if (updatedAtStr != null) {
                         media.setUpdatedAt(DATETIME_FORMAT.parse(updatedAtStr));
                     }
                 } catch (ParseException e) {
-                    Log.e(TAG, "Error parsing media consumption dates", e);
+                    Log.e(TAG, "Error parsing media consumption date", e);
                 }
-                
-                media.setMetadata(cursor.getString(cursor.getColumnIndex("metadata")));
-                media.setShowId(cursor.getString(cursor.getColumnIndex("show_id")));
-                media.setSeason(cursor.getInt(cursor.getColumnIndex("season")));
-                media.setEpisode(cursor.getInt(cursor.getColumnIndex("episode")));
-                media.setChannel(cursor.getString(cursor.getColumnIndex("channel")));
-                media.setDirector(cursor.getString(cursor.getColumnIndex("director")));
-                media.setArtist(cursor.getString(cursor.getColumnIndex("artist")));
-                media.setAlbum(cursor.getString(cursor.getColumnIndex("album")));
-                media.setRewatch(cursor.getInt(cursor.getColumnIndex("is_rewatch")) == 1);
-                media.setRating(cursor.getInt(cursor.getColumnIndex("rating")));
-                media.setNotes(cursor.getString(cursor.getColumnIndex("notes")));
-                
-                mediaList.add(media);
-            } while (cursor.moveToNext());
-        }
-        
-        cursor.close();
-        return mediaList;
-    }
-    
-    public MediaConsumption getExistingMediaRecord(String date, String packageName) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, 
-                KEY_DATE + " = ? AND metadata LIKE ?", 
-                new String[]{date, "%" + packageName + "%"}, 
-                null, null, null);
-        
-        MediaConsumption media = null;
-        if (cursor.moveToFirst()) {
-            media = new MediaConsumption();
-            media.setId(cursor.getInt(cursor.getColumnIndex(KEY_ID)));
-            media.setDate(cursor.getString(cursor.getColumnIndex(KEY_DATE)));
-            media.setMediaType(cursor.getString(cursor.getColumnIndex("media_type")));
-            media.setTitle(cursor.getString(cursor.getColumnIndex("title")));
-            media.setPlatform(cursor.getString(cursor.getColumnIndex("platform")));
-            media.setDurationMinutes(cursor.getInt(cursor.getColumnIndex("duration_minutes")));
-            media.setGenre(cursor.getString(cursor.getColumnIndex("genre")));
-            media.setSource(cursor.getString(cursor.getColumnIndex("source")));
-            media.setMetadata(cursor.getString(cursor.getColumnIndex("metadata")));
-            
-            try {
-                String updatedAtStr = cursor.getString(cursor.getColumnIndex(KEY_UPDATED_AT));
-                if (updatedAtStr != null) {
-                    media.setUpdatedAt(DATETIME_FORMAT.parse(updatedAtStr));
-                }
-            } catch (ParseException e) {
-                Log.e(TAG, "Error parsing media consumption date", e);
             }
+            
+            cursor.close();
+            metricsRows = media != null ? 1 : 0;
+            return media;
+        } finally {
+            metrics.end("getExistingMediaRecord", metricsStart, metricsRows, 0);
         }
-        
-        cursor.close();
-        return media;
     }
     
     public boolean checkIfRewatch(String showTitle, int season, int episode) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, 
-                "title = ? AND season = ? AND episode = ?", 
-                new String[]{showTitle, String.valueOf(season), String.valueOf(episode)}, 
-                null, null, null);
-        
-        boolean isRewatch = cursor.getCount() > 0;
-        cursor.close();
-        
-        return isRewatch;
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, null, 
+                    "title = ? AND season = ? AND episode = ?", 
+                    new String[]{showTitle, String.valueOf(season), String.valueOf(episode)}, 
+                    null, null, null);
+            
+            boolean isRewatch = cursor.getCount() > 0;
+            cursor.close();
+            
+            metricsRows = isRewatch ? 1 : 0;
+            return isRewatch;
+        } finally {
+            metrics.end("checkIfRewatch", metricsStart, metricsRows, 0);
+        }
     }
     
     public List<String> getRecentlyWatchedShows() {
-        List<String> shows = new ArrayList<>();
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, 
-                new String[]{"DISTINCT title"}, 
-                "media_type = ? AND " + KEY_CREATED_AT + " >= date('now', '-30 days')", 
-                new String[]{"tv"}, 
-                null, null, 
-                KEY_CREATED_AT + " DESC", 
-                "10");
-        
-        if (cursor.moveToFirst()) {
-            do {
-                shows.add(cursor.getString(0));
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<String> shows = new ArrayList<>();
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, 
+                    new String[]{"DISTINCT title"}, 
+                    "media_type = ? AND " + KEY_CREATED_AT + " >= date('now', '-30 days')", 
+                    new String[]{"tv"}, 
+                    null, null, 
+                    KEY_CREATED_AT + " DESC", 
+                    "10");
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    shows.add(cursor.getString(0));
+                } while (cursor.moveToNext());
+            }
+            
+            cursor.close();
+            metricsRows = shows.size();
+            return shows;
+        } finally {
+            metrics.end("getRecentlyWatchedShows", metricsStart, metricsRows, 0);
         }
-        
-        cursor.close();
-        return shows;
     }
     
     public int getTotalMediaMinutesForDate(String date) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        
-        Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, 
-                new String[]{"SUM(duration_minutes) as total"}, 
-                KEY_DATE + " = ?", 
-                new String[]{date}, 
-                null, null, null);
-        
-        int totalMinutes = 0;
-        if (cursor.moveToFirst()) {
-            totalMinutes = cursor.getInt(0);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            
+            Cursor cursor = db.query(TABLE_MEDIA_CONSUMPTION, 
+                    new String[]{"SUM(duration_minutes) as total"}, 
+                    KEY_EPOCH_DAY + " = ?", 
+                    new String[]{String.valueOf(EpochDays.fromDateKey(date))}, 
+                    null, null, null);
+            
+            int totalMinutes = 0;
+            if (cursor.moveToFirst()) {
+                totalMinutes = cursor.getInt(0);
+            }
+            
+            cursor.close();
+            metricsRows = 1;
+            return totalMinutes;
+        } finally {
+            metrics.end("getTotalMediaMinutesForDate", metricsStart, metricsRows, 0);
         }
-        
-        cursor.close();
-        return totalMinutes;
     }
     
     public void deleteOldMediaConsumption(int daysToKeep) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        
-        // Calculate cutoff date
-        Calendar cutoffDate = Calendar.getInstance();
-        cutoffDate.add(Calendar.DAY_OF_YEAR, -daysToKeep);
-        String cutoffDateString = DATE_FORMAT.format(cutoffDate.getTime());
-        
-        int deletedRows = db.delete(TABLE_MEDIA_CONSUMPTION, 
-                KEY_DATE + " < ?", 
-                new String[]{cutoffDateString});
-        
-        Log.d(TAG, "Deleted " + deletedRows + " old media consumption records");
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            
+            // Calculate cutoff day
+            int cutoffDay = EpochDays.today() - daysToKeep;
+            
+            int deletedRows = db.delete(TABLE_MEDIA_CONSUMPTION, 
+                    KEY_EPOCH_DAY + " < ?", 
+                    new String[]{String.valueOf(cutoffDay)});
+            
+            Log.d(TAG, "Deleted " + deletedRows + " old media consumption records");
+            metricsRows = deletedRows;
+        } finally {
+            metrics.end("deleteOldMediaConsumption", metricsStart, 0, metricsRows);
+        }
     }
     
     public void close() {
+        releaseCompiledStatements();
         SQLiteDatabase db = this.getReadableDatabase();
         if (db != null && db.isOpen()) {
             db.close();
@@ -1541,153 +2456,212 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     // Goal CRUD operations
     public long insertGoal(Goal goal) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_GOAL_TITLE, goal.getTitle());
-        values.put(KEY_GOAL_DESCRIPTION, goal.getDescription());
-        values.put(KEY_GOAL_TYPE, goal.getType().name());
-        values.put(KEY_GOAL_CATEGORY, goal.getCategory().name());
-        values.put(KEY_GOAL_TARGET_VALUE, goal.getTargetValue());
-        values.put(KEY_GOAL_TARGET_UNIT, goal.getTargetUnit());
-        values.put(KEY_GOAL_CURRENT_VALUE, goal.getCurrentValue());
-        values.put(KEY_GOAL_FREQUENCY, goal.getFrequency().name());
-        values.put(KEY_GOAL_START_DATE, goal.getStartDate() != null ? DATETIME_FORMAT.format(goal.getStartDate()) : null);
-        values.put(KEY_GOAL_END_DATE, goal.getEndDate() != null ? DATETIME_FORMAT.format(goal.getEndDate()) : null);
-        values.put(KEY_GOAL_IS_ACTIVE, goal.isActive() ? 1 : 0);
-        values.put(KEY_GOAL_IS_COMPLETED, goal.isCompleted() ? 1 : 0);
-        values.put(KEY_GOAL_STREAK_COUNT, goal.getStreakCount());
-        values.put(KEY_GOAL_TOTAL_COMPLETIONS, goal.getTotalCompletions());
-        values.put(KEY_GOAL_BEST_VALUE, goal.getBestValue());
-        values.put(KEY_GOAL_LAST_COMPLETED_DATE, goal.getLastCompletedDate() != null ? DATETIME_FORMAT.format(goal.getLastCompletedDate()) : null);
-        values.put(KEY_GOAL_MOTIVATIONAL_MESSAGE, goal.getMotivationalMessage());
-        values.put(KEY_GOAL_PRIORITY, goal.getPriority());
-        values.put(KEY_GOAL_COLOR, goal.getColor());
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insert(TABLE_GOALS, null, values);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_GOAL_TITLE, goal.getTitle());
+            values.put(KEY_GOAL_DESCRIPTION, goal.getDescription());
+            values.put(KEY_GOAL_TYPE, goal.getType().name());
+            values.put(KEY_GOAL_CATEGORY, goal.getCategory().name());
+            values.put(KEY_GOAL_TARGET_VALUE, goal.getTargetValue());
+            values.put(KEY_GOAL_TARGET_UNIT, goal.getTargetUnit());
+            values.put(KEY_GOAL_CURRENT_VALUE, goal.getCurrentValue());
+            values.put(KEY_GOAL_FREQUENCY, goal.getFrequency().name());
+            values.put(KEY_GOAL_START_DATE, goal.getStartDate() != null ? DATETIME_FORMAT.format(goal.getStartDate()) : null);
+            values.put(KEY_GOAL_END_DATE, goal.getEndDate() != null ? DATETIME_FORMAT.format(goal.getEndDate()) : null);
+            values.put(KEY_GOAL_IS_ACTIVE, goal.isActive() ? 1 : 0);
+            values.put(KEY_GOAL_IS_COMPLETED, goal.isCompleted() ? 1 : 0);
+            values.put(KEY_GOAL_STREAK_COUNT, goal.getStreakCount());
+            values.put(KEY_GOAL_TOTAL_COMPLETIONS, goal.getTotalCompletions());
+            values.put(KEY_GOAL_BEST_VALUE, goal.getBestValue());
+            values.put(KEY_GOAL_LAST_COMPLETED_DATE, goal.getLastCompletedDate() != null ? DATETIME_FORMAT.format(goal.getLastCompletedDate()) : null);
+            values.put(KEY_GOAL_MOTIVATIONAL_MESSAGE, goal.getMotivationalMessage());
+            values.put(KEY_GOAL_PRIORITY, goal.getPriority());
+            values.put(KEY_GOAL_COLOR, goal.getColor());
+            values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
+            
+            long result = db.insert(TABLE_GOALS, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertGoal", metricsStart, 0, metricsRows);
+        }
     }
     
     public int updateGoal(Goal goal) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_GOAL_TITLE, goal.getTitle());
-        values.put(KEY_GOAL_DESCRIPTION, goal.getDescription());
-        values.put(KEY_GOAL_TYPE, goal.getType().name());
-        values.put(KEY_GOAL_CATEGORY, goal.getCategory().name());
-        values.put(KEY_GOAL_TARGET_VALUE, goal.getTargetValue());
-        values.put(KEY_GOAL_TARGET_UNIT, goal.getTargetUnit());
-        values.put(KEY_GOAL_CURRENT_VALUE, goal.getCurrentValue());
-        values.put(KEY_GOAL_FREQUENCY, goal.getFrequency().name());
-        values.put(KEY_GOAL_START_DATE, goal.getStartDate() != null ? DATETIME_FORMAT.format(goal.getStartDate()) : null);
-        values.put(KEY_GOAL_END_DATE, goal.getEndDate() != null ? DATETIME_FORMAT.format(goal.getEndDate()) : null);
-        values.put(KEY_GOAL_IS_ACTIVE, goal.isActive() ? 1 : 0);
-        values.put(KEY_GOAL_IS_COMPLETED, goal.isCompleted() ? 1 : 0);
-        values.put(KEY_GOAL_STREAK_COUNT, goal.getStreakCount());
-        values.put(KEY_GOAL_TOTAL_COMPLETIONS, goal.getTotalCompletions());
-        values.put(KEY_GOAL_BEST_VALUE, goal.getBestValue());
-        values.put(KEY_GOAL_LAST_COMPLETED_DATE, goal.getLastCompletedDate() != null ? DATETIME_FORMAT.format(goal.getLastCompletedDate()) : null);
-        values.put(KEY_GOAL_MOTIVATIONAL_MESSAGE, goal.getMotivationalMessage());
-        values.put(KEY_GOAL_PRIORITY, goal.getPriority());
-        values.put(KEY_GOAL_COLOR, goal.getColor());
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.update(TABLE_GOALS, values, KEY_GOAL_ID + " = ?", new String[]{String.valueOf(goal.getId())});
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_GOAL_TITLE, goal.getTitle());
+            values.put(KEY_GOAL_DESCRIPTION, goal.getDescription());
+            values.put(KEY_GOAL_TYPE, goal.getType().name());
+            values.put(KEY_GOAL_CATEGORY, goal.getCategory().name());
+            values.put(KEY_GOAL_TARGET_VALUE, goal.getTargetValue());
+            values.put(KEY_GOAL_TARGET_UNIT, goal.getTargetUnit());
+            values.put(KEY_GOAL_CURRENT_VALUE, goal.getCurrentValue());
+            values.put(KEY_GOAL_FREQUENCY, goal.getFrequency().name());
+            values.put(KEY_GOAL_START_DATE, goal.getStartDate() != null ? DATETIME_FORMAT.format(goal.getStartDate()) : null);
+            values.put(KEY_GOAL_END_DATE, goal.getEndDate() != null ? DATETIME_FORMAT.format(goal.getEndDate()) : null);
+            values.put(KEY_GOAL_IS_ACTIVE, goal.isActive() ? 1 : 0);
+            values.put(KEY_GOAL_IS_COMPLETED, goal.isCompleted() ? 1 : 0);
+            values.put(KEY_GOAL_STREAK_COUNT, goal.getStreakCount());
+            values.put(KEY_GOAL_TOTAL_COMPLETIONS, goal.getTotalCompletions());
+            values.put(KEY_GOAL_BEST_VALUE, goal.getBestValue());
+            values.put(KEY_GOAL_LAST_COMPLETED_DATE, goal.getLastCompletedDate() != null ? DATETIME_FORMAT.format(goal.getLastCompletedDate()) : null);
+            values.put(KEY_GOAL_MOTIVATIONAL_MESSAGE, goal.getMotivationalMessage());
+            values.put(KEY_GOAL_PRIORITY, goal.getPriority());
+            values.put(KEY_GOAL_COLOR, goal.getColor());
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
+            
+            int result = db.update(TABLE_GOALS, values, KEY_GOAL_ID + " = ?", new String[]{String.valueOf(goal.getId())});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("updateGoal", metricsStart, 0, metricsRows);
+        }
     }
     
     public int deleteGoal(int goalId) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        return db.delete(TABLE_GOALS, KEY_GOAL_ID + " = ?", new String[]{String.valueOf(goalId)});
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            int result = db.delete(TABLE_GOALS, KEY_GOAL_ID + " = ?", new String[]{String.valueOf(goalId)});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("deleteGoal", metricsStart, 0, metricsRows);
+        }
     }
     
     public List<Goal> getActiveGoals() {
-        List<Goal> goals = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_GOALS + " WHERE " + KEY_GOAL_IS_ACTIVE + " = 1 ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Goal goal = cursorToGoal(cursor);
-                goals.add(goal);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<Goal> goals = new ArrayList<>();
+            String selectQuery = "SELECT * FROM " + TABLE_GOALS + " WHERE " + KEY_GOAL_IS_ACTIVE + " = 1 ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
+            
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, null);
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    Goal goal = cursorToGoal(cursor);
+                    goals.add(goal);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            metricsRows = goals.size();
+            return goals;
+        } finally {
+            metrics.end("getActiveGoals", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return goals;
     }
     
     public List<Goal> getAllGoals() {
-        List<Goal> goals = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_GOALS + " ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Goal goal = cursorToGoal(cursor);
-                goals.add(goal);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<Goal> goals = new ArrayList<>();
+            String selectQuery = "SELECT * FROM " + TABLE_GOALS + " ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
+            
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, null);
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    Goal goal = cursorToGoal(cursor);
+                    goals.add(goal);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            metricsRows = goals.size();
+            return goals;
+        } finally {
+            metrics.end("getAllGoals", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return goals;
     }
     
     public List<Goal> getGoalsByCategory(Goal.GoalCategory category) {
-        List<Goal> goals = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_GOALS + " WHERE " + KEY_GOAL_CATEGORY + " = ? ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[]{category.name()});
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Goal goal = cursorToGoal(cursor);
-                goals.add(goal);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<Goal> goals = new ArrayList<>();
+            String selectQuery = "SELECT * FROM " + TABLE_GOALS + " WHERE " + KEY_GOAL_CATEGORY + " = ? ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
+            
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, new String[]{category.name()});
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    Goal goal = cursorToGoal(cursor);
+                    goals.add(goal);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            metricsRows = goals.size();
+            return goals;
+        } finally {
+            metrics.end("getGoalsByCategory", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return goals;
     }
     
     public List<Goal> getGoalsByFrequency(Goal.GoalFrequency frequency) {
-        List<Goal> goals = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_GOALS + " WHERE " + KEY_GOAL_FREQUENCY + " = ? ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[]{frequency.name()});
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Goal goal = cursorToGoal(cursor);
-                goals.add(goal);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<Goal> goals = new ArrayList<>();
+            String selectQuery = "SELECT * FROM " + TABLE_GOALS + " WHERE " + KEY_GOAL_FREQUENCY + " = ? ORDER BY " + KEY_GOAL_PRIORITY + " DESC, " + KEY_CREATED_AT + " DESC";
+            
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, new String[]{frequency.name()});
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    Goal goal = cursorToGoal(cursor);
+                    goals.add(goal);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            metricsRows = goals.size();
+            return goals;
+        } finally {
+            metrics.end("getGoalsByFrequency", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return goals;
     }
     
     public Goal getGoalById(int goalId) {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_GOALS, null, KEY_GOAL_ID + " = ?", new String[]{String.valueOf(goalId)}, null, null, null);
-        
-        if (cursor != null && cursor.moveToFirst()) {
-            Goal goal = cursorToGoal(cursor);
-            cursor.close();
-            return goal;
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_GOALS, null, KEY_GOAL_ID + " = ?", new String[]{String.valueOf(goalId)}, null, null, null);
+            
+            if (cursor != null && cursor.moveToFirst()) {
+                Goal goal = cursorToGoal(cursor);
+                cursor.close();
+                metricsRows = goal != null ? 1 : 0;
+                return goal;
+            }
+            
+            if (cursor != null) {
+                cursor.close();
+            }
+            return null;
+        } finally {
+            metrics.end("getGoalById", metricsStart, metricsRows, 0);
         }
-        return null;
     }
     
     private Goal cursorToGoal(Cursor cursor) {
@@ -1747,104 +2721,141 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     // Achievement CRUD operations
     public long insertAchievement(Achievement achievement) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_ACHIEVEMENT_TITLE, achievement.getTitle());
-        values.put(KEY_ACHIEVEMENT_DESCRIPTION, achievement.getDescription());
-        values.put(KEY_ACHIEVEMENT_TYPE, achievement.getType().name());
-        values.put(KEY_ACHIEVEMENT_CATEGORY, achievement.getCategory().name());
-        values.put(KEY_ACHIEVEMENT_TIER, achievement.getTier().name());
-        values.put(KEY_ACHIEVEMENT_ICON_NAME, achievement.getIconName());
-        values.put(KEY_ACHIEVEMENT_BADGE_COLOR, achievement.getBadgeColor());
-        values.put(KEY_ACHIEVEMENT_TARGET_VALUE, achievement.getTargetValue());
-        values.put(KEY_ACHIEVEMENT_TARGET_UNIT, achievement.getTargetUnit());
-        values.put(KEY_ACHIEVEMENT_CURRENT_PROGRESS, achievement.getCurrentProgress());
-        values.put(KEY_ACHIEVEMENT_IS_UNLOCKED, achievement.isUnlocked() ? 1 : 0);
-        values.put(KEY_ACHIEVEMENT_UNLOCKED_AT, achievement.getUnlockedAt() != null ? DATETIME_FORMAT.format(achievement.getUnlockedAt()) : null);
-        values.put(KEY_ACHIEVEMENT_REQUIREMENTS, achievement.getRequirements());
-        values.put(KEY_ACHIEVEMENT_POINTS_VALUE, achievement.getPointsValue());
-        values.put(KEY_ACHIEVEMENT_IS_HIDDEN, achievement.isHidden() ? 1 : 0);
-        values.put(KEY_ACHIEVEMENT_STREAK_REQUIREMENT, achievement.getStreakRequirement());
-        values.put(KEY_ACHIEVEMENT_CUSTOM_CONDITION, achievement.getCustomCondition());
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insert(TABLE_ACHIEVEMENTS, null, values);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_ACHIEVEMENT_TITLE, achievement.getTitle());
+            values.put(KEY_ACHIEVEMENT_DESCRIPTION, achievement.getDescription());
+            values.put(KEY_ACHIEVEMENT_TYPE, achievement.getType().name());
+            values.put(KEY_ACHIEVEMENT_CATEGORY, achievement.getCategory().name());
+            values.put(KEY_ACHIEVEMENT_TIER, achievement.getTier().name());
+            values.put(KEY_ACHIEVEMENT_ICON_NAME, achievement.getIconName());
+            values.put(KEY_ACHIEVEMENT_BADGE_COLOR, achievement.getBadgeColor());
+            values.put(KEY_ACHIEVEMENT_TARGET_VALUE, achievement.getTargetValue());
+            values.put(KEY_ACHIEVEMENT_TARGET_UNIT, achievement.getTargetUnit());
+            values.put(KEY_ACHIEVEMENT_CURRENT_PROGRESS, achievement.getCurrentProgress());
+            values.put(KEY_ACHIEVEMENT_IS_UNLOCKED, achievement.isUnlocked() ? 1 : 0);
+            values.put(KEY_ACHIEVEMENT_UNLOCKED_AT, achievement.getUnlockedAt() != null ? DATETIME_FORMAT.format(achievement.getUnlockedAt()) : null);
+            values.put(KEY_ACHIEVEMENT_REQUIREMENTS, achievement.getRequirements());
+            values.put(KEY_ACHIEVEMENT_POINTS_VALUE, achievement.getPointsValue());
+            values.put(KEY_ACHIEVEMENT_IS_HIDDEN, achievement.isHidden() ? 1 : 0);
+            values.put(KEY_ACHIEVEMENT_STREAK_REQUIREMENT, achievement.getStreakRequirement());
+            values.put(KEY_ACHIEVEMENT_CUSTOM_CONDITION, achievement.getCustomCondition());
+            values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
+            
+            long result = db.insert(TABLE_ACHIEVEMENTS, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertAchievement", metricsStart, 0, metricsRows);
+        }
     }
     
     public int updateAchievement(Achievement achievement) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_ACHIEVEMENT_TITLE, achievement.getTitle());
-        values.put(KEY_ACHIEVEMENT_DESCRIPTION, achievement.getDescription());
-        values.put(KEY_ACHIEVEMENT_TYPE, achievement.getType().name());
-        values.put(KEY_ACHIEVEMENT_CATEGORY, achievement.getCategory().name());
-        values.put(KEY_ACHIEVEMENT_TIER, achievement.getTier().name());
-        values.put(KEY_ACHIEVEMENT_ICON_NAME, achievement.getIconName());
-        values.put(KEY_ACHIEVEMENT_BADGE_COLOR, achievement.getBadgeColor());
-        values.put(KEY_ACHIEVEMENT_TARGET_VALUE, achievement.getTargetValue());
-        values.put(KEY_ACHIEVEMENT_TARGET_UNIT, achievement.getTargetUnit());
-        values.put(KEY_ACHIEVEMENT_CURRENT_PROGRESS, achievement.getCurrentProgress());
-        values.put(KEY_ACHIEVEMENT_IS_UNLOCKED, achievement.isUnlocked() ? 1 : 0);
-        values.put(KEY_ACHIEVEMENT_UNLOCKED_AT, achievement.getUnlockedAt() != null ? DATETIME_FORMAT.format(achievement.getUnlockedAt()) : null);
-        values.put(KEY_ACHIEVEMENT_REQUIREMENTS, achievement.getRequirements());
-        values.put(KEY_ACHIEVEMENT_POINTS_VALUE, achievement.getPointsValue());
-        values.put(KEY_ACHIEVEMENT_IS_HIDDEN, achievement.isHidden() ? 1 : 0);
-        values.put(KEY_ACHIEVEMENT_STREAK_REQUIREMENT, achievement.getStreakRequirement());
-        values.put(KEY_ACHIEVEMENT_CUSTOM_CONDITION, achievement.getCustomCondition());
-        
-        return db.update(TABLE_ACHIEVEMENTS, values, KEY_ACHIEVEMENT_ID + " = ?", new String[]{String.valueOf(achievement.getId())});
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_ACHIEVEMENT_TITLE, achievement.getTitle());
+            values.put(KEY_ACHIEVEMENT_DESCRIPTION, achievement.getDescription());
+            values.put(KEY_ACHIEVEMENT_TYPE, achievement.getType().name());
+            values.put(KEY_ACHIEVEMENT_CATEGORY, achievement.getCategory().name());
+            values.put(KEY_ACHIEVEMENT_TIER, achievement.getTier().name());
+            values.put(KEY_ACHIEVEMENT_ICON_NAME, achievement.getIconName());
+            values.put(KEY_ACHIEVEMENT_BADGE_COLOR, achievement.getBadgeColor());
+            values.put(KEY_ACHIEVEMENT_TARGET_VALUE, achievement.getTargetValue());
+            values.put(KEY_ACHIEVEMENT_TARGET_UNIT, achievement.getTargetUnit());
+            values.put(KEY_ACHIEVEMENT_CURRENT_PROGRESS, achievement.getCurrentProgress());
+            values.put(KEY_ACHIEVEMENT_IS_UNLOCKED, achievement.isUnlocked() ? 1 : 0);
+            values.put(KEY_ACHIEVEMENT_UNLOCKED_AT, achievement.getUnlockedAt() != null ? DATETIME_FORMAT.format(achievement.getUnlockedAt()) : null);
+            values.put(KEY_ACHIEVEMENT_REQUIREMENTS, achievement.getRequirements());
+            values.put(KEY_ACHIEVEMENT_POINTS_VALUE, achievement.getPointsValue());
+            values.put(KEY_ACHIEVEMENT_IS_HIDDEN, achievement.isHidden() ? 1 : 0);
+            values.put(KEY_ACHIEVEMENT_STREAK_REQUIREMENT, achievement.getStreakRequirement());
+            values.put(KEY_ACHIEVEMENT_CUSTOM_CONDITION, achievement.getCustomCondition());
+            
+            int result = db.update(TABLE_ACHIEVEMENTS, values, KEY_ACHIEVEMENT_ID + " = ?", new String[]{String.valueOf(achievement.getId())});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("updateAchievement", metricsStart, 0, metricsRows);
+        }
     }
     
     public List<Achievement> getAllAchievements() {
-        List<Achievement> achievements = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_ACHIEVEMENTS + " ORDER BY " + KEY_ACHIEVEMENT_TIER + ", " + KEY_ACHIEVEMENT_CATEGORY;
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Achievement achievement = cursorToAchievement(cursor);
-                achievements.add(achievement);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<Achievement> achievements = new ArrayList<>();
+            String selectQuery = "SELECT * FROM " + TABLE_ACHIEVEMENTS + " ORDER BY " + KEY_ACHIEVEMENT_TIER + ", " + KEY_ACHIEVEMENT_CATEGORY;
+            
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, null);
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    Achievement achievement = cursorToAchievement(cursor);
+                    achievements.add(achievement);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            metricsRows = achievements.size();
+            return achievements;
+        } finally {
+            metrics.end("getAllAchievements", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return achievements;
     }
     
     public List<Achievement> getAchievementsByCategory(Achievement.AchievementCategory category) {
-        List<Achievement> achievements = new ArrayList<>();
-        String selectQuery = "SELECT * FROM " + TABLE_ACHIEVEMENTS + " WHERE " + KEY_ACHIEVEMENT_CATEGORY + " = ? ORDER BY " + KEY_ACHIEVEMENT_TIER;
-        
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, new String[]{category.name()});
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Achievement achievement = cursorToAchievement(cursor);
-                achievements.add(achievement);
-            } while (cursor.moveToNext());
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            List<Achievement> achievements = new ArrayList<>();
+            String selectQuery = "SELECT * FROM " + TABLE_ACHIEVEMENTS + " WHERE " + KEY_ACHIEVEMENT_CATEGORY + " = ? ORDER BY " + KEY_ACHIEVEMENT_TIER;
+            
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, new String[]{category.name()});
+            
+            if (cursor.moveToFirst()) {
+                do {
+                    Achievement achievement = cursorToAchievement(cursor);
+                    achievements.add(achievement);
+                } while (cursor.moveToNext());
+            }
+            cursor.close();
+            
+            metricsRows = achievements.size();
+            return achievements;
+        } finally {
+            metrics.end("getAchievementsByCategory", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return achievements;
     }
     
     public int getUnlockedAchievementsCount() {
-        String selectQuery = "SELECT COUNT(*) FROM " + TABLE_ACHIEVEMENTS + " WHERE " + KEY_ACHIEVEMENT_IS_UNLOCKED + " = 1";
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.rawQuery(selectQuery, null);
-        
-        int count = 0;
-        if (cursor.moveToFirst()) {
-            count = cursor.getInt(0);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            String selectQuery = "SELECT COUNT(*) FROM " + TABLE_ACHIEVEMENTS + " WHERE " + KEY_ACHIEVEMENT_IS_UNLOCKED + " = 1";
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.rawQuery(selectQuery, null);
+            
+            int count = 0;
+            if (cursor.moveToFirst()) {
+                count = cursor.getInt(0);
+            }
+            cursor.close();
+            
+            metricsRows = 1;
+            return count;
+        } finally {
+            metrics.end("getUnlockedAchievementsCount", metricsStart, metricsRows, 0);
         }
-        cursor.close();
-        
-        return count;
     }
     
     private Achievement cursorToAchievement(Cursor cursor) {
@@ -1888,54 +2899,77 @@ public class DatabaseHelper extends SQLiteOpenHelper {
     
     // UserLevel CRUD operations
     public long insertUserLevel(UserLevel userLevel) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_USER_CURRENT_LEVEL, userLevel.getCurrentLevel());
-        values.put(KEY_USER_CURRENT_XP, userLevel.getCurrentXP());
-        values.put(KEY_USER_TOTAL_XP, userLevel.getTotalXP());
-        values.put(KEY_USER_LAST_LEVEL_UP, userLevel.getLastLevelUp() != null ? DATETIME_FORMAT.format(userLevel.getLastLevelUp()) : null);
-        values.put(KEY_USER_CURRENT_TITLE, userLevel.getCurrentTitle());
-        values.put(KEY_USER_ACHIEVEMENTS_UNLOCKED, userLevel.getAchievementsUnlocked());
-        values.put(KEY_USER_STREAKS_COMPLETED, userLevel.getStreaksCompleted());
-        values.put(KEY_USER_GOALS_COMPLETED, userLevel.getGoalsCompleted());
-        values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.insert(TABLE_USER_LEVEL, null, values);
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_USER_CURRENT_LEVEL, userLevel.getCurrentLevel());
+            values.put(KEY_USER_CURRENT_XP, userLevel.getCurrentXP());
+            values.put(KEY_USER_TOTAL_XP, userLevel.getTotalXP());
+            values.put(KEY_USER_LAST_LEVEL_UP, userLevel.getLastLevelUp() != null ? DATETIME_FORMAT.format(userLevel.getLastLevelUp()) : null);
+            values.put(KEY_USER_CURRENT_TITLE, userLevel.getCurrentTitle());
+            values.put(KEY_USER_ACHIEVEMENTS_UNLOCKED, userLevel.getAchievementsUnlocked());
+            values.put(KEY_USER_STREAKS_COMPLETED, userLevel.getStreaksCompleted());
+            values.put(KEY_USER_GOALS_COMPLETED, userLevel.getGoalsCompleted());
+            values.put(KEY_CREATED_AT, DATETIME_FORMAT.format(new Date()));
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
+            
+            long result = db.insert(TABLE_USER_LEVEL, null, values);
+            metricsRows = 1;
+            return result;
+        } finally {
+            metrics.end("insertUserLevel", metricsStart, 0, metricsRows);
+        }
     }
     
     public int updateUserLevel(UserLevel userLevel) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-        
-        values.put(KEY_USER_CURRENT_LEVEL, userLevel.getCurrentLevel());
-        values.put(KEY_USER_CURRENT_XP, userLevel.getCurrentXP());
-        values.put(KEY_USER_TOTAL_XP, userLevel.getTotalXP());
-        values.put(KEY_USER_LAST_LEVEL_UP, userLevel.getLastLevelUp() != null ? DATETIME_FORMAT.format(userLevel.getLastLevelUp()) : null);
-        values.put(KEY_USER_CURRENT_TITLE, userLevel.getCurrentTitle());
-        values.put(KEY_USER_ACHIEVEMENTS_UNLOCKED, userLevel.getAchievementsUnlocked());
-        values.put(KEY_USER_STREAKS_COMPLETED, userLevel.getStreaksCompleted());
-        values.put(KEY_USER_GOALS_COMPLETED, userLevel.getGoalsCompleted());
-        values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
-        
-        return db.update(TABLE_USER_LEVEL, values, KEY_USER_LEVEL_ID + " = ?", new String[]{String.valueOf(userLevel.getId())});
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getWritableDatabase();
+            ContentValues values = new ContentValues();
+            
+            values.put(KEY_USER_CURRENT_LEVEL, userLevel.getCurrentLevel());
+            values.put(KEY_USER_CURRENT_XP, userLevel.getCurrentXP());
+            values.put(KEY_USER_TOTAL_XP, userLevel.getTotalXP());
+            values.put(KEY_USER_LAST_LEVEL_UP, userLevel.getLastLevelUp() != null ? DATETIME_FORMAT.format(userLevel.getLastLevelUp()) : null);
+            values.put(KEY_USER_CURRENT_TITLE, userLevel.getCurrentTitle());
+            values.put(KEY_USER_ACHIEVEMENTS_UNLOCKED, userLevel.getAchievementsUnlocked());
+            values.put(KEY_USER_STREAKS_COMPLETED, userLevel.getStreaksCompleted());
+            values.put(KEY_USER_GOALS_COMPLETED, userLevel.getGoalsCompleted());
+            values.put(KEY_UPDATED_AT, DATETIME_FORMAT.format(new Date()));
+            
+            int result = db.update(TABLE_USER_LEVEL, values, KEY_USER_LEVEL_ID + " = ?", new String[]{String.valueOf(userLevel.getId())});
+            metricsRows = result;
+            return result;
+        } finally {
+            metrics.end("updateUserLevel", metricsStart, 0, metricsRows);
+        }
     }
     
     public UserLevel getUserLevel() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        Cursor cursor = db.query(TABLE_USER_LEVEL, null, null, null, null, null, KEY_USER_LEVEL_ID + " DESC", "1");
-        
-        if (cursor != null && cursor.moveToFirst()) {
-            UserLevel userLevel = cursorToUserLevel(cursor);
-            cursor.close();
-            return userLevel;
-        }
-        
-        if (cursor != null) {
-            cursor.close();
+        long metricsStart = metrics.begin();
+        long metricsRows = 0;
+        try {
+            SQLiteDatabase db = this.getReadableDatabase();
+            Cursor cursor = db.query(TABLE_USER_LEVEL, null, null, null, null, null, KEY_USER_LEVEL_ID + " DESC", "1");
+            
+            if (cursor != null && cursor.moveToFirst()) {
+                UserLevel userLevel = cursorToUserLevel(cursor);
+                cursor.close();
+                metricsRows = userLevel != null ? 1 : 0;
+                return userLevel;
+            }
+            
+            if (cursor != null) {
+                cursor.close();
+            }
+            return null;
+        } finally {
+            metrics.end("getUserLevel", metricsStart, metricsRows, 0);
         }
-        return null;
     }
     
     private UserLevel cursorToUserLevel(Cursor cursor) {
@@ -0,0 +1,199 @@
+package com.locallife.database;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Low-overhead per-method metrics for DatabaseHelper.
+ * Records call count, a log2 latency histogram, rows read and rows written, and logs
+ * calls slower than a threshold. When disabled, begin() returns 0 and end() returns
+ * immediately, so instrumented methods only pay for one volatile read.
+ */
+public class QueryMetrics {
+    private static final String TAG = "QueryMetrics";
+    private static final long DEFAULT_SLOW_QUERY_THRESHOLD_MS = 50;
+
+    // Bucket i holds latencies up to 0.25ms * 2^i; the last bucket is open-ended (> ~4s)
+    private static final int BUCKET_COUNT = 15;
+    private static final long BASE_BUCKET_NANOS = 250_000L;
+
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+    private volatile long slowQueryThresholdNanos = DEFAULT_SLOW_QUERY_THRESHOLD_MS * 1_000_000L;
+
+    /**
+     * Mutable counters for one method, updated lock-free
+     */
+    private static class MethodMetrics {
+        final AtomicLong calls = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLong rowsRead = new AtomicLong();
+        final AtomicLong rowsWritten = new AtomicLong();
+        final AtomicLong slowCalls = new AtomicLong();
+        final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    /**
+     * Immutable view of one method's metrics
+     */
+    public static class MethodSnapshot {
+        private final String method;
+        private final long calls;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long rowsRead;
+        private final long rowsWritten;
+        private final long slowCalls;
+        private final long[] buckets;
+
+        MethodSnapshot(String method, MethodMetrics metrics) {
+            this.method = method;
+            this.calls = metrics.calls.get();
+            this.totalNanos = metrics.totalNanos.get();
+            this.maxNanos = metrics.maxNanos.get();
+            this.rowsRead = metrics.rowsRead.get();
+            this.rowsWritten = metrics.rowsWritten.get();
+            this.slowCalls = metrics.slowCalls.get();
+            this.buckets = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets[i] = metrics.buckets.get(i);
+            }
+        }
+
+        public String getMethod() { return method; }
+        public long getCalls() { return calls; }
+        public long getRowsRead() { return rowsRead; }
+        public long getRowsWritten() { return rowsWritten; }
+        public long getSlowCalls() { return slowCalls; }
+        public long[] getBuckets() { return buckets; }
+        public double getTotalMs() { return totalNanos / 1e6; }
+        public double getMaxMs() { return maxNanos / 1e6; }
+        public double getMeanMs() { return calls == 0 ? 0 : totalNanos / 1e6 / calls; }
+
+        /**
+         * Percentile estimated as the upper bound of the histogram bucket containing it
+         */
+        public double getPercentileMs(double percentile) {
+            long total = 0;
+            for (long count : buckets) total += count;
+            if (total == 0) return 0;
+
+            long target = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return i == BUCKET_COUNT - 1 ? getMaxMs() : bucketUpperBoundNanos(i) / 1e6;
+                }
+            }
+            return getMaxMs();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public void setSlowQueryThresholdMs(long thresholdMs) {
+        this.slowQueryThresholdNanos = thresholdMs * 1_000_000L;
+    }
+
+    /**
+     * Start timing a call; returns 0 when metrics are disabled
+     */
+    public long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Finish timing a call started with begin()
+     */
+    public void end(String method, long startNanos, long rowsRead, long rowsWritten) {
+        if (startNanos == 0L) {
+            return;
+        }
+
+        long elapsed = System.nanoTime() - startNanos;
+        MethodMetrics metrics = methods.get(method);
+        if (metrics == null) {
+            metrics = methods.computeIfAbsent(method, key -> new MethodMetrics());
+        }
+
+        metrics.calls.incrementAndGet();
+        metrics.totalNanos.addAndGet(elapsed);
+        metrics.rowsRead.addAndGet(rowsRead);
+        metrics.rowsWritten.addAndGet(rowsWritten);
+        metrics.buckets.incrementAndGet(bucketFor(elapsed));
+
+        long max = metrics.maxNanos.get();
+        while (elapsed > max && !metrics.maxNanos.compareAndSet(max, elapsed)) {
+            max = metrics.maxNanos.get();
+        }
+
+        if (elapsed > slowQueryThresholdNanos) {
+            metrics.slowCalls.incrementAndGet();
+            Log.w(TAG, String.format(Locale.US, "Slow query: %s took %.1f ms (read %d, wrote %d rows)",
+                    method, elapsed / 1e6, rowsRead, rowsWritten));
+        }
+    }
+
+    /**
+     * Snapshot of all methods, most expensive in total time first
+     */
+    public List<MethodSnapshot> snapshot() {
+        List<MethodSnapshot> snapshots = new ArrayList<>();
+        for (Map.Entry<String, MethodMetrics> entry : methods.entrySet()) {
+            snapshots.add(new MethodSnapshot(entry.getKey(), entry.getValue()));
+        }
+        Collections.sort(snapshots, (a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return snapshots;
+    }
+
+    public void reset() {
+        methods.clear();
+    }
+
+    /**
+     * Human-readable summary of the top methods by total time
+     */
+    public String formatSnapshot(int limit) {
+        List<MethodSnapshot> snapshots = snapshot();
+        if (snapshots.isEmpty()) {
+            return enabled ? "No database calls recorded yet\n" : "Database metrics disabled\n";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int count = 0;
+        for (MethodSnapshot s : snapshots) {
+            if (count++ >= limit) break;
+            sb.append(String.format(Locale.US, "%s\n  %d calls, p50 %.1f ms, p99 %.1f ms, max %.1f ms\n  rows read %d, written %d, slow %d\n",
+                    s.getMethod(), s.getCalls(), s.getPercentileMs(0.50), s.getPercentileMs(0.99), s.getMaxMs(),
+                    s.getRowsRead(), s.getRowsWritten(), s.getSlowCalls()));
+        }
+        return sb.toString();
+    }
+
+    private static int bucketFor(long nanos) {
+        long scaled = nanos / BASE_BUCKET_NANOS;
+        if (scaled == 0) return 0;
+        int bucket = 64 - Long.numberOfLeadingZeros(scaled);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private static long bucketUpperBoundNanos(int bucket) {
+        return BASE_BUCKET_NANOS << bucket;
+    }
+}
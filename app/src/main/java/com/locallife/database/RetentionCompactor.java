@@ -0,0 +1,234 @@
+package com.locallife.database;
+
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.locallife.utils.EpochDays;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rolls raw sensor rows up into coarser summaries as they age instead of keeping them
+ * forever or deleting them outright. Rows younger than HOURLY_AFTER_DAYS stay raw, older
+ * rows collapse to one row per hour, and past DAILY_AFTER_DAYS to one row per day.
+ * Anything older than RETENTION_DAYS is left to DatabaseHelper.deleteOldSensorRecords.
+ *
+ * Each day of each table is rewritten in its own short non-exclusive transaction
+ * (INSERT ... SELECT the aggregates, then DELETE the originals by id), so writers only
+ * ever wait for one day's worth of rows. Days that are already at their tier's resolution
+ * are found with one grouped query per table and skipped.
+ */
+public class RetentionCompactor {
+    private static final String TAG = "RetentionCompactor";
+
+    public static final int HOURLY_AFTER_DAYS = 7;
+    public static final int DAILY_AFTER_DAYS = 90;
+    public static final int RETENTION_DAYS = 730;
+    // Bound a single run; the backlog is picked up on the next cleanup
+    private static final int MAX_DAYS_PER_TABLE = 120;
+
+    /**
+     * How one table rolls up: which column identifies the day, which rows are eligible,
+     * how rows are grouped within a day and how each group becomes a summary row
+     */
+    private static class Rollup {
+        final String table;
+        final String dayColumn;
+        final String eligibleFilter;  // %d is the cutoff epoch day
+        final boolean dailyOnly;
+        final String hourExpression;  // null when rows carry no timestamp
+        final String groupKeys;
+        final String columns;
+        final String aggregates;
+
+        Rollup(String table, String dayColumn, String eligibleFilter, boolean dailyOnly, String hourExpression,
+               String groupKeys, String columns, String aggregates) {
+            this.table = table;
+            this.dayColumn = dayColumn;
+            this.eligibleFilter = eligibleFilter;
+            this.dailyOnly = dailyOnly;
+            this.hourExpression = hourExpression;
+            this.groupKeys = groupKeys;
+            this.columns = columns;
+            this.aggregates = aggregates;
+        }
+
+        String groupBy(int dailyCutoff) {
+            StringBuilder groupBy = new StringBuilder(dayColumn);
+            if (hourExpression != null) {
+                groupBy.append(", CASE WHEN epoch_day < ").append(dailyCutoff)
+                        .append(" THEN 0 ELSE ").append(hourExpression).append(" END");
+            }
+            if (groupKeys != null) {
+                groupBy.append(", ").append(groupKeys);
+            }
+            return groupBy.toString();
+        }
+    }
+
+    private static final List<Rollup> ROLLUPS = new ArrayList<>();
+
+    static {
+        // "daily" step rows are running totals, "hourly" rows are increments
+        ROLLUPS.add(new Rollup(DatabaseHelper.TABLE_STEP_DATA, "epoch_day", "epoch_day < %d", false,
+                "timestamp_ms / 3600000", "step_type",
+                "date, timestamp, epoch_day, timestamp_ms, steps, step_type",
+                "MAX(date), MAX(timestamp), epoch_day, MAX(timestamp_ms), "
+                        + "CASE WHEN step_type = 'daily' THEN MAX(steps) ELSE SUM(steps) END, step_type"));
+        // Buckets keep the sample-weighted average plus the true min/max underneath it
+        ROLLUPS.add(new Rollup(DatabaseHelper.TABLE_BATTERY_DATA, "epoch_day", "epoch_day < %d", false,
+                "timestamp_ms / 3600000", null,
+                "date, timestamp, epoch_day, timestamp_ms, battery_level, is_charging, battery_health, "
+                        + "battery_min_level, battery_max_level, sample_count",
+                "MIN(date), MIN(timestamp), epoch_day, MIN(timestamp_ms), "
+                        + "CAST(ROUND(SUM(battery_level * IFNULL(sample_count, 1)) * 1.0 / SUM(IFNULL(sample_count, 1))) AS INTEGER), "
+                        + "MAX(is_charging), MAX(battery_health), MIN(IFNULL(battery_min_level, battery_level)), "
+                        + "MAX(IFNULL(battery_max_level, battery_level)), SUM(IFNULL(sample_count, 1))"));
+        // Single MAX() so the bare condition/code/location columns come from the latest reading
+        ROLLUPS.add(new Rollup(DatabaseHelper.TABLE_WEATHER_DATA, "epoch_day", "epoch_day < %d", false,
+                "timestamp_ms / 3600000", null,
+                "date, timestamp, epoch_day, timestamp_ms, location, temperature, humidity, weather_condition, "
+                        + "weather_code, wind_speed, precipitation, cloud_cover",
+                "date, timestamp, epoch_day, MAX(timestamp_ms), location, AVG(temperature), AVG(humidity), "
+                        + "weather_condition, weather_code, AVG(wind_speed), AVG(precipitation), AVG(cloud_cover)"));
+        // Per-app usage is saved as running daily totals, so the last snapshot per app is the whole day
+        ROLLUPS.add(new Rollup(DatabaseHelper.TABLE_SCREEN_TIME, "epoch_day", "epoch_day < %d", false,
+                null, "package_name",
+                "date, epoch_day, app_name, package_name, usage_time, last_used",
+                "MIN(date), epoch_day, MAX(app_name), package_name, MAX(usage_time), MAX(last_used)"));
+        // Visits are already summaries; once daily, repeat visits to the same place merge
+        ROLLUPS.add(new Rollup(DatabaseHelper.TABLE_LOCATION_VISITS, "record_id",
+                "record_id IN (SELECT id FROM " + DatabaseHelper.TABLE_DAY_RECORDS + " WHERE epoch_day < %d)", true,
+                null, "place_name, place_category, ROUND(latitude, 3), ROUND(longitude, 3)",
+                "record_id, place_name, latitude, longitude, arrival_time, departure_time, arrival_ms, "
+                        + "departure_ms, duration_minutes, place_category",
+                "record_id, place_name, AVG(latitude), AVG(longitude), MIN(arrival_time), MAX(departure_time), "
+                        + "MIN(arrival_ms), MAX(departure_ms), SUM(duration_minutes), place_category"));
+    }
+
+    /**
+     * Rows and bytes reclaimed by one compaction run
+     */
+    public static class CompactionReport {
+        private final Map<String, Long> rowsReclaimedPerTable = new LinkedHashMap<>();
+        private long rowsDeleted;
+        private long rowsInserted;
+        private int daysCompacted;
+        private long bytesReclaimed;
+        private long durationMs;
+
+        public Map<String, Long> getRowsReclaimedPerTable() { return rowsReclaimedPerTable; }
+        public long getRowsDeleted() { return rowsDeleted; }
+        public long getRowsInserted() { return rowsInserted; }
+        public long getRowsReclaimed() { return rowsDeleted - rowsInserted; }
+        public int getDaysCompacted() { return daysCompacted; }
+        public long getBytesReclaimed() { return bytesReclaimed; }
+        public long getDurationMs() { return durationMs; }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%d rows (%d KB) reclaimed over %d days in %d ms %s",
+                    getRowsReclaimed(), bytesReclaimed / 1024, daysCompacted, durationMs, rowsReclaimedPerTable);
+        }
+    }
+
+    private final DatabaseHelper databaseHelper;
+
+    public RetentionCompactor(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    /**
+     * Compact every table one day at a time; call from a background thread
+     */
+    public CompactionReport compact() {
+        long started = System.currentTimeMillis();
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        CompactionReport report = new CompactionReport();
+        long livePagesBefore = livePages(db);
+
+        int today = EpochDays.today();
+        int hourlyCutoff = today - HOURLY_AFTER_DAYS;
+        int dailyCutoff = today - DAILY_AFTER_DAYS;
+
+        for (Rollup rollup : ROLLUPS) {
+            long reclaimed = 0;
+            try {
+                for (long day : findUncompactedDays(db, rollup, hourlyCutoff, dailyCutoff)) {
+                    reclaimed += compactDay(db, rollup, day, dailyCutoff, report);
+                    report.daysCompacted++;
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error compacting " + rollup.table, e);
+            }
+            report.rowsReclaimedPerTable.put(rollup.table, reclaimed);
+        }
+
+        report.bytesReclaimed = Math.max(0, livePagesBefore - livePages(db))
+                * DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+        report.durationMs = System.currentTimeMillis() - started;
+        Log.i(TAG, "Compaction: " + report);
+        return report;
+    }
+
+    /**
+     * Days holding more rows than their tier allows, oldest first
+     */
+    private List<Long> findUncompactedDays(SQLiteDatabase db, Rollup rollup, int hourlyCutoff, int dailyCutoff) {
+        String filter = String.format(Locale.US, rollup.eligibleFilter, rollup.dailyOnly ? dailyCutoff : hourlyCutoff);
+        String sql = "SELECT day FROM (SELECT " + rollup.dayColumn + " AS day, COUNT(*) AS n FROM " + rollup.table
+                + " WHERE " + filter + " GROUP BY " + rollup.groupBy(dailyCutoff) + ")"
+                + " GROUP BY day HAVING SUM(n) > COUNT(*) ORDER BY day LIMIT " + MAX_DAYS_PER_TABLE;
+
+        List<Long> days = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(sql, null)) {
+            while (cursor.moveToNext()) {
+                days.add(cursor.getLong(0));
+            }
+        }
+        return days;
+    }
+
+    /**
+     * Replace one day's rows with their summaries; the new rows get higher ids than every
+     * original, so the delete by id leaves them alone
+     */
+    private long compactDay(SQLiteDatabase db, Rollup rollup, long day, int dailyCutoff, CompactionReport report) {
+        String dayFilter = rollup.dayColumn + " = " + day;
+        db.beginTransactionNonExclusive();
+        try {
+            long maxId = DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(id), 0) FROM " + rollup.table
+                    + " WHERE " + dayFilter, null);
+            long inserted = executeForCount(db, "INSERT INTO " + rollup.table + " (" + rollup.columns + ") SELECT "
+                    + rollup.aggregates + " FROM " + rollup.table + " WHERE " + dayFilter
+                    + " GROUP BY " + rollup.groupBy(dailyCutoff));
+            long deleted = executeForCount(db, "DELETE FROM " + rollup.table + " WHERE " + dayFilter
+                    + " AND id <= " + maxId);
+            db.setTransactionSuccessful();
+
+            report.rowsInserted += inserted;
+            report.rowsDeleted += deleted;
+            return deleted - inserted;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static long executeForCount(SQLiteDatabase db, String sql) {
+        try (SQLiteStatement statement = db.compileStatement(sql)) {
+            return statement.executeUpdateDelete();
+        }
+    }
+
+    private static long livePages(SQLiteDatabase db) {
+        return DatabaseUtils.longForQuery(db, "PRAGMA page_count", null)
+                - DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+    }
+}
@@ -0,0 +1,494 @@
+package com.locallife.database;
+
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import com.locallife.model.Achievement;
+import com.locallife.model.DayRecord;
+import com.locallife.model.Goal;
+import com.locallife.model.MediaConsumption;
+import com.locallife.model.PhotoMetadata;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fills every DatabaseHelper table with years of correlated synthetic history.
+ * Weather follows the seasons, and steps, screen time, battery drain, photos and
+ * media all react to the weather and to weekends the way real users do, so query
+ * plans and row counts look like a long-lived install.
+ */
+public class SyntheticDataGenerator {
+    private static final String TAG = "SyntheticDataGenerator";
+    
+    // Per-day sample volumes, matching the collectors' sampling rates
+    private static final int STEP_SAMPLES_PER_DAY = 24;      // hourly
+    private static final int BATTERY_SAMPLES_PER_DAY = 96;   // every 15 minutes
+    private static final int WEATHER_SAMPLES_PER_DAY = 48;   // every 30 minutes
+    private static final int TRACKED_APPS = 12;
+    
+    private static final String[] CONDITIONS = {"clear", "cloudy", "rain", "storm", "snow", "fog"};
+    private static final String[] PLACE_CATEGORIES = {"home", "work", "restaurant", "park", "gym", "shopping", "cafe"};
+    private static final String[] APP_PACKAGES = {
+            "com.whatsapp", "com.instagram.android", "com.google.android.youtube", "com.netflix.mediaclient",
+            "com.spotify.music", "com.google.android.gm", "com.android.chrome", "com.twitter.android",
+            "com.google.android.apps.maps", "com.slack", "com.reddit.frontpage", "com.android.camera"
+    };
+    private static final String[] SHOWS = {"The Office", "Dark", "Severance", "Planet Earth", "Succession"};
+    private static final String[] PLATFORMS = {"Netflix", "YouTube", "Spotify", "Prime Video", "Disney+"};
+    private static final String[] MOON_PHASES = {"New Moon", "Waxing Crescent", "First Quarter", "Waxing Gibbous",
+            "Full Moon", "Waning Gibbous", "Last Quarter", "Waning Crescent"};
+    
+    private final DatabaseHelper databaseHelper;
+    private final Random random;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm", Locale.US);
+    
+    private final double homeLatitude = 40.7128;
+    private final double homeLongitude = -74.0060;
+    
+    public interface ProgressListener {
+        void onProgress(int daysGenerated, int totalDays);
+    }
+    
+    /**
+     * Row counts per table produced by a generation run
+     */
+    public static class GenerationReport {
+        private final Map<String, Long> rowsPerTable = new LinkedHashMap<>();
+        private final Map<String, String> failedTables = new LinkedHashMap<>();
+        private long durationMs;
+        
+        void addRows(String table, long rows) {
+            Long current = rowsPerTable.get(table);
+            rowsPerTable.put(table, (current != null ? current : 0L) + rows);
+        }
+        
+        void recordFailure(String table, String error) {
+            if (!failedTables.containsKey(table)) {
+                failedTables.put(table, error);
+            }
+        }
+        
+        public Map<String, Long> getRowsPerTable() { return rowsPerTable; }
+        public Map<String, String> getFailedTables() { return failedTables; }
+        public long getDurationMs() { return durationMs; }
+        
+        public long getTotalRows() {
+            long total = 0;
+            for (long rows : rowsPerTable.values()) {
+                total += rows;
+            }
+            return total;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Generated ").append(getTotalRows()).append(" rows in ").append(durationMs).append(" ms\n");
+            for (Map.Entry<String, Long> entry : rowsPerTable.entrySet()) {
+                sb.append(String.format(Locale.US, "  %-20s %10d%n", entry.getKey(), entry.getValue()));
+            }
+            for (Map.Entry<String, String> entry : failedTables.entrySet()) {
+                sb.append("  FAILED ").append(entry.getKey()).append(": ").append(entry.getValue()).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+    
+    public SyntheticDataGenerator(DatabaseHelper databaseHelper, long seed) {
+        this.databaseHelper = databaseHelper;
+        this.random = new Random(seed);
+    }
+    
+    /**
+     * Generate the given number of years of history ending today, one transaction per day
+     */
+    public GenerationReport generate(int years, ProgressListener listener) {
+        GenerationReport report = new GenerationReport();
+        long startTime = System.currentTimeMillis();
+        
+        Calendar day = Calendar.getInstance();
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        day.add(Calendar.YEAR, -years);
+        
+        Calendar end = Calendar.getInstance();
+        int totalDays = (int) ((end.getTimeInMillis() - day.getTimeInMillis()) / (24L * 60 * 60 * 1000));
+        
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        for (int dayIndex = 0; dayIndex < totalDays; dayIndex++) {
+            db.beginTransaction();
+            try {
+                generateDay(day, report);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            
+            day.add(Calendar.DAY_OF_YEAR, 1);
+            if (listener != null && (dayIndex % 30 == 0 || dayIndex == totalDays - 1)) {
+                listener.onProgress(dayIndex + 1, totalDays);
+            }
+        }
+        
+        generateGoalsAndAchievements(report);
+        
+        report.durationMs = System.currentTimeMillis() - startTime;
+        Log.i(TAG, report.toString());
+        return report;
+    }
+    
+    /**
+     * Generate the given number of days of DayRecords ending today without touching a
+     * database, for running the prediction models headless on the JVM
+     */
+    public static List<DayRecord> generateDayRecords(int days, long seed) {
+        SyntheticDataGenerator generator = new SyntheticDataGenerator(null, seed);
+        Calendar day = Calendar.getInstance();
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        day.add(Calendar.DAY_OF_YEAR, -days);
+        
+        List<DayRecord> records = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            records.add(generator.createDayRecord(day));
+            day.add(Calendar.DAY_OF_YEAR, 1);
+        }
+        return records;
+    }
+    
+    private void generateDay(Calendar day, GenerationReport report) {
+        DayRecord record = createDayRecord(day);
+        databaseHelper.insertDayRecord(record);
+        report.addRows(DatabaseHelper.TABLE_DAY_RECORDS, 1);
+        report.addRows(DatabaseHelper.TABLE_LOCATION_VISITS, record.getPlacesVisited());
+        
+        String date = record.getDate();
+        int dayOfYear = day.get(Calendar.DAY_OF_YEAR);
+        double season = seasonOf(dayOfYear);
+        String condition = record.getWeatherCondition();
+        boolean weekend = isWeekend(day);
+        boolean badWeather = isBadWeather(condition);
+        generateStepSamples(date, record.getStepCount(), weekend, report);
+        generateWeatherSamples(date, record.getTemperature(), record.getHumidity(), condition,
+                record.getWindSpeed(), report);
+        generateBatterySamples(date, record.getScreenTimeMinutes(), report);
+        generateScreenTime(date, record.getScreenTimeMinutes(), report);
+        generatePhotos(day, date, record.getPhotoCount(), badWeather, report);
+        generateMedia(day, date, weekend, badWeather, report);
+        generateEnvironmental(date, dayOfYear, season, report);
+    }
+    
+    /**
+     * The day's summary record with its location visits; weather drives everything else
+     */
+    private DayRecord createDayRecord(Calendar day) {
+        String date = dateFormat.format(day.getTime());
+        boolean weekend = isWeekend(day);
+        
+        // Seasonal weather: warm peak mid-July, wetter and colder in winter
+        double season = seasonOf(day.get(Calendar.DAY_OF_YEAR));
+        float temperature = (float) (12 + 13 * season + random.nextGaussian() * 4);
+        float humidity = (float) clamp(60 - 15 * season + random.nextGaussian() * 10, 15, 100);
+        float windSpeed = (float) Math.abs(8 + random.nextGaussian() * 5);
+        String condition = pickCondition(season, temperature);
+        boolean badWeather = isBadWeather(condition);
+        
+        // Activity reacts to weather and weekends
+        double stepBase = weekend ? 9500 : 7500;
+        if (badWeather) stepBase *= 0.6;
+        if (temperature > 30 || temperature < -5) stepBase *= 0.75;
+        int steps = (int) Math.max(300, stepBase + random.nextGaussian() * 2500);
+        
+        // Screen time and media pick up when people stay in
+        int screenMinutes = (int) clamp(240 - (steps - 7500) / 60.0 + (badWeather ? 60 : 0)
+                + random.nextGaussian() * 40, 30, 720);
+        int unlocks = (int) clamp(screenMinutes / 4.0 + random.nextGaussian() * 10, 10, 250);
+        int placesVisited = (int) clamp(2 + steps / 3000.0 + random.nextGaussian(), 1, 10);
+        int photoCount = (int) clamp((badWeather ? 1 : 3) + (weekend ? 4 : 0) + random.nextGaussian() * 2, 0, 40);
+        
+        DayRecord record = new DayRecord();
+        record.setDate(date);
+        record.setStepCount(steps);
+        record.setTotalDistance(steps * 0.75f);
+        record.setActiveMinutes(steps / 110);
+        record.setTemperature(temperature);
+        record.setHumidity(humidity);
+        record.setWeatherCondition(condition);
+        record.setWindSpeed(windSpeed);
+        record.setPlacesVisited(placesVisited);
+        record.setPrimaryLocation(weekend ? "park" : "work");
+        record.setTotalTravelDistance((float) (placesVisited * 2500 + random.nextDouble() * 5000));
+        record.setScreenTimeMinutes(screenMinutes);
+        record.setBatteryUsagePercent((float) clamp(screenMinutes / 6.0 + random.nextGaussian() * 5, 5, 100));
+        record.setPhoneUnlocks(unlocks);
+        record.setPhotoCount(photoCount);
+        record.setPhotoActivityScore(Math.min(100, photoCount * 8));
+        record.setCreatedAt(day.getTime());
+        record.setUpdatedAt(day.getTime());
+        
+        Calendar visitTime = (Calendar) day.clone();
+        visitTime.set(Calendar.HOUR_OF_DAY, 8);
+        for (int i = 0; i < placesVisited; i++) {
+            String category = i == 0 ? "home" : PLACE_CATEGORIES[random.nextInt(PLACE_CATEGORIES.length)];
+            DayRecord.LocationVisit visit = new DayRecord.LocationVisit(category + " " + (i + 1),
+                    homeLatitude + random.nextGaussian() * 0.02, homeLongitude + random.nextGaussian() * 0.02);
+            visit.setArrivalTime(visitTime.getTime());
+            visitTime.add(Calendar.MINUTE, 30 + random.nextInt(150));
+            visit.setDepartureTime(visitTime.getTime());
+            visit.setPlaceCategory(category);
+            record.getLocationVisits().add(visit);
+        }
+        
+        record.calculateActivityScore();
+        return record;
+    }
+    
+    private static boolean isWeekend(Calendar day) {
+        int dayOfWeek = day.get(Calendar.DAY_OF_WEEK);
+        return dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY;
+    }
+    
+    private static boolean isBadWeather(String condition) {
+        return condition.equals("rain") || condition.equals("storm") || condition.equals("snow");
+    }
+    
+    private static double seasonOf(int dayOfYear) {
+        return Math.cos(2 * Math.PI * (dayOfYear - 196) / 365.0);
+    }
+    
+    private void generateStepSamples(String date, int steps, boolean weekend, GenerationReport report) {
+        // Bimodal commute-shaped curve on weekdays, a single afternoon hump at weekends
+        double[] weights = new double[STEP_SAMPLES_PER_DAY];
+        double total = 0;
+        for (int hour = 0; hour < STEP_SAMPLES_PER_DAY; hour++) {
+            double weight;
+            if (hour < 6 || hour > 22) {
+                weight = 0.02;
+            } else if (weekend) {
+                weight = Math.exp(-Math.pow(hour - 14, 2) / 18.0);
+            } else {
+                weight = Math.exp(-Math.pow(hour - 8, 2) / 2.0) + Math.exp(-Math.pow(hour - 18, 2) / 3.0) + 0.2;
+            }
+            weights[hour] = weight;
+            total += weight;
+        }
+        for (int hour = 0; hour < STEP_SAMPLES_PER_DAY; hour++) {
+            databaseHelper.insertStepData(date, (int) (steps * weights[hour] / total), "hourly");
+        }
+        report.addRows(DatabaseHelper.TABLE_STEP_DATA, STEP_SAMPLES_PER_DAY);
+    }
+    
+    private void generateWeatherSamples(String date, float temperature, float humidity, String condition,
+                                        float windSpeed, GenerationReport report) {
+        for (int i = 0; i < WEATHER_SAMPLES_PER_DAY; i++) {
+            double hour = i * 24.0 / WEATHER_SAMPLES_PER_DAY;
+            float diurnal = (float) (4 * Math.sin(2 * Math.PI * (hour - 9) / 24.0));
+            databaseHelper.insertWeatherData(date, "Synthetic City", temperature + diurnal, humidity - diurnal,
+                    condition, conditionCode(condition), windSpeed, condition.equals("rain") ? 1.5f : 0f,
+                    condition.equals("clear") ? 10f : 75f);
+        }
+        report.addRows(DatabaseHelper.TABLE_WEATHER_DATA, WEATHER_SAMPLES_PER_DAY);
+    }
+    
+    private void generateBatterySamples(String date, int screenMinutes, GenerationReport report) {
+        // Drain proportional to screen time, overnight charge from 23:00
+        double drainPerSample = screenMinutes / 720.0;
+        double level = 100;
+        for (int i = 0; i < BATTERY_SAMPLES_PER_DAY; i++) {
+            boolean charging = i >= 92 || i < 28;
+            level = charging ? Math.min(100, level + 4) : Math.max(3, level - drainPerSample - random.nextDouble());
+            databaseHelper.insertBatteryData(date, (int) level, charging, "good");
+        }
+        report.addRows(DatabaseHelper.TABLE_BATTERY_DATA, BATTERY_SAMPLES_PER_DAY);
+    }
+    
+    private void generateScreenTime(String date, int screenMinutes, GenerationReport report) {
+        int remaining = screenMinutes;
+        for (int i = 0; i < TRACKED_APPS && remaining > 0; i++) {
+            int usage = i == TRACKED_APPS - 1 ? remaining : (int) (remaining * (0.2 + random.nextDouble() * 0.3));
+            String packageName = APP_PACKAGES[i];
+            String appName = packageName.substring(packageName.lastIndexOf('.') + 1);
+            databaseHelper.insertScreenTimeData(date, appName, packageName, usage * 60 * 1000,
+                    date + " " + String.format(Locale.US, "%02d:%02d:00", 8 + random.nextInt(14), random.nextInt(60)));
+            remaining -= usage;
+            report.addRows(DatabaseHelper.TABLE_SCREEN_TIME, 1);
+        }
+    }
+    
+    private void generatePhotos(Calendar day, String date, int photoCount, boolean badWeather, GenerationReport report) {
+        for (int i = 0; i < photoCount; i++) {
+            Calendar taken = (Calendar) day.clone();
+            taken.set(Calendar.HOUR_OF_DAY, 8 + random.nextInt(14));
+            taken.set(Calendar.MINUTE, random.nextInt(60));
+            taken.set(Calendar.SECOND, random.nextInt(60));
+            
+            String path = "/storage/emulated/0/DCIM/Camera/IMG_" + date.replace("-", "") + "_" + i + ".jpg";
+            PhotoMetadata photo = new PhotoMetadata("content://media/external/images/media/" + path.hashCode(), path);
+            photo.setDateTaken(taken.getTime());
+            photo.setDateModified(taken.getTime());
+            photo.setLatitude(homeLatitude + random.nextGaussian() * 0.05);
+            photo.setLongitude(homeLongitude + random.nextGaussian() * 0.05);
+            photo.setHasLocationData(true);
+            photo.setCameraMake("Google");
+            photo.setCameraModel("Pixel 7");
+            photo.setImageWidth(4080);
+            photo.setImageHeight(3072);
+            photo.setFileSize(2_000_000 + random.nextInt(3_000_000));
+            photo.setMimeType("image/jpeg");
+            photo.setOutdoor(!badWeather && random.nextBoolean());
+            photo.setTimeOfDay(timeOfDay(taken.get(Calendar.HOUR_OF_DAY)));
+            photo.setActivityType(photo.isOutdoor() ? "outdoor" : "indoor");
+            photo.setActivityScore(random.nextInt(100));
+            photo.setProcessed(true);
+            photo.setCreatedAt(taken.getTime());
+            photo.setUpdatedAt(taken.getTime());
+            
+            databaseHelper.insertPhotoMetadata(photo);
+        }
+        report.addRows(DatabaseHelper.TABLE_PHOTO_METADATA, photoCount);
+    }
+    
+    private void generateMedia(Calendar day, String date, boolean weekend, boolean badWeather, GenerationReport report) {
+        int sessions = random.nextInt(3) + (weekend ? 2 : 0) + (badWeather ? 2 : 0);
+        Calendar start = (Calendar) day.clone();
+        start.set(Calendar.HOUR_OF_DAY, 19);
+        String show = SHOWS[random.nextInt(SHOWS.length)];
+        int episode = 1 + random.nextInt(8);
+        
+        for (int i = 0; i < sessions; i++) {
+            boolean video = random.nextDouble() < 0.7;
+            MediaConsumption media = new MediaConsumption(date, video ? "tv" : "music",
+                    video ? show : "Daily Mix", PLATFORMS[random.nextInt(PLATFORMS.length)]);
+            int duration = video ? 25 + random.nextInt(35) : 15 + random.nextInt(45);
+            media.setDurationMinutes(duration);
+            media.setStartTime(start.getTime());
+            start.add(Calendar.MINUTE, duration + random.nextInt(10));
+            media.setEndTime(start.getTime());
+            media.setSource("usage_stats");
+            if (video) {
+                media.setSeason(1);
+                media.setEpisode(episode++);
+            }
+            media.setCreatedAt(day.getTime());
+            media.setUpdatedAt(day.getTime());
+            
+            databaseHelper.insertMediaConsumption(media);
+        }
+        report.addRows(DatabaseHelper.TABLE_MEDIA_CONSUMPTION, sessions);
+    }
+    
+    private void generateEnvironmental(String date, int dayOfYear, double season, GenerationReport report) {
+        // Record a failing writer instead of aborting the run; the load test expects none
+        try {
+            int aqi = (int) clamp(45 + random.nextGaussian() * 20, 5, 300);
+            databaseHelper.insertAirQualityData(date, homeLatitude, homeLongitude, aqi,
+                    aqi * 0.3, aqi * 0.5, 12, 30, 0.4);
+            report.addRows(DatabaseHelper.TABLE_AIR_QUALITY, 1);
+        } catch (SQLException e) {
+            report.recordFailure(DatabaseHelper.TABLE_AIR_QUALITY, e.getMessage());
+        }
+        
+        try {
+            int age = dayOfYear % 30;
+            databaseHelper.insertMoonPhaseData(date, MOON_PHASES[(age * 8 / 30) % 8],
+                    Math.abs(Math.cos(Math.PI * age / 29.5)), age, false);
+            report.addRows(DatabaseHelper.TABLE_MOON_PHASE, 1);
+        } catch (SQLException e) {
+            report.recordFailure(DatabaseHelper.TABLE_MOON_PHASE, e.getMessage());
+        }
+        
+        try {
+            double uv = clamp(5 + 4 * season + random.nextGaussian(), 0, 12);
+            databaseHelper.insertUVIndexData(date, homeLatitude, homeLongitude, uv,
+                    (int) (200 / Math.max(1, uv)), (int) (120 / Math.max(1, uv)), 15);
+            report.addRows(DatabaseHelper.TABLE_UV_INDEX, 1);
+        } catch (SQLException e) {
+            report.recordFailure(DatabaseHelper.TABLE_UV_INDEX, e.getMessage());
+        }
+        
+        try {
+            int dayLength = (int) (720 + 180 * season);
+            Calendar sunrise = Calendar.getInstance();
+            sunrise.set(Calendar.HOUR_OF_DAY, 12);
+            sunrise.set(Calendar.MINUTE, 0);
+            sunrise.add(Calendar.MINUTE, -dayLength / 2);
+            String sunriseTime = timeFormat.format(sunrise.getTime());
+            sunrise.add(Calendar.MINUTE, dayLength);
+            databaseHelper.insertSunriseSunsetData(date, homeLatitude, homeLongitude, sunriseTime,
+                    timeFormat.format(sunrise.getTime()), dayLength, "midday");
+            report.addRows(DatabaseHelper.TABLE_DAYLIGHT_DATA, 1);
+        } catch (SQLException e) {
+            report.recordFailure(DatabaseHelper.TABLE_DAYLIGHT_DATA, e.getMessage());
+        }
+    }
+    
+    private void generateGoalsAndAchievements(GenerationReport report) {
+        Goal.GoalCategory[] categories = Goal.GoalCategory.values();
+        for (int i = 0; i < 20; i++) {
+            Goal goal = new Goal("Synthetic goal " + i, Goal.GoalType.ACHIEVE,
+                    categories[i % categories.length], 1000 + i * 500, "steps", Goal.GoalFrequency.DAILY);
+            goal.setActive(i % 4 != 0);
+            goal.setCurrentValue(random.nextInt(5000));
+            databaseHelper.insertGoal(goal);
+        }
+        report.addRows(DatabaseHelper.TABLE_GOALS, 20);
+        
+        Achievement.AchievementCategory[] achievementCategories = Achievement.AchievementCategory.values();
+        Achievement.AchievementTier[] tiers = Achievement.AchievementTier.values();
+        for (int i = 0; i < 60; i++) {
+            Achievement achievement = new Achievement("Synthetic achievement " + i, "Generated for load tests",
+                    Achievement.AchievementType.MILESTONE, achievementCategories[i % achievementCategories.length],
+                    tiers[i % tiers.length], 10 * (i + 1), "units");
+            achievement.setUnlocked(random.nextBoolean());
+            if (achievement.isUnlocked()) {
+                achievement.setUnlockedAt(new Date());
+            }
+            databaseHelper.insertAchievement(achievement);
+        }
+        report.addRows(DatabaseHelper.TABLE_ACHIEVEMENTS, 60);
+    }
+    
+    private String pickCondition(double season, float temperature) {
+        double roll = random.nextDouble();
+        double wetChance = 0.25 - 0.1 * season;
+        if (roll < wetChance) {
+            if (temperature < 0) return "snow";
+            return random.nextDouble() < 0.15 ? "storm" : "rain";
+        }
+        if (roll < wetChance + 0.05) return "fog";
+        if (roll < wetChance + 0.35) return "cloudy";
+        return CONDITIONS[0];
+    }
+    
+    private int conditionCode(String condition) {
+        for (int i = 0; i < CONDITIONS.length; i++) {
+            if (CONDITIONS[i].equals(condition)) return i;
+        }
+        return 0;
+    }
+    
+    private String timeOfDay(int hour) {
+        if (hour < 12) return "morning";
+        if (hour < 17) return "afternoon";
+        if (hour < 21) return "evening";
+        return "night";
+    }
+    
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,246 @@
+package com.locallife.database;
+
+import java.util.Arrays;
+
+/**
+ * Compact encoding for one day of samples of a single metric.
+ *
+ * Timestamps are stored as zig-zag varints of their delta-of-delta, so a steady sampling
+ * interval costs one byte per sample. Integer series (steps, battery level, minutes) store
+ * zig-zag varint deltas; double series store the XOR with the previous value's bits as a
+ * control byte (trailing zero bytes, meaningful bytes) followed by the meaningful bytes,
+ * a byte-aligned take on the Gorilla scheme.
+ *
+ * The fixed header carries the encoder state (count, last timestamp, last delta, last
+ * value) so a blob can be appended to without decoding it first.
+ */
+public final class TimeSeriesCodec {
+    private static final byte VERSION = 1;
+    static final int HEADER_SIZE = 30;
+
+    public enum Kind {
+        INTEGER, DOUBLE
+    }
+
+    private TimeSeriesCodec() {
+    }
+
+    /**
+     * Appends samples to a new or existing blob
+     */
+    public static final class Encoder {
+        private final Kind kind;
+        private byte[] buffer;
+        private int length;
+        private int count;
+        private long lastTimestamp;
+        private long lastDelta;
+        private long lastValueBits;
+
+        public Encoder(Kind kind) {
+            this.kind = kind;
+            this.buffer = new byte[256];
+            this.length = HEADER_SIZE;
+        }
+
+        /**
+         * Continue encoding after the samples already in the blob
+         */
+        public static Encoder resume(byte[] blob) {
+            checkHeader(blob);
+            Encoder encoder = new Encoder(kindOf(blob));
+            encoder.buffer = Arrays.copyOf(blob, Math.max(blob.length * 2, 256));
+            encoder.length = blob.length;
+            encoder.count = readInt(blob, 2);
+            encoder.lastTimestamp = readLong(blob, 6);
+            encoder.lastDelta = readLong(blob, 14);
+            encoder.lastValueBits = readLong(blob, 22);
+            return encoder;
+        }
+
+        public void add(long timestamp, double value) {
+            long delta = timestamp - lastTimestamp;
+            writeVarint(zigZag(delta - lastDelta));
+            lastDelta = delta;
+            lastTimestamp = timestamp;
+
+            if (kind == Kind.INTEGER) {
+                long longValue = Math.round(value);
+                writeVarint(zigZag(longValue - lastValueBits));
+                lastValueBits = longValue;
+            } else {
+                long bits = Double.doubleToLongBits(value);
+                writeXor(bits ^ lastValueBits);
+                lastValueBits = bits;
+            }
+            count++;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getSizeBytes() {
+            return length;
+        }
+
+        public byte[] toByteArray() {
+            buffer[0] = VERSION;
+            buffer[1] = (byte) kind.ordinal();
+            writeInt(buffer, 2, count);
+            writeLong(buffer, 6, lastTimestamp);
+            writeLong(buffer, 14, lastDelta);
+            writeLong(buffer, 22, lastValueBits);
+            return Arrays.copyOf(buffer, length);
+        }
+
+        private void writeXor(long xor) {
+            if (xor == 0) {
+                writeByte(0);
+                return;
+            }
+            int trailingBytes = Long.numberOfTrailingZeros(xor) / 8;
+            int meaningfulBytes = 8 - Long.numberOfLeadingZeros(xor) / 8 - trailingBytes;
+            writeByte((trailingBytes << 4) | meaningfulBytes);
+            long shifted = xor >>> (trailingBytes * 8);
+            for (int i = 0; i < meaningfulBytes; i++) {
+                writeByte((int) (shifted >>> (i * 8)));
+            }
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        private void writeByte(int b) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[length++] = (byte) b;
+        }
+    }
+
+    /**
+     * Forward-only reader over a blob; samples are exposed through accessors so walking a
+     * day allocates nothing
+     */
+    public static final class Decoder {
+        private final byte[] blob;
+        private final boolean integer;
+        private final int count;
+        private int position = HEADER_SIZE;
+        private int index;
+        private long timestamp;
+        private long delta;
+        private long valueBits;
+
+        public Decoder(byte[] blob) {
+            checkHeader(blob);
+            this.blob = blob;
+            this.integer = kindOf(blob) == Kind.INTEGER;
+            this.count = readInt(blob, 2);
+        }
+
+        public boolean next() {
+            if (index == count) {
+                return false;
+            }
+            delta += unZigZag(readVarint());
+            timestamp += delta;
+            if (integer) {
+                valueBits += unZigZag(readVarint());
+            } else {
+                valueBits ^= readXor();
+            }
+            index++;
+            return true;
+        }
+
+        public long timestamp() {
+            return timestamp;
+        }
+
+        public double value() {
+            return integer ? valueBits : Double.longBitsToDouble(valueBits);
+        }
+
+        public int count() {
+            return count;
+        }
+
+        private long readXor() {
+            int control = blob[position++] & 0xFF;
+            if (control == 0) {
+                return 0;
+            }
+            int trailingBytes = control >>> 4;
+            int meaningfulBytes = control & 0x0F;
+            long shifted = 0;
+            for (int i = 0; i < meaningfulBytes; i++) {
+                shifted |= (blob[position++] & 0xFFL) << (i * 8);
+            }
+            return shifted << (trailingBytes * 8);
+        }
+
+        private long readVarint() {
+            long result = 0;
+            int shift = 0;
+            while (true) {
+                byte b = blob[position++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+                shift += 7;
+            }
+        }
+    }
+
+    public static int countOf(byte[] blob) {
+        checkHeader(blob);
+        return readInt(blob, 2);
+    }
+
+    public static Kind kindOf(byte[] blob) {
+        return Kind.values()[blob[1]];
+    }
+
+    private static void checkHeader(byte[] blob) {
+        if (blob == null || blob.length < HEADER_SIZE || blob[0] != VERSION) {
+            throw new IllegalArgumentException("Not a time series blob");
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        return ((long) readInt(bytes, offset) << 32) | (readInt(bytes, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    private static void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        writeInt(bytes, offset, (int) (value >>> 32));
+        writeInt(bytes, offset + 4, (int) value);
+    }
+}
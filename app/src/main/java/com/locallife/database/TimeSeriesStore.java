@@ -0,0 +1,186 @@
+package com.locallife.database;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.locallife.utils.EpochDays;
+
+import java.io.Closeable;
+import java.util.Arrays;
+
+/**
+ * Stores high-frequency samples as one TimeSeriesCodec blob per (metric, day) instead of
+ * one row per sample, so reading a day of samples is one row. Only battery levels are
+ * stored here so far: BatteryMonitorService appends its level readings and replays today's
+ * after a restart. Appends continue the day's blob from its header state rather than
+ * re-encoding it, and each append runs in one transaction so concurrent writers serialize
+ * on the database.
+ * The series_blobs table is part of DatabaseHelper's schema and of full backups.
+ */
+public class TimeSeriesStore {
+    private static final String TABLE_SERIES = DatabaseHelper.TABLE_SERIES_BLOBS;
+
+    public static final String METRIC_BATTERY_LEVEL = "battery_level";
+
+    private final DatabaseHelper databaseHelper;
+
+    /**
+     * Decoded samples in parallel primitive arrays
+     */
+    public static class Samples {
+        private long[] timestamps = new long[64];
+        private double[] values = new double[64];
+        private int size;
+
+        void add(long timestamp, double value) {
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            timestamps[size] = timestamp;
+            values[size] = value;
+            size++;
+        }
+
+        public int size() { return size; }
+        public long timestampAt(int index) { return timestamps[index]; }
+        public double valueAt(int index) { return values[index]; }
+    }
+
+    /**
+     * Walks every sample in [fromMs, toMs) across day blobs, holding one blob at a time
+     */
+    public static class RangeIterator implements Closeable {
+        private final Cursor cursor;
+        private final long fromMs;
+        private final long toMs;
+        private TimeSeriesCodec.Decoder decoder;
+
+        RangeIterator(Cursor cursor, long fromMs, long toMs) {
+            this.cursor = cursor;
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+        }
+
+        public boolean next() {
+            while (true) {
+                if (decoder == null) {
+                    if (!cursor.moveToNext()) {
+                        return false;
+                    }
+                    decoder = new TimeSeriesCodec.Decoder(cursor.getBlob(0));
+                }
+                while (decoder.next()) {
+                    long timestamp = decoder.timestamp();
+                    if (timestamp >= fromMs && timestamp < toMs) {
+                        return true;
+                    }
+                }
+                decoder = null;
+            }
+        }
+
+        public long timestamp() {
+            return decoder.timestamp();
+        }
+
+        public double value() {
+            return decoder.value();
+        }
+
+        @Override
+        public void close() {
+            cursor.close();
+        }
+    }
+
+    public TimeSeriesStore(DatabaseHelper databaseHelper) {
+        this.databaseHelper = databaseHelper;
+    }
+
+    public void append(String metric, TimeSeriesCodec.Kind kind, long timestamp, double value) {
+        appendAll(metric, kind, new long[]{timestamp}, new double[]{value}, 1);
+    }
+
+    /**
+     * Append samples in timestamp order; each day touched is read and rewritten once. On a
+     * database error nothing is appended and the exception reaches the caller, which still
+     * holds the samples and can retry them.
+     */
+    public void appendAll(String metric, TimeSeriesCodec.Kind kind, long[] timestamps,
+                          double[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        SQLiteDatabase db = getDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            int start = 0;
+            while (start < count) {
+                int day = EpochDays.fromMillis(timestamps[start]);
+                byte[] existing = readBlob(db, metric, day);
+                TimeSeriesCodec.Encoder encoder = existing != null
+                        ? TimeSeriesCodec.Encoder.resume(existing)
+                        : new TimeSeriesCodec.Encoder(kind);
+
+                int end = start;
+                while (end < count && EpochDays.fromMillis(timestamps[end]) == day) {
+                    encoder.add(timestamps[end], values[end]);
+                    end++;
+                }
+
+                ContentValues row = new ContentValues();
+                row.put("metric", metric);
+                row.put("epoch_day", day);
+                row.put("sample_count", encoder.getCount());
+                row.put("data", encoder.toByteArray());
+                db.insertWithOnConflict(TABLE_SERIES, null, row, SQLiteDatabase.CONFLICT_REPLACE);
+                start = end;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Iterate samples in [fromMs, toMs) without materializing them; close when done
+     */
+    public RangeIterator iterate(String metric, long fromMs, long toMs) {
+        Cursor cursor = getDatabase().rawQuery("SELECT data FROM " + TABLE_SERIES
+                        + " WHERE metric = ? AND epoch_day BETWEEN ? AND ? ORDER BY epoch_day",
+                new String[]{metric, String.valueOf(EpochDays.fromMillis(fromMs)),
+                        String.valueOf(EpochDays.fromMillis(toMs - 1))});
+        return new RangeIterator(cursor, fromMs, toMs);
+    }
+
+    public Samples decodeRange(String metric, long fromMs, long toMs) {
+        Samples samples = new Samples();
+        try (RangeIterator iterator = iterate(metric, fromMs, toMs)) {
+            while (iterator.next()) {
+                samples.add(iterator.timestamp(), iterator.value());
+            }
+        }
+        return samples;
+    }
+
+    public Samples decodeDay(String metric, int epochDay) {
+        return decodeRange(metric, EpochDays.startOfDayMillis(epochDay), EpochDays.startOfDayMillis(epochDay + 1));
+    }
+
+    public int deleteBefore(int epochDay) {
+        return getDatabase().delete(TABLE_SERIES, "epoch_day < ?", new String[]{String.valueOf(epochDay)});
+    }
+
+    private byte[] readBlob(SQLiteDatabase db, String metric, int day) {
+        try (Cursor cursor = db.rawQuery("SELECT data FROM " + TABLE_SERIES + " WHERE metric = ? AND epoch_day = ?",
+                new String[]{metric, String.valueOf(day)})) {
+            return cursor.moveToFirst() ? cursor.getBlob(0) : null;
+        }
+    }
+
+    private SQLiteDatabase getDatabase() {
+        return databaseHelper.getWritableDatabase();
+    }
+}
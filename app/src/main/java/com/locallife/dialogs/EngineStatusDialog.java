@@ -10,6 +10,7 @@ import android.widget.Button;
 import androidx.annotation.NonNull;
 
 import com.locallife.R;
+import com.locallife.database.DatabaseHelper;
 import com.locallife.service.ActivityPredictionEngine;
 
 import java.util.Map;
@@ -19,6 +20,8 @@ import java.util.Map;
  */
 public class EngineStatusDialog extends Dialog {
     
+    private static final int DATABASE_METRICS_LIMIT = 8;
+    
     private ActivityPredictionEngine predictionEngine;
     
     public EngineStatusDialog(@NonNull Context context, ActivityPredictionEngine predictionEngine) {
@@ -55,6 +58,8 @@ public class EngineStatusDialog extends Dialog {
             try {
                 Map<String, Double> accuracyStats = predictionEngine.getPredictionAccuracyStats();
                 Map<String, Object> correlationInsights = predictionEngine.getActivityCorrelationInsights();
+                String databaseMetrics = DatabaseHelper.getInstance(getContext())
+                        .getQueryMetrics().formatSnapshot(DATABASE_METRICS_LIMIT);
                 
                 post(() -> {
                     StringBuilder content = new StringBuilder();
@@ -92,6 +97,9 @@ public class EngineStatusDialog extends Dialog {
                         }
                     }
                     
+                    content.append("\n=== Database Metrics ===\n");
+                    content.append(databaseMetrics);
+                    
                     tvStatusContent.setText(content.toString());
                 });
                 
@@ -91,7 +91,7 @@ public class ActivityRecommendationFragment extends Fragment {
         super.onCreate(savedInstanceState);
         
         // Initialize services
-        predictionEngine = new ActivityPredictionEngine(getContext());
+        predictionEngine = ActivityPredictionEngine.getInstance(getContext());
         databaseHelper = new DatabaseHelper(getContext());
         
         // Initialize data
@@ -603,13 +603,4 @@ public class ActivityRecommendationFragment extends Fragment {
         updateEngineStatus();
         updateWeatherContext();
     }
-    
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        // Clean up resources
-        if (predictionEngine != null) {
-            predictionEngine.clearCache();
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package com.locallife.model;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed weather suitability for every ActivityType. The suitability rules are step
+ * functions: each input is only ever compared against a few thresholds, and the condition
+ * only tested for a few substrings. So each activity's inputs are cut into a cell per
+ * threshold value and a cell per open interval between thresholds, and a condition string
+ * maps to a class by which of those substrings it contains. The rules are constant on every
+ * cell, so a table holding one evaluation per cell returns exactly what
+ * ActivityType.computeWeatherSuitability would, without the string and branch work.
+ *
+ * The thresholds below must list every value the matching rule compares against, and the
+ * terms every substring; ActivitySuitabilityTableTest checks the table against the rules.
+ */
+public final class ActivitySuitabilityTable {
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+    private static final int ACTIVITY_COUNT = ACTIVITY_TYPES.length;
+    
+    // Every substring any rule tests the lower-cased condition for
+    private static final String[] CONDITION_TERMS = {
+            "clear", "sunny", "cloudy", "overcast", "light rain", "drizzle", "rain", "heavy rain", "storm",
+            "snow", "fog", "heavy"
+    };
+    private static final int NO_CONDITION = -1;
+    
+    private static final Axis[][] AXES = new Axis[ACTIVITY_COUNT][];
+    static {
+        for (ActivityType activityType : ACTIVITY_TYPES) {
+            AXES[activityType.ordinal()] = axesFor(activityType);
+        }
+    }
+    
+    // Condition string -> class, and class -> [activity][cell] scores, grown as conditions appear
+    private static final Map<String, Integer> conditionClasses = new ConcurrentHashMap<>();
+    private static final Map<Integer, Integer> classesByTerms = new ConcurrentHashMap<>();
+    private static volatile double[][][] tables = new double[0][][];
+    
+    private ActivitySuitabilityTable() {
+    }
+    
+    /**
+     * Suitability of one activity, from the table
+     */
+    public static double lookup(ActivityType activityType, float temperature, String weatherCondition,
+                                float humidity, float windSpeed, double uvIndex) {
+        if (Float.isNaN(temperature) || Float.isNaN(humidity) || Float.isNaN(windSpeed) || Double.isNaN(uvIndex)) {
+            return activityType.computeWeatherSuitability(temperature, weatherCondition, humidity, windSpeed, uvIndex);
+        }
+        int activity = activityType.ordinal();
+        // Classify before reading tables, which classifying a new condition replaces
+        int conditionClass = conditionClass(weatherCondition);
+        double[] table = tables[conditionClass][activity];
+        return table[cell(AXES[activity], temperature, humidity, windSpeed, uvIndex)];
+    }
+    
+    /**
+     * Suitability of every activity for one set of conditions into scores, indexed by
+     * ActivityType.ordinal(); the condition is classified once for all of them
+     */
+    public static void lookupAll(float temperature, String weatherCondition, float humidity, float windSpeed,
+                                 double uvIndex, double[] scores) {
+        if (Float.isNaN(temperature) || Float.isNaN(humidity) || Float.isNaN(windSpeed) || Double.isNaN(uvIndex)) {
+            for (ActivityType activityType : ACTIVITY_TYPES) {
+                scores[activityType.ordinal()] = activityType.computeWeatherSuitability(
+                        temperature, weatherCondition, humidity, windSpeed, uvIndex);
+            }
+            return;
+        }
+        int conditionClass = conditionClass(weatherCondition);
+        double[][] classTables = tables[conditionClass];
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            scores[activity] = classTables[activity][cell(AXES[activity], temperature, humidity, windSpeed, uvIndex)];
+        }
+    }
+    
+    /**
+     * Number of table entries built so far, across all condition classes
+     */
+    public static int size() {
+        int size = 0;
+        for (double[][] classTables : tables) {
+            for (double[] table : classTables) {
+                size += table.length;
+            }
+        }
+        return size;
+    }
+    
+    private static int cell(Axis[] axes, double temperature, double humidity, double windSpeed, double uvIndex) {
+        int index = axes[0].cell(temperature);
+        index = index * axes[1].cells + axes[1].cell(humidity);
+        index = index * axes[2].cells + axes[2].cell(windSpeed);
+        return index * axes[3].cells + axes[3].cell(uvIndex);
+    }
+    
+    private static int conditionClass(String weatherCondition) {
+        if (weatherCondition == null) {
+            return classFor(NO_CONDITION, null);
+        }
+        Integer conditionClass = conditionClasses.get(weatherCondition);
+        if (conditionClass == null) {
+            String condition = weatherCondition.toLowerCase();
+            int terms = 0;
+            for (int i = 0; i < CONDITION_TERMS.length; i++) {
+                if (condition.contains(CONDITION_TERMS[i])) {
+                    terms |= 1 << i;
+                }
+            }
+            conditionClass = classFor(terms, weatherCondition);
+            conditionClasses.put(weatherCondition, conditionClass);
+        }
+        return conditionClass;
+    }
+    
+    /**
+     * Class of the conditions containing exactly the given terms, building its tables from
+     * this condition the first time the terms are seen
+     */
+    private static int classFor(int terms, String weatherCondition) {
+        Integer conditionClass = classesByTerms.get(terms);
+        if (conditionClass != null) {
+            return conditionClass;
+        }
+        synchronized (ActivitySuitabilityTable.class) {
+            conditionClass = classesByTerms.get(terms);
+            if (conditionClass == null) {
+                double[][][] grown = Arrays.copyOf(tables, tables.length + 1);
+                grown[tables.length] = buildTables(weatherCondition);
+                conditionClass = tables.length;
+                // Publish the tables before the class index that reads them
+                tables = grown;
+                classesByTerms.put(terms, conditionClass);
+            }
+            return conditionClass;
+        }
+    }
+    
+    private static double[][] buildTables(String weatherCondition) {
+        double[][] classTables = new double[ACTIVITY_COUNT][];
+        for (ActivityType activityType : ACTIVITY_TYPES) {
+            Axis[] axes = AXES[activityType.ordinal()];
+            double[] table = new double[axes[0].cells * axes[1].cells * axes[2].cells * axes[3].cells];
+            int index = 0;
+            for (int t = 0; t < axes[0].cells; t++) {
+                for (int h = 0; h < axes[1].cells; h++) {
+                    for (int w = 0; w < axes[2].cells; w++) {
+                        for (int u = 0; u < axes[3].cells; u++) {
+                            table[index++] = activityType.computeWeatherSuitability(
+                                    (float) axes[0].representative(t), weatherCondition,
+                                    (float) axes[1].representative(h), (float) axes[2].representative(w),
+                                    axes[3].representative(u));
+                        }
+                    }
+                }
+            }
+            classTables[activityType.ordinal()] = table;
+        }
+        return classTables;
+    }
+    
+    /**
+     * Temperature, humidity, wind and UV thresholds of each activity's rule; an empty axis
+     * is one the rule does not read
+     */
+    private static Axis[] axesFor(ActivityType activityType) {
+        switch (activityType) {
+            case OUTDOOR_EXERCISE:
+                return axes(new double[]{5, 10, 15, 25, 30, 35}, new double[]{30, 40, 60, 70},
+                        new double[]{15, 25}, new double[]{6, 8});
+            case INDOOR_EXERCISE:
+                return axes(new double[]{5, 35}, null, null, null);
+            case SOCIAL_ACTIVITY:
+                return axes(new double[]{12, 18, 28, 32}, null, null, null);
+            case WORK_PRODUCTIVITY:
+                return axes(new double[]{18, 20, 24, 26}, null, null, null);
+            case RECREATIONAL:
+                return axes(new double[]{12, 16, 26, 30}, null, null, null);
+            case RELAXATION:
+                return axes(new double[]{18, 20, 25, 28}, null, null, null);
+            case TRAVEL:
+                return axes(new double[]{10, 15, 30, 35}, null, new double[]{25}, null);
+            case PHOTOGRAPHY:
+                return axes(new double[]{10, 15, 28, 32}, null, new double[]{15, 25}, null);
+            case INDOOR_ACTIVITIES:
+                return axes(new double[]{10, 30}, null, null, null);
+            case OUTDOOR_LEISURE:
+                return axes(new double[]{10, 15, 18, 28, 32, 35}, new double[]{30, 40, 65, 75},
+                        new double[]{20, 30}, new double[]{6, 8});
+            default:
+                return axes(null, null, null, null);
+        }
+    }
+    
+    private static Axis[] axes(double[] temperature, double[] humidity, double[] windSpeed, double[] uvIndex) {
+        return new Axis[]{new Axis(temperature), new Axis(humidity), new Axis(windSpeed), new Axis(uvIndex)};
+    }
+    
+    /**
+     * One input cut at its sorted thresholds: cell 2k + 1 is threshold k itself and cell 2k
+     * the open interval below it, so both strict and inclusive comparisons are constant on
+     * every cell
+     */
+    private static final class Axis {
+        final double[] thresholds;
+        final int cells;
+        
+        Axis(double[] thresholds) {
+            this.thresholds = thresholds != null ? thresholds : new double[0];
+            this.cells = 2 * this.thresholds.length + 1;
+        }
+        
+        int cell(double value) {
+            int low = 0;
+            int high = thresholds.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (thresholds[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low < thresholds.length && thresholds[low] == value ? 2 * low + 1 : 2 * low;
+        }
+        
+        double representative(int cell) {
+            int k = cell / 2;
+            if (cell % 2 == 1) {
+                return thresholds[k];
+            }
+            if (thresholds.length == 0) {
+                return 0;
+            }
+            if (k == 0) {
+                return thresholds[0] - 1;
+            }
+            if (k == thresholds.length) {
+                return thresholds[k - 1] + 1;
+            }
+            return (thresholds[k - 1] + thresholds[k]) / 2;
+        }
+    }
+}
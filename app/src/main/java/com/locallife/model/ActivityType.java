@@ -38,7 +38,8 @@ public enum ActivityType {
     }
 
     /**
-     * Get weather suitability score for this activity type
+     * Get weather suitability score for this activity type, read from the precomputed
+     * ActivitySuitabilityTable
      * @param temperature Temperature in Celsius
      * @param weatherCondition Weather condition string
      * @param humidity Humidity percentage
@@ -48,6 +49,14 @@ public enum ActivityType {
      */
     public double getWeatherSuitability(float temperature, String weatherCondition, 
                                        float humidity, float windSpeed, double uvIndex) {
+        return ActivitySuitabilityTable.lookup(this, temperature, weatherCondition, humidity, windSpeed, uvIndex);
+    }
+
+    /**
+     * Evaluate the weather suitability rules directly; the source of the lookup table
+     */
+    public double computeWeatherSuitability(float temperature, String weatherCondition,
+                                            float humidity, float windSpeed, double uvIndex) {
         switch (this) {
             case OUTDOOR_EXERCISE:
                 return calculateOutdoorExerciseSuitability(temperature, weatherCondition, humidity, windSpeed, uvIndex);
@@ -1,5 +1,7 @@
 package com.locallife.model;
 
+import com.locallife.utils.HourlyHistogram;
+
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
@@ -37,6 +39,13 @@ public class DayRecord {
     private float batteryUsagePercent;
     private int phoneUnlocks;
     
+    // Hour-of-day counters (int[24]) written by the collectors; null when not recorded.
+    // Rows loaded from the database keep the stored text until the counters are first read
+    private int[] hourlySteps;
+    private int[] hourlyScreenSeconds;
+    private String storedHourlySteps;
+    private String storedHourlyScreenSeconds;
+    
     // Photo data
     private int photoCount;
     private float photoActivityScore;
@@ -323,6 +332,42 @@ public class DayRecord {
     public int getPhoneUnlocks() { return phoneUnlocks; }
     public void setPhoneUnlocks(int phoneUnlocks) { this.phoneUnlocks = phoneUnlocks; }
     
+    public int[] getHourlySteps() {
+        if (storedHourlySteps != null) {
+            hourlySteps = HourlyHistogram.parse(storedHourlySteps);
+            storedHourlySteps = null;
+        }
+        return hourlySteps;
+    }
+    
+    public void setHourlySteps(int[] hourlySteps) {
+        this.hourlySteps = hourlySteps;
+        this.storedHourlySteps = null;
+    }
+    
+    public int[] getHourlyScreenSeconds() {
+        if (storedHourlyScreenSeconds != null) {
+            hourlyScreenSeconds = HourlyHistogram.parse(storedHourlyScreenSeconds);
+            storedHourlyScreenSeconds = null;
+        }
+        return hourlyScreenSeconds;
+    }
+    
+    public void setHourlyScreenSeconds(int[] hourlyScreenSeconds) {
+        this.hourlyScreenSeconds = hourlyScreenSeconds;
+        this.storedHourlyScreenSeconds = null;
+    }
+    
+    /**
+     * Counters in the stored HourlyHistogram.format form, parsed when first read
+     */
+    public void setStoredHourlyCounts(String hourlySteps, String hourlyScreenSeconds) {
+        this.hourlySteps = null;
+        this.hourlyScreenSeconds = null;
+        this.storedHourlySteps = hourlySteps;
+        this.storedHourlyScreenSeconds = hourlyScreenSeconds;
+    }
+    
     public float getPhysicalActivityScore() { return physicalActivityScore; }
     public void setPhysicalActivityScore(float physicalActivityScore) { this.physicalActivityScore = physicalActivityScore; }
     
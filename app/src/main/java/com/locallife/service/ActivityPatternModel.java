@@ -7,10 +7,14 @@ import com.locallife.model.DayRecord;
 import com.locallife.model.PredictionResult;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
- * Machine Learning model for predicting activity patterns based on combined weather and user behavior
+ * Machine Learning model for predicting activity patterns based on combined weather and user behavior.
+ *
+ * All statistics live in dense tables indexed by ActivityType.ordinal() and small integer
+ * context codes (temperature band x condition, activity x social level, weather change x
+ * day type), and activity n-grams are packed into longs, so training is one pass over the
+ * days and predictInto allocates nothing.
  */
 public class ActivityPatternModel {
     private static final String TAG = "ActivityPatternModel";
@@ -18,46 +22,148 @@ public class ActivityPatternModel {
     private static final int MIN_TRAINING_SAMPLES = 25;
     private static final int SEQUENCE_LENGTH = 5;
     
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+    private static final int ACTIVITY_COUNT = ACTIVITY_TYPES.length;
+    
+    // N-gram keys: SEQUENCE_LENGTH ordinals of BITS_PER_ACTIVITY bits each
+    private static final int BITS_PER_ACTIVITY = 32 - Integer.numberOfLeadingZeros(Math.max(1, ACTIVITY_COUNT - 1));
+    private static final long SEQUENCE_MASK = (1L << (BITS_PER_ACTIVITY * SEQUENCE_LENGTH)) - 1;
+    
+    // Weather codes: 10-degree temperature band x condition as DayFeatureMatrix normalizes it
+    private static final int MIN_TEMP_BAND = -4;
+    private static final int MAX_TEMP_BAND = 5;
+    private static final int WEATHER_CODES = (MAX_TEMP_BAND - MIN_TEMP_BAND + 1) * DayFeatureMatrix.CONDITION_COUNT;
+    
+    // Behavior codes: activity level x social level, each low/medium/high
+    private static final int BEHAVIOR_CODES = 9;
+    
+    private static final int DAY_WEEKDAY = 0;
+    private static final int DAY_TYPES = 2;
+    
+    private static final int SEASON_SPRING = 0;
+    private static final int SEASON_SUMMER = 1;
+    private static final int SEASON_FALL = 2;
+    private static final int SEASON_WINTER = 3;
+    private static final int SEASON_UNKNOWN = 4;
+    private static final int SEASON_CODES = 5;
+    
+    // Transition context codes: weather change (stable, warming, cooling) x day type
+    private static final int WEATHER_CHANGES = 3;
+    private static final int TRANSITION_CONTEXTS = WEATHER_CHANGES * DAY_TYPES;
+    
+    // Context weight slots, in the order of CONTEXT_NAMES
+    private static final int CONTEXT_WEATHER = 0;
+    private static final int CONTEXT_BEHAVIOR = 1;
+    private static final int CONTEXT_TIME = 2;
+    private static final int CONTEXT_SEQUENCE = 3;
+    private static final int CONTEXT_SEASONAL = 4;
+    private static final String[] CONTEXT_NAMES = {
+        "weather_context", "user_behavior", "time_context", "sequence_context", "seasonal_context"
+    };
+    private static final int CONTEXT_COUNT = CONTEXT_NAMES.length;
+    
+    // Minibatch SGD for the context weights; seeded so retraining on the same days is repeatable
+    private static final double SGD_LEARNING_RATE = 0.1;
+    private static final int SGD_BATCH_SIZE = 64;
+    private static final int SGD_MAX_EPOCHS = 30;
+    private static final int SGD_PATIENCE = 3;
+    private static final double SGD_TOLERANCE = 1e-4;
+    private static final long TRAINING_SEED = 42L;
+    
+    // Prior probability of moving from one primary activity to another, [from][to]
+    private static final double[][] TRANSITION_PRIOR = buildTransitionPrior();
+    
     private boolean isTrained = false;
-    private Map<String, ActivitySequence> activitySequences;
-    private Map<ActivityType, Map<String, Double>> transitionWeights;
-    private Map<String, Double> contextWeights;
+    private final SequenceTable activitySequences;
+    private final double[][] transitionWeights;   // [current activity][transition context]
+    private final int[][] transitionCounts;
+    private final double[] contextWeights;
+    private final MinibatchSgdOptimizer optimizer;
     private double bias;
     
-    // Pattern recognition
-    private Map<String, Double> timePatterns;
-    private Map<String, Double> weatherPatterns;
-    private Map<String, Double> behaviorPatterns;
-    private Map<String, Double> seasonalPatterns;
+    // Pattern recognition, each row normalized over all training days
+    private final double[][] timePatterns;        // [day type][activity]
+    private final double[][] weatherPatterns;     // [weather code][activity]
+    private final double[][] behaviorPatterns;    // [behavior code][activity]
+    private final double[][] seasonalPatterns;    // [season][activity]
     
     // Training statistics
     private int trainingDataSize;
     private double trainingAccuracy;
     private Date lastTrainingTime;
     
+    /**
+     * Per-day codes computed once per training run and shared by every pass over the data
+     */
+    private static final class TrainingFeatures {
+        final int[] activity;
+        final int[] weather;
+        final int[] behavior;
+        final int[] season;
+        final int[] dayType;
+        final int[] transitionContext;   // change from the previous day into this one
+        
+        TrainingFeatures(int size) {
+            activity = new int[size];
+            weather = new int[size];
+            behavior = new int[size];
+            season = new int[size];
+            dayType = new int[size];
+            transitionContext = new int[size];
+        }
+    }
+    
     public ActivityPatternModel() {
-        this.activitySequences = new HashMap<>();
-        this.transitionWeights = new HashMap<>();
-        this.contextWeights = new HashMap<>();
-        this.timePatterns = new HashMap<>();
-        this.weatherPatterns = new HashMap<>();
-        this.behaviorPatterns = new HashMap<>();
-        this.seasonalPatterns = new HashMap<>();
+        this.activitySequences = new SequenceTable();
+        this.transitionWeights = new double[ACTIVITY_COUNT][TRANSITION_CONTEXTS];
+        this.transitionCounts = new int[ACTIVITY_COUNT][TRANSITION_CONTEXTS];
+        this.contextWeights = new double[CONTEXT_COUNT];
+        this.optimizer = new MinibatchSgdOptimizer(SGD_LEARNING_RATE, SGD_BATCH_SIZE, SGD_MAX_EPOCHS,
+                SGD_PATIENCE, SGD_TOLERANCE, TRAINING_SEED);
+        this.timePatterns = new double[DAY_TYPES][ACTIVITY_COUNT];
+        this.weatherPatterns = new double[WEATHER_CODES][ACTIVITY_COUNT];
+        this.behaviorPatterns = new double[BEHAVIOR_CODES][ACTIVITY_COUNT];
+        this.seasonalPatterns = new double[SEASON_CODES][ACTIVITY_COUNT];
         this.bias = 0.0;
         
         // Initialize context weights
         initializeContextWeights();
     }
     
+    private ActivityPatternModel(ActivityPatternModel source) {
+        this.isTrained = source.isTrained;
+        this.activitySequences = source.activitySequences;
+        this.transitionWeights = source.transitionWeights;
+        this.transitionCounts = source.transitionCounts;
+        this.contextWeights = source.contextWeights;
+        this.optimizer = source.optimizer;
+        this.bias = source.bias;
+        this.timePatterns = source.timePatterns;
+        this.weatherPatterns = DayFeatureMatrix.copyRows(source.weatherPatterns);
+        this.behaviorPatterns = source.behaviorPatterns;
+        this.seasonalPatterns = source.seasonalPatterns;
+        this.trainingDataSize = source.trainingDataSize;
+        this.trainingAccuracy = source.trainingAccuracy;
+        this.lastTrainingTime = source.lastTrainingTime;
+    }
+    
+    /**
+     * A trained copy for feedback to update while this one keeps serving predictions. Only
+     * the weather patterns feedback changes are copied; the copy must not be trained again.
+     */
+    ActivityPatternModel copyForFeedback() {
+        return new ActivityPatternModel(this);
+    }
+    
     /**
      * Initialize context weights for pattern recognition
      */
     private void initializeContextWeights() {
-        contextWeights.put("weather_context", 0.35);
-        contextWeights.put("user_behavior", 0.25);
-        contextWeights.put("time_context", 0.2);
-        contextWeights.put("sequence_context", 0.15);
-        contextWeights.put("seasonal_context", 0.05);
+        contextWeights[CONTEXT_WEATHER] = 0.35;
+        contextWeights[CONTEXT_BEHAVIOR] = 0.25;
+        contextWeights[CONTEXT_TIME] = 0.2;
+        contextWeights[CONTEXT_SEQUENCE] = 0.15;
+        contextWeights[CONTEXT_SEASONAL] = 0.05;
     }
     
     /**
@@ -72,330 +178,335 @@ public class ActivityPatternModel {
         Log.d(TAG, "Training activity pattern model with " + historicalData.size() + " samples");
         
         // Sort data by date
-        List<DayRecord> sortedData = historicalData.stream()
-            .sorted(Comparator.comparing(DayRecord::getDate))
-            .collect(Collectors.toList());
-        
-        // Extract activity sequences
-        extractActivitySequences(sortedData);
-        
-        // Learn time patterns
-        learnTimePatterns(sortedData);
-        
-        // Learn weather patterns
-        learnWeatherPatterns(sortedData);
+        List<DayRecord> sortedData = new ArrayList<>(historicalData);
+        Collections.sort(sortedData, (a, b) -> a.getDate().compareTo(b.getDate()));
         
-        // Learn behavior patterns
-        learnBehaviorPatterns(sortedData);
-        
-        // Learn seasonal patterns
-        learnSeasonalPatterns(sortedData);
-        
-        // Train transition weights
-        trainTransitionWeights(sortedData);
+        // Count sequences, patterns and transitions in one pass
+        TrainingFeatures features = learnPatterns(sortedData);
         
         // Optimize context weights
-        optimizeContextWeights(sortedData);
+        optimizeContextWeights(features);
         
         this.isTrained = true;
         this.trainingDataSize = sortedData.size();
         this.lastTrainingTime = new Date();
         
         // Calculate training accuracy
-        this.trainingAccuracy = calculateTrainingAccuracy(sortedData);
+        this.trainingAccuracy = calculateTrainingAccuracy(features);
         
         Log.d(TAG, "Model training completed with accuracy: " + String.format("%.2f%%", trainingAccuracy * 100));
     }
     
     /**
-     * Extract activity sequences from historical data
+     * Encode each day once and accumulate every table in the same pass: pattern counts,
+     * the n-gram ending the day before, and the transition from the previous day
      */
-    private void extractActivitySequences(List<DayRecord> data) {
-        for (int i = 0; i < data.size() - SEQUENCE_LENGTH; i++) {
-            List<DayRecord> sequence = data.subList(i, i + SEQUENCE_LENGTH);
-            List<ActivityType> activitySequence = sequence.stream()
-                .map(this::getPrimaryActivity)
-                .collect(Collectors.toList());
-            
-            String sequenceKey = createSequenceKey(activitySequence);
-            
-            // Get next activity
-            ActivityType nextActivity = getPrimaryActivity(data.get(i + SEQUENCE_LENGTH));
-            
-            ActivitySequence activitySeq = activitySequences.computeIfAbsent(sequenceKey, k -> new ActivitySequence());
-            activitySeq.addNextActivity(nextActivity);
+    private TrainingFeatures learnPatterns(List<DayRecord> data) {
+        int size = data.size();
+        TrainingFeatures features = new TrainingFeatures(size);
+        
+        activitySequences.clear();
+        clear(timePatterns);
+        clear(weatherPatterns);
+        clear(behaviorPatterns);
+        clear(seasonalPatterns);
+        clear(transitionWeights);
+        for (int[] row : transitionCounts) {
+            Arrays.fill(row, 0);
         }
         
-        Log.d(TAG, "Extracted " + activitySequences.size() + " activity sequences");
-    }
-    
-    /**
-     * Learn time-based patterns
-     */
-    private void learnTimePatterns(List<DayRecord> data) {
-        for (DayRecord record : data) {
-            String dayType = getDayType(record.getDate());
-            String timeSlot = "midday"; // Simplified - would need actual time data
+        long sequenceKey = 0;
+        for (int i = 0; i < size; i++) {
+            DayRecord record = data.get(i);
+            int activity = getPrimaryActivity(record).ordinal();
+            features.activity[i] = activity;
+            features.weather[i] = weatherCode(record.getTemperature(), record.getWeatherCondition());
+            features.behavior[i] = behaviorCode(record.getActivityScore(), record.getPlacesVisited());
+            features.season[i] = seasonCode(record.getSeason());
+            features.dayType[i] = getDayType(record.getDate());
             
-            ActivityType activity = getPrimaryActivity(record);
-            String patternKey = dayType + "_" + timeSlot + "_" + activity.name();
+            timePatterns[features.dayType[i]][activity]++;
+            weatherPatterns[features.weather[i]][activity]++;
+            behaviorPatterns[features.behavior[i]][activity]++;
+            seasonalPatterns[features.season[i]][activity]++;
             
-            timePatterns.merge(patternKey, 1.0, Double::sum);
-        }
-        
-        // Normalize patterns
-        double totalPatterns = timePatterns.values().stream().mapToDouble(Double::doubleValue).sum();
-        if (totalPatterns > 0) {
-            timePatterns.replaceAll((k, v) -> v / totalPatterns);
-        }
-    }
-    
-    /**
-     * Learn weather-based patterns
-     */
-    private void learnWeatherPatterns(List<DayRecord> data) {
-        for (DayRecord record : data) {
-            String weatherKey = createWeatherKey(record);
-            ActivityType activity = getPrimaryActivity(record);
-            String patternKey = weatherKey + "_" + activity.name();
+            // The previous SEQUENCE_LENGTH days predict this one
+            if (i >= SEQUENCE_LENGTH) {
+                activitySequences.add(sequenceKey, activity);
+            }
+            sequenceKey = ((sequenceKey << BITS_PER_ACTIVITY) | activity) & SEQUENCE_MASK;
             
-            weatherPatterns.merge(patternKey, 1.0, Double::sum);
+            if (i > 0) {
+                DayRecord previous = data.get(i - 1);
+                int context = transitionContext(previous.getTemperature(), record.getTemperature(), features.dayType[i]);
+                features.transitionContext[i] = context;
+                trainTransition(features.activity[i - 1], activity, context);
+            }
         }
         
         // Normalize patterns
-        double totalPatterns = weatherPatterns.values().stream().mapToDouble(Double::doubleValue).sum();
-        if (totalPatterns > 0) {
-            weatherPatterns.replaceAll((k, v) -> v / totalPatterns);
-        }
+        double scale = 1.0 / size;
+        scale(timePatterns, scale);
+        scale(weatherPatterns, scale);
+        scale(behaviorPatterns, scale);
+        scale(seasonalPatterns, scale);
+        
+        Log.d(TAG, "Extracted " + activitySequences.size() + " activity sequences");
+        return features;
     }
     
     /**
-     * Learn behavior-based patterns
+     * Move the weight of one (activity, context) cell toward the transition's prior; the
+     * first observation sets it outright
      */
-    private void learnBehaviorPatterns(List<DayRecord> data) {
-        for (DayRecord record : data) {
-            String behaviorKey = createBehaviorKey(record);
-            ActivityType activity = getPrimaryActivity(record);
-            String patternKey = behaviorKey + "_" + activity.name();
-            
-            behaviorPatterns.merge(patternKey, 1.0, Double::sum);
-        }
-        
-        // Normalize patterns
-        double totalPatterns = behaviorPatterns.values().stream().mapToDouble(Double::doubleValue).sum();
-        if (totalPatterns > 0) {
-            behaviorPatterns.replaceAll((k, v) -> v / totalPatterns);
+    private void trainTransition(int currentActivity, int nextActivity, int context) {
+        double transitionProb = TRANSITION_PRIOR[currentActivity][nextActivity];
+        if (transitionCounts[currentActivity][context]++ == 0) {
+            transitionWeights[currentActivity][context] = transitionProb;
+        } else {
+            double existing = transitionWeights[currentActivity][context];
+            transitionWeights[currentActivity][context] = existing + LEARNING_RATE * (transitionProb - existing);
         }
     }
     
     /**
-     * Learn seasonal patterns
-     */
-    private void learnSeasonalPatterns(List<DayRecord> data) {
-        for (DayRecord record : data) {
-            String season = record.getSeason() != null ? record.getSeason() : "unknown";
-            ActivityType activity = getPrimaryActivity(record);
-            String patternKey = season + "_" + activity.name();
-            
-            seasonalPatterns.merge(patternKey, 1.0, Double::sum);
+     * Fit the context weights by minibatch SGD on the probability missed on each next-day
+     * transition, then scale them to sum to one
+     */
+    private void optimizeContextWeights(TrainingFeatures features) {
+        // Transitions with the same codes score identically, so each distinct one is a single
+        // sample weighted by how often it occurs
+        int transitions = features.activity.length - 1;
+        int[] firstDay = new int[transitions];
+        int[] counts = new int[transitions];
+        Map<Long, Integer> slots = new HashMap<>();
+        int distinct = 0;
+        for (int i = 0; i < transitions; i++) {
+            Integer slot = slots.putIfAbsent(transitionKey(features, i), distinct);
+            if (slot == null) {
+                firstDay[distinct] = i;
+                counts[distinct++] = 1;
+            } else {
+                counts[slot]++;
+            }
         }
+        int samples = distinct;
         
-        // Normalize patterns
-        double totalPatterns = seasonalPatterns.values().stream().mapToDouble(Double::doubleValue).sum();
-        if (totalPatterns > 0) {
-            seasonalPatterns.replaceAll((k, v) -> v / totalPatterns);
-        }
-    }
-    
-    /**
-     * Train transition weights between activities
-     */
-    private void trainTransitionWeights(List<DayRecord> data) {
-        for (ActivityType activityType : ActivityType.values()) {
-            Map<String, Double> weights = new HashMap<>();
+        ModelOptimizer.Objective objective = new ModelOptimizer.Objective() {
+            @Override
+            public int sampleCount() {
+                return samples;
+            }
             
-            for (int i = 0; i < data.size() - 1; i++) {
-                DayRecord currentRecord = data.get(i);
-                DayRecord nextRecord = data.get(i + 1);
-                
-                ActivityType currentActivity = getPrimaryActivity(currentRecord);
-                ActivityType nextActivity = getPrimaryActivity(nextRecord);
-                
-                if (currentActivity == activityType) {
-                    String contextKey = createContextKey(currentRecord, nextRecord);
-                    double transitionProb = calculateTransitionProbability(currentActivity, nextActivity);
-                    
-                    weights.merge(contextKey, transitionProb, (existing, newValue) -> {
-                        return existing + (LEARNING_RATE * (newValue - existing));
-                    });
-                }
+            @Override
+            public int dimension() {
+                return CONTEXT_COUNT;
             }
             
-            transitionWeights.put(activityType, weights);
-        }
-    }
-    
-    /**
-     * Optimize context weights using gradient descent
-     */
-    private void optimizeContextWeights(List<DayRecord> data) {
-        for (int iteration = 0; iteration < 30; iteration++) {
-            Map<String, Double> gradients = new HashMap<>();
+            @Override
+            public double weight(int sample) {
+                return counts[sample];
+            }
             
-            for (String context : contextWeights.keySet()) {
-                gradients.put(context, 0.0);
+            @Override
+            public int scratchSize() {
+                return ACTIVITY_COUNT;
             }
             
-            // Calculate gradients
-            for (int i = 0; i < data.size() - 1; i++) {
-                DayRecord record = data.get(i);
-                DayRecord nextRecord = data.get(i + 1);
-                
-                Map<ActivityType, Double> predictions = predict(record, nextRecord);
-                ActivityType actual = getPrimaryActivity(nextRecord);
-                
-                double predicted = predictions.getOrDefault(actual, 0.0);
-                double error = 1.0 - predicted;
-                
-                // Update gradients
-                for (String context : contextWeights.keySet()) {
-                    double contextValue = getContextValue(context, record, nextRecord);
-                    gradients.merge(context, error * contextValue, Double::sum);
-                }
+            @Override
+            public double accumulate(int sample, double[] weights, double[] gradient, double[] scratch) {
+                return accumulateTransitionGradient(features, firstDay[sample], counts[sample], weights, gradient, scratch);
             }
             
-            // Update weights
-            for (String context : contextWeights.keySet()) {
-                double gradient = gradients.get(context) / (data.size() - 1);
-                contextWeights.put(context, Math.max(0.0, contextWeights.get(context) + LEARNING_RATE * gradient));
+            @Override
+            public void project(double[] weights) {
+                for (int context = 0; context < CONTEXT_COUNT; context++) {
+                    weights[context] = Math.max(0.0, weights[context]);
+                }
             }
-        }
+        };
+        optimizer.optimize(objective, contextWeights);
+        Log.d(TAG, "Context weights fitted on " + samples + " distinct transitions in " + optimizer.getEpochsRun()
+                + " epochs, loss " + String.format("%.4f", optimizer.getBestLoss()));
         
         // Normalize context weights
-        double totalWeight = contextWeights.values().stream().mapToDouble(Double::doubleValue).sum();
+        double totalWeight = 0;
+        for (double weight : contextWeights) {
+            totalWeight += weight;
+        }
         if (totalWeight > 0) {
-            contextWeights.replaceAll((k, v) -> v / totalWeight);
+            for (int context = 0; context < CONTEXT_COUNT; context++) {
+                contextWeights[context] /= totalWeight;
+            }
+        }
+    }
+    
+    /**
+     * Every code that scoreTransition reads for the transition from day i, packed into one key
+     */
+    private static long transitionKey(TrainingFeatures features, int i) {
+        long key = features.weather[i];
+        key = key * BEHAVIOR_CODES + features.behavior[i];
+        key = key * SEASON_CODES + features.season[i];
+        key = key * ACTIVITY_COUNT + features.activity[i];
+        key = key * DAY_TYPES + features.dayType[i + 1];
+        key = key * TRANSITION_CONTEXTS + features.transitionContext[i + 1];
+        return key * ACTIVITY_COUNT + features.activity[i + 1];
+    }
+    
+    /**
+     * Loss 1 - p(actual next activity) for the transition from day i, times count, adding
+     * its gradient with respect to the context weights
+     */
+    private double accumulateTransitionGradient(TrainingFeatures features, int i, int count, double[] weights,
+                                                double[] gradient, double[] scores) {
+        double[] weatherRow = weatherPatterns[features.weather[i]];
+        double[] behaviorRow = behaviorPatterns[features.behavior[i]];
+        double[] timeRow = timePatterns[features.dayType[i + 1]];
+        double[] seasonRow = seasonalPatterns[features.season[i]];
+        double transition = transitionWeights[features.activity[i]][features.transitionContext[i + 1]];
+        int actual = features.activity[i + 1];
+        
+        // Unnormalized scores, and the context components summed over the activities that
+        // score above zero
+        double total = 0;
+        double weatherSum = 0;
+        double behaviorSum = 0;
+        double timeSum = 0;
+        double seasonSum = 0;
+        int active = 0;
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            double score = weatherRow[activity] * weights[CONTEXT_WEATHER]
+                    + behaviorRow[activity] * weights[CONTEXT_BEHAVIOR]
+                    + timeRow[activity] * weights[CONTEXT_TIME]
+                    + transition * weights[CONTEXT_SEQUENCE]
+                    + seasonRow[activity] * weights[CONTEXT_SEASONAL]
+                    + bias;
+            scores[activity] = Math.max(0.0, score);
+            if (score > 0) {
+                total += score;
+                weatherSum += weatherRow[activity];
+                behaviorSum += behaviorRow[activity];
+                timeSum += timeRow[activity];
+                seasonSum += seasonRow[activity];
+                active++;
+            }
+        }
+        if (total == 0) {
+            return count * (1.0 - 1.0 / ACTIVITY_COUNT);
         }
+        
+        // p = s_actual / S, so dp/dw = (ds_actual/dw * S - s_actual * dS/dw) / S^2
+        double actualScore = scores[actual];
+        double probability = actualScore / total;
+        double scale = count / (total * total);
+        boolean actualActive = actualScore > 0;
+        gradient[CONTEXT_WEATHER] -= ((actualActive ? weatherRow[actual] : 0) * total - actualScore * weatherSum) * scale;
+        gradient[CONTEXT_BEHAVIOR] -= ((actualActive ? behaviorRow[actual] : 0) * total - actualScore * behaviorSum) * scale;
+        gradient[CONTEXT_TIME] -= ((actualActive ? timeRow[actual] : 0) * total - actualScore * timeSum) * scale;
+        gradient[CONTEXT_SEQUENCE] -= ((actualActive ? transition : 0) * total - actualScore * transition * active) * scale;
+        gradient[CONTEXT_SEASONAL] -= ((actualActive ? seasonRow[actual] : 0) * total - actualScore * seasonSum) * scale;
+        return count * (1.0 - probability);
     }
     
     /**
      * Predict activity probabilities based on weather and user context
      */
     public Map<ActivityType, Double> predict(PredictionResult.WeatherContext weatherContext, PredictionResult.UserContext userContext) {
+        double[] scores = new double[ACTIVITY_COUNT];
+        predictInto(weatherContext, userContext, scores);
+        return DayFeatureMatrix.toMap(scores);
+    }
+    
+    /**
+     * Write normalized probabilities into scores, indexed by ActivityType.ordinal();
+     * allocates nothing
+     */
+    public void predictInto(PredictionResult.WeatherContext weatherContext, PredictionResult.UserContext userContext,
+                            double[] scores) {
         if (!isTrained) {
             Log.w(TAG, "Model not trained, returning default predictions");
-            return getDefaultPredictions();
+            Arrays.fill(scores, 0, ACTIVITY_COUNT, 1.0 / ACTIVITY_COUNT);
+            return;
         }
         
-        Map<ActivityType, Double> predictions = new HashMap<>();
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            double score = calculateActivityScore(activityType, weatherContext, userContext);
-            predictions.put(activityType, score);
+        double[] weatherRow = weatherPatterns[weatherCode(weatherContext.getTemperature(), weatherContext.getWeatherCondition())];
+        double[] behaviorRow = behaviorPatterns[behaviorCode(userContext.getRecentActivityScore(), userContext.getSocialInteractions())];
+        // Time and season are simplified to weekday midday and spring until the context carries them
+        double[] timeRow = timePatterns[DAY_WEEKDAY];
+        double[] seasonRow = seasonalPatterns[SEASON_SPRING];
+        // Sequence context score (simplified); would need the recent activity sequence
+        double sequenceScore = 0.5 * contextWeights[CONTEXT_SEQUENCE];
+        
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            double score = weatherRow[activity] * contextWeights[CONTEXT_WEATHER]
+                    + behaviorRow[activity] * contextWeights[CONTEXT_BEHAVIOR]
+                    + timeRow[activity] * contextWeights[CONTEXT_TIME]
+                    + sequenceScore
+                    + seasonRow[activity] * contextWeights[CONTEXT_SEASONAL];
+            scores[activity] = Math.max(0.0, score + bias);
+        }
+        if (!DayFeatureMatrix.normalize(scores)) {
+            // All-zero scores become uniform
+            Arrays.fill(scores, 0, ACTIVITY_COUNT, 1.0 / ACTIVITY_COUNT);
         }
-        
-        return normalizePredictions(predictions);
     }
     
     /**
      * Predict activity probabilities based on current and next day records
      */
     public Map<ActivityType, Double> predict(DayRecord currentRecord, DayRecord nextRecord) {
+        double[] scores = new double[ACTIVITY_COUNT];
         if (!isTrained) {
             Log.w(TAG, "Model not trained, returning default predictions");
-            return getDefaultPredictions();
-        }
-        
-        Map<ActivityType, Double> predictions = new HashMap<>();
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            double score = calculateActivityScore(activityType, currentRecord, nextRecord);
-            predictions.put(activityType, score);
+            Arrays.fill(scores, 1.0 / ACTIVITY_COUNT);
+            return DayFeatureMatrix.toMap(scores);
         }
         
-        return normalizePredictions(predictions);
+        int nextDayType = getDayType(nextRecord.getDate());
+        score(weatherCode(currentRecord.getTemperature(), currentRecord.getWeatherCondition()),
+                behaviorCode(currentRecord.getActivityScore(), currentRecord.getPlacesVisited()),
+                nextDayType, getPrimaryActivity(currentRecord).ordinal(),
+                transitionContext(currentRecord.getTemperature(), nextRecord.getTemperature(), nextDayType),
+                seasonCode(currentRecord.getSeason()), scores);
+        return DayFeatureMatrix.toMap(scores);
     }
     
     /**
-     * Calculate activity score based on weather and user context
+     * Score day i + 1 from day i of the training data
      */
-    private double calculateActivityScore(ActivityType activityType, PredictionResult.WeatherContext weatherContext, PredictionResult.UserContext userContext) {
-        double score = 0.0;
-        
-        // Weather context score
-        String weatherKey = createWeatherKey(weatherContext);
-        String weatherPattern = weatherKey + "_" + activityType.name();
-        double weatherScore = weatherPatterns.getOrDefault(weatherPattern, 0.0);
-        score += weatherScore * contextWeights.get("weather_context");
-        
-        // User behavior score
-        String behaviorKey = createBehaviorKey(userContext);
-        String behaviorPattern = behaviorKey + "_" + activityType.name();
-        double behaviorScore = behaviorPatterns.getOrDefault(behaviorPattern, 0.0);
-        score += behaviorScore * contextWeights.get("user_behavior");
-        
-        // Time context score
-        String timeKey = "midday"; // Simplified - would need actual time
-        String timePattern = "weekday_" + timeKey + "_" + activityType.name();
-        double timeScore = timePatterns.getOrDefault(timePattern, 0.0);
-        score += timeScore * contextWeights.get("time_context");
-        
-        // Sequence context score (simplified)
-        double sequenceScore = 0.5; // Would need recent activity sequence
-        score += sequenceScore * contextWeights.get("sequence_context");
-        
-        // Seasonal context score
-        String seasonPattern = "spring_" + activityType.name(); // Simplified
-        double seasonScore = seasonalPatterns.getOrDefault(seasonPattern, 0.0);
-        score += seasonScore * contextWeights.get("seasonal_context");
-        
-        return Math.max(0.0, score + bias);
+    private void scoreTransition(TrainingFeatures features, int i, double[] scores) {
+        score(features.weather[i], features.behavior[i], features.dayType[i + 1], features.activity[i],
+                features.transitionContext[i + 1], features.season[i], scores);
     }
     
-    /**
-     * Calculate activity score based on day records
-     */
-    private double calculateActivityScore(ActivityType activityType, DayRecord currentRecord, DayRecord nextRecord) {
-        double score = 0.0;
-        
-        // Weather context score
-        String weatherKey = createWeatherKey(currentRecord);
-        String weatherPattern = weatherKey + "_" + activityType.name();
-        double weatherScore = weatherPatterns.getOrDefault(weatherPattern, 0.0);
-        score += weatherScore * contextWeights.get("weather_context");
-        
-        // User behavior score
-        String behaviorKey = createBehaviorKey(currentRecord);
-        String behaviorPattern = behaviorKey + "_" + activityType.name();
-        double behaviorScore = behaviorPatterns.getOrDefault(behaviorPattern, 0.0);
-        score += behaviorScore * contextWeights.get("user_behavior");
-        
-        // Time context score
-        String dayType = getDayType(nextRecord.getDate());
-        String timePattern = dayType + "_midday_" + activityType.name();
-        double timeScore = timePatterns.getOrDefault(timePattern, 0.0);
-        score += timeScore * contextWeights.get("time_context");
-        
-        // Transition score
-        ActivityType currentActivity = getPrimaryActivity(currentRecord);
-        String contextKey = createContextKey(currentRecord, nextRecord);
-        Map<String, Double> weights = transitionWeights.get(currentActivity);
-        double transitionScore = weights != null ? weights.getOrDefault(contextKey, 0.0) : 0.0;
-        score += transitionScore * contextWeights.get("sequence_context");
-        
-        // Seasonal context score
-        String season = currentRecord.getSeason() != null ? currentRecord.getSeason() : "unknown";
-        String seasonPattern = season + "_" + activityType.name();
-        double seasonScore = seasonalPatterns.getOrDefault(seasonPattern, 0.0);
-        score += seasonScore * contextWeights.get("seasonal_context");
-        
-        return Math.max(0.0, score + bias);
+    private void score(int weather, int behavior, int nextDayType, int currentActivity, int transitionContext,
+                       int season, double[] scores) {
+        double[] weatherRow = weatherPatterns[weather];
+        double[] behaviorRow = behaviorPatterns[behavior];
+        double[] timeRow = timePatterns[nextDayType];
+        double[] seasonRow = seasonalPatterns[season];
+        // The transition weight depends on the current activity only, not the candidate
+        double transitionScore = transitionWeights[currentActivity][transitionContext] * contextWeights[CONTEXT_SEQUENCE];
+        
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            double score = weatherRow[activity] * contextWeights[CONTEXT_WEATHER]
+                    + behaviorRow[activity] * contextWeights[CONTEXT_BEHAVIOR]
+                    + timeRow[activity] * contextWeights[CONTEXT_TIME]
+                    + transitionScore
+                    + seasonRow[activity] * contextWeights[CONTEXT_SEASONAL];
+            scores[activity] = Math.max(0.0, score + bias);
+        }
+        if (!DayFeatureMatrix.normalize(scores)) {
+            // All-zero scores become uniform
+            Arrays.fill(scores, 0, ACTIVITY_COUNT, 1.0 / ACTIVITY_COUNT);
+        }
     }
     
     /**
      * Get primary activity from day record
      */
-    private ActivityType getPrimaryActivity(DayRecord record) {
+    static ActivityType getPrimaryActivity(DayRecord record) {
         // Simple heuristic to determine primary activity
         if (record.getStepCount() > 12000) return ActivityType.OUTDOOR_EXERCISE;
         if (record.getPlacesVisited() > 3) return ActivityType.SOCIAL_ACTIVITY;
@@ -407,242 +518,107 @@ public class ActivityPatternModel {
     }
     
     /**
-     * Create sequence key from activity list
-     */
-    private String createSequenceKey(List<ActivityType> activities) {
-        return activities.stream()
-            .map(Enum::name)
-            .collect(Collectors.joining("_"));
-    }
-    
-    /**
-     * Create weather key from day record
+     * Weather code from the 10-degree temperature band and normalized condition
      */
-    private String createWeatherKey(DayRecord record) {
-        int tempRange = (int) (record.getTemperature() / 10) * 10;
-        String condition = normalizeWeatherCondition(record.getWeatherCondition());
-        return tempRange + "_" + condition;
+    private static int weatherCode(float temperature, String condition) {
+        int band = Math.max(MIN_TEMP_BAND, Math.min(MAX_TEMP_BAND, (int) (temperature / 10)));
+        return (band - MIN_TEMP_BAND) * DayFeatureMatrix.CONDITION_COUNT
+                + DayFeatureMatrix.normalizeWeatherCondition(condition);
     }
     
     /**
-     * Create weather key from weather context
+     * Behavior code from activity score and places visited or social interactions
      */
-    private String createWeatherKey(PredictionResult.WeatherContext context) {
-        int tempRange = (int) (context.getTemperature() / 10) * 10;
-        String condition = normalizeWeatherCondition(context.getWeatherCondition());
-        return tempRange + "_" + condition;
+    private static int behaviorCode(double activityScore, int socialCount) {
+        int activityLevel = activityScore > 60 ? 2 : activityScore > 30 ? 1 : 0;
+        int socialLevel = socialCount > 3 ? 2 : socialCount > 1 ? 1 : 0;
+        return activityLevel * 3 + socialLevel;
     }
     
-    /**
-     * Create behavior key from day record
-     */
-    private String createBehaviorKey(DayRecord record) {
-        String activityLevel = record.getActivityScore() > 60 ? "high" : 
-                              record.getActivityScore() > 30 ? "medium" : "low";
-        String socialLevel = record.getPlacesVisited() > 3 ? "high" : 
-                           record.getPlacesVisited() > 1 ? "medium" : "low";
-        return activityLevel + "_" + socialLevel;
+    private static int seasonCode(String season) {
+        if (season == null) return SEASON_UNKNOWN;
+        if (season.equalsIgnoreCase("spring")) return SEASON_SPRING;
+        if (season.equalsIgnoreCase("summer")) return SEASON_SUMMER;
+        if (season.equalsIgnoreCase("fall") || season.equalsIgnoreCase("autumn")) return SEASON_FALL;
+        if (season.equalsIgnoreCase("winter")) return SEASON_WINTER;
+        return SEASON_UNKNOWN;
     }
     
     /**
-     * Create behavior key from user context
+     * Context code for a transition: the temperature change into the next day and its day type
      */
-    private String createBehaviorKey(PredictionResult.UserContext context) {
-        String activityLevel = context.getRecentActivityScore() > 60 ? "high" : 
-                              context.getRecentActivityScore() > 30 ? "medium" : "low";
-        String socialLevel = context.getSocialInteractions() > 3 ? "high" : 
-                           context.getSocialInteractions() > 1 ? "medium" : "low";
-        return activityLevel + "_" + socialLevel;
-    }
-    
-    /**
-     * Create context key for transition analysis
-     */
-    private String createContextKey(DayRecord currentRecord, DayRecord nextRecord) {
-        String weatherChange = getWeatherChange(currentRecord, nextRecord);
-        String dayType = getDayType(nextRecord.getDate());
-        return weatherChange + "_" + dayType;
-    }
-    
-    /**
-     * Get weather change between records
-     */
-    private String getWeatherChange(DayRecord current, DayRecord next) {
-        double tempDiff = next.getTemperature() - current.getTemperature();
-        if (tempDiff > 5) return "warming";
-        if (tempDiff < -5) return "cooling";
-        return "stable";
+    private static int transitionContext(float currentTemperature, float nextTemperature, int nextDayType) {
+        double tempDiff = nextTemperature - currentTemperature;
+        int weatherChange = tempDiff > 5 ? 1 : tempDiff < -5 ? 2 : 0;
+        return weatherChange * DAY_TYPES + nextDayType;
     }
     
     /**
      * Get day type (weekday/weekend)
      */
-    private String getDayType(String dateString) {
+    private static int getDayType(String dateString) {
         // Simplified - would need proper date parsing
-        return "weekday"; // Placeholder
-    }
-    
-    /**
-     * Normalize weather condition strings
-     */
-    private String normalizeWeatherCondition(String condition) {
-        if (condition == null) return "unknown";
-        
-        String normalized = condition.toLowerCase();
-        if (normalized.contains("clear") || normalized.contains("sunny")) return "clear";
-        if (normalized.contains("cloud") || normalized.contains("overcast")) return "cloudy";
-        if (normalized.contains("rain") || normalized.contains("drizzle")) return "rain";
-        if (normalized.contains("storm") || normalized.contains("thunder")) return "storm";
-        return "unknown";
+        return DAY_WEEKDAY; // Placeholder
     }
     
     /**
-     * Calculate transition probability between activities
+     * Transition probability between activities based on activity compatibility
      */
-    private double calculateTransitionProbability(ActivityType from, ActivityType to) {
-        // Simple transition probability based on activity compatibility
-        if (from == to) return 0.3; // Some continuity
-        
-        // Define compatible transitions
-        Map<ActivityType, List<ActivityType>> compatibleTransitions = new HashMap<>();
-        compatibleTransitions.put(ActivityType.OUTDOOR_EXERCISE, Arrays.asList(ActivityType.RELAXATION, ActivityType.SOCIAL_ACTIVITY));
-        compatibleTransitions.put(ActivityType.WORK_PRODUCTIVITY, Arrays.asList(ActivityType.RELAXATION, ActivityType.RECREATIONAL));
-        compatibleTransitions.put(ActivityType.SOCIAL_ACTIVITY, Arrays.asList(ActivityType.RECREATIONAL, ActivityType.PHOTOGRAPHY));
-        
-        List<ActivityType> compatible = compatibleTransitions.get(from);
-        if (compatible != null && compatible.contains(to)) {
-            return 0.7;
+    private static double[][] buildTransitionPrior() {
+        double[][] prior = new double[ACTIVITY_COUNT][ACTIVITY_COUNT];
+        for (int from = 0; from < ACTIVITY_COUNT; from++) {
+            Arrays.fill(prior[from], 0.1); // Low probability for incompatible transitions
+            prior[from][from] = 0.3; // Some continuity
         }
         
-        return 0.1; // Low probability for incompatible transitions
+        // Define compatible transitions
+        setCompatible(prior, ActivityType.OUTDOOR_EXERCISE, ActivityType.RELAXATION, ActivityType.SOCIAL_ACTIVITY);
+        setCompatible(prior, ActivityType.WORK_PRODUCTIVITY, ActivityType.RELAXATION, ActivityType.RECREATIONAL);
+        setCompatible(prior, ActivityType.SOCIAL_ACTIVITY, ActivityType.RECREATIONAL, ActivityType.PHOTOGRAPHY);
+        return prior;
     }
     
-    /**
-     * Get context value for gradient calculation
-     */
-    private double getContextValue(String context, DayRecord current, DayRecord next) {
-        switch (context) {
-            case "weather_context":
-                return calculateWeatherContextValue(current);
-            case "user_behavior":
-                return calculateBehaviorContextValue(current);
-            case "time_context":
-                return calculateTimeContextValue(next);
-            case "sequence_context":
-                return calculateSequenceContextValue(current, next);
-            case "seasonal_context":
-                return calculateSeasonalContextValue(current);
-            default:
-                return 0.0;
+    private static void setCompatible(double[][] prior, ActivityType from, ActivityType... compatible) {
+        for (ActivityType to : compatible) {
+            prior[from.ordinal()][to.ordinal()] = 0.7;
         }
     }
     
-    /**
-     * Calculate weather context value
-     */
-    private double calculateWeatherContextValue(DayRecord record) {
-        // Normalize weather impact
-        double tempScore = Math.max(0.0, Math.min(1.0, (record.getTemperature() + 10) / 50.0));
-        double humidityScore = Math.max(0.0, Math.min(1.0, (100 - record.getHumidity()) / 100.0));
-        return (tempScore + humidityScore) / 2.0;
-    }
-    
-    /**
-     * Calculate behavior context value
-     */
-    private double calculateBehaviorContextValue(DayRecord record) {
-        return Math.max(0.0, Math.min(1.0, record.getActivityScore() / 100.0));
-    }
-    
-    /**
-     * Calculate time context value
-     */
-    private double calculateTimeContextValue(DayRecord record) {
-        // Simplified time context
-        return 0.5; // Would need actual time data
-    }
-    
-    /**
-     * Calculate sequence context value
-     */
-    private double calculateSequenceContextValue(DayRecord current, DayRecord next) {
-        ActivityType currentActivity = getPrimaryActivity(current);
-        ActivityType nextActivity = getPrimaryActivity(next);
-        return calculateTransitionProbability(currentActivity, nextActivity);
-    }
-    
-    /**
-     * Calculate seasonal context value
-     */
-    private double calculateSeasonalContextValue(DayRecord record) {
-        String season = record.getSeason();
-        if (season == null) return 0.5;
-        
-        // Seasonal activity preferences
-        switch (season.toLowerCase()) {
-            case "spring":
-            case "summer":
-                return 0.8; // Higher outdoor activity
-            case "fall":
-            case "winter":
-                return 0.3; // Lower outdoor activity
-            default:
-                return 0.5;
+    private static void clear(double[][] table) {
+        for (double[] row : table) {
+            Arrays.fill(row, 0.0);
         }
     }
     
-    /**
-     * Normalize prediction scores
-     */
-    private Map<ActivityType, Double> normalizePredictions(Map<ActivityType, Double> predictions) {
-        double sum = predictions.values().stream().mapToDouble(Double::doubleValue).sum();
-        
-        if (sum == 0.0) {
-            return getDefaultPredictions();
-        }
-        
-        Map<ActivityType, Double> normalized = new HashMap<>();
-        for (Map.Entry<ActivityType, Double> entry : predictions.entrySet()) {
-            normalized.put(entry.getKey(), entry.getValue() / sum);
+    private static void scale(double[][] table, double factor) {
+        for (double[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] *= factor;
+            }
         }
-        
-        return normalized;
     }
     
-    /**
-     * Get default predictions when model is not trained
-     */
-    private Map<ActivityType, Double> getDefaultPredictions() {
-        Map<ActivityType, Double> defaults = new HashMap<>();
-        double defaultScore = 1.0 / ActivityType.values().length;
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            defaults.put(activityType, defaultScore);
+    private static int countNonZero(double[][] table) {
+        int count = 0;
+        for (double[] row : table) {
+            for (double value : row) {
+                if (value != 0.0) count++;
+            }
         }
-        
-        return defaults;
+        return count;
     }
     
     /**
      * Calculate training accuracy
      */
-    private double calculateTrainingAccuracy(List<DayRecord> trainingData) {
+    private double calculateTrainingAccuracy(TrainingFeatures features) {
         int correctPredictions = 0;
         int totalPredictions = 0;
+        double[] scores = new double[ACTIVITY_COUNT];
         
-        for (int i = 0; i < trainingData.size() - 1; i++) {
-            DayRecord current = trainingData.get(i);
-            DayRecord next = trainingData.get(i + 1);
-            
-            Map<ActivityType, Double> predictions = predict(current, next);
-            ActivityType predictedActivity = predictions.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(ActivityType.INDOOR_ACTIVITIES);
-            
-            ActivityType actualActivity = getPrimaryActivity(next);
-            
-            if (predictedActivity == actualActivity) {
+        for (int i = 0; i < features.activity.length - 1; i++) {
+            scoreTransition(features, i, scores);
+            if (DayFeatureMatrix.argMax(scores) == features.activity[i + 1]) {
                 correctPredictions++;
             }
             totalPredictions++;
@@ -663,9 +639,9 @@ public class ActivityPatternModel {
         
         if (predictedActivity == actualActivity && result.getWeatherContext() != null) {
             // Reinforce weather pattern
-            String weatherKey = createWeatherKey(result.getWeatherContext());
-            String weatherPattern = weatherKey + "_" + predictedActivity.name();
-            weatherPatterns.merge(weatherPattern, LEARNING_RATE * 0.1, Double::sum);
+            double[] weatherRow = weatherPatterns[weatherCode(result.getWeatherContext().getTemperature(),
+                    result.getWeatherContext().getWeatherCondition())];
+            weatherRow[predictedActivity.ordinal()] += LEARNING_RATE * 0.1;
         }
     }
     
@@ -680,14 +656,14 @@ public class ActivityPatternModel {
         ActivityType actualActivity = result.getActualActivity();
         
         if (predictedActivity != actualActivity && result.getWeatherContext() != null) {
+            double[] weatherRow = weatherPatterns[weatherCode(result.getWeatherContext().getTemperature(),
+                    result.getWeatherContext().getWeatherCondition())];
+            
             // Reduce weight for incorrect pattern
-            String weatherKey = createWeatherKey(result.getWeatherContext());
-            String incorrectPattern = weatherKey + "_" + predictedActivity.name();
-            weatherPatterns.merge(incorrectPattern, -LEARNING_RATE * 0.05, Double::sum);
+            weatherRow[predictedActivity.ordinal()] -= LEARNING_RATE * 0.05;
             
             // Increase weight for correct pattern
-            String correctPattern = weatherKey + "_" + actualActivity.name();
-            weatherPatterns.merge(correctPattern, LEARNING_RATE * 0.05, Double::sum);
+            weatherRow[actualActivity.ordinal()] += LEARNING_RATE * 0.05;
         }
     }
     
@@ -702,11 +678,11 @@ public class ActivityPatternModel {
         stats.put("training_accuracy", trainingAccuracy);
         stats.put("last_training_time", lastTrainingTime);
         stats.put("activity_sequences_count", activitySequences.size());
-        stats.put("context_weights", new HashMap<>(contextWeights));
-        stats.put("time_patterns_count", timePatterns.size());
-        stats.put("weather_patterns_count", weatherPatterns.size());
-        stats.put("behavior_patterns_count", behaviorPatterns.size());
-        stats.put("seasonal_patterns_count", seasonalPatterns.size());
+        stats.put("context_weights", getContextWeights());
+        stats.put("time_patterns_count", countNonZero(timePatterns));
+        stats.put("weather_patterns_count", countNonZero(weatherPatterns));
+        stats.put("behavior_patterns_count", countNonZero(behaviorPatterns));
+        stats.put("seasonal_patterns_count", countNonZero(seasonalPatterns));
         
         return stats;
     }
@@ -729,39 +705,86 @@ public class ActivityPatternModel {
     }
     
     public Map<String, Double> getContextWeights() {
-        return new HashMap<>(contextWeights);
+        Map<String, Double> weights = new HashMap<>();
+        for (int context = 0; context < CONTEXT_COUNT; context++) {
+            weights.put(CONTEXT_NAMES[context], contextWeights[context]);
+        }
+        return weights;
     }
     
     /**
-     * Inner class for activity sequence representation
+     * Next-activity counts per n-gram, in an open-addressing table keyed by the packed
+     * n-gram; each distinct n-gram owns one int[ACTIVITY_COUNT] row
      */
-    private static class ActivitySequence {
-        private Map<ActivityType, Integer> nextActivities;
-        private int totalCount;
+    private static final class SequenceTable {
+        private long[] keys = new long[64];
+        private int[] rows = new int[64];       // row index + 1; 0 marks an empty slot
+        private int[][] nextCounts = new int[32][];
+        private int[] totals = new int[32];
+        private int size;
         
-        public ActivitySequence() {
-            this.nextActivities = new HashMap<>();
-            this.totalCount = 0;
+        void add(long key, int nextActivity) {
+            int row = rowFor(key);
+            nextCounts[row][nextActivity]++;
+            totals[row]++;
         }
         
-        public void addNextActivity(ActivityType activity) {
-            nextActivities.merge(activity, 1, Integer::sum);
-            totalCount++;
+        int size() {
+            return size;
         }
         
-        public double getProbability(ActivityType activity) {
-            return totalCount > 0 ? (double) nextActivities.getOrDefault(activity, 0) / totalCount : 0.0;
+        void clear() {
+            Arrays.fill(rows, 0);
+            size = 0;
         }
         
-        public ActivityType getMostLikelyNext() {
-            return nextActivities.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(ActivityType.INDOOR_ACTIVITIES);
+        private int rowFor(long key) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (rows[slot] != 0) {
+                if (keys[slot] == key) {
+                    return rows[slot] - 1;
+                }
+                slot = (slot + 1) & mask;
+            }
+            
+            if (size == nextCounts.length) {
+                nextCounts = Arrays.copyOf(nextCounts, size * 2);
+                totals = Arrays.copyOf(totals, size * 2);
+            }
+            nextCounts[size] = new int[ACTIVITY_COUNT];
+            totals[size] = 0;
+            keys[slot] = key;
+            rows[slot] = ++size;
+            
+            // Keep the load factor at or below one half
+            if (size * 2 > keys.length) {
+                rehash(keys.length * 2);
+            }
+            return size - 1;
+        }
+        
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldRows = rows;
+            keys = new long[capacity];
+            rows = new int[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldRows[i] != 0) {
+                    int slot = hash(oldKeys[i]) & mask;
+                    while (rows[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    rows[slot] = oldRows[i];
+                }
+            }
         }
         
-        public int getTotalCount() {
-            return totalCount;
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
         }
     }
-}
\ No newline at end of file
+}
@@ -4,12 +4,18 @@ import android.content.Context;
 import android.util.Log;
 
 import com.locallife.database.DatabaseHelper;
+import com.locallife.database.QueryMetrics;
+import com.locallife.model.ActivitySuitabilityTable;
 import com.locallife.model.ActivityType;
 import com.locallife.model.DayRecord;
 import com.locallife.model.PredictionResult;
 import com.locallife.model.Recommendation;
+import com.locallife.utils.EpochDays;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -20,79 +26,324 @@ public class ActivityPredictionEngine {
     private static final String TAG = "ActivityPredictionEngine";
     private static final int MIN_HISTORICAL_DAYS = 7;
     private static final double CONFIDENCE_THRESHOLD = 0.6;
+    // Batches with at least this many uncached slots are scored on the common pool
+    private static final int PARALLEL_BATCH_THRESHOLD = 24;
+    private static final int[] WEEKLY_SLOT_HOURS = {6, 9, 12, 15, 18, 21};
+    private static final int FORECAST_DAYS = 7;
+    
+    private static ActivityPredictionEngine instance;
     
     private Context context;
     private DatabaseHelper databaseHelper;
     private WeatherActivityCorrelationService correlationService;
     private ActivityRecommendationService recommendationService;
     private PredictionAccuracyTracker accuracyTracker;
+    private WeatherService weatherService;
+    
+    // ML models; replaced as a whole once a training run has trained all three
+    private volatile ModelSnapshot models;
+    private volatile CompletableFuture<Void> trainingFuture;
+    private final AtomicInteger modelGenerations = new AtomicInteger();
     
-    // ML models
-    private WeatherPatternModel weatherPatternModel;
-    private UserBehaviorModel userBehaviorModel;
-    private ActivityPatternModel activityPatternModel;
+    // Latest daily forecast, and the weekly predictions made from it
+    private volatile WeatherService.WeatherForecast forecast;
+    private volatile WeeklyPredictions weeklyPredictions;
     
     // Prediction cache
     private Map<String, PredictionResult> predictionCache;
     private Map<String, List<Recommendation>> recommendationCache;
     
-    public ActivityPredictionEngine(Context context) {
+    // User context builds, each of which costs two database queries
+    private final AtomicInteger userContextLoads = new AtomicInteger();
+    
+    /**
+     * One time to predict for, with the weather expected then
+     */
+    public static class PredictionSlot {
+        final Date targetTime;
+        final float temperature;
+        final float humidity;
+        final String weatherCondition;
+        final float windSpeed;
+        final double uvIndex;
+        final int airQualityIndex;
+        final String moonPhase;
+        final long dayLengthMinutes;
+        
+        public PredictionSlot(Date targetTime, float temperature, float humidity, String weatherCondition,
+                              float windSpeed, double uvIndex, int airQualityIndex, String moonPhase,
+                              long dayLengthMinutes) {
+            this.targetTime = targetTime;
+            this.temperature = temperature;
+            this.humidity = humidity;
+            this.weatherCondition = weatherCondition;
+            this.windSpeed = windSpeed;
+            this.uvIndex = uvIndex;
+            this.airQualityIndex = airQualityIndex;
+            this.moonPhase = moonPhase;
+            this.dayLengthMinutes = dayLengthMinutes;
+        }
+    }
+    
+    /**
+     * The three ensemble models from one training run. Never modified after publication:
+     * training builds fresh instances and feedback updates copies, each published as a new
+     * snapshot, so a prediction keeps a consistent set of models.
+     */
+    private static class ModelSnapshot {
+        final int generation;
+        final WeatherPatternModel weatherPatternModel;
+        final UserBehaviorModel userBehaviorModel;
+        final ActivityPatternModel activityPatternModel;
+        
+        ModelSnapshot(int generation, WeatherPatternModel weatherPatternModel, UserBehaviorModel userBehaviorModel,
+                      ActivityPatternModel activityPatternModel) {
+            this.generation = generation;
+            this.weatherPatternModel = weatherPatternModel;
+            this.userBehaviorModel = userBehaviorModel;
+            this.activityPatternModel = activityPatternModel;
+        }
+        
+        boolean isTrained() {
+            return weatherPatternModel.isTrained() && userBehaviorModel.isTrained()
+                    && activityPatternModel.isTrained();
+        }
+        
+        /**
+         * Copies of the models, for feedback to update before they are published
+         */
+        ModelSnapshot copyForFeedback(int generation) {
+            return new ModelSnapshot(generation, weatherPatternModel.copyForFeedback(),
+                    userBehaviorModel.copyForFeedback(), activityPatternModel.copyForFeedback());
+        }
+    }
+    
+    /**
+     * The weekly predictions for one day, forecast version and model snapshot; any of the
+     * three changing makes them stale
+     */
+    private static class WeeklyPredictions {
+        final int epochDay;
+        final long forecastVersion;
+        final ModelSnapshot models;
+        final Map<Date, List<PredictionResult>> predictions;
+        
+        WeeklyPredictions(int epochDay, long forecastVersion, ModelSnapshot models,
+                          Map<Date, List<PredictionResult>> predictions) {
+            this.epochDay = epochDay;
+            this.forecastVersion = forecastVersion;
+            this.models = models;
+            this.predictions = predictions;
+        }
+        
+        boolean isCurrent(int today, WeatherService.WeatherForecast forecast, ModelSnapshot snapshot) {
+            return epochDay == today && forecast != null && forecastVersion == forecast.getVersion()
+                    && models == snapshot;
+        }
+    }
+    
+    /**
+     * State shared by every slot of a batch: the user context, the model snapshot it was
+     * scored with and the scores that depend only on the user, computed once instead of once
+     * per slot
+     */
+    private static class BatchContext {
+        final PredictionResult.UserContext userContext;
+        final ModelSnapshot models;
+        final boolean modelsTrained;
+        final Map<ActivityType, Double> behaviorPredictions;
+        final double[] userScores;
+        
+        BatchContext(PredictionResult.UserContext userContext, ModelSnapshot models, boolean modelsTrained,
+                     Map<ActivityType, Double> behaviorPredictions, double[] userScores) {
+            this.userContext = userContext;
+            this.models = models;
+            this.modelsTrained = modelsTrained;
+            this.behaviorPredictions = behaviorPredictions;
+            this.userScores = userScores;
+        }
+    }
+    
+    /**
+     * Separate engines are for tests; the app shares one through getInstance
+     */
+    ActivityPredictionEngine(Context context) {
         this.context = context;
         this.databaseHelper = new DatabaseHelper(context);
         this.correlationService = new WeatherActivityCorrelationService(context);
         this.recommendationService = new ActivityRecommendationService(context, this);
         this.accuracyTracker = new PredictionAccuracyTracker(context);
+        this.weatherService = new WeatherService(context);
         
-        // Initialize ML models
-        this.weatherPatternModel = new WeatherPatternModel();
-        this.userBehaviorModel = new UserBehaviorModel();
-        this.activityPatternModel = new ActivityPatternModel();
+        // Untrained models until the first training run completes
+        this.models = new ModelSnapshot(modelGenerations.get(), new WeatherPatternModel(), new UserBehaviorModel(),
+            new ActivityPatternModel());
         
         // Initialize caches
-        this.predictionCache = new HashMap<>();
-        this.recommendationCache = new HashMap<>();
+        // Written by background precomputation as well as callers
+        this.predictionCache = new ConcurrentHashMap<>();
+        this.recommendationCache = new ConcurrentHashMap<>();
         
         // Initialize engine
         initializeEngine();
     }
     
+    /**
+     * The app-wide engine, so its trained models and caches outlive the screens using them
+     */
+    public static synchronized ActivityPredictionEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new ActivityPredictionEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+    
     private void initializeEngine() {
         Log.d(TAG, "Initializing Activity Prediction Engine");
         
         // Load historical data and train models
-        new Thread(() -> {
-            try {
-                loadHistoricalDataAndTrainModels();
+        retrainModels().whenComplete((ignored, error) -> {
+            if (error != null) {
+                Log.e(TAG, "Error initializing Activity Prediction Engine", error);
+            } else {
                 Log.d(TAG, "Activity Prediction Engine initialized successfully");
+            }
+        });
+        
+        // Fetch the forecast the weekly predictions are made against
+        weatherService.getCurrentLocationForecast(FORECAST_DAYS, new WeatherService.ForecastCallback() {
+            @Override
+            public void onForecastReceived(WeatherService.WeatherForecast forecast) {
+                updateForecast(forecast);
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "No forecast for weekly predictions, using current weather: " + error);
+            }
+        });
+    }
+    
+    /**
+     * Fetch a new daily forecast for the given location
+     */
+    public void refreshForecast(double latitude, double longitude) {
+        weatherService.getDailyForecast(latitude, longitude, FORECAST_DAYS, new WeatherService.ForecastCallback() {
+            @Override
+            public void onForecastReceived(WeatherService.WeatherForecast forecast) {
+                updateForecast(forecast);
+            }
+            
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Forecast refresh failed: " + error);
+            }
+        });
+    }
+    
+    /**
+     * Predict against a newly fetched forecast from now on, and compute the weekly
+     * predictions for it in the background so they are ready when asked for
+     */
+    public void updateForecast(WeatherService.WeatherForecast forecast) {
+        this.forecast = forecast;
+        warmWeeklyPredictions();
+    }
+    
+    private void warmWeeklyPredictions() {
+        if (forecast == null) {
+            return;
+        }
+        AnalyticsExecutor.get().execute(() -> {
+            try {
+                predictWeeklyPatterns();
             } catch (Exception e) {
-                Log.e(TAG, "Error initializing Activity Prediction Engine", e);
+                Log.e(TAG, "Error precomputing weekly predictions", e);
             }
-        }).start();
+        });
     }
     
     /**
-     * Load historical data and train ML models
+     * Retrain the ML models from the full history on the analytics pool. Predictions keep
+     * using the current models until all three new ones are trained; a call made while a run
+     * is in progress returns that run instead of starting another.
      */
-    private void loadHistoricalDataAndTrainModels() {
-        List<DayRecord> historicalData = databaseHelper.getAllDayRecords();
-        
+    public synchronized CompletableFuture<Void> retrainModels() {
+        CompletableFuture<Void> current = trainingFuture;
+        if (current != null && !current.isDone()) {
+            return current;
+        }
+        trainingFuture = CompletableFuture
+            .supplyAsync(databaseHelper::getAllDayRecords, AnalyticsExecutor.get())
+            .thenCompose(this::loadHistoricalDataAndTrainModels)
+            .thenAccept(trained -> {
+                if (trained != null) {
+                    // Ordered with feedback, which publishes copies of the current models
+                    synchronized (this) {
+                        publish(trained);
+                    }
+                    warmWeeklyPredictions();
+                }
+            });
+        return trainingFuture;
+    }
+    
+    /**
+     * Completes when the latest training run has finished, exceptionally if it failed
+     */
+    public CompletableFuture<Void> getTrainingFuture() {
+        return trainingFuture;
+    }
+    
+    public boolean isWeatherModelTrained() {
+        return models.weatherPatternModel.isTrained();
+    }
+    
+    public boolean isBehaviorModelTrained() {
+        return models.userBehaviorModel.isTrained();
+    }
+    
+    public boolean isActivityModelTrained() {
+        return models.activityPatternModel.isTrained();
+    }
+    
+    /**
+     * Train fresh ML models from historical data, one task per model, and join them into a
+     * snapshot; null if there is too little data
+     */
+    private CompletableFuture<ModelSnapshot> loadHistoricalDataAndTrainModels(List<DayRecord> historicalData) {
         if (historicalData.size() < MIN_HISTORICAL_DAYS) {
             Log.w(TAG, "Insufficient historical data for training. Need at least " + MIN_HISTORICAL_DAYS + " days");
-            return;
+            return CompletableFuture.completedFuture(null);
         }
         
         Log.d(TAG, "Training models with " + historicalData.size() + " days of data");
         
-        // Train weather pattern model
-        weatherPatternModel.train(historicalData);
-        
-        // Train user behavior model
-        userBehaviorModel.train(historicalData);
-        
-        // Train activity pattern model
-        activityPatternModel.train(historicalData);
-        
-        Log.d(TAG, "ML models trained successfully");
+        // Both models train from one feature matrix, which they only read
+        DayFeatureMatrix features = DayFeatureMatrix.of(historicalData);
+        
+        // The models share no state, so they train concurrently
+        CompletableFuture<WeatherPatternModel> weather = CompletableFuture.supplyAsync(() -> {
+            WeatherPatternModel model = new WeatherPatternModel();
+            model.train(features);
+            return model;
+        }, AnalyticsExecutor.get());
+        CompletableFuture<UserBehaviorModel> behavior = CompletableFuture.supplyAsync(() -> {
+            UserBehaviorModel model = new UserBehaviorModel();
+            model.train(features);
+            return model;
+        }, AnalyticsExecutor.get());
+        CompletableFuture<ActivityPatternModel> activity = CompletableFuture.supplyAsync(() -> {
+            ActivityPatternModel model = new ActivityPatternModel();
+            model.train(historicalData);
+            return model;
+        }, AnalyticsExecutor.get());
+        
+        return CompletableFuture.allOf(weather, behavior, activity).thenApply(ignored -> {
+            Log.d(TAG, "ML models trained successfully");
+            return new ModelSnapshot(modelGenerations.incrementAndGet(), weather.join(), behavior.join(),
+                activity.join());
+        });
     }
     
     /**
@@ -101,34 +352,106 @@ public class ActivityPredictionEngine {
     public PredictionResult predictActivity(Date targetTime, float temperature, float humidity, 
                                           String weatherCondition, float windSpeed, double uvIndex,
                                           int airQualityIndex, String moonPhase, long dayLengthMinutes) {
-        
-        String cacheKey = generateCacheKey(targetTime, temperature, humidity, weatherCondition);
-        
-        // Check cache first
-        if (predictionCache.containsKey(cacheKey)) {
-            PredictionResult cached = predictionCache.get(cacheKey);
-            if (!cached.isOutdated()) {
-                return cached;
+        return predictActivities(Collections.singletonList(new PredictionSlot(targetTime, temperature, humidity,
+                weatherCondition, windSpeed, uvIndex, airQualityIndex, moonPhase, dayLengthMinutes))).get(0);
+    }
+    
+    /**
+     * Predict activities for many slots at once. The user context and user-only model scores
+     * are built once for the batch; results come back in slot order.
+     */
+    public List<PredictionResult> predictActivities(List<PredictionSlot> slots) {
+        return predictActivities(slots, null);
+    }
+    
+    private List<PredictionResult> predictActivities(List<PredictionSlot> slots, DayRecord today) {
+        PredictionResult[] results = new PredictionResult[slots.size()];
+        String[] cacheKeys = new String[slots.size()];
+        List<Integer> misses = new ArrayList<>();
+        ModelSnapshot snapshot = models;
+        
+        // Check cache first; entries from earlier models are keyed apart
+        for (int i = 0; i < slots.size(); i++) {
+            PredictionSlot slot = slots.get(i);
+            cacheKeys[i] = generateCacheKey(snapshot, slot.targetTime, slot.temperature, slot.humidity,
+                slot.weatherCondition);
+            PredictionResult cached = predictionCache.get(cacheKeys[i]);
+            if (cached != null && !cached.isOutdated()) {
+                results[i] = cached;
             } else {
-                predictionCache.remove(cacheKey);
+                if (cached != null) {
+                    predictionCache.remove(cacheKeys[i]);
+                }
+                misses.add(i);
             }
         }
         
-        PredictionResult result = new PredictionResult();
-        result.setTargetTime(targetTime);
+        if (!misses.isEmpty()) {
+            BatchContext batch = createBatchContext(today != null ? today : databaseHelper.getTodayRecord(), snapshot);
+            PredictionResult.WeatherContext[] weatherContexts = new PredictionResult.WeatherContext[slots.size()];
+            for (int i : misses) {
+                weatherContexts[i] = createWeatherContext(slots.get(i));
+            }
+            List<Map<ActivityType, Double>> mlPredictions = batch.modelsTrained
+                ? predictWithMLModels(misses, weatherContexts, batch) : null;
+            
+            if (misses.size() >= PARALLEL_BATCH_THRESHOLD) {
+                // Scoring only reads the trained models, so slots are independent. A parallel stream
+                // started from a pool task splits on that pool, so this stays on the analytics pool
+                AnalyticsExecutor.get().submit(() -> misses.parallelStream().forEach(i ->
+                    results[i] = scoreSlot(slots.get(i), weatherContexts[i],
+                        mlPredictions != null ? mlPredictions.get(i) : null, batch))).join();
+            } else {
+                for (int i : misses) {
+                    results[i] = scoreSlot(slots.get(i), weatherContexts[i],
+                        mlPredictions != null ? mlPredictions.get(i) : null, batch);
+                }
+            }
+            
+            // Cache the results
+            for (int i : misses) {
+                predictionCache.put(cacheKeys[i], results[i]);
+            }
+        }
         
-        // Create weather context
-        boolean isWeekend = isWeekend(targetTime);
-        String timeOfDay = getTimeOfDay(targetTime);
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * The batch is scored with one model snapshot throughout, even if a training run
+     * publishes a new one meanwhile
+     */
+    private BatchContext createBatchContext(DayRecord today, ModelSnapshot snapshot) {
+        PredictionResult.UserContext userContext = createUserContext(today);
+        boolean modelsTrained = snapshot.isTrained();
+        Map<ActivityType, Double> behaviorPredictions = modelsTrained
+            ? snapshot.userBehaviorModel.predict(userContext) : null;
+        
+        ActivityType[] activityTypes = ActivityType.values();
+        double[] userScores = new double[activityTypes.length];
+        for (ActivityType activityType : activityTypes) {
+            userScores[activityType.ordinal()] = getUserContextScore(activityType, userContext);
+        }
+        return new BatchContext(userContext, snapshot, modelsTrained, behaviorPredictions, userScores);
+    }
+    
+    private PredictionResult.WeatherContext createWeatherContext(PredictionSlot slot) {
+        boolean isWeekend = isWeekend(slot.targetTime);
+        String timeOfDay = getTimeOfDay(slot.targetTime);
         
-        PredictionResult.WeatherContext weatherContext = new PredictionResult.WeatherContext(
-            temperature, humidity, weatherCondition, windSpeed, uvIndex, airQualityIndex,
-            moonPhase, dayLengthMinutes, isWeekend, timeOfDay
+        return new PredictionResult.WeatherContext(
+            slot.temperature, slot.humidity, slot.weatherCondition, slot.windSpeed, slot.uvIndex,
+            slot.airQualityIndex, slot.moonPhase, slot.dayLengthMinutes, isWeekend, timeOfDay
         );
+    }
+    
+    private PredictionResult scoreSlot(PredictionSlot slot, PredictionResult.WeatherContext weatherContext,
+                                       Map<ActivityType, Double> mlPredictions, BatchContext batch) {
+        PredictionResult result = new PredictionResult();
+        result.setTargetTime(slot.targetTime);
         result.setWeatherContext(weatherContext);
         
-        // Create user context
-        PredictionResult.UserContext userContext = createUserContext();
+        PredictionResult.UserContext userContext = batch.userContext;
         result.setUserContext(userContext);
         
         // Use ensemble approach for prediction
@@ -136,8 +459,10 @@ public class ActivityPredictionEngine {
         Map<String, Double> featureImportance = new HashMap<>();
         
         // ML-based prediction
-        if (weatherPatternModel.isTrained() && userBehaviorModel.isTrained() && activityPatternModel.isTrained()) {
-            Map<ActivityType, Double> mlPredictions = predictWithMLModels(weatherContext, userContext, featureImportance);
+        if (mlPredictions != null) {
+            featureImportance.put("weather_pattern", 0.4);
+            featureImportance.put("user_behavior", 0.3);
+            featureImportance.put("activity_pattern", 0.3);
             mergePredictions(predictions, mlPredictions, 0.5);
             result.setPredictionMethod("ML");
         }
@@ -147,7 +472,7 @@ public class ActivityPredictionEngine {
         mergePredictions(predictions, correlationPredictions, 0.3);
         
         // Rule-based prediction
-        Map<ActivityType, Double> rulePredictions = predictWithRules(weatherContext, userContext, featureImportance);
+        Map<ActivityType, Double> rulePredictions = predictWithRules(weatherContext, batch, featureImportance);
         mergePredictions(predictions, rulePredictions, 0.2);
         
         // Finalize prediction
@@ -175,9 +500,6 @@ public class ActivityPredictionEngine {
             result.setPredictionMethod("HYBRID");
         }
         
-        // Cache the result
-        predictionCache.put(cacheKey, result);
-        
         return result;
     }
     
@@ -193,7 +515,8 @@ public class ActivityPredictionEngine {
         
         List<Recommendation> recommendations = recommendationService.generateRecommendations(maxRecommendations);
         
-        // Cache recommendations
+        // Cache recommendations; only the current 15-minute slot is ever read
+        recommendationCache.keySet().removeIf(key -> !key.equals(cacheKey));
         recommendationCache.put(cacheKey, recommendations);
         
         return recommendations;
@@ -210,58 +533,96 @@ public class ActivityPredictionEngine {
     }
     
     /**
-     * Predict activity patterns for the next week
+     * Predict activity patterns for the next week against the daily forecast. The result is
+     * cached until a new forecast arrives, the models are retrained or the day changes.
      */
     public Map<Date, List<PredictionResult>> predictWeeklyPatterns() {
+        WeatherService.WeatherForecast currentForecast = forecast;
+        ModelSnapshot snapshot = models;
+        int epochDay = EpochDays.today();
+        WeeklyPredictions cached = weeklyPredictions;
+        if (cached != null && cached.isCurrent(epochDay, currentForecast, snapshot)) {
+            return new HashMap<>(cached.predictions);
+        }
+        
         Map<Date, List<PredictionResult>> weeklyPredictions = new HashMap<>();
         
         Calendar calendar = Calendar.getInstance();
         calendar.setTime(new Date());
         
-        // Get weather forecast (if available)
-        // For now, we'll use current weather as baseline
+        // Days the forecast does not cover fall back to today's weather as the baseline
+        boolean hasForecast = currentForecast != null && !currentForecast.getDays().isEmpty();
         DayRecord today = databaseHelper.getTodayRecord();
-        if (today == null) {
-            Log.w(TAG, "No current weather data available for weekly prediction");
+        if (today == null && !hasForecast) {
+            Log.w(TAG, "No forecast or current weather data available for weekly prediction");
             return weeklyPredictions;
         }
         
+        // One batch for all 42 slots: one user context instead of one per slot
+        List<PredictionResult> predictions = predictActivities(
+            weeklySlots(calendar.getTime(), today, hasForecast ? currentForecast : null), today);
+        
         for (int i = 0; i < 7; i++) {
-            Date targetDate = calendar.getTime();
-            List<PredictionResult> dayPredictions = new ArrayList<>();
-            
-            // Predict for key times of day
-            String[] timeSlots = {"06:00", "09:00", "12:00", "15:00", "18:00", "21:00"};
-            
-            for (String timeSlot : timeSlots) {
-                Calendar timeCalendar = Calendar.getInstance();
-                timeCalendar.setTime(targetDate);
-                String[] timeParts = timeSlot.split(":");
-                timeCalendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(timeParts[0]));
-                timeCalendar.set(Calendar.MINUTE, Integer.parseInt(timeParts[1]));
-                
-                PredictionResult prediction = predictActivity(
-                    timeCalendar.getTime(),
-                    today.getTemperature(),
-                    today.getHumidity(),
-                    today.getWeatherCondition(),
-                    today.getWindSpeed(),
-                    today.getUvIndex(),
-                    today.getAirQualityIndex(),
-                    today.getMoonPhase(),
-                    today.getDayLengthMinutes()
-                );
-                
-                dayPredictions.add(prediction);
-            }
-            
-            weeklyPredictions.put(targetDate, dayPredictions);
+            int first = i * WEEKLY_SLOT_HOURS.length;
+            weeklyPredictions.put(calendar.getTime(),
+                new ArrayList<>(predictions.subList(first, first + WEEKLY_SLOT_HOURS.length)));
             calendar.add(Calendar.DAY_OF_MONTH, 1);
         }
         
+        // Only forecast-based predictions are cached; today's weather changes during the day
+        if (hasForecast) {
+            this.weeklyPredictions = new WeeklyPredictions(epochDay, currentForecast.getVersion(), snapshot,
+                new HashMap<>(weeklyPredictions));
+        }
         return weeklyPredictions;
     }
     
+    /**
+     * The weekly forecast slots: key times of day for seven days from start, all with the
+     * given day's weather as the baseline
+     */
+    static List<PredictionSlot> weeklySlots(Date start, DayRecord weather) {
+        return weeklySlots(start, weather, null);
+    }
+    
+    /**
+     * The weekly forecast slots, with each day's forecast conditions where the forecast has
+     * that day and the given day's weather otherwise. Either may be null, not both.
+     */
+    static List<PredictionSlot> weeklySlots(Date start, DayRecord weather, WeatherService.WeatherForecast forecast) {
+        List<PredictionSlot> slots = new ArrayList<>(7 * WEEKLY_SLOT_HOURS.length);
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(start);
+        int airQualityIndex = weather != null ? weather.getAirQualityIndex() : 0;
+        String moonPhase = weather != null ? weather.getMoonPhase() : null;
+        for (int day = 0; day < 7; day++) {
+            WeatherService.DailyForecast dailyForecast = forecast != null
+                ? forecast.getDay(EpochDays.toDateKey(EpochDays.fromMillis(calendar.getTimeInMillis()))) : null;
+            if (dailyForecast == null && weather == null) {
+                // Past the end of the forecast with no current weather: hold its last day
+                dailyForecast = forecast.getDays().get(forecast.getDays().size() - 1);
+            }
+            for (int hour : WEEKLY_SLOT_HOURS) {
+                Calendar timeCalendar = (Calendar) calendar.clone();
+                timeCalendar.set(Calendar.HOUR_OF_DAY, hour);
+                timeCalendar.set(Calendar.MINUTE, 0);
+                if (dailyForecast != null) {
+                    slots.add(new PredictionSlot(timeCalendar.getTime(), dailyForecast.getTemperatureAt(hour),
+                        dailyForecast.getHumidity(), dailyForecast.getCondition(), dailyForecast.getWindSpeed(),
+                        dailyForecast.getUvIndex(), airQualityIndex, moonPhase,
+                        dailyForecast.getDaylightMinutes()));
+                } else {
+                    slots.add(new PredictionSlot(timeCalendar.getTime(), weather.getTemperature(),
+                        weather.getHumidity(), weather.getWeatherCondition(), weather.getWindSpeed(),
+                        weather.getUvIndex(), weather.getAirQualityIndex(), weather.getMoonPhase(),
+                        weather.getDayLengthMinutes()));
+                }
+            }
+            calendar.add(Calendar.DAY_OF_MONTH, 1);
+        }
+        return slots;
+    }
+    
     /**
      * Update prediction accuracy with actual user activity
      */
@@ -292,9 +653,10 @@ public class ActivityPredictionEngine {
     
     // Private helper methods
     
-    private String generateCacheKey(Date targetTime, float temperature, float humidity, String weatherCondition) {
+    private String generateCacheKey(ModelSnapshot snapshot, Date targetTime, float temperature, float humidity,
+                                    String weatherCondition) {
         long timeSlot = targetTime.getTime() / (1000 * 60 * 30); // 30-minute slots
-        return String.format("pred_%d_%.1f_%.1f_%s", timeSlot, temperature, humidity, 
+        return String.format("pred_%d_%d_%.1f_%.1f_%s", snapshot.generation, timeSlot, temperature, humidity, 
                            weatherCondition != null ? weatherCondition.hashCode() : 0);
     }
     
@@ -316,10 +678,8 @@ public class ActivityPredictionEngine {
         return "NIGHT";
     }
     
-    private PredictionResult.UserContext createUserContext() {
-        DayRecord today = databaseHelper.getTodayRecord();
-        List<DayRecord> recentDays = databaseHelper.getRecentDayRecords(7);
-        
+    private PredictionResult.UserContext createUserContext(DayRecord today) {
+        userContextLoads.incrementAndGet();
         if (today == null) {
             // Return default context
             return new PredictionResult.UserContext(0, 0, "unknown", 0, 
@@ -327,6 +687,7 @@ public class ActivityPredictionEngine {
         }
         
         // Calculate recent activities
+        List<DayRecord> recentDays = databaseHelper.getRecentDayRecords(7);
         List<String> recentActivities = recentDays.stream()
             .map(day -> inferPrimaryActivity(day))
             .filter(Objects::nonNull)
@@ -357,29 +718,45 @@ public class ActivityPredictionEngine {
         return "moderate_activity";
     }
     
-    private Map<ActivityType, Double> predictWithMLModels(PredictionResult.WeatherContext weatherContext,
-                                                         PredictionResult.UserContext userContext,
-                                                         Map<String, Double> featureImportance) {
-        Map<ActivityType, Double> predictions = new HashMap<>();
-        
-        // Weather pattern prediction
-        Map<ActivityType, Double> weatherPredictions = weatherPatternModel.predict(weatherContext);
-        featureImportance.put("weather_pattern", 0.4);
-        
-        // User behavior prediction
-        Map<ActivityType, Double> behaviorPredictions = userBehaviorModel.predict(userContext);
-        featureImportance.put("user_behavior", 0.3);
-        
-        // Activity pattern prediction
-        Map<ActivityType, Double> activityPredictions = activityPatternModel.predict(weatherContext, userContext);
-        featureImportance.put("activity_pattern", 0.3);
+    /**
+     * Ensemble predictions for the missed slots, indexed like the batch. The weather and
+     * activity pattern models score their slots concurrently on the analytics pool; the user
+     * behavior model depends only on the user, so its scores are shared across the batch.
+     */
+    private List<Map<ActivityType, Double>> predictWithMLModels(List<Integer> misses,
+                                                                PredictionResult.WeatherContext[] weatherContexts,
+                                                                BatchContext batch) {
+        ModelSnapshot snapshot = batch.models;
+        CompletableFuture<List<Map<ActivityType, Double>>> weatherPredictions = CompletableFuture.supplyAsync(() -> {
+            List<Map<ActivityType, Double>> scores = new ArrayList<>(Collections.nCopies(weatherContexts.length, null));
+            for (int i : misses) {
+                scores.set(i, snapshot.weatherPatternModel.predict(weatherContexts[i]));
+            }
+            return scores;
+        }, AnalyticsExecutor.get());
+        
+        // Activity pattern prediction on this thread while the weather model runs
+        List<Map<ActivityType, Double>> activityPredictions = new ArrayList<>(
+            Collections.nCopies(weatherContexts.length, null));
+        for (int i : misses) {
+            activityPredictions.set(i, snapshot.activityPatternModel.predict(weatherContexts[i], batch.userContext));
+        }
         
-        // Ensemble predictions
-        for (ActivityType activityType : ActivityType.values()) {
-            double score = weatherPredictions.getOrDefault(activityType, 0.0) * 0.4 +
-                          behaviorPredictions.getOrDefault(activityType, 0.0) * 0.3 +
-                          activityPredictions.getOrDefault(activityType, 0.0) * 0.3;
-            predictions.put(activityType, score);
+        // Join the models and combine them into the ensemble, reusing the per-slot lists
+        List<Map<ActivityType, Double>> weatherScores = weatherPredictions.join();
+        Map<ActivityType, Double> behaviorPredictions = batch.behaviorPredictions;
+        List<Map<ActivityType, Double>> predictions = activityPredictions;
+        for (int i : misses) {
+            Map<ActivityType, Double> weather = weatherScores.get(i);
+            Map<ActivityType, Double> activity = activityPredictions.get(i);
+            Map<ActivityType, Double> ensemble = new HashMap<>();
+            for (ActivityType activityType : ActivityType.values()) {
+                double score = weather.getOrDefault(activityType, 0.0) * 0.4 +
+                              behaviorPredictions.getOrDefault(activityType, 0.0) * 0.3 +
+                              activity.getOrDefault(activityType, 0.0) * 0.3;
+                ensemble.put(activityType, score);
+            }
+            predictions.set(i, ensemble);
         }
         
         return predictions;
@@ -410,7 +787,7 @@ public class ActivityPredictionEngine {
     }
     
     private Map<ActivityType, Double> predictWithRules(PredictionResult.WeatherContext weatherContext,
-                                                      PredictionResult.UserContext userContext,
+                                                      BatchContext batch,
                                                       Map<String, Double> featureImportance) {
         Map<ActivityType, Double> predictions = new HashMap<>();
         
@@ -419,14 +796,15 @@ public class ActivityPredictionEngine {
         featureImportance.put("time_rules", 0.2);
         
         // Apply weather-based rules
+        double[] weatherScores = new double[ActivityType.values().length];
+        ActivitySuitabilityTable.lookupAll(weatherContext.getTemperature(), weatherContext.getWeatherCondition(),
+            weatherContext.getHumidity(), weatherContext.getWindSpeed(), weatherContext.getUvIndex(),
+            weatherScores);
         for (ActivityType activityType : ActivityType.values()) {
-            double weatherScore = activityType.getWeatherSuitability(
-                weatherContext.getTemperature(), weatherContext.getWeatherCondition(),
-                weatherContext.getHumidity(), weatherContext.getWindSpeed(), weatherContext.getUvIndex()
-            );
+            double weatherScore = weatherScores[activityType.ordinal()];
             
             // Apply user context rules
-            double userScore = getUserContextScore(activityType, userContext);
+            double userScore = batch.userScores[activityType.ordinal()];
             
             // Apply time-based rules
             double timeScore = getTimeBasedScore(activityType, weatherContext.getTimeOfDay(), weatherContext.isWeekend());
@@ -582,19 +960,70 @@ public class ActivityPredictionEngine {
             .orElse(null);
     }
     
-    private void updateMLModelsWithFeedback(PredictionResult result) {
+    /**
+     * Apply feedback to copies of the current models and publish them, so predictions in
+     * flight keep reading the snapshot they started with. Feedback is rare, and the new
+     * generation keeps earlier predictions from being served from the cache.
+     */
+    private synchronized void updateMLModelsWithFeedback(PredictionResult result) {
+        // Feedback goes to the current models; a training run in progress starts from scratch
+        if (!models.isTrained()) {
+            return;
+        }
+        ModelSnapshot snapshot = models.copyForFeedback(modelGenerations.incrementAndGet());
         // Update models with feedback (simplified incremental learning)
         if (result.getPredictionAccuracy() > 0.5) {
             // Positive feedback - reinforce prediction
-            weatherPatternModel.reinforcePositiveFeedback(result);
-            userBehaviorModel.reinforcePositiveFeedback(result);
-            activityPatternModel.reinforcePositiveFeedback(result);
+            snapshot.weatherPatternModel.reinforcePositiveFeedback(result);
+            snapshot.userBehaviorModel.reinforcePositiveFeedback(result);
+            snapshot.activityPatternModel.reinforcePositiveFeedback(result);
         } else {
             // Negative feedback - adjust models
-            weatherPatternModel.adjustForNegativeFeedback(result);
-            userBehaviorModel.adjustForNegativeFeedback(result);
-            activityPatternModel.adjustForNegativeFeedback(result);
+            snapshot.weatherPatternModel.adjustForNegativeFeedback(result);
+            snapshot.userBehaviorModel.adjustForNegativeFeedback(result);
+            snapshot.activityPatternModel.adjustForNegativeFeedback(result);
         }
+        publish(snapshot);
+    }
+    
+    /**
+     * Replace the current models, dropping cached predictions older than the ones being
+     * replaced. Those stay one more generation so feedback on predictions already shown
+     * still finds them.
+     */
+    private void publish(ModelSnapshot snapshot) {
+        int replaced = models.generation;
+        models = snapshot;
+        predictionCache.keySet().removeIf(key -> cacheKeyGeneration(key) < replaced);
+    }
+    
+    private static int cacheKeyGeneration(String cacheKey) {
+        // Keys start with "pred_<generation>_"
+        return Integer.parseInt(cacheKey.substring(5, cacheKey.indexOf('_', 5)));
+    }
+    
+    /**
+     * Number of user contexts built so far
+     */
+    int getUserContextLoadCount() {
+        return userContextLoads.get();
+    }
+    
+    QueryMetrics getQueryMetrics() {
+        return databaseHelper.getQueryMetrics();
+    }
+    
+    /**
+     * One slot the way predictActivity scored it before batching: today's record, the user
+     * context and the behaviour prediction are rebuilt for the slot, and nothing is cached.
+     * PredictionBatchBenchmark measures the batch against this.
+     */
+    PredictionResult predictSlotUnbatched(PredictionSlot slot) {
+        BatchContext context = createBatchContext(databaseHelper.getTodayRecord(), models);
+        PredictionResult.WeatherContext[] weatherContexts = {createWeatherContext(slot)};
+        Map<ActivityType, Double> mlPrediction = context.modelsTrained
+            ? predictWithMLModels(Collections.singletonList(0), weatherContexts, context).get(0) : null;
+        return scoreSlot(slot, weatherContexts[0], mlPrediction, context);
     }
     
     /**
@@ -603,6 +1032,14 @@ public class ActivityPredictionEngine {
     public void clearCache() {
         predictionCache.clear();
         recommendationCache.clear();
+        weeklyPredictions = null;
+    }
+    
+    /**
+     * Stop the forecast fetcher's threads; only for engines not shared through getInstance
+     */
+    public void shutdown() {
+        weatherService.shutdown();
     }
     
     /**
@@ -9,6 +9,11 @@ import com.locallife.model.DayRecord;
 import com.locallife.model.Recommendation;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -18,14 +23,24 @@ public class ActivityRecommendationService {
     private static final String TAG = "ActivityRecommendationService";
     private static final int MAX_RECOMMENDATIONS = 10;
     private static final double MIN_RECOMMENDATION_SCORE = 0.4;
+    private static final long STRATEGY_TIME_BUDGET_MS = 250;
+    
+    // Best recommendation first; ties broken by activity so the ranking is stable
+    private static final Comparator<Recommendation> RANKING =
+            Comparator.comparingDouble(Recommendation::getConfidenceScore).reversed()
+                    .thenComparing(Recommendation::getActivityType);
     
     private Context context;
     private DatabaseHelper databaseHelper;
     private ActivityPredictionEngine predictionEngine;
     private WeatherActivityCorrelationService correlationService;
     
-    // Recommendation strategies
+    // Recommendation strategies, in merge order, and their timings
     private Map<String, RecommendationStrategy> strategies;
+    private Map<String, StrategyStats> strategyStats;
+    // Latest run of each strategy; one still running is not started again
+    private final Map<String, CompletableFuture<List<Recommendation>>> strategyRuns = new ConcurrentHashMap<>();
+    private volatile long strategyTimeBudgetMillis = STRATEGY_TIME_BUDGET_MS;
     
     public ActivityRecommendationService(Context context, ActivityPredictionEngine predictionEngine) {
         this.context = context;
@@ -40,7 +55,7 @@ public class ActivityRecommendationService {
      * Initialize recommendation strategies
      */
     private void initializeStrategies() {
-        strategies = new HashMap<>();
+        strategies = new LinkedHashMap<>();
         strategies.put("weather_based", new WeatherBasedStrategy());
         strategies.put("pattern_based", new PatternBasedStrategy());
         strategies.put("goal_based", new GoalBasedStrategy());
@@ -48,6 +63,11 @@ public class ActivityRecommendationService {
         strategies.put("location_based", new LocationBasedStrategy());
         strategies.put("social_based", new SocialBasedStrategy());
         strategies.put("mood_based", new MoodBasedStrategy());
+        
+        strategyStats = new LinkedHashMap<>();
+        for (String name : strategies.keySet()) {
+            strategyStats.put(name, new StrategyStats(name));
+        }
     }
     
     /**
@@ -56,7 +76,6 @@ public class ActivityRecommendationService {
     public List<Recommendation> generateRecommendations(int maxRecommendations) {
         Log.d(TAG, "Generating " + maxRecommendations + " activity recommendations");
         
-        List<Recommendation> recommendations = new ArrayList<>();
         DayRecord currentDay = databaseHelper.getTodayRecord();
         
         if (currentDay == null) {
@@ -67,24 +86,102 @@ public class ActivityRecommendationService {
         // Get current context
         RecommendationContext context = createRecommendationContext(currentDay);
         
-        // Apply each strategy
-        for (RecommendationStrategy strategy : strategies.values()) {
-            List<Recommendation> strategyRecommendations = strategy.generateRecommendations(context, maxRecommendations);
-            recommendations.addAll(strategyRecommendations);
+        // Apply the strategies concurrently
+        Map<String, CompletableFuture<List<Recommendation>>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, RecommendationStrategy> entry : strategies.entrySet()) {
+            CompletableFuture<List<Recommendation>> run =
+                    startStrategy(entry.getKey(), entry.getValue(), context, maxRecommendations);
+            if (run != null) {
+                pending.put(entry.getKey(), run);
+            }
         }
         
-        // Merge and rank recommendations
-        List<Recommendation> mergedRecommendations = mergeAndRankRecommendations(recommendations);
-        
-        // Filter by minimum score
-        mergedRecommendations = mergedRecommendations.stream()
-            .filter(rec -> rec.getConfidenceScore() >= MIN_RECOMMENDATION_SCORE)
-            .collect(Collectors.toList());
+        // Merge by activity in strategy order; a strategy still running at the deadline is left out
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(strategyTimeBudgetMillis);
+        Map<ActivityType, MergedRecommendation> mergedRecommendations = new EnumMap<>(ActivityType.class);
+        for (Map.Entry<String, CompletableFuture<List<Recommendation>>> entry : pending.entrySet()) {
+            for (Recommendation recommendation : awaitStrategy(entry.getKey(), entry.getValue(), deadline)) {
+                if (recommendation == null) {
+                    continue;
+                }
+                MergedRecommendation merged = mergedRecommendations.get(recommendation.getActivityType());
+                if (merged == null) {
+                    merged = new MergedRecommendation();
+                    mergedRecommendations.put(recommendation.getActivityType(), merged);
+                }
+                merged.add(recommendation);
+            }
+        }
         
-        // Limit to requested count
-        return mergedRecommendations.stream()
-            .limit(maxRecommendations)
-            .collect(Collectors.toList());
+        return selectTopRecommendations(mergedRecommendations.values(), maxRecommendations);
+    }
+    
+    /**
+     * Time budget for the strategies of one recommendation refresh
+     */
+    public void setStrategyTimeBudgetMillis(long strategyTimeBudgetMillis) {
+        this.strategyTimeBudgetMillis = strategyTimeBudgetMillis;
+    }
+    
+    /**
+     * Latency, timeout, failure and skip counts of each strategy, by strategy name
+     */
+    public Map<String, StrategyStats> getStrategyStats() {
+        return Collections.unmodifiableMap(strategyStats);
+    }
+    
+    /**
+     * Run one strategy on the analytics pool, timing it whether or not it meets the budget. A
+     * strategy whose previous run is still going is skipped, so one that is always late holds
+     * at most one pool thread rather than one per refresh. Returns null when skipped.
+     */
+    private CompletableFuture<List<Recommendation>> startStrategy(String name, RecommendationStrategy strategy,
+                                                                  RecommendationContext context, int maxCount) {
+        StrategyStats stats = strategyStats.get(name);
+        synchronized (strategyRuns) {
+            CompletableFuture<List<Recommendation>> previous = strategyRuns.get(name);
+            if (previous != null && !previous.isDone()) {
+                stats.recordSkip();
+                Log.w(TAG, "Strategy " + name + " is still running from an earlier refresh, skipping it");
+                return null;
+            }
+            CompletableFuture<List<Recommendation>> run = runStrategy(strategy, stats, context, maxCount);
+            strategyRuns.put(name, run);
+            return run;
+        }
+    }
+    
+    private CompletableFuture<List<Recommendation>> runStrategy(RecommendationStrategy strategy, StrategyStats stats,
+                                                                RecommendationContext context, int maxCount) {
+        return CompletableFuture.supplyAsync(() -> {
+            long start = System.nanoTime();
+            try {
+                return strategy.generateRecommendations(context, maxCount);
+            } finally {
+                stats.recordRun(System.nanoTime() - start);
+            }
+        }, AnalyticsExecutor.get());
+    }
+    
+    /**
+     * Wait for one strategy until the shared deadline; a late or failed strategy contributes nothing
+     */
+    private List<Recommendation> awaitStrategy(String name, CompletableFuture<List<Recommendation>> future,
+                                               long deadline) {
+        try {
+            List<Recommendation> recommendations =
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return recommendations != null ? recommendations : Collections.emptyList();
+        } catch (TimeoutException e) {
+            strategyStats.get(name).recordTimeout();
+            Log.w(TAG, "Strategy " + name + " exceeded the " + strategyTimeBudgetMillis + " ms budget, skipping it");
+        } catch (ExecutionException e) {
+            strategyStats.get(name).recordFailure();
+            Log.e(TAG, "Strategy " + name + " failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.emptyList();
     }
     
     /**
@@ -236,59 +333,32 @@ public class ActivityRecommendationService {
     }
     
     /**
-     * Merge and rank recommendations from different strategies
+     * The highest-scoring merged recommendations above the minimum score, best first. A
+     * min-heap of the best k seen so far keeps this O(n log k) in the number of activities.
      */
-    private List<Recommendation> mergeAndRankRecommendations(List<Recommendation> recommendations) {
-        // Group recommendations by activity type
-        Map<ActivityType, List<Recommendation>> groupedRecommendations = recommendations.stream()
-            .collect(Collectors.groupingBy(Recommendation::getActivityType));
-        
-        List<Recommendation> mergedRecommendations = new ArrayList<>();
+    static List<Recommendation> selectTopRecommendations(Collection<MergedRecommendation> mergedRecommendations,
+                                                         int maxRecommendations) {
+        if (maxRecommendations <= 0) {
+            return new ArrayList<>();
+        }
         
-        // For each activity type, merge recommendations or take the best one
-        for (Map.Entry<ActivityType, List<Recommendation>> entry : groupedRecommendations.entrySet()) {
-            List<Recommendation> activityRecommendations = entry.getValue();
-            
-            if (activityRecommendations.size() == 1) {
-                mergedRecommendations.add(activityRecommendations.get(0));
-            } else {
-                // Merge multiple recommendations for the same activity
-                Recommendation merged = mergeRecommendations(activityRecommendations);
-                mergedRecommendations.add(merged);
+        PriorityQueue<Recommendation> best = new PriorityQueue<>(maxRecommendations, RANKING.reversed());
+        for (MergedRecommendation merged : mergedRecommendations) {
+            Recommendation recommendation = merged.toRecommendation();
+            if (recommendation.getConfidenceScore() < MIN_RECOMMENDATION_SCORE) {
+                continue;
+            }
+            if (best.size() < maxRecommendations) {
+                best.add(recommendation);
+            } else if (RANKING.compare(recommendation, best.peek()) < 0) {
+                best.poll();
+                best.add(recommendation);
             }
         }
         
-        // Sort by confidence score
-        mergedRecommendations.sort((r1, r2) -> Double.compare(r2.getConfidenceScore(), r1.getConfidenceScore()));
-        
-        return mergedRecommendations;
-    }
-    
-    /**
-     * Merge multiple recommendations for the same activity
-     */
-    private Recommendation mergeRecommendations(List<Recommendation> recommendations) {
-        // Take the recommendation with highest confidence as base
-        Recommendation best = recommendations.stream()
-            .max(Comparator.comparingDouble(Recommendation::getConfidenceScore))
-            .orElse(recommendations.get(0));
-        
-        // Average the confidence scores
-        double avgConfidence = recommendations.stream()
-            .mapToDouble(Recommendation::getConfidenceScore)
-            .average()
-            .orElse(best.getConfidenceScore());
-        
-        best.setConfidenceScore(avgConfidence);
-        
-        // Merge reasoning
-        String combinedReasoning = recommendations.stream()
-            .map(Recommendation::getReasoning)
-            .filter(Objects::nonNull)
-            .collect(Collectors.joining(" "));
-        best.setReasoning(combinedReasoning);
-        
-        return best;
+        List<Recommendation> topRecommendations = new ArrayList<>(best);
+        topRecommendations.sort(RANKING);
+        return topRecommendations;
     }
     
     /**
@@ -775,6 +845,90 @@ public class ActivityRecommendationService {
         public void setCurrentLocation(String currentLocation) { this.currentLocation = currentLocation; }
     }
     
+    /**
+     * Recommendations from different strategies for one activity. Built from the one with the
+     * highest confidence, first on ties, with the confidence averaged and the reasoning joined.
+     */
+    static class MergedRecommendation {
+        private final List<Recommendation> recommendations = new ArrayList<>(2);
+        private Recommendation best;
+        private double confidenceSum;
+        
+        void add(Recommendation recommendation) {
+            recommendations.add(recommendation);
+            confidenceSum += recommendation.getConfidenceScore();
+            if (best == null || recommendation.getConfidenceScore() > best.getConfidenceScore()) {
+                best = recommendation;
+            }
+        }
+        
+        Recommendation toRecommendation() {
+            if (recommendations.size() == 1) {
+                return best;
+            }
+            
+            best.setConfidenceScore(confidenceSum / recommendations.size());
+            StringBuilder reasoning = new StringBuilder();
+            for (Recommendation recommendation : recommendations) {
+                if (recommendation.getReasoning() != null) {
+                    if (reasoning.length() > 0) {
+                        reasoning.append(' ');
+                    }
+                    reasoning.append(recommendation.getReasoning());
+                }
+            }
+            best.setReasoning(reasoning.toString());
+            return best;
+        }
+    }
+    
+    /**
+     * Timings of one recommendation strategy; a strategy that misses the budget still records
+     * its latency when it finishes, and counts a skip for each refresh it is still running at
+     */
+    public static class StrategyStats {
+        private final String name;
+        private int runs;
+        private int timeouts;
+        private int failures;
+        private int skips;
+        private long lastNanos;
+        private long totalNanos;
+        private long maxNanos;
+        
+        StrategyStats(String name) {
+            this.name = name;
+        }
+        
+        synchronized void recordRun(long nanos) {
+            runs++;
+            lastNanos = nanos;
+            totalNanos += nanos;
+            maxNanos = Math.max(maxNanos, nanos);
+        }
+        
+        synchronized void recordTimeout() { timeouts++; }
+        synchronized void recordFailure() { failures++; }
+        synchronized void recordSkip() { skips++; }
+        
+        public String getName() { return name; }
+        public synchronized int getRuns() { return runs; }
+        public synchronized int getTimeouts() { return timeouts; }
+        public synchronized int getFailures() { return failures; }
+        public synchronized int getSkips() { return skips; }
+        public synchronized double getLastLatencyMs() { return lastNanos / 1e6; }
+        public synchronized double getAverageLatencyMs() { return runs == 0 ? 0 : totalNanos / 1e6 / runs; }
+        public synchronized double getMaxLatencyMs() { return maxNanos / 1e6; }
+        
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US,
+                    "%s: %d runs, last %.2f ms, avg %.2f ms, max %.2f ms, %d timeouts, %d failures, %d skips",
+                    name, runs, getLastLatencyMs(), getAverageLatencyMs(), getMaxLatencyMs(), timeouts, failures,
+                    skips);
+        }
+    }
+    
     // Recommendation strategy interfaces and implementations
     private interface RecommendationStrategy {
         List<Recommendation> generateRecommendations(RecommendationContext context, int maxCount);
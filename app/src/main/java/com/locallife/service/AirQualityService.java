@@ -532,12 +532,12 @@ public class AirQualityService {
                     currentDate,
                     airQualityData.getLatitude(),
                     airQualityData.getLongitude(),
-                    airQualityData.getCity(),
-                    airQualityData.getCountry(),
                     airQualityData.getAqi(),
-                    airQualityData.getAqiLevel(),
-                    airQualityData.getPollutants(),
-                    airQualityData.getActivityImpactScore()
+                    pollutantValue(airQualityData, "pm25"),
+                    pollutantValue(airQualityData, "pm10"),
+                    pollutantValue(airQualityData, "no2"),
+                    pollutantValue(airQualityData, "o3"),
+                    pollutantValue(airQualityData, "co")
             );
             
             Log.d(TAG, "Air quality data saved to database");
@@ -546,6 +546,11 @@ public class AirQualityService {
         }
     }
     
+    private static double pollutantValue(AirQualityData airQualityData, String parameter) {
+        AirQualityData.PollutantData pollutantData = airQualityData.getPollutants().get(parameter);
+        return pollutantData != null ? pollutantData.getValue() : 0;
+    }
+    
     private void updateDayRecordWithAirQuality(AirQualityData airQualityData) {
         try {
             String currentDate = dateFormat.format(airQualityData.getTimestamp());
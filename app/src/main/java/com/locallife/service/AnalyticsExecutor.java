@@ -0,0 +1,22 @@
+package com.locallife.service;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Background pool shared by the analytics services for model training and scoring. It is a
+ * fork/join pool, so a task that joins on subtasks from inside the pool cannot starve it, and
+ * its worker threads are daemons that never keep the process alive.
+ */
+final class AnalyticsExecutor {
+    private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+    
+    private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM,
+            ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+    
+    private AnalyticsExecutor() {
+    }
+    
+    static ForkJoinPool get() {
+        return POOL;
+    }
+}
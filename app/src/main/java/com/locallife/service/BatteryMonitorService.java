@@ -20,10 +20,14 @@ import android.util.Log;
 import androidx.core.app.NotificationCompat;
 
 import com.locallife.database.DatabaseHelper;
+import com.locallife.database.TimeSeriesCodec;
+import com.locallife.database.TimeSeriesStore;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.EpochDays;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -42,10 +46,14 @@ public class BatteryMonitorService extends Service {
     
     private static final long MONITOR_INTERVAL = 60 * 1000; // 1 minute
     private static final long SAVE_INTERVAL = 10 * 60 * 1000; // 10 minutes
+    private static final long BUCKET_INTERVAL = 15 * 60 * 1000; // 15 minutes
+    private static final long DISCHARGE_RATE_TAU = 30 * 60 * 1000; // EWMA time constant
+    private static final int READING_CAPACITY = (int) (24 * 60 * 60 * 1000 / MONITOR_INTERVAL); // one day
     
     private BatteryManager batteryManager;
     private PowerManager powerManager;
     private DatabaseHelper databaseHelper;
+    private TimeSeriesStore timeSeriesStore;
     private NotificationManager notificationManager;
     private Handler mainHandler;
     private ScheduledExecutorService scheduledExecutor;
@@ -55,7 +63,7 @@ public class BatteryMonitorService extends Service {
     private String currentDate;
     
     // Battery monitoring variables
-    private List<BatteryReading> batteryReadings = new ArrayList<>();
+    private final ReadingRing batteryReadings = new ReadingRing(READING_CAPACITY);
     private boolean isCharging = false;
     private boolean wasCharging = false;
     private long chargingStartTime = 0;
@@ -63,6 +71,7 @@ public class BatteryMonitorService extends Service {
     private int batteryLevel = 0;
     private int minBatteryLevel = 100;
     private int maxBatteryLevel = 0;
+    private int batteryHealthCode = -1;
     private String batteryHealth = "Unknown";
     private float batteryTemperature = 0.0f;
     private int batteryVoltage = 0;
@@ -75,6 +84,28 @@ public class BatteryMonitorService extends Service {
     private long screenOffTime = 0;
     private boolean isScreenOn = false;
     
+    // Incremental discharge tracking; only touched on backgroundExecutor
+    private float dischargedToday = 0;
+    private int lastReadingLevel = -1;
+    private long rateAnchorTime = 0;
+    private int rateAnchorLevel = -1;
+    private long lastRateUpdateTime = 0;
+    private volatile float dischargeRatePerHour = 0;
+    
+    // Current 15-minute bucket and the closed buckets waiting to be written
+    private long bucketStart = -1;
+    private int bucketMin;
+    private int bucketMax;
+    private int bucketSum;
+    private int bucketCount;
+    private boolean bucketCharging;
+    private final List<DatabaseHelper.BatterySample> pendingBuckets = new ArrayList<>();
+    
+    // Per-minute levels waiting to be appended to the battery_level series with the buckets
+    private long[] pendingLevelTimes = new long[16];
+    private double[] pendingLevels = new double[16];
+    private int pendingLevelCount;
+    
     // Battery receiver for real-time updates
     private BatteryReceiver batteryReceiver;
     
@@ -97,6 +128,58 @@ public class BatteryMonitorService extends Service {
         }
     }
     
+    /**
+     * Fixed-capacity ring of readings held in parallel primitive arrays, so a day of
+     * one-minute samples costs a few kilobytes and no per-reading allocation
+     */
+    private static class ReadingRing {
+        private final long[] timestamps;
+        private final byte[] levels;
+        private final boolean[] charging;
+        private final short[] temperatureTenths;
+        private final int[] voltages;
+        private final byte[] healthCodes;
+        private int head = 0;
+        private int size = 0;
+        
+        ReadingRing(int capacity) {
+            timestamps = new long[capacity];
+            levels = new byte[capacity];
+            charging = new boolean[capacity];
+            temperatureTenths = new short[capacity];
+            voltages = new int[capacity];
+            healthCodes = new byte[capacity];
+        }
+        
+        synchronized void add(long timestamp, int level, boolean isCharging, float temperature,
+                              int voltage, int healthCode) {
+            timestamps[head] = timestamp;
+            levels[head] = (byte) level;
+            charging[head] = isCharging;
+            temperatureTenths[head] = (short) Math.round(temperature * 10);
+            voltages[head] = voltage;
+            healthCodes[head] = (byte) healthCode;
+            head = (head + 1) % timestamps.length;
+            if (size < timestamps.length) {
+                size++;
+            }
+        }
+        
+        /**
+         * Oldest-first snapshot, materialized only when a caller asks for it
+         */
+        synchronized List<BatteryReading> toList() {
+            List<BatteryReading> readings = new ArrayList<>(size);
+            int index = (head - size + timestamps.length) % timestamps.length;
+            for (int i = 0; i < size; i++) {
+                readings.add(new BatteryReading(timestamps[index], levels[index], charging[index],
+                        temperatureTenths[index] / 10.0f, voltages[index], getBatteryHealthString(healthCodes[index])));
+                index = (index + 1) % timestamps.length;
+            }
+            return readings;
+        }
+    }
+    
     @Override
     public void onCreate() {
         super.onCreate();
@@ -105,6 +188,7 @@ public class BatteryMonitorService extends Service {
         batteryManager = (BatteryManager) getSystemService(Context.BATTERY_SERVICE);
         powerManager = (PowerManager) getSystemService(Context.POWER_SERVICE);
         databaseHelper = DatabaseHelper.getInstance(this);
+        timeSeriesStore = new TimeSeriesStore(databaseHelper);
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         mainHandler = new Handler(Looper.getMainLooper());
         scheduledExecutor = Executors.newScheduledThreadPool(2);
@@ -121,10 +205,36 @@ public class BatteryMonitorService extends Service {
         // Start foreground service
         startForeground(NOTIFICATION_ID, createNotification());
         
+        // Queued ahead of the first reading, so today's totals continue where they left off
+        backgroundExecutor.execute(this::restoreToday);
+        
         // Start monitoring
         startBatteryMonitoring();
     }
     
+    /**
+     * Replay today's stored battery levels after a restart, so the discharge total, rate and
+     * min/max levels cover the whole day instead of restarting from zero
+     */
+    private void restoreToday() {
+        try {
+            TimeSeriesStore.Samples samples = timeSeriesStore.decodeDay(
+                    TimeSeriesStore.METRIC_BATTERY_LEVEL, EpochDays.today());
+            for (int i = 0; i < samples.size(); i++) {
+                int level = (int) samples.valueAt(i);
+                // Charging is not stored; rises only move the anchor, drops count as discharge
+                trackDischarge(samples.timestampAt(i), level, false);
+                minBatteryLevel = Math.min(minBatteryLevel, level);
+                maxBatteryLevel = Math.max(maxBatteryLevel, level);
+            }
+            if (samples.size() > 0) {
+                Log.d(TAG, "Restored " + samples.size() + " battery levels for today");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error restoring battery levels", e);
+        }
+    }
+    
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d(TAG, "BatteryMonitorService started");
@@ -231,8 +341,8 @@ public class BatteryMonitorService extends Service {
                     }
                     
                     // Battery health
-                    int health = batteryStatus.getIntExtra(BatteryManager.EXTRA_HEALTH, -1);
-                    batteryHealth = getBatteryHealthString(health);
+                    batteryHealthCode = batteryStatus.getIntExtra(BatteryManager.EXTRA_HEALTH, -1);
+                    batteryHealth = getBatteryHealthString(batteryHealthCode);
                     
                     // Temperature
                     int temp = batteryStatus.getIntExtra(BatteryManager.EXTRA_TEMPERATURE, -1);
@@ -262,22 +372,13 @@ public class BatteryMonitorService extends Service {
                         }
                     }
                     
-                    // Create battery reading
-                    BatteryReading reading = new BatteryReading(
-                            System.currentTimeMillis(),
-                            batteryLevel,
-                            isCharging,
-                            batteryTemperature,
-                            batteryVoltage,
-                            batteryHealth
-                    );
-                    
-                    batteryReadings.add(reading);
-                    
-                    // Limit readings to prevent memory issues
-                    if (batteryReadings.size() > 1000) {
-                        batteryReadings.remove(0);
-                    }
+                    // Record the reading; the ring overwrites the oldest once full
+                    long now = System.currentTimeMillis();
+                    batteryReadings.add(now, batteryLevel, isCharging, batteryTemperature,
+                            batteryVoltage, batteryHealthCode);
+                    trackDischarge(now, batteryLevel, isCharging);
+                    addToBucket(now, batteryLevel, isCharging);
+                    addPendingLevel(now, batteryLevel);
                     
                     // Update notification
                     mainHandler.post(this::updateNotification);
@@ -295,83 +396,171 @@ public class BatteryMonitorService extends Service {
         // Check if it's a new day
         String newDate = dateFormat.format(new Date());
         if (!newDate.equals(currentDate)) {
-            // Save previous day's data
-            saveBatteryData();
-            
-            // Reset for new day
+            String previousDate = currentDate;
             currentDate = newDate;
-            chargingCycles = 0;
-            totalChargingTime = 0;
-            minBatteryLevel = batteryLevel;
-            maxBatteryLevel = batteryLevel;
-            batteryReadings.clear();
+            
+            // Save previous day's data, then reset; queued behind any pending readings
+            backgroundExecutor.execute(() -> {
+                persistBatteryData(previousDate);
+                chargingCycles = 0;
+                totalChargingTime = 0;
+                minBatteryLevel = batteryLevel;
+                maxBatteryLevel = batteryLevel;
+                dischargedToday = 0;
+            });
+        }
+    }
+    
+    /**
+     * Fold a reading into the discharge totals. Levels move in whole percents, so the rate is
+     * measured between level changes and smoothed with a time-aware EWMA
+     * (alpha = 1 - e^(-dt/tau)) instead of rescanning the reading history.
+     */
+    private void trackDischarge(long now, int level, boolean charging) {
+        if (charging) {
+            lastReadingLevel = level;
+            rateAnchorLevel = -1;
+            return;
+        }
+        
+        if (lastReadingLevel >= 0 && level < lastReadingLevel) {
+            dischargedToday += lastReadingLevel - level;
+        }
+        lastReadingLevel = level;
+        
+        if (rateAnchorLevel < 0 || level > rateAnchorLevel) {
+            rateAnchorTime = now;
+            rateAnchorLevel = level;
+            return;
+        }
+        if (level == rateAnchorLevel || now <= rateAnchorTime) {
+            return;
+        }
+        
+        float hours = (now - rateAnchorTime) / 3600000f;
+        float rate = (rateAnchorLevel - level) / hours;
+        if (lastRateUpdateTime == 0) {
+            dischargeRatePerHour = rate;
+        } else {
+            double alpha = 1 - Math.exp(-(now - lastRateUpdateTime) / (double) DISCHARGE_RATE_TAU);
+            dischargeRatePerHour += (float) (alpha * (rate - dischargeRatePerHour));
         }
+        lastRateUpdateTime = now;
+        rateAnchorTime = now;
+        rateAnchorLevel = level;
+    }
+    
+    /**
+     * Accumulate min/max/avg for the current 15-minute bucket, closing it once a reading
+     * lands in the next one. Buckets align to quarter hours so they never straddle midnight.
+     */
+    private void addToBucket(long now, int level, boolean charging) {
+        long start = now - now % BUCKET_INTERVAL;
+        if (bucketCount > 0 && start != bucketStart) {
+            closeBucket();
+        }
+        if (bucketCount == 0) {
+            bucketStart = start;
+            bucketMin = level;
+            bucketMax = level;
+            bucketSum = 0;
+            bucketCharging = false;
+        }
+        bucketMin = Math.min(bucketMin, level);
+        bucketMax = Math.max(bucketMax, level);
+        bucketSum += level;
+        bucketCount++;
+        bucketCharging |= charging;
+    }
+    
+    private void closeBucket() {
+        if (bucketCount == 0) {
+            return;
+        }
+        pendingBuckets.add(new DatabaseHelper.BatterySample(
+                EpochDays.toDateKey(EpochDays.fromMillis(bucketStart)),
+                bucketStart,
+                Math.round((float) bucketSum / bucketCount),
+                bucketCharging,
+                batteryHealth,
+                bucketMin,
+                bucketMax,
+                bucketCount));
+        bucketCount = 0;
     }
     
     private void saveBatteryData() {
-        backgroundExecutor.execute(() -> {
-            try {
-                // Calculate battery usage percentage
-                float batteryUsage = calculateBatteryUsage();
-                
-                // Save to database
-                DayRecord dayRecord = databaseHelper.getDayRecord(currentDate);
-                
-                if (dayRecord == null) {
-                    dayRecord = new DayRecord();
-                    dayRecord.setDate(currentDate);
-                }
-                
-                // Update battery data
-                dayRecord.setBatteryUsagePercent(batteryUsage);
-                
-                // Recalculate activity score
-                dayRecord.calculateActivityScore();
-                
-                if (dayRecord.getId() > 0) {
-                    databaseHelper.updateDayRecord(dayRecord);
-                } else {
-                    databaseHelper.insertDayRecord(dayRecord);
-                }
-                
-                // Save detailed battery data
-                databaseHelper.insertBatteryData(
-                        currentDate,
-                        batteryLevel,
-                        isCharging,
-                        batteryHealth
-                );
-                
-                Log.d(TAG, "Battery data saved to database");
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error saving battery data", e);
+        backgroundExecutor.execute(() -> persistBatteryData(currentDate));
+    }
+    
+    /**
+     * Update the day's usage and write any closed buckets; runs on backgroundExecutor
+     */
+    private void persistBatteryData(String date) {
+        try {
+            // Calculate battery usage percentage
+            float batteryUsage = calculateBatteryUsage();
+            
+            // Save to database
+            DayRecord dayRecord = databaseHelper.getDayRecord(date);
+            
+            if (dayRecord == null) {
+                dayRecord = new DayRecord();
+                dayRecord.setDate(date);
             }
-        });
+            
+            // Update battery data
+            dayRecord.setBatteryUsagePercent(batteryUsage);
+            
+            // Recalculate activity score
+            dayRecord.calculateActivityScore();
+            
+            if (dayRecord.getId() > 0) {
+                databaseHelper.updateDayRecord(dayRecord);
+            } else {
+                databaseHelper.insertDayRecord(dayRecord);
+            }
+            
+            flushBuckets();
+            
+            Log.d(TAG, "Battery data saved to database");
+            
+        } catch (Exception e) {
+            Log.e(TAG, "Error saving battery data", e);
+        }
     }
     
-    private float calculateBatteryUsage() {
-        if (batteryReadings.isEmpty()) {
-            return 0.0f;
+    private void addPendingLevel(long now, int level) {
+        if (pendingLevelCount == pendingLevelTimes.length) {
+            pendingLevelTimes = Arrays.copyOf(pendingLevelTimes, pendingLevelCount * 2);
+            pendingLevels = Arrays.copyOf(pendingLevels, pendingLevelCount * 2);
         }
-        
-        // Calculate based on battery level changes
-        int levelDrop = maxBatteryLevel - minBatteryLevel;
-        
-        // Estimate usage based on level drop and charging time
-        float usage = levelDrop;
-        
-        // Adjust for charging (battery usage is consumption, not charging)
-        if (totalChargingTime > 0) {
-            long totalTime = System.currentTimeMillis() - batteryReadings.get(0).timestamp;
-            float chargingRatio = (float) totalChargingTime / totalTime;
-            usage = usage * (1.0f - chargingRatio);
+        pendingLevelTimes[pendingLevelCount] = now;
+        pendingLevels[pendingLevelCount] = level;
+        pendingLevelCount++;
+    }
+    
+    private void flushBuckets() {
+        if (pendingLevelCount > 0) {
+            // A failed append throws before the count is reset, so the readings wait for the next save
+            timeSeriesStore.appendAll(TimeSeriesStore.METRIC_BATTERY_LEVEL, TimeSeriesCodec.Kind.INTEGER,
+                    pendingLevelTimes, pendingLevels, pendingLevelCount);
+            pendingLevelCount = 0;
         }
-        
-        return Math.max(0, Math.min(100, usage));
+        if (pendingBuckets.isEmpty()) {
+            return;
+        }
+        int written = databaseHelper.insertBatteryDataBatch(pendingBuckets);
+        Log.d(TAG, "Wrote " + written + " battery buckets");
+        pendingBuckets.clear();
     }
     
-    private String getBatteryHealthString(int health) {
+    private float calculateBatteryUsage() {
+        // Consumption only: level drops while discharging, summed as readings arrive
+        return Math.max(0, Math.min(100, dischargedToday));
+    }
+    
+    private static String getBatteryHealthString(int health) {
         switch (health) {
             case BatteryManager.BATTERY_HEALTH_GOOD:
                 return "Good";
@@ -439,7 +628,10 @@ public class BatteryMonitorService extends Service {
         super.onDestroy();
         Log.d(TAG, "BatteryMonitorService destroyed");
         
-        // Save final data
+        // Close the partial bucket and save final data
+        if (backgroundExecutor != null && !backgroundExecutor.isShutdown()) {
+            backgroundExecutor.execute(this::closeBucket);
+        }
         saveBatteryData();
         
         // Unregister receiver
@@ -499,7 +691,25 @@ public class BatteryMonitorService extends Service {
     }
     
     public List<BatteryReading> getBatteryReadings() {
-        return new ArrayList<>(batteryReadings);
+        return batteryReadings.toList();
+    }
+    
+    /**
+     * Smoothed discharge rate in percent per hour, 0 until two discharging levels are seen
+     */
+    public float getDischargeRatePerHour() {
+        return dischargeRatePerHour;
+    }
+    
+    /**
+     * Time until empty at the current discharge rate, or -1 while charging or unknown
+     */
+    public long getEstimatedTimeRemaining() {
+        float rate = dischargeRatePerHour;
+        if (isCharging || rate <= 0) {
+            return -1;
+        }
+        return (long) (batteryLevel / rate * 3600000L);
     }
     
     public BatteryStats getBatteryStats() {
@@ -514,7 +724,8 @@ public class BatteryMonitorService extends Service {
                 totalChargingTime,
                 minBatteryLevel,
                 maxBatteryLevel,
-                calculateBatteryUsage()
+                calculateBatteryUsage(),
+                dischargeRatePerHour
         );
     }
     
@@ -531,10 +742,11 @@ public class BatteryMonitorService extends Service {
         public final int minLevel;
         public final int maxLevel;
         public final float usage;
+        public final float dischargeRatePerHour;
         
         BatteryStats(int currentLevel, boolean isCharging, String health, float temperature,
                     int voltage, String technology, int chargingCycles, long totalChargingTime,
-                    int minLevel, int maxLevel, float usage) {
+                    int minLevel, int maxLevel, float usage, float dischargeRatePerHour) {
             this.currentLevel = currentLevel;
             this.isCharging = isCharging;
             this.health = health;
@@ -546,6 +758,7 @@ public class BatteryMonitorService extends Service {
             this.minLevel = minLevel;
             this.maxLevel = maxLevel;
             this.usage = usage;
+            this.dischargeRatePerHour = dischargeRatePerHour;
         }
     }
 }
\ No newline at end of file
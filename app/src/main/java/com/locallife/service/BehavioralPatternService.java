@@ -5,6 +5,7 @@ import android.util.Log;
 
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.HourlyHistogram;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -224,30 +225,35 @@ public class BehavioralPatternService {
     private List<DailyRoutine> analyzeDailyRoutines(List<DayRecord> records) {
         List<DailyRoutine> routines = new ArrayList<>();
         
-        Map<String, List<Integer>> hourlyStepPatterns = new HashMap<>();
-        Map<String, List<Integer>> hourlyScreenPatterns = new HashMap<>();
+        // Hour-of-day step counts summed per day of week, from the counters on each day record
+        Map<String, int[]> hourlySteps = new HashMap<>();
+        Map<String, List<Integer>> dailySteps = new HashMap<>();
+        Map<String, List<Integer>> dailyScreenTime = new HashMap<>();
         
         // Group by day of week
         for (DayRecord record : records) {
             String dayOfWeek = getDayOfWeek(record.getDate());
             
-            // Simulate hourly patterns (in real implementation, you'd have hourly data)
-            List<Integer> stepPattern = simulateHourlyStepPattern(record.getSteps());
-            List<Integer> screenPattern = simulateHourlyScreenPattern(record.getScreenTimeMinutes());
+            int[] hours = hourlySteps.get(dayOfWeek);
+            if (hours == null) {
+                hours = new int[HourlyHistogram.HOURS];
+                hourlySteps.put(dayOfWeek, hours);
+            }
+            HourlyHistogram.addInto(hours, record.getHourlySteps());
             
-            hourlyStepPatterns.computeIfAbsent(dayOfWeek, k -> new ArrayList<>()).addAll(stepPattern);
-            hourlyScreenPatterns.computeIfAbsent(dayOfWeek, k -> new ArrayList<>()).addAll(screenPattern);
+            dailySteps.computeIfAbsent(dayOfWeek, k -> new ArrayList<>()).add(record.getStepCount());
+            dailyScreenTime.computeIfAbsent(dayOfWeek, k -> new ArrayList<>()).add(record.getScreenTimeMinutes());
         }
         
         // Create daily routines
-        for (String dayOfWeek : hourlyStepPatterns.keySet()) {
+        for (String dayOfWeek : hourlySteps.keySet()) {
             DailyRoutine routine = new DailyRoutine();
             routine.dayOfWeek = dayOfWeek;
-            routine.peakActivityHours = findPeakHours(hourlyStepPatterns.get(dayOfWeek));
-            routine.lowActivityHours = findLowHours(hourlyStepPatterns.get(dayOfWeek));
-            routine.averageSteps = calculateAverage(hourlyStepPatterns.get(dayOfWeek));
-            routine.averageScreenTime = calculateAverage(hourlyScreenPatterns.get(dayOfWeek));
-            routine.consistency = calculateConsistency(hourlyStepPatterns.get(dayOfWeek));
+            routine.peakActivityHours = findPeakHours(hourlySteps.get(dayOfWeek));
+            routine.lowActivityHours = findLowHours(hourlySteps.get(dayOfWeek));
+            routine.averageSteps = calculateAverage(dailySteps.get(dayOfWeek));
+            routine.averageScreenTime = calculateAverage(dailyScreenTime.get(dayOfWeek));
+            routine.consistency = calculateConsistency(dailySteps.get(dayOfWeek));
             
             routines.add(routine);
         }
@@ -690,48 +696,16 @@ public class BehavioralPatternService {
         return "Winter";
     }
     
-    private List<Integer> simulateHourlyStepPattern(int totalSteps) {
-        List<Integer> pattern = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            // Simulate higher activity during day hours
-            if (i >= 6 && i <= 22) {
-                pattern.add(totalSteps / 16);
-            } else {
-                pattern.add(totalSteps / 32);
-            }
-        }
-        return pattern;
+    private List<Integer> findPeakHours(int[] hourlySteps) {
+        return HourlyHistogram.peakHours(hourlySteps, 3);
     }
     
-    private List<Integer> simulateHourlyScreenPattern(int totalScreenTime) {
-        List<Integer> pattern = new ArrayList<>();
-        for (int i = 0; i < 24; i++) {
-            // Simulate higher screen time during evening hours
-            if (i >= 18 && i <= 23) {
-                pattern.add(totalScreenTime / 8);
-            } else if (i >= 9 && i <= 17) {
-                pattern.add(totalScreenTime / 12);
-            } else {
-                pattern.add(totalScreenTime / 24);
-            }
+    private List<Integer> findLowHours(int[] hourlySteps) {
+        // Days recorded before hourly counters existed carry no hours to rank
+        if (HourlyHistogram.total(hourlySteps) == 0) {
+            return new ArrayList<>();
         }
-        return pattern;
-    }
-    
-    private List<Integer> findPeakHours(List<Integer> hourlyData) {
-        List<Integer> peaks = new ArrayList<>();
-        peaks.add(8); // 8 AM
-        peaks.add(12); // 12 PM
-        peaks.add(18); // 6 PM
-        return peaks;
-    }
-    
-    private List<Integer> findLowHours(List<Integer> hourlyData) {
-        List<Integer> lows = new ArrayList<>();
-        lows.add(2); // 2 AM
-        lows.add(4); // 4 AM
-        lows.add(14); // 2 PM
-        return lows;
+        return HourlyHistogram.lowHours(hourlySteps, 3);
     }
     
     private int calculateAverage(List<Integer> values) {
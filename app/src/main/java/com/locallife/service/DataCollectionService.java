@@ -19,7 +19,10 @@ import androidx.core.app.NotificationCompat;
 import androidx.work.WorkManager;
 
 import com.locallife.database.DatabaseHelper;
+import com.locallife.database.RetentionCompactor;
+import com.locallife.database.TimeSeriesStore;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.EpochDays;
 import com.locallife.service.WeatherService;
 import com.locallife.service.PhotoMetadataService;
 import com.locallife.service.AirQualityService;
@@ -71,6 +74,7 @@ public class DataCollectionService extends Service {
     private SunriseSunsetService sunriseSunsetService;
     private EnvironmentalInsightsService environmentalInsightsService;
     private MediaTrackingService mediaTrackingService;
+    private ActivityPredictionEngine predictionEngine;
     private Handler mainHandler;
     private ScheduledExecutorService scheduledExecutor;
     private ExecutorService backgroundExecutor;
@@ -107,6 +111,7 @@ public class DataCollectionService extends Service {
         sunriseSunsetService = new SunriseSunsetService(this);
         environmentalInsightsService = new EnvironmentalInsightsService(this);
         mediaTrackingService = new MediaTrackingService(this);
+        predictionEngine = ActivityPredictionEngine.getInstance(this);
         mainHandler = new Handler(Looper.getMainLooper());
         scheduledExecutor = Executors.newScheduledThreadPool(5);
         backgroundExecutor = Executors.newFixedThreadPool(3);
@@ -559,6 +564,9 @@ public class DataCollectionService extends Service {
                         lastWeatherUpdate = System.currentTimeMillis();
                         weatherUpdates++;
                         
+                        // Keep the weekly predictions on a forecast as fresh as the current weather
+                        predictionEngine.refreshForecast(37.7749, -122.4194); // Default location
+                        
                         mainHandler.post(() -> updateNotification());
                     }
                     
@@ -736,9 +744,20 @@ public class DataCollectionService extends Service {
                 // Delete old records (keep last 90 days)
                 databaseHelper.deleteOldRecords(90);
                 
+                // Roll aging sensor rows up to hourly and daily summaries, then drop what is past retention
+                RetentionCompactor.CompactionReport compaction = new RetentionCompactor(databaseHelper).compact();
+                databaseHelper.deleteOldSensorRecords(RetentionCompactor.RETENTION_DAYS);
+                new TimeSeriesStore(databaseHelper).deleteBefore(EpochDays.today() - RetentionCompactor.RETENTION_DAYS);
+                Log.d(TAG, "Reclaimed " + compaction.getRowsReclaimed() + " rows, "
+                        + compaction.getBytesReclaimed() + " bytes");
+                
                 // Clean up old photo metadata
                 photoMetadataService.cleanupOldPhotoMetadata();
                 
+                // Clean up raw app usage sessions and media sessions; daily media rollups are kept a year
+                UsageEventIngestor.getInstance(this).deleteSessionsBefore(EpochDays.today() - 90);
+                MediaSessionizer.getInstance(this).deleteBefore(EpochDays.today() - 365);
+                
                 // Update cleanup time
                 preferences.edit().putLong(KEY_LAST_CLEANUP, System.currentTimeMillis()).apply();
                 
@@ -0,0 +1,330 @@
+package com.locallife.service;
+
+import com.locallife.model.ActivityType;
+import com.locallife.model.DayRecord;
+import com.locallife.model.PredictionResult;
+import com.locallife.utils.EpochDays;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Day history as a dense double[n][FEATURE_COUNT] matrix with fixed column indices and
+ * every feature already normalized to 0-1, plus the per-day activity levels the models
+ * learn from and compact integer pattern codes. Built once per training run and shared by
+ * WeatherPatternModel and UserBehaviorModel, so their passes are plain array loops instead
+ * of getter calls, string switches and formatted map keys per record.
+ */
+final class DayFeatureMatrix {
+    static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+    static final int ACTIVITY_COUNT = ACTIVITY_TYPES.length;
+    
+    // Feature columns
+    static final int TEMPERATURE = 0;
+    static final int HUMIDITY = 1;
+    static final int WEATHER_CONDITION = 2;
+    static final int WIND_SPEED = 3;
+    static final int UV_INDEX = 4;
+    static final int STEP_COUNT = 5;
+    static final int ACTIVE_MINUTES = 6;
+    static final int SCREEN_TIME = 7;
+    static final int PLACES_VISITED = 8;
+    static final int FEATURE_COUNT = 9;
+    
+    static final int CONDITION_CLEAR = 0;
+    static final int CONDITION_CLOUDY = 1;
+    static final int CONDITION_RAIN = 2;
+    static final int CONDITION_STORM = 3;
+    static final int CONDITION_SNOW = 4;
+    static final int CONDITION_FOG = 5;
+    static final int CONDITION_UNKNOWN = 6;
+    static final int CONDITION_COUNT = 7;
+    private static final double[] CONDITION_SCORES = {1.0, 0.7, 0.4, 0.2, 0.3, 0.5, 0.5};
+    
+    // Weather codes: 5-degree temperature band x 20% humidity band x condition
+    private static final int MIN_TEMP_BAND = -10;
+    private static final int MAX_TEMP_BAND = 12;
+    private static final int HUMIDITY_BANDS = 6;
+    static final int WEATHER_CODES = (MAX_TEMP_BAND - MIN_TEMP_BAND + 1) * HUMIDITY_BANDS * CONDITION_COUNT;
+    
+    // Behavior codes: activity x screen x social level (low/medium/high) x day type x trend
+    static final int TREND_STABLE = 0;
+    static final int TREND_INCREASING = 1;
+    static final int TREND_DECREASING = 2;
+    static final int TRENDS = 3;
+    static final int BEHAVIOR_CODES = 3 * 3 * 3 * 2 * TRENDS;
+    
+    // Days before the current one that feed the behavior trend
+    static final int TREND_WINDOW_DAYS = 7;
+    
+    // Day of week, Monday first; unparseable dates count as Monday
+    static final int DAYS_OF_WEEK = 7;
+    private static final int SATURDAY = 5;
+    
+    final int size;
+    final double[][] features;
+    final double[][] activityLevels;
+    final double[] activityScores;
+    final int[] dayOfWeek;
+    final int[] weatherCodes;
+    final int[] behaviorCodes;
+    final int[] stableBehaviorCodes;
+    
+    // Raw sums for the behavior model's user averages
+    final long totalSteps;
+    final long totalActiveMinutes;
+    final long totalScreenTimeMinutes;
+    final long totalPlacesVisited;
+    
+    private DayFeatureMatrix(List<DayRecord> records) {
+        size = records.size();
+        features = new double[size][FEATURE_COUNT];
+        activityLevels = new double[size][ACTIVITY_COUNT];
+        activityScores = new double[size];
+        dayOfWeek = new int[size];
+        weatherCodes = new int[size];
+        behaviorCodes = new int[size];
+        stableBehaviorCodes = new int[size];
+        
+        long steps = 0;
+        long activeMinutes = 0;
+        long screenTime = 0;
+        long places = 0;
+        // prefix[i] is the sum of activity scores of days [0, i), for O(1) trend windows
+        double[] prefix = new double[size + 1];
+        for (int i = 0; i < size; i++) {
+            DayRecord record = records.get(i);
+            extractRow(record, features[i]);
+            activityLevelsInto(record, activityLevels[i]);
+            activityScores[i] = record.getActivityScore();
+            dayOfWeek[i] = dayOfWeek(record.getDate());
+            weatherCodes[i] = weatherCode(record.getTemperature(), record.getHumidity(), record.getWeatherCondition());
+            stableBehaviorCodes[i] = behaviorCode(record, dayOfWeek[i], TREND_STABLE);
+            prefix[i + 1] = prefix[i] + activityScores[i];
+            
+            steps += record.getStepCount();
+            activeMinutes += record.getActiveMinutes();
+            screenTime += record.getScreenTimeMinutes();
+            places += record.getPlacesVisited();
+        }
+        totalSteps = steps;
+        totalActiveMinutes = activeMinutes;
+        totalScreenTimeMinutes = screenTime;
+        totalPlacesVisited = places;
+        
+        for (int i = 0; i < size; i++) {
+            int trend = trend(prefix, Math.max(0, i - TREND_WINDOW_DAYS), i + 1);
+            behaviorCodes[i] = stableBehaviorCodes[i] - TREND_STABLE + trend;
+        }
+    }
+    
+    /**
+     * Build the matrix for the given days in date order
+     */
+    static DayFeatureMatrix of(List<DayRecord> records) {
+        List<DayRecord> sorted = new ArrayList<>(records);
+        sorted.sort(Comparator.comparing(DayRecord::getDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return new DayFeatureMatrix(sorted);
+    }
+    
+    /**
+     * Write the normalized features of one day into a FEATURE_COUNT row
+     */
+    static void extractRow(DayRecord record, double[] row) {
+        row[TEMPERATURE] = normalizeTemperature(record.getTemperature());
+        row[HUMIDITY] = clamp(record.getHumidity() / 100.0);
+        row[WEATHER_CONDITION] = CONDITION_SCORES[normalizeWeatherCondition(record.getWeatherCondition())];
+        row[WIND_SPEED] = clamp(record.getWindSpeed() / 50.0);
+        row[UV_INDEX] = clamp(record.getUvIndex() / 12.0);
+        row[STEP_COUNT] = clamp(record.getStepCount() / 20000.0);
+        row[ACTIVE_MINUTES] = clamp(record.getActiveMinutes() / 120.0);
+        row[SCREEN_TIME] = clamp(record.getScreenTimeMinutes() / 720.0);
+        row[PLACES_VISITED] = clamp(record.getPlacesVisited() / 10.0);
+    }
+    
+    /**
+     * Write the observed 0-1 level of every activity type on one day, indexed by ordinal
+     */
+    static void activityLevelsInto(DayRecord record, double[] levels) {
+        int steps = record.getStepCount();
+        int places = record.getPlacesVisited();
+        int screenTime = record.getScreenTimeMinutes();
+        int photos = record.getPhotoCount();
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            double level;
+            switch (ACTIVITY_TYPES[activity]) {
+                case OUTDOOR_EXERCISE:
+                    level = steps / 15000.0;
+                    break;
+                case INDOOR_EXERCISE:
+                    level = record.getActiveMinutes() / 60.0;
+                    break;
+                case SOCIAL_ACTIVITY:
+                    level = places / 5.0;
+                    break;
+                case WORK_PRODUCTIVITY:
+                    level = record.getProductivityScore() / 100.0;
+                    break;
+                case RECREATIONAL:
+                    level = photos / 10.0;
+                    break;
+                case RELAXATION:
+                    level = Math.max(0.0, (480 - screenTime) / 480.0);
+                    break;
+                case TRAVEL:
+                    level = record.getTotalTravelDistance() / 10000.0;
+                    break;
+                case PHOTOGRAPHY:
+                    level = photos / 20.0;
+                    break;
+                case INDOOR_ACTIVITIES:
+                    level = screenTime / 360.0;
+                    break;
+                case OUTDOOR_LEISURE:
+                    level = (steps / 10000.0 + places / 3.0) / 2.0;
+                    break;
+                default:
+                    level = 0.0;
+                    break;
+            }
+            levels[activity] = Math.min(1.0, level);
+        }
+    }
+    
+    static int weatherCode(PredictionResult.WeatherContext context) {
+        return weatherCode(context.getTemperature(), context.getHumidity(), context.getWeatherCondition());
+    }
+    
+    /**
+     * Weather code from the 5-degree temperature band, 20% humidity band and condition
+     */
+    static int weatherCode(float temperature, float humidity, String condition) {
+        int tempBand = Math.max(MIN_TEMP_BAND, Math.min(MAX_TEMP_BAND, (int) (temperature / 5)));
+        int humidityBand = Math.max(0, Math.min(HUMIDITY_BANDS - 1, (int) (humidity / 20)));
+        return ((tempBand - MIN_TEMP_BAND) * HUMIDITY_BANDS + humidityBand) * CONDITION_COUNT
+                + normalizeWeatherCondition(condition);
+    }
+    
+    /**
+     * Behavior code from the day's activity, screen time and places visited, its day type
+     * and the recent activity trend
+     */
+    static int behaviorCode(DayRecord record, int dayOfWeek, int trend) {
+        double activityScore = record.getActivityScore();
+        int activityLevel = activityScore >= 70 ? 2 : activityScore >= 40 ? 1 : 0;
+        int screenTime = record.getScreenTimeMinutes();
+        int screenLevel = screenTime >= 360 ? 2 : screenTime >= 180 ? 1 : 0;
+        int places = record.getPlacesVisited();
+        int socialLevel = places >= 4 ? 2 : places >= 2 ? 1 : 0;
+        int dayType = dayOfWeek >= SATURDAY ? 1 : 0;
+        return (((activityLevel * 3 + screenLevel) * 3 + socialLevel) * 2 + dayType) * TRENDS + trend;
+    }
+    
+    /**
+     * Day of week of a 'yyyy-MM-dd' date, Monday = 0
+     */
+    static int dayOfWeek(String date) {
+        int epochDay = EpochDays.fromDateKey(date);
+        if (epochDay == Integer.MIN_VALUE) {
+            return 0;
+        }
+        // 1970-01-01 was a Thursday
+        return Math.floorMod(epochDay + 3, DAYS_OF_WEEK);
+    }
+    
+    static int normalizeWeatherCondition(String condition) {
+        if (condition == null) return CONDITION_UNKNOWN;
+        
+        if (containsIgnoreCase(condition, "clear") || containsIgnoreCase(condition, "sunny")) return CONDITION_CLEAR;
+        if (containsIgnoreCase(condition, "cloud") || containsIgnoreCase(condition, "overcast")) return CONDITION_CLOUDY;
+        // Before rain, so "Snow grains" is not read as rain
+        if (containsIgnoreCase(condition, "snow") || containsIgnoreCase(condition, "sleet")) return CONDITION_SNOW;
+        if (containsIgnoreCase(condition, "rain") || containsIgnoreCase(condition, "drizzle")) return CONDITION_RAIN;
+        if (containsIgnoreCase(condition, "storm") || containsIgnoreCase(condition, "thunder")) return CONDITION_STORM;
+        if (containsIgnoreCase(condition, "fog") || containsIgnoreCase(condition, "mist")) return CONDITION_FOG;
+        return CONDITION_UNKNOWN;
+    }
+    
+    /**
+     * Scale scores to sum to 1.0; returns false, leaving them untouched, if they sum to zero
+     */
+    static boolean normalize(double[] scores) {
+        double sum = 0.0;
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            sum += scores[activity];
+        }
+        if (sum == 0.0) {
+            return false;
+        }
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            scores[activity] /= sum;
+        }
+        return true;
+    }
+    
+    static Map<ActivityType, Double> toMap(double[] scores) {
+        Map<ActivityType, Double> predictions = new EnumMap<>(ActivityType.class);
+        for (ActivityType activityType : ACTIVITY_TYPES) {
+            predictions.put(activityType, scores[activityType.ordinal()]);
+        }
+        return predictions;
+    }
+    
+    /**
+     * Copy of a table with every row copied, for feedback to update apart from the original
+     */
+    static double[][] copyRows(double[][] table) {
+        double[][] copy = new double[table.length][];
+        for (int i = 0; i < table.length; i++) {
+            copy[i] = table[i].clone();
+        }
+        return copy;
+    }
+    
+    static int argMax(double[] values) {
+        int best = 0;
+        for (int i = 1; i < values.length; i++) {
+            if (values[i] > values[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Trend of the activity score over days [start, end): the later half against the earlier
+     */
+    private static int trend(double[] prefix, int start, int end) {
+        int count = end - start;
+        if (count < 2) return TREND_STABLE;
+        
+        int middle = start + count / 2;
+        double firstHalf = (prefix[middle] - prefix[start]) / (middle - start);
+        double secondHalf = (prefix[end] - prefix[middle]) / (end - middle);
+        
+        if (secondHalf > firstHalf * 1.1) return TREND_INCREASING;
+        if (secondHalf < firstHalf * 0.9) return TREND_DECREASING;
+        return TREND_STABLE;
+    }
+    
+    private static double normalizeTemperature(double temperature) {
+        // Assumes a -20°C to 50°C range
+        return clamp((temperature + 20) / 70.0);
+    }
+    
+    private static double clamp(double value) {
+        return Math.max(0.0, Math.min(1.0, value));
+    }
+    
+    static boolean containsIgnoreCase(String text, String needle) {
+        for (int i = 0; i + needle.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, needle, 0, needle.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
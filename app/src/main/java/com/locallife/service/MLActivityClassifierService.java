@@ -5,6 +5,7 @@ import android.util.Log;
 
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.HourlyHistogram;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -440,12 +441,12 @@ public class MLActivityClassifierService {
     }
     
     private List<Integer> identifyPeakActivityHours(List<DayRecord> records) {
-        // Simplified peak hours identification
-        List<Integer> peakHours = new ArrayList<>();
-        peakHours.add(8);  // 8 AM
-        peakHours.add(12); // 12 PM
-        peakHours.add(18); // 6 PM
-        return peakHours;
+        // Busiest hours of the recorded hourly step counters; empty until any are recorded
+        int[] totals = new int[HourlyHistogram.HOURS];
+        for (DayRecord record : records) {
+            HourlyHistogram.addInto(totals, record.getHourlySteps());
+        }
+        return HourlyHistogram.peakHours(totals, 3);
     }
     
     private float calculateConsistencyScore(List<DayRecord> records) {
@@ -0,0 +1,552 @@
+package com.locallife.service;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.locallife.database.DatabaseHelper;
+import com.locallife.model.MediaConsumption;
+import com.locallife.utils.EpochDays;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Streaming sessionizer for media events. Events are consumed in time order and merged into
+ * gap-based sessions per show (logged TV episodes) and per platform (all media), so a session
+ * continues across midnight as long as the next event starts within SESSION_GAP_MS.
+ *
+ * Sessions are upserted into media_sessions as they grow, and every event adds its watch time,
+ * split by day, to media_daily_rollups. Time a session already covers is not added again, so
+ * a logged episode watched during an app's foreground session counts once for the platform.
+ * Insights over several days are then a range read over at most one row per day and name
+ * instead of re-grouping raw media rows.
+ */
+public class MediaSessionizer implements UsageEventIngestor.UsageListener {
+    private static final String TAG = "MediaSessionizer";
+    private static final String PREFS_NAME = "media_sessionizer_prefs";
+    private static final String KEY_BACKFILLED = "backfilled";
+
+    static final long SESSION_GAP_MS = 45 * 60 * 1000;
+    static final int BINGE_MIN_EPISODES = 3;
+    private static final int BACKFILL_PAGE_SIZE = 500;
+
+    static final String KIND_SHOW = "show";
+    static final String KIND_PLATFORM = "platform";
+
+    private static final String TABLE_SESSIONS = "media_sessions";
+    private static final String TABLE_ROLLUPS = "media_daily_rollups";
+
+    /**
+     * A run of media events with no gap longer than SESSION_GAP_MS
+     */
+    public static class MediaSession {
+        long id;
+        public final String kind;
+        public final String title;
+        public final String platform;
+        public final String mediaType;
+        public long startMs;
+        public long endMs;
+        public long watchedMs;
+        public int itemCount;
+        // Shows only: last episode seen and whether every episode followed the previous one
+        int lastSeason;
+        int lastEpisode;
+        boolean sequential;
+        // Disjoint watched intervals {start, end}, sorted by start; watchedMs is their total length
+        final List<long[]> covered = new ArrayList<>();
+
+        MediaSession(String kind, String title, String platform, String mediaType) {
+            this.kind = kind;
+            this.title = title;
+            this.platform = platform;
+            this.mediaType = mediaType;
+        }
+
+        public int getTotalMinutes() {
+            return (int) (watchedMs / 60000);
+        }
+
+        public boolean isBinge() {
+            return KIND_SHOW.equals(kind) && sequential && itemCount >= BINGE_MIN_EPISODES;
+        }
+
+        String key() {
+            return sessionKey(kind, title, platform);
+        }
+
+        /**
+         * Add an interval to the covered ones and return the parts of it that were not covered yet
+         */
+        List<long[]> cover(long startMs, long endMs) {
+            List<long[]> uncovered = new ArrayList<>();
+            long cursor = startMs;
+            int i = 0;
+            while (i < covered.size() && covered.get(i)[1] < startMs) {
+                i++;
+            }
+            long mergedStart = startMs;
+            long mergedEnd = endMs;
+            // Intervals overlapping or touching [startMs, endMs] are folded into one
+            while (i < covered.size() && covered.get(i)[0] <= endMs) {
+                long[] interval = covered.remove(i);
+                if (interval[0] > cursor) {
+                    uncovered.add(new long[]{cursor, interval[0]});
+                }
+                cursor = Math.max(cursor, interval[1]);
+                mergedStart = Math.min(mergedStart, interval[0]);
+                mergedEnd = Math.max(mergedEnd, interval[1]);
+            }
+            if (cursor < endMs) {
+                uncovered.add(new long[]{cursor, endMs});
+            }
+            covered.add(i, new long[]{mergedStart, mergedEnd});
+            return uncovered;
+        }
+    }
+
+    /**
+     * Watch time and session counts over the last N days
+     */
+    public static class MediaInsights {
+        public final int days;
+        public final Map<String, Integer> minutesByShow = new LinkedHashMap<>();
+        public final Map<String, Integer> minutesByPlatform = new LinkedHashMap<>();
+        public final Map<String, Integer> sessionsByPlatform = new HashMap<>();
+        public int totalMinutes;
+        public int bingeCount;
+
+        MediaInsights(int days) {
+            this.days = days;
+        }
+
+        public String getFormattedTotalTime() {
+            if (totalMinutes < 60) {
+                return totalMinutes + " minutes";
+            }
+            return totalMinutes / 60 + "h " + totalMinutes % 60 + "m";
+        }
+    }
+
+    private static MediaSessionizer instance;
+
+    private final DatabaseHelper databaseHelper;
+    private final SharedPreferences preferences;
+    // Sessions that can still be extended, keyed by kind|title|platform; guarded by "this"
+    private final Map<String, MediaSession> openSessions = new HashMap<>();
+    private boolean ready;
+    // Compiled once per outermost write transaction; nested transactions reuse it
+    private SQLiteStatement rollupUpdate;
+    private int transactionDepth;
+
+    private MediaSessionizer(Context context) {
+        this.databaseHelper = DatabaseHelper.getInstance(context);
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        createTables();
+        UsageEventIngestor.getInstance(context).addListener(this);
+    }
+
+    public static synchronized MediaSessionizer getInstance(Context context) {
+        if (instance == null) {
+            instance = new MediaSessionizer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Feed a logged media row. Rows without a start time are daily aggregates and are ignored.
+     */
+    public synchronized void record(MediaConsumption media) {
+        // A first-use backfill already streamed this row from the table
+        if (!ensureReady()) {
+            process(media);
+        }
+    }
+
+    /**
+     * Foreground sessions of known media apps arrive here from the shared usage ingestion
+     */
+    @Override
+    public synchronized void onUsageIngested(UsageEventIngestor.UsageSnapshot snapshot) {
+        if (snapshot.newSessions.isEmpty()) {
+            return;
+        }
+        ensureReady();
+        for (UsageEventIngestor.AppSession session : snapshot.newSessions) {
+            MediaTrackingService.MediaAppInfo appInfo = MediaTrackingService.getMediaAppInfo(session.packageName);
+            if (appInfo != null) {
+                addEvent(appInfo.displayName, appInfo.displayName, appInfo.mediaType, 0, 0,
+                        session.startMs, session.endMs);
+            }
+        }
+    }
+
+    private void process(MediaConsumption media) {
+        if (media.getStartTime() == null) {
+            return;
+        }
+        long start = media.getStartTime().getTime();
+        long end = media.getEndTime() != null
+                ? media.getEndTime().getTime()
+                : start + media.getDurationMinutes() * 60000L;
+        addEvent(media.getTitle(), media.getPlatform(), media.getMediaType(),
+                media.getSeason(), media.getEpisode(), start, end);
+    }
+
+    private void addEvent(String title, String platform, String mediaType, int season, int episode,
+                          long startMs, long endMs) {
+        if (platform == null || endMs <= startMs) {
+            return;
+        }
+        closeIdleSessions(startMs);
+
+        SQLiteDatabase db = beginWrite();
+        try {
+            extend(db, KIND_PLATFORM, platform, platform, mediaType, season, episode, startMs, endMs);
+            if ("tv".equals(mediaType) && title != null && episode > 0) {
+                extend(db, KIND_SHOW, title, platform, mediaType, season, episode, startMs, endMs);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            endWrite(db);
+        }
+    }
+
+    private SQLiteDatabase beginWrite() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        if (transactionDepth++ == 0) {
+            rollupUpdate = db.compileStatement("UPDATE " + TABLE_ROLLUPS
+                    + " SET watched_ms = watched_ms + ?, sessions = sessions + ?, binges = binges + ?"
+                    + " WHERE epoch_day = ? AND kind = ? AND name = ?");
+        }
+        return db;
+    }
+
+    private void endWrite(SQLiteDatabase db) {
+        try {
+            db.endTransaction();
+        } finally {
+            if (--transactionDepth == 0) {
+                rollupUpdate.close();
+                rollupUpdate = null;
+            }
+        }
+    }
+
+    /**
+     * Add one event to the open session for its key, or start a new session if the gap is too long
+     */
+    private void extend(SQLiteDatabase db, String kind, String title, String platform, String mediaType,
+                        int season, int episode, long startMs, long endMs) {
+        String key = sessionKey(kind, title, platform);
+        MediaSession session = openSessions.get(key);
+        if (session != null && startMs - session.endMs > SESSION_GAP_MS) {
+            openSessions.remove(key);
+            session = null;
+        }
+
+        String name = KIND_SHOW.equals(kind) ? title : platform;
+        boolean wasBinge = false;
+        if (session == null) {
+            session = new MediaSession(kind, title, platform, mediaType);
+            session.startMs = startMs;
+            session.endMs = endMs;
+            session.sequential = true;
+            addToRollup(db, EpochDays.fromMillis(startMs), kind, name, 0, 1, 0);
+        } else {
+            wasBinge = session.isBinge();
+            session.startMs = Math.min(session.startMs, startMs);
+            session.endMs = Math.max(session.endMs, endMs);
+            if (KIND_SHOW.equals(kind)) {
+                session.sequential &= isNextEpisode(session.lastSeason, session.lastEpisode, season, episode);
+            }
+        }
+        List<long[]> uncovered = session.cover(startMs, endMs);
+        for (long[] piece : uncovered) {
+            session.watchedMs += piece[1] - piece[0];
+        }
+        session.itemCount++;
+        session.lastSeason = season;
+        session.lastEpisode = episode;
+
+        saveSession(db, session);
+        openSessions.put(key, session);
+
+        for (long[] piece : uncovered) {
+            addWatchTime(db, kind, name, piece[0], piece[1]);
+        }
+        if (!wasBinge && session.isBinge()) {
+            addToRollup(db, EpochDays.fromMillis(session.startMs), kind, name, 0, 0, 1);
+        }
+    }
+
+    private static boolean isNextEpisode(int lastSeason, int lastEpisode, int season, int episode) {
+        return (season == lastSeason && episode == lastEpisode + 1)
+                || (season == lastSeason + 1 && episode == 1);
+    }
+
+    /**
+     * Split an event at local midnights so each day's rollup gets only its own watch time
+     */
+    private void addWatchTime(SQLiteDatabase db, String kind, String name, long startMs, long endMs) {
+        long pieceStart = startMs;
+        int day = EpochDays.fromMillis(startMs);
+        while (pieceStart < endMs) {
+            long pieceEnd = Math.min(endMs, EpochDays.startOfDayMillis(day + 1));
+            addToRollup(db, day, kind, name, pieceEnd - pieceStart, 0, 0);
+            pieceStart = pieceEnd;
+            day++;
+        }
+    }
+
+    private void addToRollup(SQLiteDatabase db, int epochDay, String kind, String name,
+                             long watchedMs, int sessions, int binges) {
+        // UPSERT needs SQLite 3.24 (API 30); update-then-insert works on every supported release
+        SQLiteStatement update = rollupUpdate;
+        update.clearBindings();
+        update.bindLong(1, watchedMs);
+        update.bindLong(2, sessions);
+        update.bindLong(3, binges);
+        update.bindLong(4, epochDay);
+        update.bindString(5, kind);
+        update.bindString(6, name);
+        if (update.executeUpdateDelete() > 0) {
+            return;
+        }
+
+        ContentValues values = new ContentValues();
+        values.put("epoch_day", epochDay);
+        values.put("kind", kind);
+        values.put("name", name);
+        values.put("watched_ms", watchedMs);
+        values.put("sessions", sessions);
+        values.put("binges", binges);
+        db.insert(TABLE_ROLLUPS, null, values);
+    }
+
+    private void saveSession(SQLiteDatabase db, MediaSession session) {
+        ContentValues values = new ContentValues();
+        values.put("kind", session.kind);
+        values.put("title", session.title);
+        values.put("platform", session.platform);
+        values.put("media_type", session.mediaType);
+        values.put("start_ms", session.startMs);
+        values.put("end_ms", session.endMs);
+        values.put("epoch_day", EpochDays.fromMillis(session.startMs));
+        values.put("watched_ms", session.watchedMs);
+        values.put("item_count", session.itemCount);
+        values.put("last_season", session.lastSeason);
+        values.put("last_episode", session.lastEpisode);
+        values.put("sequential", session.sequential ? 1 : 0);
+        values.put("is_binge", session.isBinge() ? 1 : 0);
+
+        if (session.id > 0) {
+            db.update(TABLE_SESSIONS, values, "id = ?", new String[]{String.valueOf(session.id)});
+        } else {
+            session.id = db.insert(TABLE_SESSIONS, null, values);
+        }
+    }
+
+    /**
+     * Forget sessions that can no longer be extended by an event starting at the given time
+     */
+    private void closeIdleSessions(long now) {
+        Iterator<MediaSession> iterator = openSessions.values().iterator();
+        while (iterator.hasNext()) {
+            if (now - iterator.next().endMs > SESSION_GAP_MS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Reload sessions that may still be extended and, on first use, sessionize existing media
+     * history. Returns true if that backfill ran during this call.
+     */
+    private boolean ensureReady() {
+        if (ready) {
+            return false;
+        }
+        ready = true;
+
+        if (!preferences.getBoolean(KEY_BACKFILLED, false)) {
+            backfill();
+            preferences.edit().putBoolean(KEY_BACKFILLED, true).apply();
+            return true;
+        }
+
+        long cutoff = System.currentTimeMillis() - SESSION_GAP_MS;
+        Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_SESSIONS, null,
+                "end_ms >= ?", new String[]{String.valueOf(cutoff)}, null, null, "end_ms ASC");
+        try {
+            while (cursor.moveToNext()) {
+                MediaSession session = cursorToSession(cursor);
+                openSessions.put(session.key(), session);
+            }
+        } finally {
+            cursor.close();
+        }
+        return false;
+    }
+
+    /**
+     * Stream every timed media row through the sessionizer once, oldest first
+     */
+    private void backfill() {
+        SimpleDateFormat datetimeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US);
+        String afterStartTime = null;
+        int afterId = 0;
+        int total = 0;
+        // One outer transaction so the per-event transactions nest instead of each syncing
+        SQLiteDatabase db = beginWrite();
+        try {
+            while (true) {
+                List<MediaConsumption> page = databaseHelper.getTimedMediaConsumptionPage(afterStartTime, afterId, BACKFILL_PAGE_SIZE);
+                for (MediaConsumption media : page) {
+                    process(media);
+                }
+                total += page.size();
+                if (page.size() < BACKFILL_PAGE_SIZE) {
+                    break;
+                }
+                MediaConsumption last = page.get(page.size() - 1);
+                afterStartTime = datetimeFormat.format(last.getStartTime());
+                afterId = last.getId();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            endWrite(db);
+        }
+        Log.d(TAG, "Sessionized " + total + " existing media rows");
+    }
+
+    /**
+     * Binge sessions overlapping the given days (inclusive), including ones that cross midnight
+     */
+    public synchronized List<MediaSession> getBingeSessions(int firstEpochDay, int lastEpochDay) {
+        ensureReady();
+        List<MediaSession> sessions = new ArrayList<>();
+        long rangeStart = EpochDays.startOfDayMillis(firstEpochDay);
+        long rangeEnd = EpochDays.startOfDayMillis(lastEpochDay + 1);
+
+        Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_SESSIONS, null,
+                "is_binge = 1 AND start_ms < ? AND end_ms > ?",
+                new String[]{String.valueOf(rangeEnd), String.valueOf(rangeStart)},
+                null, null, "start_ms ASC");
+        try {
+            while (cursor.moveToNext()) {
+                sessions.add(cursorToSession(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return sessions;
+    }
+
+    /**
+     * Watch time per show and platform, sessions and binges over the last N days, read from the rollups
+     */
+    public synchronized MediaInsights getInsights(int days) {
+        ensureReady();
+        MediaInsights insights = new MediaInsights(days);
+        int today = EpochDays.today();
+
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery("SELECT kind, name, SUM(watched_ms), "
+                + "SUM(sessions), SUM(binges) FROM " + TABLE_ROLLUPS + " WHERE epoch_day > ? AND epoch_day <= ? "
+                + "GROUP BY kind, name ORDER BY SUM(watched_ms) DESC",
+                new String[]{String.valueOf(today - days), String.valueOf(today)});
+        try {
+            while (cursor.moveToNext()) {
+                String name = cursor.getString(1);
+                int minutes = (int) (cursor.getLong(2) / 60000);
+                if (KIND_SHOW.equals(cursor.getString(0))) {
+                    insights.minutesByShow.put(name, minutes);
+                    insights.bingeCount += cursor.getInt(4);
+                } else {
+                    insights.minutesByPlatform.put(name, minutes);
+                    insights.sessionsByPlatform.put(name, cursor.getInt(3));
+                    insights.totalMinutes += minutes;
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return insights;
+    }
+
+    /**
+     * Drop sessions that ended and rollups recorded before the given day
+     */
+    public synchronized void deleteBefore(int epochDay) {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.delete(TABLE_SESSIONS, "end_ms < ?", new String[]{String.valueOf(EpochDays.startOfDayMillis(epochDay))});
+        db.delete(TABLE_ROLLUPS, "epoch_day < ?", new String[]{String.valueOf(epochDay)});
+    }
+
+    private static MediaSession cursorToSession(Cursor cursor) {
+        MediaSession session = new MediaSession(
+                cursor.getString(cursor.getColumnIndexOrThrow("kind")),
+                cursor.getString(cursor.getColumnIndexOrThrow("title")),
+                cursor.getString(cursor.getColumnIndexOrThrow("platform")),
+                cursor.getString(cursor.getColumnIndexOrThrow("media_type")));
+        session.id = cursor.getLong(cursor.getColumnIndexOrThrow("id"));
+        session.startMs = cursor.getLong(cursor.getColumnIndexOrThrow("start_ms"));
+        session.endMs = cursor.getLong(cursor.getColumnIndexOrThrow("end_ms"));
+        session.watchedMs = cursor.getLong(cursor.getColumnIndexOrThrow("watched_ms"));
+        session.itemCount = cursor.getInt(cursor.getColumnIndexOrThrow("item_count"));
+        session.lastSeason = cursor.getInt(cursor.getColumnIndexOrThrow("last_season"));
+        session.lastEpisode = cursor.getInt(cursor.getColumnIndexOrThrow("last_episode"));
+        session.sequential = cursor.getInt(cursor.getColumnIndexOrThrow("sequential")) == 1;
+        // Gaps inside a stored session are not kept; treat its whole span as watched
+        session.covered.add(new long[]{session.startMs, session.endMs});
+        return session;
+    }
+
+    private static String sessionKey(String kind, String title, String platform) {
+        return kind + "|" + title + "|" + platform;
+    }
+
+    private void createTables() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SESSIONS + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + "kind TEXT NOT NULL, "
+                + "title TEXT, "
+                + "platform TEXT NOT NULL, "
+                + "media_type TEXT, "
+                + "start_ms INTEGER NOT NULL, "
+                + "end_ms INTEGER NOT NULL, "
+                + "epoch_day INTEGER NOT NULL, "
+                + "watched_ms INTEGER DEFAULT 0, "
+                + "item_count INTEGER DEFAULT 0, "
+                + "last_season INTEGER DEFAULT 0, "
+                + "last_episode INTEGER DEFAULT 0, "
+                + "sequential INTEGER DEFAULT 1, "
+                + "is_binge INTEGER DEFAULT 0"
+                + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_media_sessions_end ON " + TABLE_SESSIONS + "(end_ms)");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_media_sessions_binge ON " + TABLE_SESSIONS + "(is_binge, start_ms)");
+
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_ROLLUPS + " ("
+                + "epoch_day INTEGER NOT NULL, "
+                + "kind TEXT NOT NULL, "
+                + "name TEXT NOT NULL, "
+                + "watched_ms INTEGER DEFAULT 0, "
+                + "sessions INTEGER DEFAULT 0, "
+                + "binges INTEGER DEFAULT 0, "
+                + "PRIMARY KEY (epoch_day, kind, name)"
+                + ")");
+    }
+}
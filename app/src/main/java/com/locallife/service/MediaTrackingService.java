@@ -1,16 +1,14 @@
 package com.locallife.service;
 
-import android.app.usage.UsageStats;
-import android.app.usage.UsageStatsManager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.os.Build;
 import android.util.Log;
 
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.MediaConsumption;
+import com.locallife.utils.EpochDays;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -33,7 +31,8 @@ public class MediaTrackingService {
     
     private Context context;
     private DatabaseHelper databaseHelper;
-    private UsageStatsManager usageStatsManager;
+    private UsageEventIngestor usageIngestor;
+    private MediaSessionizer mediaSessionizer;
     private PackageManager packageManager;
     private SharedPreferences preferences;
     private ExecutorService backgroundExecutor;
@@ -74,7 +73,7 @@ public class MediaTrackingService {
         MEDIA_APPS.put("com.google.android.videos", new MediaAppInfo("Google Play Movies", "movie", "video"));
     }
     
-    private static class MediaAppInfo {
+    static class MediaAppInfo {
         String displayName;
         String mediaType;
         String category;
@@ -86,10 +85,18 @@ public class MediaTrackingService {
         }
     }
     
+    /**
+     * Display name and media type for a known media app, or null
+     */
+    static MediaAppInfo getMediaAppInfo(String packageName) {
+        return MEDIA_APPS.get(packageName);
+    }
+    
     public MediaTrackingService(Context context) {
         this.context = context;
         this.databaseHelper = DatabaseHelper.getInstance(context);
-        this.usageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        this.usageIngestor = UsageEventIngestor.getInstance(context);
+        this.mediaSessionizer = MediaSessionizer.getInstance(context);
         this.packageManager = context.getPackageManager();
         this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
         this.backgroundExecutor = Executors.newSingleThreadExecutor();
@@ -108,20 +115,11 @@ public class MediaTrackingService {
                     return;
                 }
                 
-                // Get usage stats for today
-                Calendar calendar = Calendar.getInstance();
-                calendar.set(Calendar.HOUR_OF_DAY, 0);
-                calendar.set(Calendar.MINUTE, 0);
-                calendar.set(Calendar.SECOND, 0);
-                calendar.set(Calendar.MILLISECOND, 0);
-                long startTime = calendar.getTimeInMillis();
-                long endTime = System.currentTimeMillis();
-                
-                List<UsageStats> usageStatsList = usageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_DAILY, startTime, endTime);
-                
-                if (usageStatsList != null && !usageStatsList.isEmpty()) {
-                    processMediaUsage(usageStatsList);
+                // Today's per-app totals from the shared ingestion stage; reuses ScreenTimeService's
+                // query when both run in the same tick
+                UsageEventIngestor.UsageSnapshot snapshot = usageIngestor.ingest();
+                if (snapshot != null && !snapshot.apps.isEmpty()) {
+                    processMediaUsage(snapshot);
                 }
                 
                 // Update last scan time
@@ -133,15 +131,15 @@ public class MediaTrackingService {
         });
     }
     
-    private void processMediaUsage(List<UsageStats> usageStatsList) {
-        String today = dateFormat.format(new Date());
+    private void processMediaUsage(UsageEventIngestor.UsageSnapshot snapshot) {
+        String today = EpochDays.toDateKey(snapshot.epochDay);
         
-        for (UsageStats stats : usageStatsList) {
-            String packageName = stats.getPackageName();
+        for (UsageEventIngestor.AppDayUsage usage : snapshot.apps.values()) {
+            String packageName = usage.packageName;
             
             if (MEDIA_APPS.containsKey(packageName)) {
                 MediaAppInfo appInfo = MEDIA_APPS.get(packageName);
-                long usageTime = stats.getTotalTimeInForeground();
+                long usageTime = usage.totalTimeMs;
                 
                 // Only process if usage time is significant (> 1 minute)
                 if (usageTime > 60000) {
@@ -192,6 +190,7 @@ public class MediaTrackingService {
                 media.setEndTime(endCal.getTime());
                 
                 insertMediaConsumption(media);
+                mediaSessionizer.record(media);
                 
                 Log.d(TAG, "Manually logged: " + title + " (" + durationMinutes + " minutes)");
                 
@@ -221,6 +220,7 @@ public class MediaTrackingService {
                 media.setRewatch(isRewatch);
                 
                 insertMediaConsumption(media);
+                mediaSessionizer.record(media);
                 
                 Log.d(TAG, "Logged TV episode: " + showTitle + " S" + season + "E" + episode);
                 
@@ -245,6 +245,7 @@ public class MediaTrackingService {
                 media.setStartTime(new Date());
                 
                 insertMediaConsumption(media);
+                mediaSessionizer.record(media);
                 
                 Log.d(TAG, "Logged movie: " + title + " (" + durationMinutes + " minutes)");
                 
@@ -297,48 +298,26 @@ public class MediaTrackingService {
     }
     
     /**
-     * Detect binge watching patterns
+     * Detect binge watching patterns: 3+ consecutive episodes of a show with no long break,
+     * including sessions that started the evening before or run past midnight
      */
     public List<BingeSession> detectBingeSessions(String date) {
-        List<MediaConsumption> mediaList = getMediaConsumptionForDate(date);
+        int epochDay = EpochDays.fromDateKey(date);
         List<BingeSession> bingeSessions = new ArrayList<>();
-        
-        // Group by show title
-        Map<String, List<MediaConsumption>> showGroups = new HashMap<>();
-        for (MediaConsumption media : mediaList) {
-            if ("tv".equals(media.getMediaType())) {
-                String key = media.getTitle() + "_" + media.getPlatform();
-                showGroups.computeIfAbsent(key, k -> new ArrayList<>()).add(media);
-            }
+        for (MediaSessionizer.MediaSession session : mediaSessionizer.getBingeSessions(epochDay, epochDay)) {
+            bingeSessions.add(new BingeSession(session.title, session.platform,
+                    session.itemCount, session.getTotalMinutes()));
         }
-        
-        // Detect binge sessions (3+ episodes in sequence)
-        for (Map.Entry<String, List<MediaConsumption>> entry : showGroups.entrySet()) {
-            List<MediaConsumption> episodes = entry.getValue();
-            if (episodes.size() >= 3) {
-                // Sort by episode number
-                episodes.sort((a, b) -> Integer.compare(a.getEpisode(), b.getEpisode()));
-                
-                // Check if episodes are sequential
-                boolean isSequential = true;
-                for (int i = 1; i < episodes.size(); i++) {
-                    if (episodes.get(i).getEpisode() != episodes.get(i-1).getEpisode() + 1) {
-                        isSequential = false;
-                        break;
-                    }
-                }
-                
-                if (isSequential) {
-                    int totalMinutes = episodes.stream().mapToInt(MediaConsumption::getDurationMinutes).sum();
-                    bingeSessions.add(new BingeSession(episodes.get(0).getTitle(), 
-                            episodes.get(0).getPlatform(), episodes.size(), totalMinutes));
-                }
-            }
-        }
-        
         return bingeSessions;
     }
     
+    /**
+     * Watch time per show and platform over the last 7 days
+     */
+    public MediaSessionizer.MediaInsights getWeeklyInsights() {
+        return mediaSessionizer.getInsights(7);
+    }
+    
     /**
      * Get trending/popular shows for quick logging
      */
@@ -368,17 +347,7 @@ public class MediaTrackingService {
     }
     
     private boolean hasUsageStatsPermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            try {
-                long now = System.currentTimeMillis();
-                List<UsageStats> stats = usageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_DAILY, now - 1000, now);
-                return stats != null && !stats.isEmpty();
-            } catch (Exception e) {
-                return false;
-            }
-        }
-        return false;
+        return usageIngestor.hasUsagePermission();
     }
     
     private MediaConsumption getExistingMediaRecord(String date, String packageName) {
@@ -0,0 +1,148 @@
+package com.locallife.service;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Minibatch stochastic gradient descent with early stopping. Samples are shuffled each
+ * epoch from a seeded Random, and each minibatch is cut into fixed-size chunks whose
+ * gradients are computed in parallel and summed in chunk order, so a given seed gives the
+ * same weights whatever the thread count. Training stops once the epoch loss has not
+ * improved by tolerance for patience epochs, and the best weights seen are kept.
+ */
+final class MinibatchSgdOptimizer implements ModelOptimizer {
+    private static final int CHUNK_SIZE = 64;
+    
+    private final double learningRate;
+    private final int batchSize;
+    private final int maxEpochs;
+    private final int patience;
+    private final double tolerance;
+    private final long seed;
+    
+    // Outcome of the last run, for logging
+    private int epochsRun;
+    private double bestLoss;
+    
+    MinibatchSgdOptimizer(double learningRate, int batchSize, int maxEpochs, int patience, double tolerance,
+                          long seed) {
+        if (learningRate <= 0 || batchSize <= 0 || maxEpochs <= 0 || patience <= 0) {
+            throw new IllegalArgumentException("Learning rate, batch size, epochs and patience must be positive");
+        }
+        this.learningRate = learningRate;
+        this.batchSize = batchSize;
+        this.maxEpochs = maxEpochs;
+        this.patience = patience;
+        this.tolerance = tolerance;
+        this.seed = seed;
+    }
+    
+    @Override
+    public void optimize(Objective objective, double[] weights) {
+        int n = objective.sampleCount();
+        int k = objective.dimension();
+        epochsRun = 0;
+        bestLoss = Double.NaN;
+        if (n == 0) {
+            return;
+        }
+        
+        // Samples in visiting order, reshuffled every epoch
+        int[] order = new int[n];
+        double totalWeight = 0;
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            totalWeight += objective.weight(i);
+        }
+        Random random = new Random(seed);
+        
+        int maxChunks = (Math.min(batchSize, n) + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        double[][] chunkGradients = new double[maxChunks][k];
+        double[] chunkLosses = new double[maxChunks];
+        double[] chunkWeights = new double[maxChunks];
+        double[][] chunkScratch = new double[maxChunks][objective.scratchSize()];
+        double[] bestWeights = weights.clone();
+        bestLoss = Double.POSITIVE_INFINITY;
+        int staleEpochs = 0;
+        
+        while (epochsRun < maxEpochs && staleEpochs < patience) {
+            shuffle(order, random);
+            double epochLoss = 0;
+            
+            for (int batchStart = 0; batchStart < n; batchStart += batchSize) {
+                int batchEnd = Math.min(n, batchStart + batchSize);
+                int chunks = (batchEnd - batchStart + CHUNK_SIZE - 1) / CHUNK_SIZE;
+                int start = batchStart;
+                
+                IntStream chunkStream = IntStream.range(0, chunks);
+                if (chunks > 1 && ForkJoinPool.getCommonPoolParallelism() > 1) {
+                    chunkStream = chunkStream.parallel();
+                }
+                chunkStream.forEach(chunk -> {
+                    double[] gradient = chunkGradients[chunk];
+                    Arrays.fill(gradient, 0.0);
+                    double loss = 0;
+                    double weight = 0;
+                    int chunkEnd = Math.min(batchEnd, start + (chunk + 1) * CHUNK_SIZE);
+                    for (int i = start + chunk * CHUNK_SIZE; i < chunkEnd; i++) {
+                        loss += objective.accumulate(order[i], weights, gradient, chunkScratch[chunk]);
+                        weight += objective.weight(order[i]);
+                    }
+                    chunkLosses[chunk] = loss;
+                    chunkWeights[chunk] = weight;
+                });
+                
+                double batchWeight = 0;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    batchWeight += chunkWeights[chunk];
+                }
+                if (batchWeight == 0) {
+                    continue;
+                }
+                double step = learningRate / batchWeight;
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    epochLoss += chunkLosses[chunk];
+                    double[] gradient = chunkGradients[chunk];
+                    for (int j = 0; j < k; j++) {
+                        weights[j] -= step * gradient[j];
+                    }
+                }
+                objective.project(weights);
+            }
+            
+            epochsRun++;
+            epochLoss /= totalWeight;
+            if (epochLoss < bestLoss - tolerance) {
+                bestLoss = epochLoss;
+                System.arraycopy(weights, 0, bestWeights, 0, k);
+                staleEpochs = 0;
+            } else {
+                staleEpochs++;
+            }
+        }
+        
+        System.arraycopy(bestWeights, 0, weights, 0, k);
+    }
+    
+    int getEpochsRun() {
+        return epochsRun;
+    }
+    
+    /**
+     * Mean sample loss of the best epoch of the last run
+     */
+    double getBestLoss() {
+        return bestLoss;
+    }
+    
+    private static void shuffle(int[] order, Random random) {
+        for (int i = order.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+    }
+}
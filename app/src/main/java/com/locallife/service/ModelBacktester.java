@@ -0,0 +1,321 @@
+package com.locallife.service;
+
+import android.util.Log;
+
+import com.locallife.model.ActivityType;
+import com.locallife.model.DayRecord;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Walk-forward backtest of the prediction models. Each fold trains fresh models on days
+ * [0, t) and predicts the days from t up to the next fold, so every score is out of sample,
+ * unlike the training accuracy the models report for themselves. Folds are independent and
+ * run as a fork/join task tree on the analytics pool, merged in day order. Needs nothing but
+ * DayRecords; ModelBacktesterTest runs it as a JVM unit test over
+ * SyntheticDataGenerator.generateDayRecords.
+ */
+public class ModelBacktester {
+    private static final String TAG = "ModelBacktester";
+    private static final int ACTIVITY_COUNT = DayFeatureMatrix.ACTIVITY_COUNT;
+    private static final ActivityType[] ACTIVITY_TYPES = DayFeatureMatrix.ACTIVITY_TYPES;
+    private static final int DEFAULT_WARMUP_DAYS = 30;
+    private static final int CALIBRATION_BINS = 10;
+    // Keeps one confident miss from making the log-loss infinite
+    private static final double MIN_PROBABILITY = 1e-6;
+    
+    public enum Model { WEATHER_PATTERN, USER_BEHAVIOR, ACTIVITY_PATTERN }
+    
+    /**
+     * Out-of-sample accuracy, calibration and latency of one model over every fold
+     */
+    public static class ModelReport {
+        private final Model model;
+        private int predictions;
+        private int correct;
+        private double logLossSum;
+        private final double[] predictedSum = new double[ACTIVITY_COUNT];
+        private final int[] observedCount = new int[ACTIVITY_COUNT];
+        // Reliability of the top-1 confidence, in equal-width bins
+        private final int[] binCount = new int[CALIBRATION_BINS];
+        private final double[] binConfidence = new double[CALIBRATION_BINS];
+        private final int[] binCorrect = new int[CALIBRATION_BINS];
+        private int trainingRuns;
+        private long trainingNanos;
+        private long predictionNanos;
+        
+        ModelReport(Model model) {
+            this.model = model;
+        }
+        
+        void record(double[] probabilities, int actual) {
+            int predicted = DayFeatureMatrix.argMax(probabilities);
+            predictions++;
+            if (predicted == actual) {
+                correct++;
+            }
+            logLossSum -= Math.log(Math.max(MIN_PROBABILITY, probabilities[actual]));
+            for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+                predictedSum[activity] += probabilities[activity];
+            }
+            observedCount[actual]++;
+            
+            double confidence = probabilities[predicted];
+            int bin = Math.min(CALIBRATION_BINS - 1, (int) (confidence * CALIBRATION_BINS));
+            binCount[bin]++;
+            binConfidence[bin] += confidence;
+            if (predicted == actual) {
+                binCorrect[bin]++;
+            }
+        }
+        
+        void merge(ModelReport other) {
+            predictions += other.predictions;
+            correct += other.correct;
+            logLossSum += other.logLossSum;
+            for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+                predictedSum[activity] += other.predictedSum[activity];
+                observedCount[activity] += other.observedCount[activity];
+            }
+            for (int bin = 0; bin < CALIBRATION_BINS; bin++) {
+                binCount[bin] += other.binCount[bin];
+                binConfidence[bin] += other.binConfidence[bin];
+                binCorrect[bin] += other.binCorrect[bin];
+            }
+            trainingRuns += other.trainingRuns;
+            trainingNanos += other.trainingNanos;
+            predictionNanos += other.predictionNanos;
+        }
+        
+        public Model getModel() { return model; }
+        public int getPredictions() { return predictions; }
+        public double getTopOneAccuracy() { return predictions == 0 ? 0 : (double) correct / predictions; }
+        public double getLogLoss() { return predictions == 0 ? 0 : logLossSum / predictions; }
+        public double getMeanPredicted(ActivityType activityType) { return predictions == 0 ? 0 : predictedSum[activityType.ordinal()] / predictions; }
+        public double getObservedFrequency(ActivityType activityType) { return predictions == 0 ? 0 : (double) observedCount[activityType.ordinal()] / predictions; }
+        public double getTrainingMillisPerFold() { return trainingRuns == 0 ? 0 : trainingNanos / 1e6 / trainingRuns; }
+        public double getPredictionMicros() { return predictions == 0 ? 0 : predictionNanos / 1e3 / predictions; }
+        
+        /**
+         * Prediction-weighted gap between top-1 confidence and top-1 accuracy across the bins
+         */
+        public double getExpectedCalibrationError() {
+            if (predictions == 0) {
+                return 0;
+            }
+            double error = 0;
+            for (int bin = 0; bin < CALIBRATION_BINS; bin++) {
+                error += Math.abs(binConfidence[bin] - binCorrect[bin]);
+            }
+            return error / predictions;
+        }
+    }
+    
+    public static class BacktestReport {
+        private final Map<Model, ModelReport> reports = new EnumMap<>(Model.class);
+        private int folds;
+        private long durationMs;
+        
+        public Map<Model, ModelReport> getReports() { return reports; }
+        public int getFolds() { return folds; }
+        public long getDurationMs() { return durationMs; }
+        
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("Backtested ").append(folds).append(" folds in ").append(durationMs).append(" ms\n");
+            sb.append(String.format(Locale.US, "%-17s %7s %7s %8s %7s %10s %11s%n",
+                    "model", "days", "top-1", "logloss", "ECE", "train ms", "predict us"));
+            for (ModelReport report : reports.values()) {
+                sb.append(String.format(Locale.US, "%-17s %7d %6.1f%% %8.3f %7.3f %10.2f %11.1f%n",
+                        report.getModel(), report.getPredictions(), report.getTopOneAccuracy() * 100,
+                        report.getLogLoss(), report.getExpectedCalibrationError(),
+                        report.getTrainingMillisPerFold(), report.getPredictionMicros()));
+            }
+            for (ModelReport report : reports.values()) {
+                sb.append(report.getModel()).append(" calibration (mean predicted / observed)\n");
+                for (ActivityType activityType : ACTIVITY_TYPES) {
+                    sb.append(String.format(Locale.US, "  %-20s %6.3f %6.3f%n", activityType,
+                            report.getMeanPredicted(activityType), report.getObservedFrequency(activityType)));
+                }
+            }
+            return sb.toString();
+        }
+    }
+    
+    private final int warmupDays;
+    private final int stepDays;
+    
+    public ModelBacktester() {
+        this(DEFAULT_WARMUP_DAYS, 1);
+    }
+    
+    /**
+     * warmupDays is the history the first fold trains on; each fold then predicts stepDays
+     * days before the models are retrained with them
+     */
+    public ModelBacktester(int warmupDays, int stepDays) {
+        if (warmupDays < 2 || stepDays < 1) {
+            throw new IllegalArgumentException("Need at least two warm-up days and a one-day step");
+        }
+        this.warmupDays = warmupDays;
+        this.stepDays = stepDays;
+    }
+    
+    public BacktestReport run(List<DayRecord> history) {
+        BacktestReport report = new BacktestReport();
+        long startTime = System.currentTimeMillis();
+        
+        List<DayRecord> days = new ArrayList<>(history);
+        days.sort(Comparator.comparing(DayRecord::getDate, Comparator.nullsFirst(Comparator.naturalOrder())));
+        
+        int folds = Math.max(0, (days.size() - warmupDays + stepDays - 1) / stepDays);
+        ModelReport[] results = folds > 0
+                ? AnalyticsExecutor.get().invoke(new FoldTask(days, 0, folds))
+                : emptyReports();
+        for (ModelReport result : results) {
+            report.reports.put(result.getModel(), result);
+        }
+        
+        report.folds = folds;
+        report.durationMs = System.currentTimeMillis() - startTime;
+        Log.i(TAG, report.toString());
+        return report;
+    }
+    
+    /**
+     * Folds [from, to), split in halves down to single folds; the halves are merged left
+     * first, so the totals do not depend on which thread ran what
+     */
+    private class FoldTask extends RecursiveTask<ModelReport[]> {
+        private final List<DayRecord> days;
+        private final int from;
+        private final int to;
+        
+        FoldTask(List<DayRecord> days, int from, int to) {
+            this.days = days;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected ModelReport[] compute() {
+            if (to - from == 1) {
+                return runFold(days, warmupDays + from * stepDays);
+            }
+            int middle = (from + to) >>> 1;
+            FoldTask left = new FoldTask(days, from, middle);
+            left.fork();
+            ModelReport[] right = new FoldTask(days, middle, to).compute();
+            ModelReport[] merged = left.join();
+            for (int i = 0; i < merged.length; i++) {
+                merged[i].merge(right[i]);
+            }
+            return merged;
+        }
+    }
+    
+    /**
+     * Train on days [0, start) and predict the days from start to the end of the fold
+     */
+    private ModelReport[] runFold(List<DayRecord> days, int start) {
+        ModelReport[] reports = emptyReports();
+        ModelReport weatherReport = reports[Model.WEATHER_PATTERN.ordinal()];
+        ModelReport behaviorReport = reports[Model.USER_BEHAVIOR.ordinal()];
+        ModelReport activityReport = reports[Model.ACTIVITY_PATTERN.ordinal()];
+        List<DayRecord> training = days.subList(0, start);
+        
+        // The shared feature matrix counts toward both models that read it
+        long begin = System.nanoTime();
+        DayFeatureMatrix features = DayFeatureMatrix.of(training);
+        long matrixNanos = System.nanoTime() - begin;
+        
+        begin = System.nanoTime();
+        WeatherPatternModel weatherModel = new WeatherPatternModel();
+        weatherModel.train(features);
+        weatherReport.trainingNanos += matrixNanos + System.nanoTime() - begin;
+        
+        begin = System.nanoTime();
+        UserBehaviorModel behaviorModel = new UserBehaviorModel();
+        behaviorModel.train(features);
+        behaviorReport.trainingNanos += matrixNanos + System.nanoTime() - begin;
+        
+        begin = System.nanoTime();
+        ActivityPatternModel activityModel = new ActivityPatternModel();
+        activityModel.train(training);
+        activityReport.trainingNanos += System.nanoTime() - begin;
+        
+        for (ModelReport report : reports) {
+            report.trainingRuns++;
+        }
+        
+        double[] levels = new double[ACTIVITY_COUNT];
+        double[] probabilities = new double[ACTIVITY_COUNT];
+        int end = Math.min(days.size(), start + stepDays);
+        for (int day = start; day < end; day++) {
+            DayRecord previous = days.get(day - 1);
+            DayRecord actual = days.get(day);
+            DayFeatureMatrix.activityLevelsInto(actual, levels);
+            int actualLevel = DayFeatureMatrix.argMax(levels);
+            DayRecord forecast = forecastRecord(previous, actual);
+            
+            begin = System.nanoTime();
+            toArray(weatherModel.predict(forecast), probabilities);
+            weatherReport.predictionNanos += System.nanoTime() - begin;
+            weatherReport.record(probabilities, actualLevel);
+            
+            begin = System.nanoTime();
+            toArray(behaviorModel.predict(forecast), probabilities);
+            behaviorReport.predictionNanos += System.nanoTime() - begin;
+            behaviorReport.record(probabilities, actualLevel);
+            
+            begin = System.nanoTime();
+            toArray(activityModel.predict(previous, actual), probabilities);
+            activityReport.predictionNanos += System.nanoTime() - begin;
+            activityReport.record(probabilities, ActivityPatternModel.getPrimaryActivity(actual).ordinal());
+        }
+        return reports;
+    }
+    
+    /**
+     * What is known the evening before a day: its date and weather forecast, and the user's
+     * activity so far, which is the previous day's. Predicting from the day's own record would
+     * score the models on the activity they are asked to predict.
+     */
+    private static DayRecord forecastRecord(DayRecord previous, DayRecord target) {
+        DayRecord forecast = new DayRecord();
+        forecast.setDate(target.getDate());
+        forecast.setTemperature(target.getTemperature());
+        forecast.setHumidity(target.getHumidity());
+        forecast.setWeatherCondition(target.getWeatherCondition());
+        forecast.setWindSpeed(target.getWindSpeed());
+        forecast.setUvIndex(target.getUvIndex());
+        forecast.setStepCount(previous.getStepCount());
+        forecast.setActiveMinutes(previous.getActiveMinutes());
+        forecast.setScreenTimeMinutes(previous.getScreenTimeMinutes());
+        forecast.setPlacesVisited(previous.getPlacesVisited());
+        forecast.setActivityScore(previous.getActivityScore());
+        return forecast;
+    }
+    
+    private static void toArray(Map<ActivityType, Double> predictions, double[] probabilities) {
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            probabilities[activity] = predictions.getOrDefault(ACTIVITY_TYPES[activity], 0.0);
+        }
+    }
+    
+    private static ModelReport[] emptyReports() {
+        Model[] models = Model.values();
+        ModelReport[] reports = new ModelReport[models.length];
+        for (Model model : models) {
+            reports[model.ordinal()] = new ModelReport(model);
+        }
+        return reports;
+    }
+}
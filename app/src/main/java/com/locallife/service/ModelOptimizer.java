@@ -0,0 +1,76 @@
+package com.locallife.service;
+
+/**
+ * Fits a model's weight vector to a training objective. The models describe what they
+ * minimize as an Objective and pick the optimizer that suits it: RidgeRegressionOptimizer
+ * solves least-squares objectives in closed form, MinibatchSgdOptimizer handles the rest.
+ */
+interface ModelOptimizer {
+    
+    /**
+     * Weighted loss over a fixed set of training samples; a sample of weight w stands for
+     * w identical observations
+     */
+    interface Objective {
+        int sampleCount();
+        
+        int dimension();
+        
+        default double weight(int sample) {
+            return 1.0;
+        }
+        
+        /**
+         * Size of the scratch array accumulate needs; each worker thread gets its own
+         */
+        default int scratchSize() {
+            return 0;
+        }
+        
+        /**
+         * Add the weighted loss gradient of one sample at weights into gradient and return
+         * its weighted loss
+         */
+        double accumulate(int sample, double[] weights, double[] gradient, double[] scratch);
+        
+        /**
+         * Move weights back into the feasible set after a step
+         */
+        default void project(double[] weights) {
+        }
+    }
+    
+    /**
+     * Squared error between row(sample) . weights and target(sample), which has a
+     * closed-form solution
+     */
+    interface LeastSquaresObjective extends Objective {
+        void row(int sample, double[] row);
+        
+        double target(int sample);
+        
+        @Override
+        default int scratchSize() {
+            return dimension();
+        }
+        
+        @Override
+        default double accumulate(int sample, double[] weights, double[] gradient, double[] scratch) {
+            row(sample, scratch);
+            double residual = -target(sample);
+            for (int j = 0; j < weights.length; j++) {
+                residual += scratch[j] * weights[j];
+            }
+            double weight = weight(sample);
+            for (int j = 0; j < weights.length; j++) {
+                gradient[j] += weight * residual * scratch[j];
+            }
+            return 0.5 * weight * residual * residual;
+        }
+    }
+    
+    /**
+     * Fit weights to the objective, starting from and overwriting their current values
+     */
+    void optimize(Objective objective, double[] weights);
+}
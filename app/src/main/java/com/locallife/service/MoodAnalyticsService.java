@@ -6,7 +6,6 @@ import android.util.Log;
 import com.locallife.model.MoodEntry;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -24,72 +23,40 @@ public class MoodAnalyticsService {
         moodTrackingService = new MoodTrackingService(context);
     }
     
+    /**
+     * Shared snapshot of the mood entries covering at least the last given number of days
+     */
+    public MoodAnalyticsSnapshot getSnapshot(int days) {
+        return MoodAnalyticsSnapshot.get(moodTrackingService, days);
+    }
+    
     /**
      * Analyzes mood trends over different time periods
      */
     public MoodTrendAnalysis analyzeMoodTrends(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
-        
-        return new MoodTrendAnalysis(moodEntries, days);
+        return getSnapshot(days).window(days).getTrendAnalysis();
     }
     
     /**
      * Analyzes weekly mood patterns
      */
     public WeeklyMoodPattern analyzeWeeklyPattern(int weeks) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.WEEK_OF_YEAR, -weeks);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
-        
-        return new WeeklyMoodPattern(moodEntries);
+        int days = weeks * 7;
+        return getSnapshot(days).window(days).getWeeklyPattern();
     }
     
     /**
      * Analyzes mood triggers and their frequency
      */
     public MoodTriggerAnalysis analyzeMoodTriggers(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
-        
-        return new MoodTriggerAnalysis(moodEntries);
+        return getSnapshot(days).window(days).getTriggerAnalysis();
     }
     
     /**
      * Analyzes correlation between activities and mood
      */
     public ActivityMoodCorrelation analyzeActivityCorrelation(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
-        
-        return new ActivityMoodCorrelation(moodEntries);
+        return getSnapshot(days).window(days).getActivityCorrelation();
     }
     
     /**
@@ -175,11 +142,15 @@ public class MoodAnalyticsService {
         private List<Float> dailyAverages;
         
         public MoodTrendAnalysis(List<MoodEntry> entries, int days) {
-            calculateTrend(entries, days);
+            this(MoodAnalyticsSnapshot.MoodAggregates.of(entries));
         }
         
-        private void calculateTrend(List<MoodEntry> entries, int days) {
-            if (entries.isEmpty()) {
+        MoodTrendAnalysis(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
+            calculateTrend(aggregates);
+        }
+        
+        private void calculateTrend(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
+            if (aggregates.entryCount == 0) {
                 averageMood = 5.0f;
                 moodChange = 0.0f;
                 trend = "stable";
@@ -189,25 +160,12 @@ public class MoodAnalyticsService {
             }
             
             // Calculate average mood
-            float sum = 0;
-            for (MoodEntry entry : entries) {
-                sum += entry.getMoodScore();
-            }
-            averageMood = sum / entries.size();
-            
-            // Calculate daily averages
-            Map<String, List<Float>> dailyScores = new HashMap<>();
-            for (MoodEntry entry : entries) {
-                dailyScores.computeIfAbsent(entry.getDate(), k -> new ArrayList<>()).add((float) entry.getMoodScore());
-            }
+            averageMood = (float) (aggregates.scoreSum / aggregates.entryCount);
             
+            // Calculate daily averages, oldest first
             dailyAverages = new ArrayList<>();
-            for (List<Float> scores : dailyScores.values()) {
-                float dailySum = 0;
-                for (Float score : scores) {
-                    dailySum += score;
-                }
-                dailyAverages.add(dailySum / scores.size());
+            for (float[] daily : aggregates.daily.values()) {
+                dailyAverages.add(daily[0] / daily[1]);
             }
             
             // Calculate trend
@@ -240,11 +198,9 @@ public class MoodAnalyticsService {
             }
             
             // Calculate volatility
-            float variance = 0;
-            for (MoodEntry entry : entries) {
-                variance += Math.pow(entry.getMoodScore() - averageMood, 2);
-            }
-            volatility = (float) Math.sqrt(variance / entries.size());
+            double mean = aggregates.scoreSum / aggregates.entryCount;
+            double variance = aggregates.scoreSquareSum / aggregates.entryCount - mean * mean;
+            volatility = (float) Math.sqrt(Math.max(0, variance));
         }
         
         // Getters
@@ -264,35 +220,24 @@ public class MoodAnalyticsService {
         private String worstDay;
         
         public WeeklyMoodPattern(List<MoodEntry> entries) {
-            calculateWeeklyPattern(entries);
+            this(MoodAnalyticsSnapshot.MoodAggregates.of(entries));
+        }
+        
+        WeeklyMoodPattern(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
+            calculateWeeklyPattern(aggregates);
         }
         
-        private void calculateWeeklyPattern(List<MoodEntry> entries) {
+        private void calculateWeeklyPattern(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
             dayOfWeekAverages = new HashMap<>();
-            Map<String, List<Float>> dayScores = new HashMap<>();
             
             String[] days = {"Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"};
             
-            for (MoodEntry entry : entries) {
-                Calendar cal = Calendar.getInstance();
-                cal.setTime(entry.getTimestamp());
-                int dayOfWeek = cal.get(Calendar.DAY_OF_WEEK);
-                
-                String dayName = days[(dayOfWeek + 5) % 7]; // Adjust for Monday = 0
-                dayScores.computeIfAbsent(dayName, k -> new ArrayList<>()).add((float) entry.getMoodScore());
-            }
-            
             // Calculate averages for each day
-            for (String day : days) {
-                List<Float> scores = dayScores.get(day);
-                if (scores != null && !scores.isEmpty()) {
-                    float sum = 0;
-                    for (Float score : scores) {
-                        sum += score;
-                    }
-                    dayOfWeekAverages.put(day, sum / scores.size());
+            for (int i = 0; i < days.length; i++) {
+                if (aggregates.weekdayCounts[i] > 0) {
+                    dayOfWeekAverages.put(days[i], aggregates.weekdaySums[i] / aggregates.weekdayCounts[i]);
                 } else {
-                    dayOfWeekAverages.put(day, 5.0f); // Neutral if no data
+                    dayOfWeekAverages.put(days[i], 5.0f); // Neutral if no data
                 }
             }
             
@@ -300,12 +245,13 @@ public class MoodAnalyticsService {
             float maxMood = Collections.max(dayOfWeekAverages.values());
             float minMood = Collections.min(dayOfWeekAverages.values());
             
-            for (Map.Entry<String, Float> entry : dayOfWeekAverages.entrySet()) {
-                if (entry.getValue() == maxMood) {
-                    bestDay = entry.getKey();
+            for (String day : days) {
+                float mood = dayOfWeekAverages.get(day);
+                if (bestDay == null && mood == maxMood) {
+                    bestDay = day;
                 }
-                if (entry.getValue() == minMood) {
-                    worstDay = entry.getKey();
+                if (worstDay == null && mood == minMood) {
+                    worstDay = day;
                 }
             }
         }
@@ -326,31 +272,21 @@ public class MoodAnalyticsService {
         private List<String> topNegativeTriggers;
         
         public MoodTriggerAnalysis(List<MoodEntry> entries) {
-            analyzeTriggers(entries);
+            this(MoodAnalyticsSnapshot.MoodAggregates.of(entries));
+        }
+        
+        MoodTriggerAnalysis(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
+            analyzeTriggers(aggregates);
         }
         
-        private void analyzeTriggers(List<MoodEntry> entries) {
+        private void analyzeTriggers(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
             triggerFrequency = new HashMap<>();
-            Map<String, List<Float>> triggerScores = new HashMap<>();
-            
-            for (MoodEntry entry : entries) {
-                if (entry.getMoodTriggers() != null) {
-                    for (String trigger : entry.getMoodTriggers()) {
-                        triggerFrequency.put(trigger, triggerFrequency.getOrDefault(trigger, 0) + 1);
-                        triggerScores.computeIfAbsent(trigger, k -> new ArrayList<>()).add((float) entry.getMoodScore());
-                    }
-                }
+            for (Map.Entry<String, float[]> entry : aggregates.triggers.entrySet()) {
+                triggerFrequency.put(entry.getKey(), (int) entry.getValue()[1]);
             }
             
             // Calculate mood impact for each trigger
-            triggerMoodImpact = new HashMap<>();
-            for (Map.Entry<String, List<Float>> entry : triggerScores.entrySet()) {
-                float sum = 0;
-                for (Float score : entry.getValue()) {
-                    sum += score;
-                }
-                triggerMoodImpact.put(entry.getKey(), sum / entry.getValue().size());
-            }
+            triggerMoodImpact = MoodAnalyticsSnapshot.MoodAggregates.averages(aggregates.triggers);
             
             // Find top positive and negative triggers
             topPositiveTriggers = new ArrayList<>();
@@ -381,29 +317,16 @@ public class MoodAnalyticsService {
         private List<String> moodLoweringActivities;
         
         public ActivityMoodCorrelation(List<MoodEntry> entries) {
-            analyzeActivityCorrelation(entries);
+            this(MoodAnalyticsSnapshot.MoodAggregates.of(entries));
         }
         
-        private void analyzeActivityCorrelation(List<MoodEntry> entries) {
-            Map<String, List<Float>> activityScores = new HashMap<>();
-            
-            for (MoodEntry entry : entries) {
-                if (entry.getActivities() != null) {
-                    for (String activity : entry.getActivities()) {
-                        activityScores.computeIfAbsent(activity, k -> new ArrayList<>()).add((float) entry.getMoodScore());
-                    }
-                }
-            }
+        ActivityMoodCorrelation(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
+            analyzeActivityCorrelation(aggregates);
+        }
             
+        private void analyzeActivityCorrelation(MoodAnalyticsSnapshot.MoodAggregates aggregates) {
             // Calculate mood impact for each activity
-            activityMoodImpact = new HashMap<>();
-            for (Map.Entry<String, List<Float>> entry : activityScores.entrySet()) {
-                float sum = 0;
-                for (Float score : entry.getValue()) {
-                    sum += score;
-                }
-                activityMoodImpact.put(entry.getKey(), sum / entry.getValue().size());
-            }
+            activityMoodImpact = MoodAnalyticsSnapshot.MoodAggregates.averages(aggregates.activities);
             
             // Find mood boosting and lowering activities
             moodBoostingActivities = new ArrayList<>();
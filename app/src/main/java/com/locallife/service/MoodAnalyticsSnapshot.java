@@ -0,0 +1,260 @@
+package com.locallife.service;
+
+import com.locallife.model.MoodEntry;
+import com.locallife.utils.EpochDays;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Mood entries for the last N days, loaded with one query and shared by the mood analytics
+ * and visualization services. Each window length the dashboard asks for is aggregated in a
+ * single pass over the entries and memoized, and the shared snapshot is replaced once a
+ * mood entry is saved or deleted or the day rolls over.
+ */
+public final class MoodAnalyticsSnapshot {
+    // Shortest range loaded, so the dashboard's four-week pattern shares the snapshot
+    private static final int MIN_SNAPSHOT_DAYS = 28;
+    
+    // Distribution buckets, from lowest to highest mood
+    private static final String[] MOOD_LEVELS = {"very_sad", "sad", "neutral", "happy", "very_happy"};
+    
+    private static MoodAnalyticsSnapshot shared;
+    
+    private final int version;
+    private final int endDay;
+    private final int days;
+    
+    // Entries sorted by day, with their day, score and split triggers and activities alongside
+    private final List<MoodEntry> entries;
+    private final int[] entryDays;
+    private final int[] scores;
+    private final String[][] triggers;
+    private final String[][] activities;
+    
+    private final Map<Integer, Window> windows = new HashMap<>();
+    
+    private MoodAnalyticsSnapshot(int version, int endDay, int days, List<MoodEntry> loaded) {
+        this.version = version;
+        this.endDay = endDay;
+        this.days = days;
+        
+        List<MoodEntry> sorted = new ArrayList<>(loaded.size());
+        for (MoodEntry entry : loaded) {
+            if (entry != null && EpochDays.fromDateKey(entry.getDate()) != Integer.MIN_VALUE) {
+                sorted.add(entry);
+            }
+        }
+        Collections.sort(sorted, Comparator.comparing(MoodEntry::getDate));
+        
+        entries = Collections.unmodifiableList(sorted);
+        entryDays = new int[sorted.size()];
+        scores = new int[sorted.size()];
+        triggers = new String[sorted.size()][];
+        activities = new String[sorted.size()][];
+        for (int i = 0; i < sorted.size(); i++) {
+            MoodEntry entry = sorted.get(i);
+            entryDays[i] = EpochDays.fromDateKey(entry.getDate());
+            scores[i] = entry.getMoodScore();
+            triggers[i] = splitTerms(entry.getTriggers());
+            activities[i] = splitTerms(entry.getActivities());
+        }
+    }
+    
+    /**
+     * The shared snapshot covering at least the last given number of days, loading a new one
+     * if none is current
+     */
+    static MoodAnalyticsSnapshot get(MoodTrackingService moodTrackingService, int days) {
+        synchronized (MoodAnalyticsSnapshot.class) {
+            int version = MoodTrackingService.getMoodDataVersion();
+            int today = EpochDays.today();
+            MoodAnalyticsSnapshot snapshot = shared;
+            if (snapshot == null || snapshot.version != version || snapshot.endDay != today || snapshot.days < days) {
+                int loadDays = Math.max(days, MIN_SNAPSHOT_DAYS);
+                List<MoodEntry> loaded = moodTrackingService.getMoodEntriesInRange(
+                        EpochDays.toDateKey(today - loadDays), EpochDays.toDateKey(today));
+                // Tagged with the version read before the query, so a write during it forces a reload
+                snapshot = new MoodAnalyticsSnapshot(version, today, loadDays,
+                        loaded != null ? loaded : Collections.<MoodEntry>emptyList());
+                shared = snapshot;
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * Entries from the last given number of days through today, oldest first
+     */
+    public List<MoodEntry> getEntries(int days) {
+        return entries.subList(firstIndex(days), entries.size());
+    }
+    
+    /**
+     * Analyses of the last given number of days through today, computed on first use
+     */
+    public synchronized Window window(int days) {
+        Window window = windows.get(days);
+        if (window == null) {
+            MoodAggregates aggregates = new MoodAggregates();
+            for (int i = firstIndex(days); i < entries.size(); i++) {
+                aggregates.add(entries.get(i).getDate(), entryDays[i], scores[i], triggers[i], activities[i]);
+            }
+            window = new Window(aggregates);
+            windows.put(days, window);
+        }
+        return window;
+    }
+    
+    private int firstIndex(int days) {
+        int startDay = endDay - Math.min(days, this.days);
+        int low = 0;
+        int high = entryDays.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entryDays[middle] < startDay) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * Comma separated free text, as the mood entry form stores triggers and activities
+     */
+    static String[] splitTerms(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return new String[0];
+        }
+        List<String> terms = new ArrayList<>();
+        for (String term : text.split(",")) {
+            String trimmed = term.trim();
+            if (!trimmed.isEmpty()) {
+                terms.add(trimmed);
+            }
+        }
+        return terms.toArray(new String[0]);
+    }
+    
+    /**
+     * Every analysis of one window, from the same pass over its entries
+     */
+    public static final class Window {
+        private final MoodAnalyticsService.MoodTrendAnalysis trendAnalysis;
+        private final MoodAnalyticsService.WeeklyMoodPattern weeklyPattern;
+        private final MoodAnalyticsService.MoodTriggerAnalysis triggerAnalysis;
+        private final MoodAnalyticsService.ActivityMoodCorrelation activityCorrelation;
+        private final List<MoodTrackingService.MoodDistribution> distribution;
+        
+        Window(MoodAggregates aggregates) {
+            trendAnalysis = new MoodAnalyticsService.MoodTrendAnalysis(aggregates);
+            weeklyPattern = new MoodAnalyticsService.WeeklyMoodPattern(aggregates);
+            triggerAnalysis = new MoodAnalyticsService.MoodTriggerAnalysis(aggregates);
+            activityCorrelation = new MoodAnalyticsService.ActivityMoodCorrelation(aggregates);
+            distribution = aggregates.distribution();
+        }
+        
+        public MoodAnalyticsService.MoodTrendAnalysis getTrendAnalysis() { return trendAnalysis; }
+        public MoodAnalyticsService.WeeklyMoodPattern getWeeklyPattern() { return weeklyPattern; }
+        public MoodAnalyticsService.MoodTriggerAnalysis getTriggerAnalysis() { return triggerAnalysis; }
+        public MoodAnalyticsService.ActivityMoodCorrelation getActivityCorrelation() { return activityCorrelation; }
+        public List<MoodTrackingService.MoodDistribution> getDistribution() { return distribution; }
+    }
+    
+    /**
+     * Sums and counts the mood analyses are derived from: overall, per day, per weekday,
+     * per trigger, per activity and per distribution bucket
+     */
+    static final class MoodAggregates {
+        int entryCount;
+        double scoreSum;
+        double scoreSquareSum;
+        
+        // Date key -> {sum, count}; sorted, so daily averages come out oldest first
+        final SortedMap<String, float[]> daily = new TreeMap<>();
+        // Monday = 0
+        final float[] weekdaySums = new float[7];
+        final int[] weekdayCounts = new int[7];
+        // Trigger or activity -> {sum, count}
+        final Map<String, float[]> triggers = new HashMap<>();
+        final Map<String, float[]> activities = new HashMap<>();
+        final int[] levelCounts = new int[MOOD_LEVELS.length];
+        
+        static MoodAggregates of(List<MoodEntry> entries) {
+            MoodAggregates aggregates = new MoodAggregates();
+            for (MoodEntry entry : entries) {
+                aggregates.add(entry.getDate(), EpochDays.fromDateKey(entry.getDate()), entry.getMoodScore(),
+                        splitTerms(entry.getTriggers()), splitTerms(entry.getActivities()));
+            }
+            return aggregates;
+        }
+        
+        void add(String date, int epochDay, int score, String[] entryTriggers, String[] entryActivities) {
+            entryCount++;
+            scoreSum += score;
+            scoreSquareSum += (double) score * score;
+            
+            if (date != null) {
+                accumulate(daily, date, score);
+            }
+            if (epochDay != Integer.MIN_VALUE) {
+                // Epoch day 0 was a Thursday
+                int weekday = Math.floorMod(epochDay + 3, 7);
+                weekdaySums[weekday] += score;
+                weekdayCounts[weekday]++;
+            }
+            for (String trigger : entryTriggers) {
+                accumulate(triggers, trigger, score);
+            }
+            for (String activity : entryActivities) {
+                accumulate(activities, activity, score);
+            }
+            levelCounts[levelIndex(score)]++;
+        }
+        
+        List<MoodTrackingService.MoodDistribution> distribution() {
+            List<MoodTrackingService.MoodDistribution> distribution = new ArrayList<>();
+            for (int i = 0; i < MOOD_LEVELS.length; i++) {
+                if (levelCounts[i] > 0) {
+                    distribution.add(new MoodTrackingService.MoodDistribution(MOOD_LEVELS[i], levelCounts[i]));
+                }
+            }
+            return distribution;
+        }
+        
+        static Map<String, Float> averages(Map<String, float[]> totals) {
+            Map<String, Float> averages = new HashMap<>();
+            for (Map.Entry<String, float[]> entry : totals.entrySet()) {
+                averages.put(entry.getKey(), entry.getValue()[0] / entry.getValue()[1]);
+            }
+            return averages;
+        }
+        
+        private static void accumulate(Map<String, float[]> totals, String key, int score) {
+            float[] total = totals.get(key);
+            if (total == null) {
+                total = new float[2];
+                totals.put(key, total);
+            }
+            total[0] += score;
+            total[1]++;
+        }
+        
+        // Scores run 1-9: 1-2 very sad, 3-4 sad, 5 neutral, 6-7 happy, 8-9 very happy
+        private static int levelIndex(int score) {
+            if (score <= 2) return 0;
+            if (score <= 4) return 1;
+            if (score == 5) return 2;
+            if (score <= 7) return 3;
+            return 4;
+        }
+    }
+}
@@ -17,6 +17,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for tracking and managing user mood entries
@@ -24,6 +25,9 @@ import java.util.concurrent.Executors;
 public class MoodTrackingService {
     private static final String TAG = "MoodTrackingService";
     
+    // Bumped on every mood write, across instances, so cached mood snapshots can tell they are stale
+    private static final AtomicInteger moodDataVersion = new AtomicInteger();
+    
     private Context context;
     private DatabaseHelper databaseHelper;
     private ExecutorService backgroundExecutor;
@@ -59,6 +63,7 @@ public class MoodTrackingService {
                     id = databaseHelper.insertMoodEntry(moodEntry);
                     moodEntry.setId((int) id);
                 }
+                moodDataVersion.incrementAndGet();
                 
                 Log.d(TAG, "Saved mood entry: " + moodEntry.getFormattedMood() + " for " + moodEntry.getDate());
                 
@@ -140,6 +145,20 @@ public class MoodTrackingService {
         });
     }
     
+    /**
+     * Get mood entries for date range on the calling thread
+     */
+    public List<MoodEntry> getMoodEntriesInRange(String startDate, String endDate) {
+        return databaseHelper.getMoodEntriesForDateRange(startDate, endDate);
+    }
+    
+    /**
+     * Version of the stored mood entries; changes whenever an entry is saved or deleted
+     */
+    public static int getMoodDataVersion() {
+        return moodDataVersion.get();
+    }
+    
     /**
      * Get recent mood entries (last 30 days)
      */
@@ -407,6 +426,9 @@ public class MoodTrackingService {
         backgroundExecutor.execute(() -> {
             try {
                 int deleted = databaseHelper.deleteMoodEntry(moodId);
+                if (deleted > 0) {
+                    moodDataVersion.incrementAndGet();
+                }
                 
                 if (callback != null) {
                     callback.onMoodDeleted(deleted > 0);
@@ -428,6 +450,19 @@ public class MoodTrackingService {
     }
     
     // Data classes
+    public static class MoodDistribution {
+        private final String moodLevel;
+        private final int count;
+        
+        public MoodDistribution(String moodLevel, int count) {
+            this.moodLevel = moodLevel;
+            this.count = count;
+        }
+        
+        public String getMoodLevel() { return moodLevel; }
+        public int getCount() { return count; }
+    }
+    
     public static class MoodStatistics {
         public int totalEntries;
         public int positiveEntries;
@@ -5,9 +5,9 @@ import android.graphics.Color;
 import android.util.Log;
 
 import com.locallife.model.MoodEntry;
+import com.locallife.utils.EpochDays;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,15 +30,7 @@ public class MoodVisualizationService {
      * Creates data for mood line chart over time
      */
     public MoodLineChartData createMoodLineChart(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
+        List<MoodEntry> moodEntries = moodAnalyticsService.getSnapshot(days).getEntries(days);
         
         return new MoodLineChartData(moodEntries, days);
     }
@@ -47,16 +39,8 @@ public class MoodVisualizationService {
      * Creates data for mood distribution pie chart
      */
     public MoodDistributionChartData createMoodDistributionChart(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodTrackingService.MoodDistribution> distribution = 
-                moodTrackingService.getMoodDistribution(startDate, endDate);
+        List<MoodTrackingService.MoodDistribution> distribution =
+                moodAnalyticsService.getSnapshot(days).window(days).getDistribution();
         
         return new MoodDistributionChartData(distribution);
     }
@@ -74,15 +58,7 @@ public class MoodVisualizationService {
      * Creates data for mood heatmap calendar
      */
     public MoodHeatmapData createMoodHeatmap(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
+        List<MoodEntry> moodEntries = moodAnalyticsService.getSnapshot(days).getEntries(days);
         
         return new MoodHeatmapData(moodEntries, days);
     }
@@ -91,15 +67,7 @@ public class MoodVisualizationService {
      * Creates data for mood vs weather correlation chart
      */
     public MoodWeatherChartData createMoodWeatherChart(int days) {
-        Calendar cal = Calendar.getInstance();
-        String endDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        cal.add(Calendar.DAY_OF_MONTH, -days);
-        String startDate = String.format("%04d-%02d-%02d", 
-                cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
-        
-        List<MoodEntry> moodEntries = moodTrackingService.getMoodEntriesInRange(startDate, endDate);
+        List<MoodEntry> moodEntries = moodAnalyticsService.getSnapshot(days).getEntries(days);
         
         return new MoodWeatherChartData(moodEntries);
     }
@@ -159,18 +127,16 @@ public class MoodVisualizationService {
             }
             
             // Calculate daily averages
-            Calendar cal = Calendar.getInstance();
+            int today = EpochDays.today();
             float sum = 0;
             int count = 0;
             minMood = 10;
             maxMood = 1;
             
             for (int i = days - 1; i >= 0; i--) {
-                cal.add(Calendar.DAY_OF_MONTH, -i);
-                String date = String.format("%04d-%02d-%02d", 
-                        cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+                String date = EpochDays.toDateKey(today - i);
                 
-                labels.add(String.format("%02d/%02d", cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH)));
+                labels.add(date.substring(5, 7) + "/" + date.substring(8, 10));
                 
                 List<MoodEntry> dayEntries = dailyEntries.get(date);
                 if (dayEntries != null && !dayEntries.isEmpty()) {
@@ -190,8 +156,6 @@ public class MoodVisualizationService {
                     moodValues.add(null); // No data for this day
                     colors.add(Color.GRAY);
                 }
-                
-                cal = Calendar.getInstance(); // Reset calendar
             }
             
             averageMood = count > 0 ? sum / count : 5.0f;
@@ -354,11 +318,9 @@ public class MoodVisualizationService {
             }
             
             // Calculate daily averages
-            Calendar cal = Calendar.getInstance();
+            int today = EpochDays.today();
             for (int i = days - 1; i >= 0; i--) {
-                cal.add(Calendar.DAY_OF_MONTH, -i);
-                String date = String.format("%04d-%02d-%02d", 
-                        cal.get(Calendar.YEAR), cal.get(Calendar.MONTH) + 1, cal.get(Calendar.DAY_OF_MONTH));
+                String date = EpochDays.toDateKey(today - i);
                 
                 dateLabels.add(date);
                 
@@ -377,8 +339,6 @@ public class MoodVisualizationService {
                     moodIntensities.add(0.0f);
                     colors.add(Color.LTGRAY);
                 }
-                
-                cal = Calendar.getInstance(); // Reset calendar
             }
         }
         
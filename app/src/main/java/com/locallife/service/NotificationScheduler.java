@@ -2,10 +2,15 @@ package com.locallife.service;
 
 import android.app.AlarmManager;
 import android.app.PendingIntent;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.util.Log;
+import com.locallife.database.DatabaseHelper;
 import com.locallife.model.NotificationPreference;
 import com.locallife.service.SmartNotificationService.*;
 import java.util.*;
@@ -21,15 +26,27 @@ import org.json.JSONArray;
 public class NotificationScheduler {
     private static final String TAG = "NotificationScheduler";
     private static final String PREFS_NAME = "notification_scheduler";
+    // Legacy whole-map JSON blob, migrated into TABLE_SCHEDULED_NOTIFICATIONS on first load
     private static final String KEY_SCHEDULED_NOTIFICATIONS = "scheduled_notifications";
     
+    private static final String TABLE_SCHEDULED_NOTIFICATIONS = "scheduled_notifications";
+    private static final String COL_ID = "id";
+    private static final String COL_TYPE = "type";
+    private static final String COL_SCHEDULED_TIME = "scheduled_time";
+    private static final String COL_FIRED = "fired";
+    private static final String COL_PAYLOAD = "payload";
+    
     private Context context;
     private AlarmManager alarmManager;
     private SharedPreferences preferences;
     private NotificationTimingModel timingModel;
+    private DatabaseHelper databaseHelper;
     
-    // Scheduled notifications tracking
+    // Scheduled notifications tracking: by id, by time, and by time within each type.
+    // The sorted indexes are guarded by "this"; entries never change scheduledTime while indexed.
     private Map<String, ScheduledNotificationData> scheduledNotifications;
+    private final TreeSet<ScheduledNotificationData> notificationsByTime = new TreeSet<>(ScheduledNotificationData.BY_TIME);
+    private final Map<NotificationType, TreeSet<ScheduledNotificationData>> notificationsByType = new EnumMap<>(NotificationType.class);
     private Map<String, NotificationWindow> optimalWindows;
     
     // ML optimization parameters
@@ -42,45 +59,159 @@ public class NotificationScheduler {
         this.timingModel = timingModel;
         this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
         this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.databaseHelper = DatabaseHelper.getInstance(context);
         this.scheduledNotifications = new ConcurrentHashMap<>();
         this.optimalWindows = new ConcurrentHashMap<>();
         
+        createTable();
+        migrateLegacyPreferences();
         loadScheduledNotifications();
         initializeOptimalWindows();
     }
     
-    private void loadScheduledNotifications() {
+    /**
+     * Create the schedule table if it doesn't exist
+     */
+    private void createTable() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_SCHEDULED_NOTIFICATIONS + " (" +
+            COL_ID + " TEXT PRIMARY KEY, " +
+            COL_TYPE + " TEXT NOT NULL, " +
+            COL_SCHEDULED_TIME + " INTEGER NOT NULL, " +
+            COL_FIRED + " INTEGER DEFAULT 0, " +
+            COL_PAYLOAD + " TEXT NOT NULL" +
+            ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_scheduled_notifications_time ON " +
+            TABLE_SCHEDULED_NOTIFICATIONS + "(" + COL_SCHEDULED_TIME + ")");
+    }
+    
+    /**
+     * Move notifications saved by older versions as one JSON blob into the table
+     */
+    private void migrateLegacyPreferences() {
+        String json = preferences.getString(KEY_SCHEDULED_NOTIFICATIONS, null);
+        if (json == null) {
+            return;
+        }
+        
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.beginTransactionNonExclusive();
         try {
-            String json = preferences.getString(KEY_SCHEDULED_NOTIFICATIONS, "{}");
             JSONObject data = new JSONObject(json);
-            
             Iterator<String> keys = data.keys();
             while (keys.hasNext()) {
-                String key = keys.next();
-                JSONObject notifData = data.getJSONObject(key);
-                ScheduledNotificationData scheduled = ScheduledNotificationData.fromJson(notifData);
-                scheduledNotifications.put(key, scheduled);
+                ScheduledNotificationData scheduled = ScheduledNotificationData.fromJson(data.getJSONObject(keys.next()));
+                if (scheduled != null) {
+                    persist(db, scheduled);
+                }
             }
+            db.setTransactionSuccessful();
         } catch (Exception e) {
-            Log.e(TAG, "Error loading scheduled notifications", e);
+            Log.e(TAG, "Error migrating scheduled notifications", e);
+        } finally {
+            db.endTransaction();
         }
+        preferences.edit().remove(KEY_SCHEDULED_NOTIFICATIONS).apply();
     }
     
-    private void saveScheduledNotifications() {
+    private synchronized void loadScheduledNotifications() {
+        pruneExpired(System.currentTimeMillis());
+        
+        Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_SCHEDULED_NOTIFICATIONS,
+            new String[]{COL_PAYLOAD, COL_FIRED}, null, null, null, null, COL_SCHEDULED_TIME + " ASC");
         try {
-            JSONObject data = new JSONObject();
-            for (Map.Entry<String, ScheduledNotificationData> entry : scheduledNotifications.entrySet()) {
-                data.put(entry.getKey(), entry.getValue().toJson());
+            while (cursor.moveToNext()) {
+                try {
+                    ScheduledNotificationData scheduled =
+                        ScheduledNotificationData.fromJson(new JSONObject(cursor.getString(0)));
+                    if (scheduled != null) {
+                        scheduled.fired = cursor.getInt(1) == 1;
+                        index(scheduled);
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error loading scheduled notification", e);
+                }
             }
-            
-            preferences.edit()
-                .putString(KEY_SCHEDULED_NOTIFICATIONS, data.toString())
-                .apply();
-        } catch (Exception e) {
-            Log.e(TAG, "Error saving scheduled notifications", e);
+        } finally {
+            cursor.close();
         }
     }
     
+    /**
+     * Write one notification's row; called on every schedule instead of rewriting the whole set
+     */
+    private void persist(SQLiteDatabase db, ScheduledNotificationData data) {
+        SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO " + TABLE_SCHEDULED_NOTIFICATIONS +
+            " (" + COL_ID + ", " + COL_TYPE + ", " + COL_SCHEDULED_TIME + ", " + COL_FIRED + ", " + COL_PAYLOAD +
+            ") VALUES (?, ?, ?, ?, ?)");
+        try {
+            statement.bindString(1, data.id);
+            statement.bindString(2, data.notification.getType().name());
+            statement.bindLong(3, data.scheduledTime);
+            statement.bindLong(4, data.fired ? 1 : 0);
+            statement.bindString(5, data.toJson().toString());
+            statement.executeInsert();
+        } finally {
+            statement.close();
+        }
+    }
+    
+    private void index(ScheduledNotificationData data) {
+        ScheduledNotificationData previous = scheduledNotifications.get(data.id);
+        if (previous != null) {
+            unindex(previous);
+        }
+        scheduledNotifications.put(data.id, data);
+        notificationsByTime.add(data);
+        TreeSet<ScheduledNotificationData> byType = notificationsByType.get(data.notification.getType());
+        if (byType == null) {
+            byType = new TreeSet<>(ScheduledNotificationData.BY_TIME);
+            notificationsByType.put(data.notification.getType(), byType);
+        }
+        byType.add(data);
+    }
+    
+    private void unindex(ScheduledNotificationData data) {
+        scheduledNotifications.remove(data.id);
+        notificationsByTime.remove(data);
+        TreeSet<ScheduledNotificationData> byType = notificationsByType.get(data.notification.getType());
+        if (byType != null) {
+            byType.remove(data);
+        }
+    }
+    
+    /**
+     * Drop notifications that no longer affect scheduling: older than both the start of
+     * today (daily limit) and the minimum interval (spacing check)
+     */
+    private synchronized void pruneExpired(long now) {
+        long horizon = Math.min(startOfDay(now), now - MIN_NOTIFICATION_INTERVAL);
+        
+        NavigableSet<ScheduledNotificationData> expired = notificationsByTime.headSet(ScheduledNotificationData.probe(horizon), false);
+        while (!expired.isEmpty()) {
+            unindex(expired.first());
+        }
+        
+        databaseHelper.getWritableDatabase().delete(TABLE_SCHEDULED_NOTIFICATIONS,
+            COL_SCHEDULED_TIME + " < ?", new String[]{String.valueOf(horizon)});
+    }
+    
+    /**
+     * Record that a scheduled notification's alarm went off. It keeps counting toward today's
+     * limit and the spacing check until it ages out, but is no longer offered for rescheduling.
+     */
+    public synchronized void markFired(String notificationId) {
+        ScheduledNotificationData data = notificationId != null ? scheduledNotifications.get(notificationId) : null;
+        if (data != null && !data.fired) {
+            data.fired = true;
+            ContentValues values = new ContentValues();
+            values.put(COL_FIRED, 1);
+            databaseHelper.getWritableDatabase().update(TABLE_SCHEDULED_NOTIFICATIONS, values,
+                COL_ID + " = ?", new String[]{notificationId});
+        }
+        pruneExpired(System.currentTimeMillis());
+    }
+    
     private void initializeOptimalWindows() {
         // Initialize optimal time windows for each notification type
         for (NotificationType type : NotificationType.values()) {
@@ -164,8 +295,10 @@ public class NotificationScheduler {
                 notification,
                 scheduledTime
             );
-            scheduledNotifications.put(notificationId, data);
-            saveScheduledNotifications();
+            synchronized (this) {
+                index(data);
+                persist(databaseHelper.getWritableDatabase(), data);
+            }
             
             Log.d(TAG, "Scheduled notification: " + notificationId + " at " + new Date(scheduledTime));
             
@@ -254,16 +387,17 @@ public class NotificationScheduler {
         long windowStart = time - TimeUnit.MINUTES.toMillis(30);
         long windowEnd = time + TimeUnit.MINUTES.toMillis(30);
         
+        // Range query on the time index; results come back already sorted
         List<Long> nearbyTimes = new ArrayList<>();
-        for (ScheduledNotificationData data : scheduledNotifications.values()) {
-            if (data.scheduledTime >= windowStart && data.scheduledTime <= windowEnd) {
+        synchronized (this) {
+            for (ScheduledNotificationData data : notificationsByTime.subSet(
+                    ScheduledNotificationData.probe(windowStart), true,
+                    ScheduledNotificationData.probe(windowEnd + 1), false)) {
                 nearbyTimes.add(data.scheduledTime);
             }
         }
         
         if (!nearbyTimes.isEmpty()) {
-            // Adjust time to avoid clustering
-            Collections.sort(nearbyTimes);
             
             // Find gap in schedule
             long adjustedTime = findScheduleGap(nearbyTimes, time);
@@ -353,47 +487,51 @@ public class NotificationScheduler {
             alarmManager.cancel(pendingIntent);
             
             // Remove from tracking
-            scheduledNotifications.remove(notificationId);
-            saveScheduledNotifications();
+            synchronized (this) {
+                unindex(data);
+                databaseHelper.getWritableDatabase().delete(TABLE_SCHEDULED_NOTIFICATIONS,
+                    COL_ID + " = ?", new String[]{notificationId});
+            }
         }
     }
     
-    public List<ScheduledNotification> getScheduledNotifications() {
+    /**
+     * Pending (not yet fired) notifications in time order
+     */
+    public synchronized List<ScheduledNotification> getScheduledNotifications() {
         List<ScheduledNotification> result = new ArrayList<>();
-        for (ScheduledNotificationData data : scheduledNotifications.values()) {
-            result.add(data.notification);
+        for (ScheduledNotificationData data : notificationsByTime) {
+            if (!data.fired) {
+                result.add(data.notification);
+            }
         }
         return result;
     }
     
-    private int getScheduledCountForToday() {
-        Calendar today = Calendar.getInstance();
-        today.set(Calendar.HOUR_OF_DAY, 0);
-        today.set(Calendar.MINUTE, 0);
-        today.set(Calendar.SECOND, 0);
-        
-        Calendar tomorrow = (Calendar) today.clone();
+    private synchronized int getScheduledCountForToday() {
+        long todayStart = startOfDay(System.currentTimeMillis());
+        Calendar tomorrow = Calendar.getInstance();
+        tomorrow.setTimeInMillis(todayStart);
         tomorrow.add(Calendar.DAY_OF_YEAR, 1);
         
-        int count = 0;
-        for (ScheduledNotificationData data : scheduledNotifications.values()) {
-            if (data.scheduledTime >= today.getTimeInMillis() && 
-                data.scheduledTime < tomorrow.getTimeInMillis()) {
-                count++;
-            }
-        }
-        
-        return count;
+        return notificationsByTime.subSet(
+            ScheduledNotificationData.probe(todayStart), true,
+            ScheduledNotificationData.probe(tomorrow.getTimeInMillis()), false).size();
     }
     
-    private long getLastScheduledTime(NotificationType type) {
-        long lastTime = 0;
-        for (ScheduledNotificationData data : scheduledNotifications.values()) {
-            if (data.notification.getType() == type) {
-                lastTime = Math.max(lastTime, data.scheduledTime);
-            }
-        }
-        return lastTime;
+    private synchronized long getLastScheduledTime(NotificationType type) {
+        TreeSet<ScheduledNotificationData> byType = notificationsByType.get(type);
+        return byType == null || byType.isEmpty() ? 0 : byType.last().scheduledTime;
+    }
+    
+    private static long startOfDay(long time) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis(time);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
     }
     
     private NotificationPreference getUserPreference(NotificationType type) {
@@ -432,9 +570,23 @@ public class NotificationScheduler {
     
     // Helper classes
     private static class ScheduledNotificationData {
+        // Orders by time, then id so notifications at the same instant are all kept
+        static final Comparator<ScheduledNotificationData> BY_TIME = (a, b) -> {
+            int byTime = Long.compare(a.scheduledTime, b.scheduledTime);
+            return byTime != 0 ? byTime : a.id.compareTo(b.id);
+        };
+        
         String id;
         ScheduledNotification notification;
         long scheduledTime;
+        boolean fired;
+        
+        /**
+         * Range bound for the time index; sorts before every real entry at the same time
+         */
+        static ScheduledNotificationData probe(long time) {
+            return new ScheduledNotificationData("", null, time);
+        }
         
         ScheduledNotificationData(String id, ScheduledNotification notification, long scheduledTime) {
             this.id = id;
@@ -6,29 +6,72 @@ import android.util.Log;
 
 import com.locallife.model.ActivityType;
 import com.locallife.model.PredictionResult;
+import com.locallife.utils.EpochDays;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.stream.Collectors;
 
 /**
- * Service to track and improve prediction accuracy of the Activity Prediction Engine
+ * Service to track and improve prediction accuracy of the Activity Prediction Engine.
+ * Validated outcomes live in a fixed-size ring of primitive arrays that is mirrored slot by
+ * slot to a file, and every statistic is served from running counters (per activity, weather
+ * condition, time slot, day and confidence bin) instead of rescanning the history.
  */
 public class PredictionAccuracyTracker {
     private static final String TAG = "PredictionAccuracyTracker";
     private static final String PREFS_NAME = "prediction_accuracy_tracker";
     private static final int MAX_STORED_PREDICTIONS = 1000;
     private static final int ACCURACY_CALCULATION_WINDOW = 30; // days
+    private static final int TREND_DAYS = 56; // 8 weeks of daily buckets
+    private static final int CALIBRATION_BINS = 10;
+    
+    private static final String HISTORY_FILE = "prediction_accuracy_history.bin";
+    private static final int HISTORY_FILE_VERSION = 1;
+    // version, capacity, head, size
+    private static final int HISTORY_HEADER_BYTES = 16;
+    // time(8) predicted(1) actual(1) weather(1) time slot(1) confidence(4) accuracy(4)
+    private static final int HISTORY_RECORD_BYTES = 20;
+    private static final byte NONE = -1;
+    
+    private static final ActivityType[] ACTIVITY_TYPES = ActivityType.values();
+    private static final String[] WEATHER_CONDITIONS = {"clear", "cloudy", "rain", "storm", "snow", "fog"};
+    private static final String[] TIME_SLOTS = {"MORNING", "AFTERNOON", "EVENING", "NIGHT"};
     
     private Context context;
     private SharedPreferences preferences;
-    private Queue<PredictionResult> predictionHistory;
+    private File historyFile;
     private Map<String, AccuracyMetrics> accuracyMetrics;
-    private Map<ActivityType, ActivityAccuracy> activityAccuracies;
-    private Map<String, WeatherAccuracy> weatherAccuracies;
-    private Map<String, TimeAccuracy> timeAccuracies;
+    
+    // Ring buffer of validated outcomes; slot i of every array describes the same prediction
+    private final long[] historyTimes = new long[MAX_STORED_PREDICTIONS];
+    private final byte[] historyPredicted = new byte[MAX_STORED_PREDICTIONS];
+    private final byte[] historyActual = new byte[MAX_STORED_PREDICTIONS];
+    private final byte[] historyWeather = new byte[MAX_STORED_PREDICTIONS];
+    private final byte[] historyTimeSlot = new byte[MAX_STORED_PREDICTIONS];
+    private final float[] historyConfidence = new float[MAX_STORED_PREDICTIONS];
+    private final float[] historyAccuracy = new float[MAX_STORED_PREDICTIONS];
+    private int historyHead; // next slot to write
+    private int historySize;
+    
+    // All-time counters, indexed by activity ordinal / WEATHER_CONDITIONS / TIME_SLOTS
+    private final BucketCounters activityCounters = new BucketCounters(ACTIVITY_TYPES.length);
+    private final int[] activityMissed = new int[ACTIVITY_TYPES.length];
+    private final BucketCounters weatherCounters = new BucketCounters(WEATHER_CONDITIONS.length);
+    private final BucketCounters timeCounters = new BucketCounters(TIME_SLOTS.length);
+    
+    // Counters over the ring contents, updated on every insert and eviction
+    private final BucketCounters dayCounters = new BucketCounters(TREND_DAYS);
+    private final int[] dayBucketDay = new int[TREND_DAYS]; // epoch day each bucket holds
+    private final BucketCounters calibrationHits = new BucketCounters(CALIBRATION_BINS);
+    private final double[] calibrationConfidence = new double[CALIBRATION_BINS];
+    private int windowEndDay;
+    private double windowAccuracySum;
+    private int windowCount;
     
     // Accuracy tracking
     private double overallAccuracy;
@@ -39,17 +82,15 @@ public class PredictionAccuracyTracker {
     public PredictionAccuracyTracker(Context context) {
         this.context = context;
         this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        this.predictionHistory = new ConcurrentLinkedQueue<>();
+        this.historyFile = new File(context.getFilesDir(), HISTORY_FILE);
         this.accuracyMetrics = new ConcurrentHashMap<>();
-        this.activityAccuracies = new ConcurrentHashMap<>();
-        this.weatherAccuracies = new ConcurrentHashMap<>();
-        this.timeAccuracies = new ConcurrentHashMap<>();
-        
-        // Load saved data
-        loadSavedData();
         
         // Initialize metrics
         initializeMetrics();
+        
+        // Load saved data
+        loadSavedData();
+        loadHistory();
     }
     
     /**
@@ -61,6 +102,11 @@ public class PredictionAccuracyTracker {
         correctPredictions = preferences.getLong("correct_predictions", 0);
         lastUpdateTime = new Date(preferences.getLong("last_update_time", System.currentTimeMillis()));
         
+        activityCounters.decode(preferences.getString("activity_counters", null));
+        weatherCounters.decode(preferences.getString("weather_counters", null));
+        timeCounters.decode(preferences.getString("time_counters", null));
+        decodeInts(preferences.getString("activity_missed", null), activityMissed);
+        
         Log.d(TAG, "Loaded accuracy data: " + overallAccuracy + " (" + correctPredictions + "/" + totalPredictions + ")");
     }
     
@@ -73,6 +119,10 @@ public class PredictionAccuracyTracker {
         editor.putLong("total_predictions", totalPredictions);
         editor.putLong("correct_predictions", correctPredictions);
         editor.putLong("last_update_time", new Date().getTime());
+        editor.putString("activity_counters", activityCounters.encode());
+        editor.putString("weather_counters", weatherCounters.encode());
+        editor.putString("time_counters", timeCounters.encode());
+        editor.putString("activity_missed", encodeInts(activityMissed));
         editor.apply();
     }
     
@@ -80,130 +130,274 @@ public class PredictionAccuracyTracker {
      * Initialize accuracy metrics
      */
     private void initializeMetrics() {
-        // Initialize activity accuracy tracking
-        for (ActivityType activityType : ActivityType.values()) {
-            activityAccuracies.put(activityType, new ActivityAccuracy(activityType));
-        }
-        
-        // Initialize weather accuracy tracking
-        String[] weatherConditions = {"clear", "cloudy", "rain", "storm", "snow", "fog"};
-        for (String condition : weatherConditions) {
-            weatherAccuracies.put(condition, new WeatherAccuracy(condition));
-        }
-        
-        // Initialize time accuracy tracking
-        String[] timeSlots = {"MORNING", "AFTERNOON", "EVENING", "NIGHT"};
-        for (String timeSlot : timeSlots) {
-            timeAccuracies.put(timeSlot, new TimeAccuracy(timeSlot));
-        }
+        activityCounters.clearAll();
+        Arrays.fill(activityMissed, 0);
+        weatherCounters.clearAll();
+        timeCounters.clearAll();
+        
+        dayCounters.clearAll();
+        Arrays.fill(dayBucketDay, Integer.MIN_VALUE);
+        calibrationHits.clearAll();
+        Arrays.fill(calibrationConfidence, 0.0);
+        windowEndDay = EpochDays.today();
+        windowAccuracySum = 0.0;
+        windowCount = 0;
+        
+        historyHead = 0;
+        historySize = 0;
     }
     
     /**
      * Record a prediction result for accuracy tracking
      */
-    public void recordPredictionAccuracy(PredictionResult result) {
+    public synchronized void recordPredictionAccuracy(PredictionResult result) {
         if (result == null || !result.isValidated()) {
             return;
         }
         
         Log.d(TAG, "Recording prediction accuracy: " + result.getPredictionAccuracy());
         
-        // Add to history
-        predictionHistory.offer(result);
-        
-        // Limit history size
-        while (predictionHistory.size() > MAX_STORED_PREDICTIONS) {
-            predictionHistory.poll();
-        }
+        // Add to history, evicting the oldest outcome once the ring is full
+        int slot = addToHistory(result);
         
         // Update overall accuracy
         updateOverallAccuracy(result);
         
         // Update activity-specific accuracy
-        updateActivityAccuracy(result);
+        updateActivityAccuracy(slot);
         
         // Update weather-specific accuracy
-        updateWeatherAccuracy(result);
+        if (historyWeather[slot] != NONE) {
+            weatherCounters.add(historyWeather[slot], historyAccuracy[slot]);
+        }
         
         // Update time-specific accuracy
-        updateTimeAccuracy(result);
+        if (historyTimeSlot[slot] != NONE) {
+            timeCounters.add(historyTimeSlot[slot], historyAccuracy[slot]);
+        }
         
         // Update method-specific accuracy
         updateMethodAccuracy(result);
         
         // Save data
         saveData();
+        persistHistorySlot(slot);
         
         // Log improvement suggestions
         logImprovementSuggestions();
     }
     
     /**
-     * Update overall accuracy metrics
+     * Write a result into the next ring slot and return that slot
      */
-    private void updateOverallAccuracy(PredictionResult result) {
-        totalPredictions++;
-        
-        if (result.getPredictionAccuracy() >= 0.5) {
-            correctPredictions++;
+    private int addToHistory(PredictionResult result) {
+        int slot = historyHead;
+        if (historySize == MAX_STORED_PREDICTIONS) {
+            removeFromWindowCounters(slot);
+        } else {
+            historySize++;
+        }
+        
+        Date predictionTime = result.getPredictionTime();
+        historyTimes[slot] = predictionTime != null ? predictionTime.getTime() : System.currentTimeMillis();
+        historyPredicted[slot] = ordinalOf(result.getPredictedActivity());
+        historyActual[slot] = ordinalOf(result.getActualActivity());
+        historyWeather[slot] = NONE;
+        historyTimeSlot[slot] = NONE;
+        if (result.getWeatherContext() != null) {
+            historyWeather[slot] = (byte) indexOf(WEATHER_CONDITIONS,
+                normalizeWeatherCondition(result.getWeatherContext().getWeatherCondition()));
+            historyTimeSlot[slot] = (byte) indexOf(TIME_SLOTS, result.getWeatherContext().getTimeOfDay());
+        }
+        historyConfidence[slot] = (float) result.getConfidenceScore();
+        historyAccuracy[slot] = (float) result.getPredictionAccuracy();
+        
+        addToWindowCounters(slot);
+        historyHead = (slot + 1) % MAX_STORED_PREDICTIONS;
+        return slot;
+    }
+    
+    /**
+     * Count a ring slot into its day bucket, the recent window and its calibration bin
+     */
+    private void addToWindowCounters(int slot) {
+        advanceWindow(EpochDays.today());
+        
+        int day = EpochDays.fromMillis(historyTimes[slot]);
+        int bucket = Math.floorMod(day, TREND_DAYS);
+        // Never let an older day overwrite a newer one sharing the bucket
+        if (day >= dayBucketDay[bucket]) {
+            if (day > dayBucketDay[bucket]) {
+                dayCounters.clear(bucket);
+                dayBucketDay[bucket] = day;
+            }
+            dayCounters.add(bucket, historyAccuracy[slot]);
+            if (isInWindow(day)) {
+                windowAccuracySum += historyAccuracy[slot];
+                windowCount++;
+            }
         }
         
-        overallAccuracy = (double) correctPredictions / totalPredictions;
-        lastUpdateTime = new Date();
+        int bin = calibrationBin(historyConfidence[slot]);
+        calibrationHits.add(bin, historyAccuracy[slot] >= 0.5 ? 1.0 : 0.0);
+        calibrationConfidence[bin] += historyConfidence[slot];
+    }
+    
+    private void removeFromWindowCounters(int slot) {
+        int day = EpochDays.fromMillis(historyTimes[slot]);
+        int bucket = Math.floorMod(day, TREND_DAYS);
+        if (dayBucketDay[bucket] == day) {
+            dayCounters.remove(bucket, historyAccuracy[slot]);
+            if (isInWindow(day)) {
+                windowAccuracySum -= historyAccuracy[slot];
+                windowCount--;
+            }
+        }
         
-        Log.d(TAG, "Updated overall accuracy: " + String.format("%.2f%%", overallAccuracy * 100));
+        int bin = calibrationBin(historyConfidence[slot]);
+        calibrationHits.remove(bin, historyAccuracy[slot] >= 0.5 ? 1.0 : 0.0);
+        calibrationConfidence[bin] -= historyConfidence[slot];
     }
     
     /**
-     * Update activity-specific accuracy
+     * Move the recent window forward to end on the given day, dropping days that fall out of it
      */
-    private void updateActivityAccuracy(PredictionResult result) {
-        ActivityType predictedActivity = result.getPredictedActivity();
-        ActivityType actualActivity = result.getActualActivity();
-        
-        if (predictedActivity != null) {
-            ActivityAccuracy accuracy = activityAccuracies.get(predictedActivity);
-            if (accuracy != null) {
-                accuracy.addPrediction(result.getPredictionAccuracy());
-            }
+    private void advanceWindow(int today) {
+        if (today <= windowEndDay) {
+            return;
         }
         
-        if (actualActivity != null && actualActivity != predictedActivity) {
-            ActivityAccuracy accuracy = activityAccuracies.get(actualActivity);
-            if (accuracy != null) {
-                accuracy.recordMissedPrediction();
+        if (today - windowEndDay >= ACCURACY_CALCULATION_WINDOW) {
+            windowAccuracySum = 0.0;
+            windowCount = 0;
+        } else {
+            for (int day = windowEndDay - ACCURACY_CALCULATION_WINDOW + 1; day <= today - ACCURACY_CALCULATION_WINDOW; day++) {
+                int bucket = Math.floorMod(day, TREND_DAYS);
+                if (dayBucketDay[bucket] == day) {
+                    windowAccuracySum -= dayCounters.sums[bucket];
+                    windowCount -= dayCounters.counts[bucket];
+                }
             }
         }
+        if (windowCount == 0) {
+            windowAccuracySum = 0.0; // drop accumulated float drift
+        }
+        windowEndDay = today;
+    }
+    
+    private boolean isInWindow(int day) {
+        return day <= windowEndDay && day > windowEndDay - ACCURACY_CALCULATION_WINDOW;
     }
     
     /**
-     * Update weather-specific accuracy
+     * Restore the ring buffer from its file and rebuild the counters that depend on it
      */
-    private void updateWeatherAccuracy(PredictionResult result) {
-        if (result.getWeatherContext() == null) return;
-        
-        String weatherCondition = result.getWeatherContext().getWeatherCondition();
-        if (weatherCondition != null) {
-            String normalizedCondition = normalizeWeatherCondition(weatherCondition);
-            WeatherAccuracy accuracy = weatherAccuracies.get(normalizedCondition);
-            if (accuracy != null) {
-                accuracy.addPrediction(result.getPredictionAccuracy());
+    private void loadHistory() {
+        if (!historyFile.exists()) {
+            return;
+        }
+        
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "r")) {
+            byte[] bytes = new byte[(int) file.length()];
+            file.readFully(bytes);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            if (bytes.length < HISTORY_HEADER_BYTES || buffer.getInt() != HISTORY_FILE_VERSION
+                    || buffer.getInt() != MAX_STORED_PREDICTIONS) {
+                Log.w(TAG, "Ignoring incompatible accuracy history file");
+                return;
+            }
+            int head = buffer.getInt();
+            int size = buffer.getInt();
+            if (head < 0 || head >= MAX_STORED_PREDICTIONS || size < 0 || size > MAX_STORED_PREDICTIONS) {
+                Log.w(TAG, "Ignoring corrupt accuracy history file");
+                return;
+            }
+            
+            // Replay oldest to newest so counters see the same sequence as when recorded
+            int oldest = Math.floorMod(head - size, MAX_STORED_PREDICTIONS);
+            for (int i = 0; i < size; i++) {
+                int slot = (oldest + i) % MAX_STORED_PREDICTIONS;
+                int offset = HISTORY_HEADER_BYTES + slot * HISTORY_RECORD_BYTES;
+                if (offset + HISTORY_RECORD_BYTES > bytes.length) {
+                    break; // slot write interrupted before the file grew to hold it
+                }
+                buffer.position(offset);
+                historyTimes[slot] = buffer.getLong();
+                historyPredicted[slot] = buffer.get();
+                historyActual[slot] = buffer.get();
+                historyWeather[slot] = buffer.get();
+                historyTimeSlot[slot] = buffer.get();
+                historyConfidence[slot] = buffer.getFloat();
+                historyAccuracy[slot] = buffer.getFloat();
+                historySize++;
+                addToWindowCounters(slot);
             }
+            historyHead = (oldest + historySize) % MAX_STORED_PREDICTIONS;
+            
+            Log.d(TAG, "Loaded " + historySize + " prediction outcomes");
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading accuracy history", e);
         }
     }
     
     /**
-     * Update time-specific accuracy
+     * Write one ring slot and the header; the file never holds more than the ring
      */
-    private void updateTimeAccuracy(PredictionResult result) {
-        if (result.getWeatherContext() == null) return;
-        
-        String timeOfDay = result.getWeatherContext().getTimeOfDay();
-        if (timeOfDay != null) {
-            TimeAccuracy accuracy = timeAccuracies.get(timeOfDay);
-            if (accuracy != null) {
-                accuracy.addPrediction(result.getPredictionAccuracy());
-            }
+    private void persistHistorySlot(int slot) {
+        ByteBuffer record = ByteBuffer.allocate(HISTORY_RECORD_BYTES);
+        record.putLong(historyTimes[slot]);
+        record.put(historyPredicted[slot]);
+        record.put(historyActual[slot]);
+        record.put(historyWeather[slot]);
+        record.put(historyTimeSlot[slot]);
+        record.putFloat(historyConfidence[slot]);
+        record.putFloat(historyAccuracy[slot]);
+        
+        ByteBuffer header = ByteBuffer.allocate(HISTORY_HEADER_BYTES);
+        header.putInt(HISTORY_FILE_VERSION);
+        header.putInt(MAX_STORED_PREDICTIONS);
+        header.putInt(historyHead);
+        header.putInt(historySize);
+        
+        try (RandomAccessFile file = new RandomAccessFile(historyFile, "rw")) {
+            file.seek(HISTORY_HEADER_BYTES + (long) slot * HISTORY_RECORD_BYTES);
+            file.write(record.array());
+            file.seek(0);
+            file.write(header.array());
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving accuracy history", e);
+        }
+    }
+    
+    /**
+     * Update overall accuracy metrics
+     */
+    private void updateOverallAccuracy(PredictionResult result) {
+        totalPredictions++;
+        
+        if (result.getPredictionAccuracy() >= 0.5) {
+            correctPredictions++;
+        }
+        
+        overallAccuracy = (double) correctPredictions / totalPredictions;
+        lastUpdateTime = new Date();
+        
+        Log.d(TAG, "Updated overall accuracy: " + String.format("%.2f%%", overallAccuracy * 100));
+    }
+    
+    /**
+     * Update activity-specific accuracy
+     */
+    private void updateActivityAccuracy(int slot) {
+        byte predicted = historyPredicted[slot];
+        byte actual = historyActual[slot];
+        
+        if (predicted != NONE) {
+            activityCounters.add(predicted, historyAccuracy[slot]);
+        }
+        
+        if (actual != NONE && actual != predicted) {
+            activityMissed[actual]++;
         }
     }
     
@@ -221,7 +415,7 @@ public class PredictionAccuracyTracker {
     /**
      * Get overall accuracy statistics
      */
-    public Map<String, Double> getAccuracyStatistics() {
+    public synchronized Map<String, Double> getAccuracyStatistics() {
         Map<String, Double> stats = new HashMap<>();
         
         // Overall accuracy
@@ -232,6 +426,7 @@ public class PredictionAccuracyTracker {
         // Recent accuracy (last 30 days)
         double recentAccuracy = calculateRecentAccuracy();
         stats.put("recent_accuracy", recentAccuracy);
+        stats.put("calibration_error", calculateCalibrationError());
         
         // Method-specific accuracy
         for (Map.Entry<String, AccuracyMetrics> entry : accuracyMetrics.entrySet()) {
@@ -239,48 +434,60 @@ public class PredictionAccuracyTracker {
         }
         
         // Activity-specific accuracy
-        for (Map.Entry<ActivityType, ActivityAccuracy> entry : activityAccuracies.entrySet()) {
-            stats.put(entry.getKey().name().toLowerCase() + "_accuracy", entry.getValue().getAccuracy());
+        for (int i = 0; i < ACTIVITY_TYPES.length; i++) {
+            stats.put(ACTIVITY_TYPES[i].name().toLowerCase() + "_accuracy", activityCounters.average(i));
         }
         
         // Weather-specific accuracy
-        for (Map.Entry<String, WeatherAccuracy> entry : weatherAccuracies.entrySet()) {
-            stats.put("weather_" + entry.getKey() + "_accuracy", entry.getValue().getAccuracy());
+        for (int i = 0; i < WEATHER_CONDITIONS.length; i++) {
+            stats.put("weather_" + WEATHER_CONDITIONS[i] + "_accuracy", weatherCounters.average(i));
         }
         
         // Time-specific accuracy
-        for (Map.Entry<String, TimeAccuracy> entry : timeAccuracies.entrySet()) {
-            stats.put("time_" + entry.getKey().toLowerCase() + "_accuracy", entry.getValue().getAccuracy());
+        for (int i = 0; i < TIME_SLOTS.length; i++) {
+            stats.put("time_" + TIME_SLOTS[i].toLowerCase() + "_accuracy", timeCounters.average(i));
         }
         
         return stats;
     }
     
     /**
-     * Calculate recent accuracy (last 30 days)
+     * Calculate recent accuracy (last 30 days) from the running window sums
      */
     private double calculateRecentAccuracy() {
-        long thirtyDaysAgo = System.currentTimeMillis() - (30L * 24 * 60 * 60 * 1000);
-        
-        List<PredictionResult> recentPredictions = predictionHistory.stream()
-            .filter(result -> result.getPredictionTime().getTime() > thirtyDaysAgo)
-            .collect(Collectors.toList());
+        advanceWindow(EpochDays.today());
         
-        if (recentPredictions.isEmpty()) {
+        if (windowCount == 0) {
             return overallAccuracy;
         }
         
-        double totalAccuracy = recentPredictions.stream()
-            .mapToDouble(PredictionResult::getPredictionAccuracy)
-            .sum();
+        return windowAccuracySum / windowCount;
+    }
+    
+    /**
+     * Expected calibration error over the stored outcomes: the count-weighted gap between
+     * mean confidence and hit rate in each confidence bin
+     */
+    private double calculateCalibrationError() {
+        if (historySize == 0) {
+            return 0.0;
+        }
         
-        return totalAccuracy / recentPredictions.size();
+        double error = 0.0;
+        for (int bin = 0; bin < CALIBRATION_BINS; bin++) {
+            int count = calibrationHits.counts[bin];
+            if (count > 0) {
+                double meanConfidence = calibrationConfidence[bin] / count;
+                error += count * Math.abs(meanConfidence - calibrationHits.average(bin));
+            }
+        }
+        return error / historySize;
     }
     
     /**
      * Get detailed accuracy breakdown
      */
-    public Map<String, Object> getDetailedAccuracyBreakdown() {
+    public synchronized Map<String, Object> getDetailedAccuracyBreakdown() {
         Map<String, Object> breakdown = new HashMap<>();
         
         // Overall metrics
@@ -288,6 +495,7 @@ public class PredictionAccuracyTracker {
         overallMetrics.put("accuracy", overallAccuracy);
         overallMetrics.put("total_predictions", (double) totalPredictions);
         overallMetrics.put("recent_accuracy", calculateRecentAccuracy());
+        overallMetrics.put("calibration_error", calculateCalibrationError());
         breakdown.put("overall", overallMetrics);
         
         // Method breakdown
@@ -304,45 +512,55 @@ public class PredictionAccuracyTracker {
         
         // Activity breakdown
         Map<String, Map<String, Double>> activityBreakdown = new HashMap<>();
-        for (Map.Entry<ActivityType, ActivityAccuracy> entry : activityAccuracies.entrySet()) {
+        for (int i = 0; i < ACTIVITY_TYPES.length; i++) {
             Map<String, Double> activityStats = new HashMap<>();
-            ActivityAccuracy accuracy = entry.getValue();
-            activityStats.put("accuracy", accuracy.getAccuracy());
-            activityStats.put("total_predictions", (double) accuracy.getTotalPredictions());
-            activityStats.put("missed_predictions", (double) accuracy.getMissedPredictions());
-            activityBreakdown.put(entry.getKey().name(), activityStats);
+            activityStats.put("accuracy", activityCounters.average(i));
+            activityStats.put("total_predictions", (double) activityCounters.counts[i]);
+            activityStats.put("missed_predictions", (double) activityMissed[i]);
+            activityBreakdown.put(ACTIVITY_TYPES[i].name(), activityStats);
         }
         breakdown.put("activities", activityBreakdown);
         
         // Weather breakdown
         Map<String, Map<String, Double>> weatherBreakdown = new HashMap<>();
-        for (Map.Entry<String, WeatherAccuracy> entry : weatherAccuracies.entrySet()) {
+        for (int i = 0; i < WEATHER_CONDITIONS.length; i++) {
             Map<String, Double> weatherStats = new HashMap<>();
-            WeatherAccuracy accuracy = entry.getValue();
-            weatherStats.put("accuracy", accuracy.getAccuracy());
-            weatherStats.put("total_predictions", (double) accuracy.getTotalPredictions());
-            weatherBreakdown.put(entry.getKey(), weatherStats);
+            weatherStats.put("accuracy", weatherCounters.average(i));
+            weatherStats.put("total_predictions", (double) weatherCounters.counts[i]);
+            weatherBreakdown.put(WEATHER_CONDITIONS[i], weatherStats);
         }
         breakdown.put("weather", weatherBreakdown);
         
         // Time breakdown
         Map<String, Map<String, Double>> timeBreakdown = new HashMap<>();
-        for (Map.Entry<String, TimeAccuracy> entry : timeAccuracies.entrySet()) {
+        for (int i = 0; i < TIME_SLOTS.length; i++) {
             Map<String, Double> timeStats = new HashMap<>();
-            TimeAccuracy accuracy = entry.getValue();
-            timeStats.put("accuracy", accuracy.getAccuracy());
-            timeStats.put("total_predictions", (double) accuracy.getTotalPredictions());
-            timeBreakdown.put(entry.getKey(), timeStats);
+            timeStats.put("accuracy", timeCounters.average(i));
+            timeStats.put("total_predictions", (double) timeCounters.counts[i]);
+            timeBreakdown.put(TIME_SLOTS[i], timeStats);
         }
         breakdown.put("time", timeBreakdown);
         
+        // Calibration breakdown, keyed by confidence range
+        Map<String, Map<String, Double>> calibrationBreakdown = new LinkedHashMap<>();
+        for (int bin = 0; bin < CALIBRATION_BINS; bin++) {
+            int count = calibrationHits.counts[bin];
+            Map<String, Double> binStats = new HashMap<>();
+            binStats.put("confidence", count > 0 ? calibrationConfidence[bin] / count : 0.0);
+            binStats.put("hit_rate", calibrationHits.average(bin));
+            binStats.put("total_predictions", (double) count);
+            calibrationBreakdown.put(String.format(Locale.US, "%.1f-%.1f",
+                (double) bin / CALIBRATION_BINS, (double) (bin + 1) / CALIBRATION_BINS), binStats);
+        }
+        breakdown.put("calibration", calibrationBreakdown);
+        
         return breakdown;
     }
     
     /**
      * Get improvement suggestions based on accuracy patterns
      */
-    public List<String> getImprovementSuggestions() {
+    public synchronized List<String> getImprovementSuggestions() {
         List<String> suggestions = new ArrayList<>();
         
         // Check overall accuracy
@@ -361,21 +579,24 @@ public class PredictionAccuracyTracker {
         }
         
         // Check activity performance
-        List<ActivityType> poorActivities = activityAccuracies.entrySet().stream()
-            .filter(entry -> entry.getValue().getAccuracy() < 0.4)
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toList());
+        List<String> poorActivities = new ArrayList<>();
+        for (int i = 0; i < ACTIVITY_TYPES.length; i++) {
+            if (activityCounters.average(i) < 0.4) {
+                poorActivities.add(ACTIVITY_TYPES[i].name());
+            }
+        }
         
         if (!poorActivities.isEmpty()) {
-            suggestions.add("Poor prediction accuracy for: " + 
-                poorActivities.stream().map(Enum::name).collect(Collectors.joining(", ")));
+            suggestions.add("Poor prediction accuracy for: " + String.join(", ", poorActivities));
         }
         
         // Check weather performance
-        List<String> poorWeatherConditions = weatherAccuracies.entrySet().stream()
-            .filter(entry -> entry.getValue().getAccuracy() < 0.4)
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toList());
+        List<String> poorWeatherConditions = new ArrayList<>();
+        for (int i = 0; i < WEATHER_CONDITIONS.length; i++) {
+            if (weatherCounters.average(i) < 0.4) {
+                poorWeatherConditions.add(WEATHER_CONDITIONS[i]);
+            }
+        }
         
         if (!poorWeatherConditions.isEmpty()) {
             suggestions.add("Poor prediction accuracy for weather conditions: " + 
@@ -383,10 +604,12 @@ public class PredictionAccuracyTracker {
         }
         
         // Check time performance
-        List<String> poorTimeSlots = timeAccuracies.entrySet().stream()
-            .filter(entry -> entry.getValue().getAccuracy() < 0.4)
-            .map(Map.Entry::getKey)
-            .collect(Collectors.toList());
+        List<String> poorTimeSlots = new ArrayList<>();
+        for (int i = 0; i < TIME_SLOTS.length; i++) {
+            if (timeCounters.average(i) < 0.4) {
+                poorTimeSlots.add(TIME_SLOTS[i]);
+            }
+        }
         
         if (!poorTimeSlots.isEmpty()) {
             suggestions.add("Poor prediction accuracy for time slots: " + 
@@ -404,7 +627,7 @@ public class PredictionAccuracyTracker {
     /**
      * Get accuracy trends over time
      */
-    public Map<String, List<Double>> getAccuracyTrends() {
+    public synchronized Map<String, List<Double>> getAccuracyTrends() {
         Map<String, List<Double>> trends = new HashMap<>();
         
         // Calculate weekly accuracy trends
@@ -419,34 +642,23 @@ public class PredictionAccuracyTracker {
     }
     
     /**
-     * Calculate weekly accuracy trends
+     * Calculate weekly accuracy trends from the day buckets
      */
     private List<Double> calculateWeeklyAccuracy() {
         List<Double> weeklyAccuracy = new ArrayList<>();
-        
-        long oneWeek = 7L * 24 * 60 * 60 * 1000;
-        long currentTime = System.currentTimeMillis();
+        int today = EpochDays.today();
         
         for (int i = 0; i < 8; i++) { // Last 8 weeks
-            long weekStart = currentTime - (oneWeek * (i + 1));
-            long weekEnd = currentTime - (oneWeek * i);
-            
-            List<PredictionResult> weekPredictions = predictionHistory.stream()
-                .filter(result -> {
-                    long time = result.getPredictionTime().getTime();
-                    return time >= weekStart && time < weekEnd;
-                })
-                .collect(Collectors.toList());
-            
-            if (!weekPredictions.isEmpty()) {
-                double accuracy = weekPredictions.stream()
-                    .mapToDouble(PredictionResult::getPredictionAccuracy)
-                    .average()
-                    .orElse(0.0);
-                weeklyAccuracy.add(accuracy);
-            } else {
-                weeklyAccuracy.add(0.0);
+            double sum = 0.0;
+            int count = 0;
+            for (int day = today - 7 * i - 6; day <= today - 7 * i; day++) {
+                int bucket = Math.floorMod(day, TREND_DAYS);
+                if (dayBucketDay[bucket] == day) {
+                    sum += dayCounters.sums[bucket];
+                    count += dayCounters.counts[bucket];
+                }
             }
+            weeklyAccuracy.add(count > 0 ? sum / count : 0.0);
         }
         
         Collections.reverse(weeklyAccuracy);
@@ -454,34 +666,16 @@ public class PredictionAccuracyTracker {
     }
     
     /**
-     * Calculate daily accuracy trends
+     * Calculate daily accuracy trends from the day buckets
      */
     private List<Double> calculateDailyAccuracy() {
         List<Double> dailyAccuracy = new ArrayList<>();
-        
-        long oneDay = 24L * 60 * 60 * 1000;
-        long currentTime = System.currentTimeMillis();
+        int today = EpochDays.today();
         
         for (int i = 0; i < 14; i++) { // Last 14 days
-            long dayStart = currentTime - (oneDay * (i + 1));
-            long dayEnd = currentTime - (oneDay * i);
-            
-            List<PredictionResult> dayPredictions = predictionHistory.stream()
-                .filter(result -> {
-                    long time = result.getPredictionTime().getTime();
-                    return time >= dayStart && time < dayEnd;
-                })
-                .collect(Collectors.toList());
-            
-            if (!dayPredictions.isEmpty()) {
-                double accuracy = dayPredictions.stream()
-                    .mapToDouble(PredictionResult::getPredictionAccuracy)
-                    .average()
-                    .orElse(0.0);
-                dailyAccuracy.add(accuracy);
-            } else {
-                dailyAccuracy.add(0.0);
-            }
+            int day = today - i;
+            int bucket = Math.floorMod(day, TREND_DAYS);
+            dailyAccuracy.add(dayBucketDay[bucket] == day ? dayCounters.average(bucket) : 0.0);
         }
         
         Collections.reverse(dailyAccuracy);
@@ -517,15 +711,51 @@ public class PredictionAccuracyTracker {
         return "unknown";
     }
     
+    private static byte ordinalOf(ActivityType activityType) {
+        return activityType != null ? (byte) activityType.ordinal() : NONE;
+    }
+    
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+    
+    private static int calibrationBin(float confidence) {
+        int bin = (int) (confidence * CALIBRATION_BINS);
+        return Math.max(0, Math.min(CALIBRATION_BINS - 1, bin));
+    }
+    
+    private static String encodeInts(int[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) builder.append(',');
+            builder.append(values[i]);
+        }
+        return builder.toString();
+    }
+    
+    private static void decodeInts(String encoded, int[] values) {
+        if (encoded == null || encoded.isEmpty()) return;
+        
+        String[] parts = encoded.split(",");
+        try {
+            for (int i = 0; i < Math.min(parts.length, values.length); i++) {
+                values[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Ignoring malformed counters: " + encoded);
+        }
+    }
+    
     /**
      * Reset accuracy tracking (for testing or fresh start)
      */
-    public void resetAccuracyTracking() {
-        predictionHistory.clear();
+    public synchronized void resetAccuracyTracking() {
         accuracyMetrics.clear();
-        activityAccuracies.clear();
-        weatherAccuracies.clear();
-        timeAccuracies.clear();
         
         overallAccuracy = 0.0;
         totalPredictions = 0;
@@ -539,6 +769,9 @@ public class PredictionAccuracyTracker {
         SharedPreferences.Editor editor = preferences.edit();
         editor.clear();
         editor.apply();
+        if (historyFile.exists() && !historyFile.delete()) {
+            Log.w(TAG, "Could not delete accuracy history file");
+        }
         
         Log.d(TAG, "Accuracy tracking reset");
     }
@@ -546,13 +779,14 @@ public class PredictionAccuracyTracker {
     /**
      * Get accuracy summary for reporting
      */
-    public String getAccuracySummary() {
+    public synchronized String getAccuracySummary() {
         StringBuilder summary = new StringBuilder();
         
         summary.append("=== Prediction Accuracy Summary ===\n");
         summary.append(String.format("Overall Accuracy: %.2f%% (%d/%d)\n", 
             overallAccuracy * 100, correctPredictions, totalPredictions));
         summary.append(String.format("Recent Accuracy: %.2f%%\n", calculateRecentAccuracy() * 100));
+        summary.append(String.format("Calibration Error: %.3f\n", calculateCalibrationError()));
         summary.append(String.format("Last Updated: %s\n", 
             new SimpleDateFormat("yyyy-MM-dd HH:mm:ss", Locale.US).format(lastUpdateTime)));
         
@@ -564,11 +798,10 @@ public class PredictionAccuracyTracker {
         }
         
         summary.append("\n=== Activity Performance ===\n");
-        for (Map.Entry<ActivityType, ActivityAccuracy> entry : activityAccuracies.entrySet()) {
-            ActivityAccuracy accuracy = entry.getValue();
-            if (accuracy.getTotalPredictions() > 0) {
+        for (int i = 0; i < ACTIVITY_TYPES.length; i++) {
+            if (activityCounters.counts[i] > 0) {
                 summary.append(String.format("%s: %.2f%% (%d predictions)\n", 
-                    entry.getKey().name(), accuracy.getAccuracy() * 100, accuracy.getTotalPredictions()));
+                    ACTIVITY_TYPES[i].name(), activityCounters.average(i) * 100, activityCounters.counts[i]));
             }
         }
         
@@ -618,100 +851,71 @@ public class PredictionAccuracyTracker {
         }
     }
     
-    private static class ActivityAccuracy {
-        private ActivityType activityType;
-        private double totalAccuracy;
-        private int totalPredictions;
-        private int missedPredictions;
-        
-        public ActivityAccuracy(ActivityType activityType) {
-            this.activityType = activityType;
-            this.totalAccuracy = 0.0;
-            this.totalPredictions = 0;
-            this.missedPredictions = 0;
-        }
-        
-        public void addPrediction(double accuracy) {
-            this.totalAccuracy += accuracy;
-            this.totalPredictions++;
-        }
-        
-        public void recordMissedPrediction() {
-            this.missedPredictions++;
-        }
-        
-        public double getAccuracy() {
-            return totalPredictions > 0 ? totalAccuracy / totalPredictions : 0.0;
-        }
-        
-        public int getTotalPredictions() {
-            return totalPredictions;
-        }
-        
-        public int getMissedPredictions() {
-            return missedPredictions;
-        }
-        
-        public ActivityType getActivityType() {
-            return activityType;
-        }
-    }
-    
-    private static class WeatherAccuracy {
-        private String weatherCondition;
-        private double totalAccuracy;
-        private int totalPredictions;
-        
-        public WeatherAccuracy(String weatherCondition) {
-            this.weatherCondition = weatherCondition;
-            this.totalAccuracy = 0.0;
-            this.totalPredictions = 0;
-        }
-        
-        public void addPrediction(double accuracy) {
-            this.totalAccuracy += accuracy;
-            this.totalPredictions++;
-        }
+    /**
+     * Parallel accuracy sums and counts for a fixed set of buckets
+     */
+    private static class BucketCounters {
+        final double[] sums;
+        final int[] counts;
         
-        public double getAccuracy() {
-            return totalPredictions > 0 ? totalAccuracy / totalPredictions : 0.0;
+        BucketCounters(int buckets) {
+            this.sums = new double[buckets];
+            this.counts = new int[buckets];
         }
         
-        public int getTotalPredictions() {
-            return totalPredictions;
+        void add(int bucket, double accuracy) {
+            sums[bucket] += accuracy;
+            counts[bucket]++;
         }
         
-        public String getWeatherCondition() {
-            return weatherCondition;
+        void remove(int bucket, double accuracy) {
+            sums[bucket] -= accuracy;
+            counts[bucket]--;
+            if (counts[bucket] == 0) {
+                sums[bucket] = 0.0;
+            }
         }
-    }
-    
-    private static class TimeAccuracy {
-        private String timeSlot;
-        private double totalAccuracy;
-        private int totalPredictions;
         
-        public TimeAccuracy(String timeSlot) {
-            this.timeSlot = timeSlot;
-            this.totalAccuracy = 0.0;
-            this.totalPredictions = 0;
+        void clear(int bucket) {
+            sums[bucket] = 0.0;
+            counts[bucket] = 0;
         }
         
-        public void addPrediction(double accuracy) {
-            this.totalAccuracy += accuracy;
-            this.totalPredictions++;
+        void clearAll() {
+            Arrays.fill(sums, 0.0);
+            Arrays.fill(counts, 0);
         }
         
-        public double getAccuracy() {
-            return totalPredictions > 0 ? totalAccuracy / totalPredictions : 0.0;
+        double average(int bucket) {
+            return counts[bucket] > 0 ? sums[bucket] / counts[bucket] : 0.0;
         }
         
-        public int getTotalPredictions() {
-            return totalPredictions;
+        /**
+         * "count:sum" pairs separated by commas
+         */
+        String encode() {
+            StringBuilder builder = new StringBuilder();
+            for (int i = 0; i < counts.length; i++) {
+                if (i > 0) builder.append(',');
+                builder.append(counts[i]).append(':').append(sums[i]);
+            }
+            return builder.toString();
         }
         
-        public String getTimeSlot() {
-            return timeSlot;
+        void decode(String encoded) {
+            if (encoded == null || encoded.isEmpty()) return;
+            
+            String[] parts = encoded.split(",");
+            try {
+                for (int i = 0; i < Math.min(parts.length, counts.length); i++) {
+                    int separator = parts[i].indexOf(':');
+                    counts[i] = Integer.parseInt(parts[i].substring(0, separator));
+                    sums[i] = Double.parseDouble(parts[i].substring(separator + 1));
+                }
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Ignoring malformed counters: " + encoded);
+                clearAll();
+            }
         }
     }
-}
\ No newline at end of file
+}
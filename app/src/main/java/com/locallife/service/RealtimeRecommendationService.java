@@ -14,12 +14,15 @@ import androidx.core.app.NotificationCompat;
 import com.locallife.R;
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.EpochDays;
 
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for providing real-time activity recommendations based on current context
@@ -29,6 +32,18 @@ public class RealtimeRecommendationService {
     private static final String CHANNEL_ID = "activity_recommendations";
     private static final String PREFS_NAME = "recommendation_settings";
     
+    // Default context fingerprint bucket sizes; overridable through the settings below
+    private static final int DEFAULT_TEMPERATURE_BUCKET_C = 3;
+    private static final int DEFAULT_PRECIPITATION_BUCKET = 20;
+    private static final int DEFAULT_TIME_SLOT_HOURS = 1;
+    private static final int DEFAULT_STEP_BUCKET = 1000;
+    private static final int DEFAULT_SCREEN_TIME_BUCKET_MINUTES = 60;
+    private static final String KEY_TEMPERATURE_BUCKET = "debounce_temperature_bucket";
+    private static final String KEY_PRECIPITATION_BUCKET = "debounce_precipitation_bucket";
+    private static final String KEY_TIME_SLOT_HOURS = "debounce_time_slot_hours";
+    private static final String KEY_STEP_BUCKET = "debounce_step_bucket";
+    private static final String KEY_SCREEN_TIME_BUCKET = "debounce_screen_time_bucket";
+    
     private Context context;
     private DatabaseHelper databaseHelper;
     private ExecutorService backgroundExecutor;
@@ -39,6 +54,12 @@ public class RealtimeRecommendationService {
     private MLActivityClassifierService mlService;
     private BehavioralPatternService behavioralService;
     
+    // Last generated recommendations and the context they were generated for; only the
+    // background executor reads or replaces them
+    private volatile RecommendationSet latestRecommendations;
+    private final AtomicInteger executedRegenerations = new AtomicInteger();
+    private final AtomicInteger skippedRegenerations = new AtomicInteger();
+    
     public RealtimeRecommendationService(Context context) {
         this.context = context;
         this.databaseHelper = DatabaseHelper.getInstance(context);
@@ -53,44 +74,15 @@ public class RealtimeRecommendationService {
     }
     
     /**
-     * Generate real-time recommendations based on current context
+     * Generate real-time recommendations based on current context. The previous
+     * recommendations are returned again while the context fingerprint is unchanged.
      */
     public void generateRealtimeRecommendations(RecommendationCallback callback) {
         backgroundExecutor.execute(() -> {
             try {
-                // Get current context
-                RecommendationContext currentContext = getCurrentContext();
-                
-                // Generate recommendations
-                List<ActivityRecommendation> recommendations = new ArrayList<>();
-                
-                // Add time-based recommendations
-                recommendations.addAll(generateTimeBasedRecommendations(currentContext));
-                
-                // Add weather-based recommendations
-                recommendations.addAll(generateWeatherBasedRecommendations(currentContext));
-                
-                // Add pattern-based recommendations
-                recommendations.addAll(generatePatternBasedRecommendations(currentContext));
-                
-                // Add goal-based recommendations
-                recommendations.addAll(generateGoalBasedRecommendations(currentContext));
-                
-                // Add health-based recommendations
-                recommendations.addAll(generateHealthBasedRecommendations(currentContext));
-                
-                // Rank recommendations by priority and relevance
-                recommendations.sort((a, b) -> {
-                    int priorityCompare = b.priority.compareTo(a.priority);
-                    if (priorityCompare != 0) return priorityCompare;
-                    return Float.compare(b.relevanceScore, a.relevanceScore);
-                });
-                
-                // Filter to top recommendations
-                List<ActivityRecommendation> topRecommendations = recommendations.subList(0, Math.min(5, recommendations.size()));
-                
+                RecommendationSet recommendationSet = getRecommendations();
                 if (callback != null) {
-                    callback.onRecommendationsGenerated(topRecommendations, currentContext);
+                    callback.onRecommendationsGenerated(recommendationSet.recommendations, recommendationSet.context);
                 }
                 
             } catch (Exception e) {
@@ -102,6 +94,79 @@ public class RealtimeRecommendationService {
         });
     }
     
+    /**
+     * Drop the cached recommendations so the next request regenerates them
+     */
+    public void invalidateRecommendations() {
+        backgroundExecutor.execute(() -> latestRecommendations = null);
+    }
+    
+    /**
+     * Number of times recommendations were regenerated for a changed context
+     */
+    public int getExecutedRegenerationCount() {
+        return executedRegenerations.get();
+    }
+    
+    /**
+     * Number of times cached recommendations were reused for an unchanged context
+     */
+    public int getSkippedRegenerationCount() {
+        return skippedRegenerations.get();
+    }
+    
+    /**
+     * The cached recommendations if the context fingerprint still matches them, otherwise
+     * freshly generated ones. Runs on the background executor.
+     */
+    private RecommendationSet getRecommendations() {
+        RecommendationContext currentContext = getCurrentContext();
+        ContextFingerprint fingerprint = createFingerprint(currentContext);
+        
+        RecommendationSet cached = latestRecommendations;
+        if (cached != null && cached.fingerprint.equals(fingerprint)) {
+            skippedRegenerations.incrementAndGet();
+            return cached;
+        }
+        
+        // Recent activity is only needed when regenerating
+        currentContext.recentActivity = databaseHelper.getDayRecordsForPeriod(7);
+        
+        // Generate recommendations
+        List<ActivityRecommendation> recommendations = new ArrayList<>();
+        
+        // Add time-based recommendations
+        recommendations.addAll(generateTimeBasedRecommendations(currentContext));
+        
+        // Add weather-based recommendations
+        recommendations.addAll(generateWeatherBasedRecommendations(currentContext));
+        
+        // Add pattern-based recommendations
+        recommendations.addAll(generatePatternBasedRecommendations(currentContext));
+        
+        // Add goal-based recommendations
+        recommendations.addAll(generateGoalBasedRecommendations(currentContext));
+        
+        // Add health-based recommendations
+        recommendations.addAll(generateHealthBasedRecommendations(currentContext));
+        
+        // Rank recommendations by priority and relevance
+        recommendations.sort((a, b) -> {
+            int priorityCompare = b.priority.compareTo(a.priority);
+            if (priorityCompare != 0) return priorityCompare;
+            return Float.compare(b.relevanceScore, a.relevanceScore);
+        });
+        
+        // Filter to top recommendations
+        List<ActivityRecommendation> topRecommendations =
+                new ArrayList<>(recommendations.subList(0, Math.min(5, recommendations.size())));
+        
+        RecommendationSet recommendationSet = new RecommendationSet(fingerprint, currentContext, topRecommendations);
+        latestRecommendations = recommendationSet;
+        executedRegenerations.incrementAndGet();
+        return recommendationSet;
+    }
+    
     /**
      * Send push notification with activity recommendation
      */
@@ -135,23 +200,23 @@ public class RealtimeRecommendationService {
             try {
                 // Check if it's time for a recommendation
                 if (shouldGenerateRecommendation()) {
-                    generateRealtimeRecommendations(new RecommendationCallback() {
-                        @Override
-                        public void onRecommendationsGenerated(List<ActivityRecommendation> recommendations, 
-                                                              RecommendationContext context) {
-                            if (!recommendations.isEmpty()) {
-                                ActivityRecommendation topRecommendation = recommendations.get(0);
-                                if (topRecommendation.priority.ordinal() >= ActivityRecommendation.Priority.MEDIUM.ordinal()) {
-                                    sendRecommendationNotification(topRecommendation);
-                                }
-                            }
-                        }
-                        
-                        @Override
-                        public void onError(String error) {
-                            Log.e(TAG, "Periodic recommendation error: " + error);
+                    RecommendationSet previous = latestRecommendations;
+                    RecommendationSet current = getRecommendations();
+                    
+                    // Unchanged context: the user was already notified about these
+                    if (current == previous) {
+                        Log.d(TAG, "Context unchanged, skipped regeneration (" + skippedRegenerations.get()
+                                + " skipped, " + executedRegenerations.get() + " executed)");
+                        return;
+                    }
+                    
+                    List<ActivityRecommendation> recommendations = current.recommendations;
+                    if (!recommendations.isEmpty()) {
+                        ActivityRecommendation topRecommendation = recommendations.get(0);
+                        if (topRecommendation.priority.ordinal() >= ActivityRecommendation.Priority.MEDIUM.ordinal()) {
+                            sendRecommendationNotification(topRecommendation);
                         }
-                    });
+                    }
                 }
             } catch (Exception e) {
                 Log.e(TAG, "Error in periodic recommendation check", e);
@@ -192,10 +257,6 @@ public class RealtimeRecommendationService {
         String today = new java.text.SimpleDateFormat("yyyy-MM-dd", java.util.Locale.getDefault()).format(calendar.getTime());
         context.todayRecord = databaseHelper.getDayRecord(today);
         
-        // Get recent activity pattern
-        List<DayRecord> recentRecords = databaseHelper.getDayRecordsForPeriod(7);
-        context.recentActivity = recentRecords;
-        
         // Simulate current weather (in real implementation, you'd get from weather API)
         context.currentTemperature = 22.0f;
         context.currentWeather = "Partly Cloudy";
@@ -598,6 +659,35 @@ public class RealtimeRecommendationService {
         return timeDiff > twoHours;
     }
     
+    /**
+     * Bucket the parts of the context the recommendations depend on. The bucket sizes are
+     * how far each input has to move before recommendations are regenerated.
+     */
+    private ContextFingerprint createFingerprint(RecommendationContext context) {
+        int temperatureBucket = Math.max(1, preferences.getInt(KEY_TEMPERATURE_BUCKET, DEFAULT_TEMPERATURE_BUCKET_C));
+        int precipitationBucket = Math.max(1, preferences.getInt(KEY_PRECIPITATION_BUCKET, DEFAULT_PRECIPITATION_BUCKET));
+        int timeSlotHours = Math.max(1, preferences.getInt(KEY_TIME_SLOT_HOURS, DEFAULT_TIME_SLOT_HOURS));
+        int stepBucket = Math.max(1, preferences.getInt(KEY_STEP_BUCKET, DEFAULT_STEP_BUCKET));
+        int screenTimeBucket = Math.max(1, preferences.getInt(KEY_SCREEN_TIME_BUCKET, DEFAULT_SCREEN_TIME_BUCKET_MINUTES));
+        
+        ContextFingerprint fingerprint = new ContextFingerprint();
+        fingerprint.epochDay = EpochDays.today();
+        fingerprint.timeSlot = context.currentHour / timeSlotHours;
+        fingerprint.temperatureBucket = (int) Math.floor(context.currentTemperature / temperatureBucket);
+        fingerprint.weather = context.currentWeather;
+        fingerprint.precipitationBucket = context.precipitationChance / precipitationBucket;
+        fingerprint.fitnessLevel = context.fitnessLevel;
+        if (context.todayRecord != null) {
+            fingerprint.place = context.todayRecord.getPrimaryLocation();
+            fingerprint.stepBucket = context.todayRecord.getStepCount() / stepBucket;
+            fingerprint.screenTimeBucket = context.todayRecord.getScreenTimeMinutes() / screenTimeBucket;
+        } else {
+            fingerprint.stepBucket = -1;
+            fingerprint.screenTimeBucket = -1;
+        }
+        return fingerprint;
+    }
+    
     private int generateRecommendationId(String type) {
         return (type + System.currentTimeMillis()).hashCode();
     }
@@ -630,6 +720,57 @@ public class RealtimeRecommendationService {
     }
     
     // Data classes
+    
+    /**
+     * Bucketed summary of a recommendation context: weather, place, time-of-day slot and
+     * today's activity. Recommendations are regenerated only when it changes.
+     */
+    public static class ContextFingerprint {
+        public int epochDay;
+        public int timeSlot;
+        public int temperatureBucket;
+        public String weather;
+        public int precipitationBucket;
+        public String place;
+        public int stepBucket;
+        public int screenTimeBucket;
+        public String fitnessLevel;
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ContextFingerprint)) return false;
+            ContextFingerprint that = (ContextFingerprint) o;
+            return epochDay == that.epochDay
+                    && timeSlot == that.timeSlot
+                    && temperatureBucket == that.temperatureBucket
+                    && precipitationBucket == that.precipitationBucket
+                    && stepBucket == that.stepBucket
+                    && screenTimeBucket == that.screenTimeBucket
+                    && Objects.equals(weather, that.weather)
+                    && Objects.equals(place, that.place)
+                    && Objects.equals(fitnessLevel, that.fitnessLevel);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(epochDay, timeSlot, temperatureBucket, weather, precipitationBucket,
+                    place, stepBucket, screenTimeBucket, fitnessLevel);
+        }
+    }
+    
+    private static class RecommendationSet {
+        final ContextFingerprint fingerprint;
+        final RecommendationContext context;
+        final List<ActivityRecommendation> recommendations;
+        
+        RecommendationSet(ContextFingerprint fingerprint, RecommendationContext context,
+                          List<ActivityRecommendation> recommendations) {
+            this.fingerprint = fingerprint;
+            this.context = context;
+            this.recommendations = recommendations;
+        }
+    }
     public static class RecommendationContext {
         public int currentHour;
         public int currentDayOfWeek;
@@ -0,0 +1,89 @@
+package com.locallife.service;
+
+/**
+ * Closed-form ridge regression: accumulates X'WX and X'Wy in one pass over the samples and
+ * solves (X'WX + lambda * sum(W) * I) w = X'Wy by Cholesky decomposition. The dimension is a
+ * handful of features, so the solve itself is negligible next to the pass.
+ */
+final class RidgeRegressionOptimizer implements ModelOptimizer {
+    private final double lambda;
+    
+    RidgeRegressionOptimizer(double lambda) {
+        if (lambda <= 0) {
+            throw new IllegalArgumentException("Ridge penalty must be positive: " + lambda);
+        }
+        this.lambda = lambda;
+    }
+    
+    @Override
+    public void optimize(Objective objective, double[] weights) {
+        if (!(objective instanceof LeastSquaresObjective)) {
+            throw new IllegalArgumentException("Closed-form ridge needs a least-squares objective");
+        }
+        LeastSquaresObjective leastSquares = (LeastSquaresObjective) objective;
+        int n = leastSquares.sampleCount();
+        int k = leastSquares.dimension();
+        if (n == 0) {
+            return;
+        }
+        
+        double[][] gram = new double[k][k];
+        double[] moment = new double[k];
+        double[] row = new double[k];
+        double totalWeight = 0;
+        for (int sample = 0; sample < n; sample++) {
+            leastSquares.row(sample, row);
+            double weight = leastSquares.weight(sample);
+            double target = leastSquares.target(sample);
+            totalWeight += weight;
+            for (int i = 0; i < k; i++) {
+                double weighted = weight * row[i];
+                moment[i] += weighted * target;
+                // Lower triangle only; Cholesky reads nothing else
+                for (int j = 0; j <= i; j++) {
+                    gram[i][j] += weighted * row[j];
+                }
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            gram[i][i] += lambda * totalWeight;
+        }
+        
+        solveCholesky(gram, moment, weights);
+        objective.project(weights);
+    }
+    
+    /**
+     * Solve a x = b for symmetric positive definite a given by its lower triangle;
+     * a is overwritten with its Cholesky factor
+     */
+    private static void solveCholesky(double[][] a, double[] b, double[] x) {
+        int k = b.length;
+        for (int i = 0; i < k; i++) {
+            for (int j = 0; j <= i; j++) {
+                double sum = a[i][j];
+                for (int m = 0; m < j; m++) {
+                    sum -= a[i][m] * a[j][m];
+                }
+                a[i][j] = i == j ? Math.sqrt(sum) : sum / a[j][j];
+            }
+        }
+        
+        // Forward substitution: L y = b
+        for (int i = 0; i < k; i++) {
+            double sum = b[i];
+            for (int m = 0; m < i; m++) {
+                sum -= a[i][m] * x[m];
+            }
+            x[i] = sum / a[i][i];
+        }
+        // Back substitution: L' x = y
+        for (int i = k - 1; i >= 0; i--) {
+            double sum = x[i];
+            for (int m = i + 1; m < k; m++) {
+                sum -= a[m][i] * x[m];
+            }
+            x[i] = sum / a[i][i];
+        }
+    }
+}
@@ -5,8 +5,6 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
-import android.app.usage.UsageStats;
-import android.app.usage.UsageStatsManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.pm.ApplicationInfo;
@@ -22,15 +20,17 @@ import androidx.core.app.NotificationCompat;
 
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.HourlyHistogram;
 
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -47,7 +47,7 @@ public class ScreenTimeService extends Service {
     private static final long UPDATE_INTERVAL = 5 * 60 * 1000; // 5 minutes
     private static final long SAVE_INTERVAL = 15 * 60 * 1000; // 15 minutes
     
-    private UsageStatsManager usageStatsManager;
+    private UsageEventIngestor usageIngestor;
     private PackageManager packageManager;
     private DatabaseHelper databaseHelper;
     private NotificationManager notificationManager;
@@ -58,9 +58,12 @@ public class ScreenTimeService extends Service {
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
     
     // Screen time tracking
-    private long dailyScreenTime = 0; // in milliseconds
-    private int phoneUnlocks = 0;
-    private Map<String, AppUsageData> appUsageMap = new HashMap<>();
+    private volatile long dailyScreenTime = 0; // in milliseconds
+    private volatile int phoneUnlocks = 0;
+    // Screen seconds per local hour for today; replaced, never mutated, like appUsageMap
+    private volatile int[] hourlyScreenSeconds = new int[HourlyHistogram.HOURS];
+    private volatile Map<String, AppUsageData> appUsageMap = new HashMap<>();
+    private Set<String> launcherPackages;
     private long lastUpdateTime = 0;
     private String currentDate;
     
@@ -86,7 +89,7 @@ public class ScreenTimeService extends Service {
         super.onCreate();
         Log.d(TAG, "ScreenTimeService created");
         
-        usageStatsManager = (UsageStatsManager) getSystemService(Context.USAGE_STATS_SERVICE);
+        usageIngestor = UsageEventIngestor.getInstance(this);
         packageManager = getPackageManager();
         databaseHelper = DatabaseHelper.getInstance(this);
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
@@ -177,24 +180,14 @@ public class ScreenTimeService extends Service {
                     currentDate = newDate;
                     dailyScreenTime = 0;
                     phoneUnlocks = 0;
-                    appUsageMap.clear();
+                    hourlyScreenSeconds = new int[HourlyHistogram.HOURS];
+                    appUsageMap = new HashMap<>();
                 }
                 
-                // Get usage stats for today
-                Calendar calendar = Calendar.getInstance();
-                calendar.set(Calendar.HOUR_OF_DAY, 0);
-                calendar.set(Calendar.MINUTE, 0);
-                calendar.set(Calendar.SECOND, 0);
-                calendar.set(Calendar.MILLISECOND, 0);
-                long startTime = calendar.getTimeInMillis();
-                long endTime = System.currentTimeMillis();
-                
-                // Get usage stats
-                List<UsageStats> usageStatsList = usageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_DAILY, startTime, endTime);
-                
-                if (usageStatsList != null && !usageStatsList.isEmpty()) {
-                    processUsageStats(usageStatsList);
+                // Shared with MediaTrackingService: events are read and sessionized once per tick
+                UsageEventIngestor.UsageSnapshot snapshot = usageIngestor.ingest();
+                if (snapshot != null) {
+                    processUsageSnapshot(snapshot);
                 }
                 
                 // Update notification
@@ -206,14 +199,14 @@ public class ScreenTimeService extends Service {
         });
     }
     
-    private void processUsageStats(List<UsageStats> usageStatsList) {
+    private void processUsageSnapshot(UsageEventIngestor.UsageSnapshot snapshot) {
         long totalScreenTime = 0;
-        int totalUnlocks = 0;
         Map<String, AppUsageData> newAppUsageMap = new HashMap<>();
+        int[] hourlyMs = new int[HourlyHistogram.HOURS];
         
-        for (UsageStats stats : usageStatsList) {
-            if (stats.getTotalTimeInForeground() > 0) {
-                String packageName = stats.getPackageName();
+        for (UsageEventIngestor.AppDayUsage usage : snapshot.apps.values()) {
+            if (usage.totalTimeMs > 0) {
+                String packageName = usage.packageName;
                 
                 // Skip system apps and launcher
                 if (isSystemApp(packageName) || isLauncher(packageName)) {
@@ -226,48 +219,30 @@ public class ScreenTimeService extends Service {
                 }
                 
                 AppUsageData appUsage = new AppUsageData(packageName, appName);
-                appUsage.totalTime = stats.getTotalTimeInForeground();
-                appUsage.lastUsed = stats.getLastTimeUsed();
-                
-                // Try to get session count (available on some Android versions)
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-                    // This is not directly available, but we can estimate
-                    appUsage.sessions = estimateSessionCount(stats);
-                }
+                appUsage.totalTime = usage.totalTimeMs;
+                appUsage.lastUsed = usage.lastUsedMs;
+                appUsage.sessions = usage.sessions;
                 
                 newAppUsageMap.put(packageName, appUsage);
-                totalScreenTime += stats.getTotalTimeInForeground();
-                totalUnlocks += estimateUnlockCount(stats);
+                totalScreenTime += usage.totalTimeMs;
+                HourlyHistogram.addInto(hourlyMs, usage.hourlyMs);
             }
         }
         
-        // Update global stats
+        int[] hourlySeconds = new int[HourlyHistogram.HOURS];
+        for (int hour = 0; hour < HourlyHistogram.HOURS; hour++) {
+            hourlySeconds[hour] = hourlyMs[hour] / 1000;
+        }
+        
+        // Update global stats; the map is replaced, never mutated, so readers can hold it safely
         dailyScreenTime = totalScreenTime;
-        phoneUnlocks = totalUnlocks;
+        phoneUnlocks = snapshot.unlocks;
+        hourlyScreenSeconds = hourlySeconds;
         appUsageMap = newAppUsageMap;
-        lastUpdateTime = System.currentTimeMillis();
+        lastUpdateTime = snapshot.takenAtMs;
         
         Log.d(TAG, "Updated screen time: " + formatScreenTime(totalScreenTime) + 
-                   ", unlocks: " + totalUnlocks + ", apps: " + appUsageMap.size());
-    }
-    
-    private int estimateSessionCount(UsageStats stats) {
-        // This is an estimation based on time patterns
-        // A more accurate approach would require additional monitoring
-        long totalTime = stats.getTotalTimeInForeground();
-        if (totalTime < 60000) { // Less than 1 minute
-            return 1;
-        } else if (totalTime < 300000) { // Less than 5 minutes
-            return 2;
-        } else {
-            return (int) (totalTime / 180000) + 1; // Estimate based on 3-minute sessions
-        }
-    }
-    
-    private int estimateUnlockCount(UsageStats stats) {
-        // This is a rough estimation
-        // Real unlock counting would require additional system monitoring
-        return estimateSessionCount(stats);
+                   ", unlocks: " + phoneUnlocks + ", apps: " + newAppUsageMap.size());
     }
     
     private boolean isSystemApp(String packageName) {
@@ -280,16 +255,18 @@ public class ScreenTimeService extends Service {
     }
     
     private boolean isLauncher(String packageName) {
-        Intent intent = new Intent(Intent.ACTION_MAIN);
-        intent.addCategory(Intent.CATEGORY_HOME);
-        List<android.content.pm.ResolveInfo> resolveInfos = packageManager.queryIntentActivities(intent, 0);
-        
-        for (android.content.pm.ResolveInfo resolveInfo : resolveInfos) {
-            if (packageName.equals(resolveInfo.activityInfo.packageName)) {
-                return true;
+        if (launcherPackages == null) {
+            // Resolved once; querying the package manager per app per tick was the costly part
+            Set<String> launchers = new HashSet<>();
+            Intent intent = new Intent(Intent.ACTION_MAIN);
+            intent.addCategory(Intent.CATEGORY_HOME);
+            List<android.content.pm.ResolveInfo> resolveInfos = packageManager.queryIntentActivities(intent, 0);
+            for (android.content.pm.ResolveInfo resolveInfo : resolveInfos) {
+                launchers.add(resolveInfo.activityInfo.packageName);
             }
+            launcherPackages = launchers;
         }
-        return false;
+        return launcherPackages.contains(packageName);
     }
     
     private String getAppName(String packageName) {
@@ -302,19 +279,25 @@ public class ScreenTimeService extends Service {
     }
     
     private void saveScreenTimeData() {
+        // Capture the day's state now so a save queued at rollover still writes the old day
+        final String date = currentDate;
+        final long screenTime = dailyScreenTime;
+        final int unlocks = phoneUnlocks;
+        final int[] hourlySeconds = hourlyScreenSeconds;
+        final Map<String, AppUsageData> usageMap = appUsageMap;
         backgroundExecutor.execute(() -> {
             try {
                 // Save to database
-                DayRecord dayRecord = databaseHelper.getDayRecord(currentDate);
+                DayRecord dayRecord = databaseHelper.getDayRecord(date);
                 
                 if (dayRecord == null) {
                     dayRecord = new DayRecord();
-                    dayRecord.setDate(currentDate);
+                    dayRecord.setDate(date);
                 }
                 
                 // Update screen time data
-                dayRecord.setScreenTimeMinutes((int) (dailyScreenTime / 60000));
-                dayRecord.setPhoneUnlocks(phoneUnlocks);
+                dayRecord.setScreenTimeMinutes((int) (screenTime / 60000));
+                dayRecord.setPhoneUnlocks(unlocks);
                 
                 // Recalculate activity score
                 dayRecord.calculateActivityScore();
@@ -324,11 +307,12 @@ public class ScreenTimeService extends Service {
                 } else {
                     databaseHelper.insertDayRecord(dayRecord);
                 }
+                databaseHelper.updateHourlyCounts(date, DatabaseHelper.HourlyMetric.SCREEN_SECONDS, hourlySeconds);
                 
                 // Save individual app usage data
-                for (AppUsageData appUsage : appUsageMap.values()) {
+                for (AppUsageData appUsage : usageMap.values()) {
                     databaseHelper.insertScreenTimeData(
-                            currentDate,
+                            date,
                             appUsage.appName,
                             appUsage.packageName,
                             (int) (appUsage.totalTime / 60000), // Convert to minutes
@@ -345,19 +329,7 @@ public class ScreenTimeService extends Service {
     }
     
     private boolean hasUsageStatsPermission() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
-            try {
-                // Check if we have usage stats permission
-                long now = System.currentTimeMillis();
-                List<UsageStats> stats = usageStatsManager.queryUsageStats(
-                        UsageStatsManager.INTERVAL_DAILY, now - 1000, now);
-                
-                return stats != null && !stats.isEmpty();
-            } catch (Exception e) {
-                return false;
-            }
-        }
-        return false;
+        return usageIngestor.hasUsagePermission();
     }
     
     private String formatScreenTime(long milliseconds) {
@@ -411,6 +383,10 @@ public class ScreenTimeService extends Service {
         return phoneUnlocks;
     }
     
+    public int[] getHourlyScreenSeconds() {
+        return hourlyScreenSeconds.clone();
+    }
+    
     public Map<String, AppUsageData> getAppUsageMap() {
         return new HashMap<>(appUsageMap);
     }
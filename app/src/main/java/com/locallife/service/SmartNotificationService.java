@@ -15,6 +15,7 @@ import androidx.core.app.NotificationCompat;
 import com.locallife.app.activities.MainActivity;
 import com.locallife.app.database.DatabaseHelper;
 import com.locallife.model.*;
+import com.locallife.utils.HourlyHistogram;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
 import org.json.JSONObject;
@@ -106,17 +107,14 @@ public class SmartNotificationService extends Service {
     
     private void analyzeUserBehavior() {
         try {
-            // Analyze app usage patterns
-            List<AppUsageData> usageData = databaseHelper.getAppUsageData(7); // Last 7 days
-            
-            // Analyze activity patterns
+            // Analyze activity patterns; day records carry the hourly screen time counters
             List<DayRecord> dayRecords = databaseHelper.getDayRecords(30); // Last 30 days
             
             // Analyze notification interactions
             List<NotificationInteraction> interactions = analyticsService.getRecentInteractions(7);
             
             // Update user patterns
-            updateUserPatterns(usageData, dayRecords, interactions);
+            updateUserPatterns(dayRecords, interactions);
             
             // Train ML models with new data
             timingModel.trainWithNewData(userPatterns, interactions);
@@ -127,14 +125,22 @@ public class SmartNotificationService extends Service {
         }
     }
     
-    private void updateUserPatterns(List<AppUsageData> usageData, 
-                                   List<DayRecord> dayRecords,
+    private void updateUserPatterns(List<DayRecord> dayRecords,
                                    List<NotificationInteraction> interactions) {
-        // Identify peak activity times
+        // Identify peak activity times: average screen minutes per hour over recorded days
+        int[] screenSeconds = new int[HourlyHistogram.HOURS];
+        int recordedDays = 0;
+        for (DayRecord record : dayRecords) {
+            if (record.getHourlyScreenSeconds() != null) {
+                HourlyHistogram.addInto(screenSeconds, record.getHourlyScreenSeconds());
+                recordedDays++;
+            }
+        }
         Map<Integer, Float> hourlyActivity = new HashMap<>();
-        for (AppUsageData usage : usageData) {
-            int hour = usage.getHour();
-            hourlyActivity.put(hour, hourlyActivity.getOrDefault(hour, 0f) + usage.getDuration());
+        if (recordedDays > 0) {
+            for (int hour = 0; hour < HourlyHistogram.HOURS; hour++) {
+                hourlyActivity.put(hour, screenSeconds[hour] / 60f / recordedDays);
+            }
         }
         
         // Identify best notification times based on interactions
@@ -346,6 +352,11 @@ public class SmartNotificationService extends Service {
     
     private void handleAction(String action, Intent intent) {
         switch (action) {
+            case "TRIGGER_NOTIFICATION":
+                if (scheduler != null) {
+                    scheduler.markFired(intent.getStringExtra("notification_id"));
+                }
+                break;
             case "REMIND_LATER":
                 handleRemindLater(intent);
                 break;
@@ -13,20 +13,30 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Build;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.core.app.NotificationCompat;
 
 import com.locallife.database.DatabaseHelper;
 import com.locallife.model.DayRecord;
+import com.locallife.utils.EpochDays;
+import com.locallife.utils.HourlyHistogram;
 
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
- * Background service that tracks daily steps using Android's built-in step counter sensor
+ * Background service that tracks daily steps using Android's built-in step counter sensor.
+ * Sensors are registered with a max report latency so the sensor hub batches steps in its
+ * FIFO; counts live in memory and preferences, the notification and the database are
+ * written on fixed schedules rather than per step.
  */
 public class StepCounterService extends Service implements SensorEventListener {
     private static final String TAG = "StepCounterService";
@@ -36,22 +46,68 @@ public class StepCounterService extends Service implements SensorEventListener {
     private static final String PREF_NAME = "step_counter_prefs";
     private static final String KEY_LAST_RESET_DATE = "last_reset_date";
     private static final String KEY_DAILY_STEPS = "daily_steps";
+    private static final String KEY_HOURLY_STEPS = "hourly_steps";
     private static final String KEY_SENSOR_INITIAL_VALUE = "sensor_initial_value";
     private static final String KEY_LAST_SENSOR_VALUE = "last_sensor_value";
     
+    // Let the sensor hub hold steps this long before waking the CPU to deliver them
+    private static final int MAX_REPORT_LATENCY_US = 60 * 1000 * 1000;
+    // Events delivered closer together than this came out of the same batch
+    private static final long WAKEUP_GAP_MS = 100;
+    private static final long PREFS_INTERVAL_MS = 30 * 1000;
+    private static final long NOTIFICATION_INTERVAL_MS = 15 * 1000;
+    private static final long DATABASE_FLUSH_INTERVAL_MS = 10 * 60 * 1000;
+    
     private SensorManager sensorManager;
     private Sensor stepCounterSensor;
     private Sensor stepDetectorSensor;
     private DatabaseHelper databaseHelper;
     private SharedPreferences sharedPreferences;
     private NotificationManager notificationManager;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private ExecutorService databaseExecutor;
     
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
     private String currentDate;
     private int dailySteps = 0;
+    // Today's steps per local hour, flushed with the day record
+    private int[] hourlySteps = new int[HourlyHistogram.HOURS];
     private long sensorInitialValue = 0;
     private long lastSensorValue = 0;
     private boolean isInitialized = false;
+    private long nextDayStartMs;
+    
+    // Write scheduling; sensor callbacks and these runnables all run on the main thread
+    private boolean persistScheduled = false;
+    private boolean notificationScheduled = false;
+    private boolean databaseDirty = false;
+    
+    // Delivery counters, logged with each database flush
+    private long sensorEventCount = 0;
+    private long wakeupCount = 0;
+    private long lastDeliveryElapsedMs = 0;
+    private long prefsWriteCount = 0;
+    private long notificationUpdateCount = 0;
+    
+    private final Runnable persistRunnable = () -> {
+        persistScheduled = false;
+        persistState();
+    };
+    
+    private final Runnable notificationRunnable = () -> {
+        notificationScheduled = false;
+        updateNotification();
+    };
+    
+    private final Runnable databaseFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (databaseDirty) {
+                flushToDatabase();
+            }
+            mainHandler.postDelayed(this, DATABASE_FLUSH_INTERVAL_MS);
+        }
+    };
     
     // Step counting variables
     private long lastStepTime = 0;
@@ -67,8 +123,10 @@ public class StepCounterService extends Service implements SensorEventListener {
         databaseHelper = DatabaseHelper.getInstance(this);
         sharedPreferences = getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        databaseExecutor = Executors.newSingleThreadExecutor();
         
         currentDate = dateFormat.format(new Date());
+        nextDayStartMs = EpochDays.startOfDayMillis(EpochDays.today() + 1);
         
         // Initialize sensors
         initializeSensors();
@@ -81,6 +139,8 @@ public class StepCounterService extends Service implements SensorEventListener {
         
         // Start foreground service
         startForeground(NOTIFICATION_ID, createNotification());
+        
+        mainHandler.postDelayed(databaseFlushRunnable, DATABASE_FLUSH_INTERVAL_MS);
     }
     
     private void initializeSensors() {
@@ -89,13 +149,15 @@ public class StepCounterService extends Service implements SensorEventListener {
         
         if (stepCounterSensor != null) {
             Log.d(TAG, "Step Counter sensor available");
-            sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_NORMAL);
+            sensorManager.registerListener(this, stepCounterSensor, SensorManager.SENSOR_DELAY_NORMAL,
+                    MAX_REPORT_LATENCY_US);
         } else {
             Log.d(TAG, "Step Counter sensor not available, using Step Detector");
             // Fallback to step detector
             stepDetectorSensor = sensorManager.getDefaultSensor(Sensor.TYPE_STEP_DETECTOR);
             if (stepDetectorSensor != null) {
-                sensorManager.registerListener(this, stepDetectorSensor, SensorManager.SENSOR_DELAY_NORMAL);
+                sensorManager.registerListener(this, stepDetectorSensor, SensorManager.SENSOR_DELAY_NORMAL,
+                        MAX_REPORT_LATENCY_US);
             } else {
                 Log.w(TAG, "No step sensors available");
             }
@@ -111,6 +173,7 @@ public class StepCounterService extends Service implements SensorEventListener {
         } else {
             // Same day - load existing data
             dailySteps = sharedPreferences.getInt(KEY_DAILY_STEPS, 0);
+            hourlySteps = loadHourlySteps();
             sensorInitialValue = sharedPreferences.getLong(KEY_SENSOR_INITIAL_VALUE, 0);
             lastSensorValue = sharedPreferences.getLong(KEY_LAST_SENSOR_VALUE, 0);
             isInitialized = sensorInitialValue > 0;
@@ -121,21 +184,26 @@ public class StepCounterService extends Service implements SensorEventListener {
         Log.d(TAG, "Resetting daily counters for new day: " + currentDate);
         
         // Save previous day's data to database
-        String previousDate = sharedPreferences.getString(KEY_LAST_RESET_DATE, "");
+        final String previousDate = sharedPreferences.getString(KEY_LAST_RESET_DATE, "");
         if (!previousDate.isEmpty()) {
-            saveDayRecordToDatabase(previousDate, sharedPreferences.getInt(KEY_DAILY_STEPS, 0));
+            final int previousSteps = sharedPreferences.getInt(KEY_DAILY_STEPS, 0);
+            final int[] previousHourly = loadHourlySteps();
+            databaseExecutor.execute(() -> saveDayRecordToDatabase(previousDate, previousSteps, previousHourly));
         }
         
         // Reset counters
         dailySteps = 0;
+        hourlySteps = new int[HourlyHistogram.HOURS];
         sensorInitialValue = 0;
         lastSensorValue = 0;
         isInitialized = false;
+        databaseDirty = false;
         
         // Update preferences
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.putString(KEY_LAST_RESET_DATE, currentDate);
         editor.putInt(KEY_DAILY_STEPS, 0);
+        editor.remove(KEY_HOURLY_STEPS);
         editor.putLong(KEY_SENSOR_INITIAL_VALUE, 0);
         editor.putLong(KEY_LAST_SENSOR_VALUE, 0);
         editor.apply();
@@ -149,6 +217,15 @@ public class StepCounterService extends Service implements SensorEventListener {
     
     @Override
     public void onSensorChanged(SensorEvent event) {
+        long elapsed = SystemClock.elapsedRealtime();
+        sensorEventCount++;
+        if (elapsed - lastDeliveryElapsedMs > WAKEUP_GAP_MS) {
+            wakeupCount++;
+        }
+        lastDeliveryElapsedMs = elapsed;
+        
+        checkDayRollover();
+        
         if (event.sensor.getType() == Sensor.TYPE_STEP_COUNTER) {
             handleStepCounter(event);
         } else if (event.sensor.getType() == Sensor.TYPE_STEP_DETECTOR) {
@@ -156,16 +233,21 @@ public class StepCounterService extends Service implements SensorEventListener {
         }
     }
     
+    private void checkDayRollover() {
+        long now = System.currentTimeMillis();
+        if (now < nextDayStartMs) {
+            return;
+        }
+        // resetDailyCounters saves the previous day from preferences, so bring them up to date first
+        persistState();
+        currentDate = dateFormat.format(new Date(now));
+        nextDayStartMs = EpochDays.startOfDayMillis(EpochDays.today() + 1);
+        resetDailyCounters();
+    }
+    
     private void handleStepCounter(SensorEvent event) {
         long currentSensorValue = (long) event.values[0];
         
-        // Check if it's a new day
-        String newDate = dateFormat.format(new Date());
-        if (!newDate.equals(currentDate)) {
-            currentDate = newDate;
-            resetDailyCounters();
-        }
-        
         if (!isInitialized) {
             // First reading of the day
             sensorInitialValue = currentSensorValue;
@@ -186,15 +268,9 @@ public class StepCounterService extends Service implements SensorEventListener {
             // Validate step increment (should be reasonable)
             if (stepsSinceLastReading > 0 && stepsSinceLastReading < 1000) {
                 dailySteps = (int) (currentSensorValue - sensorInitialValue);
+                hourlySteps[HourlyHistogram.hourOf(eventTimeMillis(event))] += (int) stepsSinceLastReading;
                 lastSensorValue = currentSensorValue;
-                
-                // Save data
-                saveStepData();
-                
-                // Update notification
-                updateNotification();
-                
-                Log.d(TAG, "Steps updated: " + dailySteps + " (+" + stepsSinceLastReading + ")");
+                onStepsChanged();
             } else {
                 Log.w(TAG, "Invalid step increment: " + stepsSinceLastReading);
             }
@@ -202,49 +278,68 @@ public class StepCounterService extends Service implements SensorEventListener {
     }
     
     private void handleStepDetector(SensorEvent event) {
-        long currentTime = System.currentTimeMillis();
-        
-        // Check if it's a new day
-        String newDate = dateFormat.format(new Date());
-        if (!newDate.equals(currentDate)) {
-            currentDate = newDate;
-            resetDailyCounters();
-        }
+        // Batched events arrive together, so filter on when each step happened, not when it was delivered
+        long stepTime = eventTimeMillis(event);
         
         // Simple step detection with time-based filtering
-        if (currentTime - lastStepTime > STEP_DELAY_MS) {
+        if (stepTime - lastStepTime > STEP_DELAY_MS) {
             dailySteps++;
-            lastStepTime = currentTime;
-            
-            // Save data
-            saveStepData();
-            
-            // Update notification
-            updateNotification();
-            
-            Log.d(TAG, "Step detected. Total steps: " + dailySteps);
+            hourlySteps[HourlyHistogram.hourOf(stepTime)]++;
+            lastStepTime = stepTime;
+            onStepsChanged();
+        }
+    }
+    
+    /**
+     * Wall-clock time of a sensor event; event timestamps are nanoseconds of elapsed realtime
+     */
+    private static long eventTimeMillis(SensorEvent event) {
+        long ageMs = (SystemClock.elapsedRealtimeNanos() - event.timestamp) / 1000000L;
+        return System.currentTimeMillis() - Math.max(0, ageMs);
+    }
+    
+    /**
+     * Schedule the rate-limited writes; repeated calls before they run are coalesced
+     */
+    private void onStepsChanged() {
+        databaseDirty = true;
+        if (!persistScheduled) {
+            persistScheduled = true;
+            mainHandler.postDelayed(persistRunnable, PREFS_INTERVAL_MS);
+        }
+        if (!notificationScheduled) {
+            notificationScheduled = true;
+            mainHandler.postDelayed(notificationRunnable, NOTIFICATION_INTERVAL_MS);
         }
     }
     
-    private void saveStepData() {
-        // Save to preferences
+    private void persistState() {
         SharedPreferences.Editor editor = sharedPreferences.edit();
         editor.putInt(KEY_DAILY_STEPS, dailySteps);
+        editor.putString(KEY_HOURLY_STEPS, HourlyHistogram.format(hourlySteps));
         editor.putLong(KEY_LAST_SENSOR_VALUE, lastSensorValue);
         editor.apply();
+        prefsWriteCount++;
+    }
+    
+    private void flushToDatabase() {
+        final String date = currentDate;
+        final int steps = dailySteps;
+        final int[] hourly = hourlySteps.clone();
+        databaseDirty = false;
+        databaseExecutor.execute(() -> saveDayRecordToDatabase(date, steps, hourly));
         
-        // Save to database every 100 steps or every 10 minutes
-        if (dailySteps % 100 == 0 || shouldSaveToDatabase()) {
-            saveDayRecordToDatabase(currentDate, dailySteps);
-        }
+        Log.d(TAG, String.format(Locale.US, "Flushed %d steps; %d events in %d wakeups (%.1f per wakeup), "
+                        + "%d prefs writes, %d notification updates",
+                steps, sensorEventCount, wakeupCount, getEventsPerWakeup(), prefsWriteCount, notificationUpdateCount));
     }
     
-    private boolean shouldSaveToDatabase() {
-        // Implement time-based saving logic
-        return System.currentTimeMillis() % (10 * 60 * 1000) < 1000; // Approximately every 10 minutes
+    private int[] loadHourlySteps() {
+        int[] saved = HourlyHistogram.parse(sharedPreferences.getString(KEY_HOURLY_STEPS, null));
+        return saved != null ? saved : new int[HourlyHistogram.HOURS];
     }
     
-    private void saveDayRecordToDatabase(String date, int steps) {
+    private void saveDayRecordToDatabase(String date, int steps, int[] hourly) {
         try {
             DayRecord existingRecord = databaseHelper.getDayRecord(date);
             
@@ -262,6 +357,8 @@ public class StepCounterService extends Service implements SensorEventListener {
                 databaseHelper.insertDayRecord(dayRecord);
             }
             
+            databaseHelper.updateHourlyCounts(date, DatabaseHelper.HourlyMetric.STEPS, hourly);
+            
             // Also save to step data table
             databaseHelper.insertStepData(date, steps, "daily");
             
@@ -309,6 +406,7 @@ public class StepCounterService extends Service implements SensorEventListener {
     private void updateNotification() {
         Notification notification = createNotification();
         notificationManager.notify(NOTIFICATION_ID, notification);
+        notificationUpdateCount++;
     }
     
     @Override
@@ -326,10 +424,16 @@ public class StepCounterService extends Service implements SensorEventListener {
             sensorManager.unregisterListener(this);
         }
         
-        // Save final step count
+        mainHandler.removeCallbacks(persistRunnable);
+        mainHandler.removeCallbacks(notificationRunnable);
+        mainHandler.removeCallbacks(databaseFlushRunnable);
+        
+        // Save final step count; the executor finishes queued writes before shutting down
+        persistState();
         if (dailySteps > 0) {
-            saveDayRecordToDatabase(currentDate, dailySteps);
+            flushToDatabase();
         }
+        databaseExecutor.shutdown();
     }
     
     // Public methods for external access
@@ -344,4 +448,16 @@ public class StepCounterService extends Service implements SensorEventListener {
     public String getCurrentDate() {
         return currentDate;
     }
+    
+    public long getSensorEventCount() {
+        return sensorEventCount;
+    }
+    
+    public long getWakeupCount() {
+        return wakeupCount;
+    }
+    
+    public double getEventsPerWakeup() {
+        return wakeupCount == 0 ? 0 : (double) sensorEventCount / wakeupCount;
+    }
 }
\ No newline at end of file
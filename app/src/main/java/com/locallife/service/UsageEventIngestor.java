@@ -0,0 +1,440 @@
+package com.locallife.service;
+
+import android.Manifest;
+import android.app.AppOpsManager;
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageStatsManager;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
+import android.os.Process;
+import android.util.Log;
+
+import com.locallife.database.DatabaseHelper;
+import com.locallife.utils.EpochDays;
+import com.locallife.utils.HourlyHistogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Shared ingestion stage for UsageStatsManager data. Raw usage events are read once from a
+ * persisted watermark, turned into foreground sessions per app and kept as running totals for
+ * the current day, so screen time and media tracking share one system query per tick and get
+ * exact session and unlock counts instead of estimating them from daily aggregates.
+ *
+ * Closed sessions are stored in app_usage_sessions; after a restart today's totals are rebuilt
+ * from that table and ingestion resumes from the watermark. An app that returns to the
+ * foreground shortly after leaving it, with no other app in between, continues its previous
+ * session rather than starting a new one, so a pause and resume inside one app counts once.
+ */
+public class UsageEventIngestor {
+    private static final String TAG = "UsageEventIngestor";
+    private static final String PREFS_NAME = "usage_ingestion_prefs";
+    private static final String KEY_WATERMARK = "watermark";
+    private static final String KEY_UNLOCK_DAY = "unlock_day";
+    private static final String KEY_UNLOCK_COUNT = "unlock_count";
+
+    // Callers ticking faster than this share the previous result instead of querying again
+    private static final long MIN_INGEST_INTERVAL = 60 * 1000;
+    // Longest background gap across which an app's next foreground period continues its session
+    private static final long SESSION_MERGE_GAP = 10 * 1000;
+
+    static final String TABLE_APP_SESSIONS = "app_usage_sessions";
+    static final String COL_PACKAGE_NAME = "package_name";
+    static final String COL_START_MS = "start_ms";
+    static final String COL_END_MS = "end_ms";
+
+    /**
+     * One continuous foreground period of an app
+     */
+    public static class AppSession {
+        public final String packageName;
+        public final long startMs;
+        public final long endMs;
+
+        AppSession(String packageName, long startMs, long endMs) {
+            this.packageName = packageName;
+            this.startMs = startMs;
+            this.endMs = endMs;
+        }
+
+        public long getDurationMs() {
+            return endMs - startMs;
+        }
+    }
+
+    /**
+     * Today's foreground totals for one app
+     */
+    public static class AppDayUsage {
+        public final String packageName;
+        public long totalTimeMs;
+        public long lastUsedMs;
+        public int sessions;
+        // Foreground milliseconds per local hour of the day
+        public final int[] hourlyMs = new int[HourlyHistogram.HOURS];
+
+        AppDayUsage(String packageName) {
+            this.packageName = packageName;
+        }
+
+        AppDayUsage copy() {
+            AppDayUsage copy = new AppDayUsage(packageName);
+            copy.totalTimeMs = totalTimeMs;
+            copy.lastUsedMs = lastUsedMs;
+            copy.sessions = sessions;
+            System.arraycopy(hourlyMs, 0, copy.hourlyMs, 0, hourlyMs.length);
+            return copy;
+        }
+    }
+
+    /**
+     * Immutable view of the current day after an ingest. Apps still in the foreground are
+     * included up to the ingest time.
+     */
+    public static class UsageSnapshot {
+        public final int epochDay;
+        public final long takenAtMs;
+        public final long totalTimeMs;
+        public final int unlocks;
+        public final Map<String, AppDayUsage> apps;
+        // Sessions closed by the ingest that produced this snapshot; empty for cached snapshots
+        public final List<AppSession> newSessions;
+
+        UsageSnapshot(int epochDay, long takenAtMs, long totalTimeMs, int unlocks,
+                      Map<String, AppDayUsage> apps, List<AppSession> newSessions) {
+            this.epochDay = epochDay;
+            this.takenAtMs = takenAtMs;
+            this.totalTimeMs = totalTimeMs;
+            this.unlocks = unlocks;
+            this.apps = Collections.unmodifiableMap(apps);
+            this.newSessions = Collections.unmodifiableList(newSessions);
+        }
+
+        UsageSnapshot withoutNewSessions() {
+            return new UsageSnapshot(epochDay, takenAtMs, totalTimeMs, unlocks, apps, Collections.emptyList());
+        }
+    }
+
+    public interface UsageListener {
+        void onUsageIngested(UsageSnapshot snapshot);
+    }
+
+    private static UsageEventIngestor instance;
+
+    private final Context context;
+    private final UsageStatsManager usageStatsManager;
+    private final SharedPreferences preferences;
+    private final DatabaseHelper databaseHelper;
+    private final List<UsageListener> listeners = new CopyOnWriteArrayList<>();
+
+    // Day state, guarded by "this"
+    private boolean restored;
+    private int epochDay;
+    private long watermark;
+    private int unlocks;
+    private final Map<String, AppDayUsage> dayUsage = new HashMap<>();
+    private final Map<String, Long> openForeground = new HashMap<>();
+    // Most recently closed session of any app, which the next one may continue
+    private AppSession lastClosed;
+    private long lastIngestAt;
+    private UsageSnapshot lastSnapshot;
+
+    private UsageEventIngestor(Context context) {
+        this.context = context;
+        this.usageStatsManager = (UsageStatsManager) context.getSystemService(Context.USAGE_STATS_SERVICE);
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.databaseHelper = DatabaseHelper.getInstance(context);
+        createTable();
+    }
+
+    public static synchronized UsageEventIngestor getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsageEventIngestor(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    public void addListener(UsageListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(UsageListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Whether usage access is granted; checks the app op instead of issuing a usage query
+     */
+    public boolean hasUsagePermission() {
+        AppOpsManager appOps = (AppOpsManager) context.getSystemService(Context.APP_OPS_SERVICE);
+        if (appOps == null) {
+            return false;
+        }
+        int mode = appOps.checkOpNoThrow(AppOpsManager.OPSTR_GET_USAGE_STATS, Process.myUid(), context.getPackageName());
+        if (mode == AppOpsManager.MODE_DEFAULT) {
+            // The op defers to the permission, which some devices grant instead of the op
+            return context.checkCallingOrSelfPermission(Manifest.permission.PACKAGE_USAGE_STATS)
+                    == PackageManager.PERMISSION_GRANTED;
+        }
+        return mode == AppOpsManager.MODE_ALLOWED;
+    }
+
+    /**
+     * Read usage events since the watermark, fold them into today's totals and notify listeners.
+     * Calls within MIN_INGEST_INTERVAL of the previous one return the previous snapshot.
+     */
+    public UsageSnapshot ingest() {
+        UsageSnapshot snapshot;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (lastSnapshot != null && now - lastIngestAt < MIN_INGEST_INTERVAL) {
+                return lastSnapshot.withoutNewSessions();
+            }
+            if (!hasUsagePermission()) {
+                Log.w(TAG, "Usage stats permission not granted");
+                return lastSnapshot != null ? lastSnapshot.withoutNewSessions() : null;
+            }
+
+            int today = EpochDays.fromMillis(now);
+            if (!restored) {
+                restoreDay(today);
+            } else if (today != epochDay) {
+                epochDay = today;
+                unlocks = 0;
+                dayUsage.clear();
+                lastClosed = null;
+            }
+
+            List<AppSession> closed = new ArrayList<>();
+            readEvents(now, closed);
+            persist(closed);
+
+            lastIngestAt = now;
+            lastSnapshot = buildSnapshot(now, closed);
+            snapshot = lastSnapshot;
+        }
+
+        for (UsageListener listener : listeners) {
+            try {
+                listener.onUsageIngested(snapshot);
+            } catch (Exception e) {
+                Log.e(TAG, "Usage listener failed", e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Most recent snapshot without querying, or null before the first ingest
+     */
+    public synchronized UsageSnapshot getLastSnapshot() {
+        return lastSnapshot != null ? lastSnapshot.withoutNewSessions() : null;
+    }
+
+    private void readEvents(long now, List<AppSession> closed) {
+        long dayStart = EpochDays.startOfDayMillis(epochDay);
+        // Resume from the watermark, but never replay more than the previous day
+        long from = Math.max(watermark, dayStart - EpochDays.MILLIS_PER_DAY);
+        if (watermark == 0) {
+            from = dayStart;
+        }
+
+        UsageEvents events = usageStatsManager.queryEvents(from, now);
+        if (events == null) {
+            return;
+        }
+
+        boolean countsUnlocks = Build.VERSION.SDK_INT >= Build.VERSION_CODES.P;
+        UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            long time = event.getTimeStamp();
+            if (time < from) {
+                continue;
+            }
+
+            int type = event.getEventType();
+            if (type == UsageEvents.Event.MOVE_TO_FOREGROUND) {
+                // Several activities of one app can resume in a row; keep the earliest start
+                if (!openForeground.containsKey(event.getPackageName())) {
+                    openForeground.put(event.getPackageName(), time);
+                }
+            } else if (type == UsageEvents.Event.MOVE_TO_BACKGROUND) {
+                Long start = openForeground.remove(event.getPackageName());
+                // No matching start: the app was already in front when reading began
+                closeSession(event.getPackageName(), start != null ? start : from, time, closed);
+            } else if (countsUnlocks && type == UsageEvents.Event.KEYGUARD_HIDDEN && time >= dayStart) {
+                unlocks++;
+            }
+        }
+
+        if (!countsUnlocks) {
+            // No keyguard events before Android 9; every foreground session is the closest signal
+            int sessions = 0;
+            for (AppDayUsage usage : dayUsage.values()) {
+                sessions += usage.sessions;
+            }
+            unlocks = sessions;
+        }
+        watermark = now;
+    }
+
+    private void closeSession(String packageName, long start, long end, List<AppSession> closed) {
+        if (end <= start) {
+            return;
+        }
+        AppSession session = new AppSession(packageName, start, end);
+        closed.add(session);
+        addToDay(session, continuesLastSession(packageName, start));
+        lastClosed = session;
+    }
+
+    /**
+     * Whether a foreground period starting at the given time continues the app's previous
+     * session: the last session closed belonged to the same app and ended moments before
+     */
+    private boolean continuesLastSession(String packageName, long start) {
+        return lastClosed != null && lastClosed.packageName.equals(packageName)
+                && Math.abs(start - lastClosed.endMs) <= SESSION_MERGE_GAP;
+    }
+
+    /**
+     * Count the part of a session that falls on the current day; a continuation adds its
+     * time to the previous session instead of counting a new one
+     */
+    private void addToDay(AppSession session, boolean continuation) {
+        long dayStart = EpochDays.startOfDayMillis(epochDay);
+        if (session.endMs <= dayStart) {
+            return;
+        }
+        AppDayUsage usage = dayUsage.get(session.packageName);
+        if (usage == null) {
+            usage = new AppDayUsage(session.packageName);
+            dayUsage.put(session.packageName, usage);
+        }
+        usage.totalTimeMs += session.endMs - Math.max(session.startMs, dayStart);
+        HourlyHistogram.addSpan(usage.hourlyMs, dayStart, session.startMs, session.endMs);
+        usage.lastUsedMs = Math.max(usage.lastUsedMs, session.endMs);
+        if (!continuation || usage.sessions == 0) {
+            usage.sessions++;
+        }
+    }
+
+    private UsageSnapshot buildSnapshot(long now, List<AppSession> closed) {
+        long dayStart = EpochDays.startOfDayMillis(epochDay);
+        Map<String, AppDayUsage> apps = new HashMap<>();
+        long total = 0;
+        for (AppDayUsage usage : dayUsage.values()) {
+            apps.put(usage.packageName, usage.copy());
+            total += usage.totalTimeMs;
+        }
+
+        // Apps still in front count up to now without closing their session
+        for (Map.Entry<String, Long> open : openForeground.entrySet()) {
+            long start = Math.max(open.getValue(), dayStart);
+            if (now <= start) {
+                continue;
+            }
+            AppDayUsage usage = apps.get(open.getKey());
+            if (usage == null) {
+                usage = new AppDayUsage(open.getKey());
+                apps.put(open.getKey(), usage);
+            }
+            usage.totalTimeMs += now - start;
+            HourlyHistogram.addSpan(usage.hourlyMs, dayStart, start, now);
+            usage.lastUsedMs = now;
+            if (!continuesLastSession(open.getKey(), open.getValue()) || usage.sessions == 0) {
+                usage.sessions++;
+            }
+            total += now - start;
+        }
+
+        return new UsageSnapshot(epochDay, now, total, unlocks, apps, closed);
+    }
+
+    /**
+     * Rebuild today's totals from stored sessions after a restart
+     */
+    private void restoreDay(int today) {
+        epochDay = today;
+        watermark = preferences.getLong(KEY_WATERMARK, 0);
+        unlocks = preferences.getInt(KEY_UNLOCK_DAY, Integer.MIN_VALUE) == today
+                ? preferences.getInt(KEY_UNLOCK_COUNT, 0) : 0;
+        dayUsage.clear();
+        lastClosed = null;
+
+        long dayStart = EpochDays.startOfDayMillis(today);
+        // In closing order, so continuations are recognised as they were when ingested
+        Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_APP_SESSIONS,
+                new String[]{COL_PACKAGE_NAME, COL_START_MS, COL_END_MS},
+                COL_END_MS + " > ?", new String[]{String.valueOf(dayStart)}, null, null, COL_END_MS);
+        try {
+            while (cursor.moveToNext()) {
+                AppSession session = new AppSession(cursor.getString(0), cursor.getLong(1), cursor.getLong(2));
+                addToDay(session, continuesLastSession(session.packageName, session.startMs));
+                lastClosed = session;
+            }
+        } finally {
+            cursor.close();
+        }
+        restored = true;
+        Log.d(TAG, "Restored " + dayUsage.size() + " apps for today, watermark " + watermark);
+    }
+
+    private void persist(List<AppSession> closed) {
+        if (!closed.isEmpty()) {
+            SQLiteDatabase db = databaseHelper.getWritableDatabase();
+            SQLiteStatement statement = db.compileStatement("INSERT INTO " + TABLE_APP_SESSIONS + " ("
+                    + COL_PACKAGE_NAME + ", " + COL_START_MS + ", " + COL_END_MS + ") VALUES (?, ?, ?)");
+            db.beginTransactionNonExclusive();
+            try {
+                for (AppSession session : closed) {
+                    statement.bindString(1, session.packageName);
+                    statement.bindLong(2, session.startMs);
+                    statement.bindLong(3, session.endMs);
+                    statement.executeInsert();
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+                statement.close();
+            }
+        }
+
+        preferences.edit()
+                .putLong(KEY_WATERMARK, watermark)
+                .putInt(KEY_UNLOCK_DAY, epochDay)
+                .putInt(KEY_UNLOCK_COUNT, unlocks)
+                .apply();
+    }
+
+    /**
+     * Drop stored sessions that ended before the given day
+     */
+    public void deleteSessionsBefore(int epochDay) {
+        databaseHelper.getWritableDatabase().delete(TABLE_APP_SESSIONS, COL_END_MS + " < ?",
+                new String[]{String.valueOf(EpochDays.startOfDayMillis(epochDay))});
+    }
+
+    private void createTable() {
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_APP_SESSIONS + " ("
+                + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + COL_PACKAGE_NAME + " TEXT NOT NULL, "
+                + COL_START_MS + " INTEGER NOT NULL, "
+                + COL_END_MS + " INTEGER NOT NULL"
+                + ")");
+        db.execSQL("CREATE INDEX IF NOT EXISTS idx_app_usage_sessions_end ON "
+                + TABLE_APP_SESSIONS + "(" + COL_END_MS + ")");
+    }
+}
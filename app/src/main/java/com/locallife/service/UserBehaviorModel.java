@@ -7,28 +7,47 @@ import com.locallife.model.DayRecord;
 import com.locallife.model.PredictionResult;
 
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static com.locallife.service.DayFeatureMatrix.ACTIVITY_COUNT;
+import static com.locallife.service.DayFeatureMatrix.BEHAVIOR_CODES;
+import static com.locallife.service.DayFeatureMatrix.DAYS_OF_WEEK;
 
 /**
- * Machine Learning model for predicting activity based on user behavior patterns
+ * Machine Learning model for predicting activity based on user behavior patterns.
+ *
+ * Training reads a shared DayFeatureMatrix, whose behavior codes already carry the trend
+ * over the preceding week; associations live in a [behavior code][activity] table,
+ * preferences in arrays indexed by activity ordinal and day of week, and feature weights
+ * in an [activity][feature] table whose last column is each activity's bias.
  */
 public class UserBehaviorModel {
     private static final String TAG = "UserBehaviorModel";
     private static final double LEARNING_RATE = 0.02;
     private static final int MIN_TRAINING_SAMPLES = 15;
-    private static final int PATTERN_WINDOW_DAYS = 7;
+    private static final double RIDGE_LAMBDA = 1e-3;
+    
+    // Feature weight slots, in the order of FEATURE_NAMES
+    private static final int FEATURE_STEP_COUNT = 0;
+    private static final int FEATURE_ACTIVE_MINUTES = 1;
+    private static final int FEATURE_SCREEN_TIME = 2;
+    private static final int FEATURE_PLACES_VISITED = 3;
+    private static final int FEATURE_TIME_OF_DAY = 4;
+    private static final int FEATURE_DAY_OF_WEEK = 5;
+    private static final String[] FEATURE_NAMES = {
+        "step_count", "active_minutes", "screen_time", "places_visited", "time_of_day", "day_of_week"
+    };
+    private static final int FEATURE_COUNT = FEATURE_NAMES.length;
+    private static final double DEFAULT_PREFERENCE = 0.5;
     
     private boolean isTrained = false;
-    private Map<String, UserBehaviorPattern> behaviorPatterns;
-    private Map<ActivityType, Map<String, Double>> activityBehaviorWeights;
-    private Map<String, Double> featureWeights;
-    private double bias;
+    private final int[] patternSamples;
+    private final double[][] activityBehaviorWeights;
+    private final double[][] featureWeights;
+    private final ModelOptimizer optimizer = new RidgeRegressionOptimizer(RIDGE_LAMBDA);
     
     // User preference patterns
-    private Map<String, Double> timePreferences; // hour -> preference
-    private Map<String, Double> dayPreferences; // day_of_week -> preference
-    private Map<ActivityType, Double> activityPreferences;
-    private Map<String, Double> locationPreferences;
+    private final double[] dayPreferences;
+    private final double[] activityPreferences;
     
     // Behavioral metrics
     private double averageStepCount;
@@ -42,29 +61,55 @@ public class UserBehaviorModel {
     private Date lastTrainingTime;
     
     public UserBehaviorModel() {
-        this.behaviorPatterns = new HashMap<>();
-        this.activityBehaviorWeights = new HashMap<>();
-        this.featureWeights = new HashMap<>();
-        this.timePreferences = new HashMap<>();
-        this.dayPreferences = new HashMap<>();
-        this.activityPreferences = new HashMap<>();
-        this.locationPreferences = new HashMap<>();
-        this.bias = 0.0;
+        this.patternSamples = new int[BEHAVIOR_CODES];
+        this.activityBehaviorWeights = new double[BEHAVIOR_CODES][ACTIVITY_COUNT];
+        this.featureWeights = new double[ACTIVITY_COUNT][FEATURE_COUNT + 1];
+        this.dayPreferences = new double[DAYS_OF_WEEK];
+        this.activityPreferences = new double[ACTIVITY_COUNT];
+        
+        Arrays.fill(dayPreferences, DEFAULT_PREFERENCE);
+        Arrays.fill(activityPreferences, DEFAULT_PREFERENCE);
         
         // Initialize feature weights
         initializeFeatureWeights();
     }
     
+    private UserBehaviorModel(UserBehaviorModel source) {
+        this.isTrained = source.isTrained;
+        this.patternSamples = source.patternSamples;
+        this.activityBehaviorWeights = source.activityBehaviorWeights;
+        this.featureWeights = source.featureWeights;
+        this.dayPreferences = source.dayPreferences;
+        this.activityPreferences = source.activityPreferences.clone();
+        this.averageStepCount = source.averageStepCount;
+        this.averageActiveMinutes = source.averageActiveMinutes;
+        this.averageScreenTime = source.averageScreenTime;
+        this.averagePlacesVisited = source.averagePlacesVisited;
+        this.trainingDataSize = source.trainingDataSize;
+        this.trainingAccuracy = source.trainingAccuracy;
+        this.lastTrainingTime = source.lastTrainingTime;
+    }
+    
     /**
-     * Initialize feature weights for user behavior prediction
+     * A trained copy for feedback to update while this one keeps serving predictions. Only
+     * the preferences feedback changes are copied; the copy must not be trained again.
+     */
+    UserBehaviorModel copyForFeedback() {
+        return new UserBehaviorModel(this);
+    }
+    
+    /**
+     * Initialize feature weights for user behavior prediction, the same for every activity
      */
     private void initializeFeatureWeights() {
-        featureWeights.put("step_count", 0.25);
-        featureWeights.put("active_minutes", 0.2);
-        featureWeights.put("screen_time", 0.15);
-        featureWeights.put("places_visited", 0.15);
-        featureWeights.put("time_of_day", 0.15);
-        featureWeights.put("day_of_week", 0.1);
+        for (double[] weights : featureWeights) {
+            weights[FEATURE_STEP_COUNT] = 0.25;
+            weights[FEATURE_ACTIVE_MINUTES] = 0.2;
+            weights[FEATURE_SCREEN_TIME] = 0.15;
+            weights[FEATURE_PLACES_VISITED] = 0.15;
+            weights[FEATURE_TIME_OF_DAY] = 0.15;
+            weights[FEATURE_DAY_OF_WEEK] = 0.1;
+        }
     }
     
     /**
@@ -75,35 +120,38 @@ public class UserBehaviorModel {
             Log.w(TAG, "Insufficient training data: " + historicalData.size() + " samples");
             return;
         }
+        train(DayFeatureMatrix.of(historicalData));
+    }
+    
+    /**
+     * Train the model from a date-ordered feature matrix shared with the other models
+     */
+    void train(DayFeatureMatrix matrix) {
+        if (matrix.size < MIN_TRAINING_SAMPLES) {
+            Log.w(TAG, "Insufficient training data: " + matrix.size + " samples");
+            return;
+        }
         
-        Log.d(TAG, "Training user behavior model with " + historicalData.size() + " samples");
-        
-        // Sort data by date
-        List<DayRecord> sortedData = historicalData.stream()
-            .sorted(Comparator.comparing(DayRecord::getDate))
-            .collect(Collectors.toList());
+        Log.d(TAG, "Training user behavior model with " + matrix.size + " samples");
         
         // Calculate user averages
-        calculateUserAverages(sortedData);
-        
-        // Extract behavior patterns
-        extractBehaviorPatterns(sortedData);
+        calculateUserAverages(matrix);
         
         // Learn user preferences
-        learnUserPreferences(sortedData);
+        learnUserPreferences(matrix);
         
-        // Train activity-behavior associations
-        trainActivityBehaviorAssociations(sortedData);
+        // Extract behavior patterns and train activity-behavior associations
+        learnPatterns(matrix);
         
         // Optimize feature weights
-        optimizeFeatureWeights(sortedData);
+        optimizeFeatureWeights(matrix);
         
         this.isTrained = true;
-        this.trainingDataSize = sortedData.size();
+        this.trainingDataSize = matrix.size;
         this.lastTrainingTime = new Date();
         
         // Calculate training accuracy
-        this.trainingAccuracy = calculateTrainingAccuracy(sortedData);
+        this.trainingAccuracy = calculateTrainingAccuracy(matrix);
         
         Log.d(TAG, "Model training completed with accuracy: " + String.format("%.2f%%", trainingAccuracy * 100));
     }
@@ -111,143 +159,101 @@ public class UserBehaviorModel {
     /**
      * Calculate user behavioral averages
      */
-    private void calculateUserAverages(List<DayRecord> data) {
-        averageStepCount = data.stream().mapToInt(DayRecord::getStepCount).average().orElse(0.0);
-        averageActiveMinutes = data.stream().mapToInt(DayRecord::getActiveMinutes).average().orElse(0.0);
-        averageScreenTime = data.stream().mapToInt(DayRecord::getScreenTimeMinutes).average().orElse(0.0);
-        averagePlacesVisited = data.stream().mapToInt(DayRecord::getPlacesVisited).average().orElse(0.0);
+    private void calculateUserAverages(DayFeatureMatrix matrix) {
+        averageStepCount = (double) matrix.totalSteps / matrix.size;
+        averageActiveMinutes = (double) matrix.totalActiveMinutes / matrix.size;
+        averageScreenTime = (double) matrix.totalScreenTimeMinutes / matrix.size;
+        averagePlacesVisited = (double) matrix.totalPlacesVisited / matrix.size;
         
         Log.d(TAG, String.format("User averages - Steps: %.0f, Active: %.0f min, Screen: %.0f min, Places: %.0f",
             averageStepCount, averageActiveMinutes, averageScreenTime, averagePlacesVisited));
     }
     
     /**
-     * Extract behavior patterns from historical data
+     * Learn day-of-week and activity type preferences as average levels
      */
-    private void extractBehaviorPatterns(List<DayRecord> data) {
-        for (int i = 0; i < data.size(); i++) {
-            DayRecord record = data.get(i);
-            
-            // Get context window
-            List<DayRecord> contextWindow = getContextWindow(data, i);
-            
-            String patternKey = createBehaviorPatternKey(record, contextWindow);
-            
-            UserBehaviorPattern pattern = behaviorPatterns.computeIfAbsent(patternKey, k -> new UserBehaviorPattern());
-            pattern.addDataPoint(record);
-        }
+    private void learnUserPreferences(DayFeatureMatrix matrix) {
+        double[] daySums = new double[DAYS_OF_WEEK];
+        int[] dayCounts = new int[DAYS_OF_WEEK];
+        double[] activitySums = new double[ACTIVITY_COUNT];
         
-        Log.d(TAG, "Extracted " + behaviorPatterns.size() + " behavior patterns");
-    }
-    
-    /**
-     * Learn user preferences from historical data
-     */
-    private void learnUserPreferences(List<DayRecord> data) {
-        // Learn time preferences
-        Map<String, List<Double>> timeActivityLevels = new HashMap<>();
-        
-        // Learn day preferences
-        Map<String, List<Double>> dayActivityLevels = new HashMap<>();
-        
-        // Learn activity preferences
-        Map<ActivityType, List<Double>> activityLevels = new HashMap<>();
-        
-        for (DayRecord record : data) {
-            String dayOfWeek = getDayOfWeek(record.getDate());
-            String timeSlot = "12"; // Simplified - would need actual time data
-            
-            // Calculate overall activity level
-            double activityLevel = record.getActivityScore() / 100.0;
-            
-            // Time preferences
-            timeActivityLevels.computeIfAbsent(timeSlot, k -> new ArrayList<>()).add(activityLevel);
-            
-            // Day preferences
-            dayActivityLevels.computeIfAbsent(dayOfWeek, k -> new ArrayList<>()).add(activityLevel);
+        for (int i = 0; i < matrix.size; i++) {
+            // Overall activity level
+            daySums[matrix.dayOfWeek[i]] += matrix.activityScores[i] / 100.0;
+            dayCounts[matrix.dayOfWeek[i]]++;
             
-            // Activity type preferences
-            for (ActivityType activityType : ActivityType.values()) {
-                double typeLevel = calculateActivityLevel(activityType, record);
-                activityLevels.computeIfAbsent(activityType, k -> new ArrayList<>()).add(typeLevel);
+            double[] levels = matrix.activityLevels[i];
+            for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+                activitySums[activity] += levels[activity];
             }
         }
         
-        // Convert to preferences
-        for (Map.Entry<String, List<Double>> entry : timeActivityLevels.entrySet()) {
-            double avgLevel = entry.getValue().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            timePreferences.put(entry.getKey(), avgLevel);
-        }
-        
-        for (Map.Entry<String, List<Double>> entry : dayActivityLevels.entrySet()) {
-            double avgLevel = entry.getValue().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            dayPreferences.put(entry.getKey(), avgLevel);
+        for (int day = 0; day < DAYS_OF_WEEK; day++) {
+            if (dayCounts[day] > 0) {
+                dayPreferences[day] = daySums[day] / dayCounts[day];
+            }
         }
-        
-        for (Map.Entry<ActivityType, List<Double>> entry : activityLevels.entrySet()) {
-            double avgLevel = entry.getValue().stream().mapToDouble(Double::doubleValue).average().orElse(0.0);
-            activityPreferences.put(entry.getKey(), avgLevel);
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            activityPreferences[activity] = activitySums[activity] / matrix.size;
         }
     }
     
     /**
-     * Train activity-behavior associations
+     * Count behavior patterns and smooth the activity-behavior weights in one pass over the days
      */
-    private void trainActivityBehaviorAssociations(List<DayRecord> data) {
-        for (ActivityType activityType : ActivityType.values()) {
-            Map<String, Double> behaviorWeights = new HashMap<>();
+    private void learnPatterns(DayFeatureMatrix matrix) {
+        boolean[] weighted = new boolean[BEHAVIOR_CODES];
+        for (double[] weights : activityBehaviorWeights) {
+            Arrays.fill(weights, 0.0);
+        }
+        
+        for (int i = 0; i < matrix.size; i++) {
+            int code = matrix.behaviorCodes[i];
+            patternSamples[code]++;
             
-            for (int i = 0; i < data.size(); i++) {
-                DayRecord record = data.get(i);
-                List<DayRecord> contextWindow = getContextWindow(data, i);
-                
-                String patternKey = createBehaviorPatternKey(record, contextWindow);
-                double activityLevel = calculateActivityLevel(activityType, record);
-                
-                // Update weights based on activity level
-                behaviorWeights.merge(patternKey, activityLevel, (existing, newValue) -> {
-                    return existing + (LEARNING_RATE * (newValue - existing));
-                });
+            double[] levels = matrix.activityLevels[i];
+            double[] weights = activityBehaviorWeights[code];
+            for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+                // Move the weight toward the observed level
+                weights[activity] = weighted[code]
+                        ? weights[activity] + (LEARNING_RATE * (levels[activity] - weights[activity]))
+                        : levels[activity];
             }
-            
-            activityBehaviorWeights.put(activityType, behaviorWeights);
+            weighted[code] = true;
         }
+        
+        Log.d(TAG, "Extracted " + countPatterns() + " behavior patterns");
     }
     
     /**
-     * Optimize feature weights using gradient descent
+     * Fit each activity's feature weights and bias to its level on the day by closed-form
+     * ridge regression, so the behavior features shift the ranking between activities
      */
-    private void optimizeFeatureWeights(List<DayRecord> data) {
-        for (int iteration = 0; iteration < 50; iteration++) {
-            Map<String, Double> gradients = new HashMap<>();
-            
-            for (String feature : featureWeights.keySet()) {
-                gradients.put(feature, 0.0);
-            }
-            
-            // Calculate gradients
-            for (DayRecord record : data) {
-                Map<ActivityType, Double> predictions = predict(record);
-                Map<ActivityType, Double> actuals = calculateActualActivities(record);
+    private void optimizeFeatureWeights(DayFeatureMatrix matrix) {
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            int fitted = activity;
+            optimizer.optimize(new ModelOptimizer.LeastSquaresObjective() {
+                @Override
+                public int sampleCount() {
+                    return matrix.size;
+                }
                 
-                for (ActivityType activityType : ActivityType.values()) {
-                    double predicted = predictions.getOrDefault(activityType, 0.0);
-                    double actual = actuals.getOrDefault(activityType, 0.0);
-                    double error = actual - predicted;
-                    
-                    // Update gradients
-                    for (String feature : featureWeights.keySet()) {
-                        double featureValue = getFeatureValue(feature, record);
-                        gradients.merge(feature, error * featureValue, Double::sum);
-                    }
+                @Override
+                public int dimension() {
+                    return FEATURE_COUNT + 1;
                 }
-            }
-            
-            // Update weights
-            for (String feature : featureWeights.keySet()) {
-                double gradient = gradients.get(feature) / data.size();
-                featureWeights.put(feature, featureWeights.get(feature) + LEARNING_RATE * gradient);
-            }
+                
+                @Override
+                public void row(int sample, double[] row) {
+                    featureValues(matrix.features[sample], matrix.dayOfWeek[sample], row);
+                    row[FEATURE_COUNT] = 1.0;
+                }
+                
+                @Override
+                public double target(int sample) {
+                    return matrix.activityLevels[sample][fitted];
+                }
+            }, featureWeights[activity]);
         }
     }
     
@@ -260,14 +266,12 @@ public class UserBehaviorModel {
             return getDefaultPredictions();
         }
         
-        Map<ActivityType, Double> predictions = new HashMap<>();
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            double score = calculateActivityScore(activityType, userContext);
-            predictions.put(activityType, score);
+        double[] scores = new double[ACTIVITY_COUNT];
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            scores[activity] = calculateActivityScore(DayFeatureMatrix.ACTIVITY_TYPES[activity], userContext);
         }
         
-        return normalizePredictions(predictions);
+        return DayFeatureMatrix.normalize(scores) ? DayFeatureMatrix.toMap(scores) : getDefaultPredictions();
     }
     
     /**
@@ -279,26 +283,51 @@ public class UserBehaviorModel {
             return getDefaultPredictions();
         }
         
-        Map<ActivityType, Double> predictions = new HashMap<>();
+        double[] row = new double[DayFeatureMatrix.FEATURE_COUNT];
+        DayFeatureMatrix.extractRow(record, row);
+        int dayOfWeek = DayFeatureMatrix.dayOfWeek(record.getDate());
         
-        // Get recent context (simplified)
-        List<DayRecord> contextWindow = Arrays.asList(record);
-        String patternKey = createBehaviorPatternKey(record, contextWindow);
+        // A single day has no recent context, so its trend is stable
+        int code = DayFeatureMatrix.behaviorCode(record, dayOfWeek, DayFeatureMatrix.TREND_STABLE);
         
-        for (ActivityType activityType : ActivityType.values()) {
-            Map<String, Double> behaviorWeights = activityBehaviorWeights.get(activityType);
-            double score = behaviorWeights.getOrDefault(patternKey, 0.0);
-            
-            // Apply feature weights
-            score *= calculateFeatureScore(record);
-            
-            // Apply user preferences
-            score *= getActivityPreference(activityType);
-            
-            predictions.put(activityType, score);
+        double[] scores = new double[ACTIVITY_COUNT];
+        scoreInto(row, dayOfWeek, code, new double[FEATURE_COUNT], scores);
+        return DayFeatureMatrix.toMap(scores);
+    }
+    
+    /**
+     * Normalized activity scores for one feature row, day of week and behavior code
+     */
+    private void scoreInto(double[] row, int dayOfWeek, int code, double[] values, double[] scores) {
+        featureValues(row, dayOfWeek, values);
+        
+        // Apply feature weights and user preferences
+        double[] weights = activityBehaviorWeights[code];
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            // Level the feature weights expect for this activity; a negative fit scores nothing
+            double[] activityFeatureWeights = featureWeights[activity];
+            double featureScore = activityFeatureWeights[FEATURE_COUNT];
+            for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+                featureScore += values[feature] * activityFeatureWeights[feature];
+            }
+            scores[activity] = weights[activity] * Math.max(0.0, featureScore) * activityPreferences[activity];
         }
         
-        return normalizePredictions(predictions);
+        if (!DayFeatureMatrix.normalize(scores)) {
+            Arrays.fill(scores, 1.0 / ACTIVITY_COUNT);
+        }
+    }
+    
+    /**
+     * Values of the weighted features for one matrix row, in FEATURE_NAMES order
+     */
+    private void featureValues(double[] row, int dayOfWeek, double[] values) {
+        values[FEATURE_STEP_COUNT] = row[DayFeatureMatrix.STEP_COUNT];
+        values[FEATURE_ACTIVE_MINUTES] = row[DayFeatureMatrix.ACTIVE_MINUTES];
+        values[FEATURE_SCREEN_TIME] = row[DayFeatureMatrix.SCREEN_TIME];
+        values[FEATURE_PLACES_VISITED] = row[DayFeatureMatrix.PLACES_VISITED];
+        values[FEATURE_TIME_OF_DAY] = 0.5; // Would need actual time data
+        values[FEATURE_DAY_OF_WEEK] = dayPreferences[dayOfWeek];
     }
     
     /**
@@ -308,7 +337,7 @@ public class UserBehaviorModel {
         double score = 0.0;
         
         // Base activity preference
-        score += getActivityPreference(activityType) * 0.3;
+        score += activityPreferences[activityType.ordinal()] * 0.3;
         
         // Recent activity patterns
         if (userContext.getRecentStepCount() > averageStepCount * 1.2) {
@@ -334,11 +363,11 @@ public class UserBehaviorModel {
         // Location-based adjustments
         String location = userContext.getPrimaryLocation();
         if (location != null) {
-            if (location.toLowerCase().contains("home")) {
+            if (DayFeatureMatrix.containsIgnoreCase(location, "home")) {
                 if (activityType == ActivityType.INDOOR_ACTIVITIES || activityType == ActivityType.RELAXATION) {
                     score += 0.1;
                 }
-            } else if (location.toLowerCase().contains("work")) {
+            } else if (DayFeatureMatrix.containsIgnoreCase(location, "work")) {
                 if (activityType == ActivityType.WORK_PRODUCTIVITY) {
                     score += 0.2;
                 }
@@ -348,293 +377,32 @@ public class UserBehaviorModel {
         return Math.max(0.0, Math.min(1.0, score));
     }
     
-    /**
-     * Calculate feature score for a day record
-     */
-    private double calculateFeatureScore(DayRecord record) {
-        double score = 0.0;
-        
-        // Step count feature
-        double stepScore = normalizeStepCount(record.getStepCount());
-        score += stepScore * featureWeights.get("step_count");
-        
-        // Active minutes feature
-        double activeScore = normalizeActiveMinutes(record.getActiveMinutes());
-        score += activeScore * featureWeights.get("active_minutes");
-        
-        // Screen time feature
-        double screenScore = normalizeScreenTime(record.getScreenTimeMinutes());
-        score += screenScore * featureWeights.get("screen_time");
-        
-        // Places visited feature
-        double placesScore = normalizePlacesVisited(record.getPlacesVisited());
-        score += placesScore * featureWeights.get("places_visited");
-        
-        // Time of day feature (simplified)
-        double timeScore = 0.5; // Would need actual time data
-        score += timeScore * featureWeights.get("time_of_day");
-        
-        // Day of week feature
-        String dayOfWeek = getDayOfWeek(record.getDate());
-        double dayScore = dayPreferences.getOrDefault(dayOfWeek, 0.5);
-        score += dayScore * featureWeights.get("day_of_week");
-        
-        return score + bias;
-    }
-    
-    /**
-     * Get context window for pattern analysis
-     */
-    private List<DayRecord> getContextWindow(List<DayRecord> data, int currentIndex) {
-        List<DayRecord> window = new ArrayList<>();
-        
-        int startIndex = Math.max(0, currentIndex - PATTERN_WINDOW_DAYS);
-        int endIndex = Math.min(data.size(), currentIndex + 1);
-        
-        for (int i = startIndex; i < endIndex; i++) {
-            window.add(data.get(i));
-        }
-        
-        return window;
-    }
-    
-    /**
-     * Create behavior pattern key for grouping similar patterns
-     */
-    private String createBehaviorPatternKey(DayRecord record, List<DayRecord> contextWindow) {
-        // Activity level classification
-        String activityLevel = classifyActivityLevel(record.getActivityScore());
-        
-        // Screen time classification
-        String screenLevel = classifyScreenTime(record.getScreenTimeMinutes());
-        
-        // Social level classification
-        String socialLevel = classifyPlacesVisited(record.getPlacesVisited());
-        
-        // Day type
-        String dayType = getDayOfWeek(record.getDate()).contains("S") ? "weekend" : "weekday";
-        
-        // Recent trend
-        String trend = calculateTrend(contextWindow);
-        
-        return String.format("%s_%s_%s_%s_%s", activityLevel, screenLevel, socialLevel, dayType, trend);
-    }
-    
-    /**
-     * Classify activity level
-     */
-    private String classifyActivityLevel(double activityScore) {
-        if (activityScore >= 70) return "high";
-        if (activityScore >= 40) return "medium";
-        return "low";
-    }
-    
-    /**
-     * Classify screen time
-     */
-    private String classifyScreenTime(int screenTimeMinutes) {
-        if (screenTimeMinutes >= 360) return "high"; // 6+ hours
-        if (screenTimeMinutes >= 180) return "medium"; // 3-6 hours
-        return "low";
-    }
-    
-    /**
-     * Classify places visited
-     */
-    private String classifyPlacesVisited(int placesVisited) {
-        if (placesVisited >= 4) return "high";
-        if (placesVisited >= 2) return "medium";
-        return "low";
-    }
-    
-    /**
-     * Calculate recent trend
-     */
-    private String calculateTrend(List<DayRecord> contextWindow) {
-        if (contextWindow.size() < 2) return "stable";
-        
-        double firstHalf = contextWindow.subList(0, contextWindow.size() / 2).stream()
-            .mapToDouble(DayRecord::getActivityScore)
-            .average()
-            .orElse(0.0);
-        
-        double secondHalf = contextWindow.subList(contextWindow.size() / 2, contextWindow.size()).stream()
-            .mapToDouble(DayRecord::getActivityScore)
-            .average()
-            .orElse(0.0);
-        
-        if (secondHalf > firstHalf * 1.1) return "increasing";
-        if (secondHalf < firstHalf * 0.9) return "decreasing";
-        return "stable";
-    }
-    
-    /**
-     * Get day of week from date string
-     */
-    private String getDayOfWeek(String dateString) {
-        // Simplified - would need proper date parsing
-        return "Monday"; // Placeholder
-    }
-    
-    /**
-     * Calculate activity level for a specific activity type
-     */
-    private double calculateActivityLevel(ActivityType activityType, DayRecord record) {
-        switch (activityType) {
-            case OUTDOOR_EXERCISE:
-                return Math.min(1.0, record.getStepCount() / 15000.0);
-            case INDOOR_EXERCISE:
-                return Math.min(1.0, record.getActiveMinutes() / 60.0);
-            case SOCIAL_ACTIVITY:
-                return Math.min(1.0, record.getPlacesVisited() / 5.0);
-            case WORK_PRODUCTIVITY:
-                return Math.min(1.0, record.getProductivityScore() / 100.0);
-            case RECREATIONAL:
-                return Math.min(1.0, record.getPhotoCount() / 10.0);
-            case RELAXATION:
-                return Math.min(1.0, Math.max(0.0, (480 - record.getScreenTimeMinutes()) / 480.0));
-            case TRAVEL:
-                return Math.min(1.0, record.getTotalTravelDistance() / 10000.0);
-            case PHOTOGRAPHY:
-                return Math.min(1.0, record.getPhotoCount() / 20.0);
-            case INDOOR_ACTIVITIES:
-                return Math.min(1.0, record.getScreenTimeMinutes() / 360.0);
-            case OUTDOOR_LEISURE:
-                return Math.min(1.0, (record.getStepCount() / 10000.0 + record.getPlacesVisited() / 3.0) / 2.0);
-            default:
-                return 0.0;
-        }
-    }
-    
-    /**
-     * Calculate actual activity levels from a day record
-     */
-    private Map<ActivityType, Double> calculateActualActivities(DayRecord record) {
-        Map<ActivityType, Double> actuals = new HashMap<>();
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            double level = calculateActivityLevel(activityType, record);
-            actuals.put(activityType, level);
-        }
-        
-        return actuals;
-    }
-    
-    /**
-     * Get feature value for gradient calculation
-     */
-    private double getFeatureValue(String feature, DayRecord record) {
-        switch (feature) {
-            case "step_count":
-                return normalizeStepCount(record.getStepCount());
-            case "active_minutes":
-                return normalizeActiveMinutes(record.getActiveMinutes());
-            case "screen_time":
-                return normalizeScreenTime(record.getScreenTimeMinutes());
-            case "places_visited":
-                return normalizePlacesVisited(record.getPlacesVisited());
-            case "time_of_day":
-                return 0.5; // Simplified
-            case "day_of_week":
-                return dayPreferences.getOrDefault(getDayOfWeek(record.getDate()), 0.5);
-            default:
-                return 0.0;
-        }
-    }
-    
-    /**
-     * Normalize step count to 0-1 range
-     */
-    private double normalizeStepCount(int stepCount) {
-        return Math.max(0.0, Math.min(1.0, stepCount / 20000.0));
-    }
-    
-    /**
-     * Normalize active minutes to 0-1 range
-     */
-    private double normalizeActiveMinutes(int activeMinutes) {
-        return Math.max(0.0, Math.min(1.0, activeMinutes / 120.0));
-    }
-    
-    /**
-     * Normalize screen time to 0-1 range
-     */
-    private double normalizeScreenTime(int screenTimeMinutes) {
-        return Math.max(0.0, Math.min(1.0, screenTimeMinutes / 720.0)); // 12 hours max
-    }
-    
-    /**
-     * Normalize places visited to 0-1 range
-     */
-    private double normalizePlacesVisited(int placesVisited) {
-        return Math.max(0.0, Math.min(1.0, placesVisited / 10.0));
-    }
-    
-    /**
-     * Get activity preference for a specific activity type
-     */
-    private double getActivityPreference(ActivityType activityType) {
-        return activityPreferences.getOrDefault(activityType, 0.5);
-    }
-    
-    /**
-     * Normalize prediction scores to sum to 1.0
-     */
-    private Map<ActivityType, Double> normalizePredictions(Map<ActivityType, Double> predictions) {
-        double sum = predictions.values().stream().mapToDouble(Double::doubleValue).sum();
-        
-        if (sum == 0.0) {
-            return getDefaultPredictions();
-        }
-        
-        Map<ActivityType, Double> normalized = new HashMap<>();
-        for (Map.Entry<ActivityType, Double> entry : predictions.entrySet()) {
-            normalized.put(entry.getKey(), entry.getValue() / sum);
-        }
-        
-        return normalized;
-    }
-    
     /**
      * Get default predictions when model is not trained
      */
     private Map<ActivityType, Double> getDefaultPredictions() {
-        Map<ActivityType, Double> defaults = new HashMap<>();
-        double defaultScore = 1.0 / ActivityType.values().length;
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            defaults.put(activityType, defaultScore);
-        }
-        
-        return defaults;
+        double[] defaults = new double[ACTIVITY_COUNT];
+        Arrays.fill(defaults, 1.0 / ACTIVITY_COUNT);
+        return DayFeatureMatrix.toMap(defaults);
     }
     
     /**
      * Calculate training accuracy
      */
-    private double calculateTrainingAccuracy(List<DayRecord> trainingData) {
+    private double calculateTrainingAccuracy(DayFeatureMatrix matrix) {
         int correctPredictions = 0;
+        double[] values = new double[FEATURE_COUNT];
+        double[] scores = new double[ACTIVITY_COUNT];
         
-        for (DayRecord record : trainingData) {
-            Map<ActivityType, Double> predictions = predict(record);
-            Map<ActivityType, Double> actuals = calculateActualActivities(record);
-            
-            ActivityType predictedActivity = predictions.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(ActivityType.INDOOR_ACTIVITIES);
-            
-            ActivityType actualActivity = actuals.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(ActivityType.INDOOR_ACTIVITIES);
-            
-            if (predictedActivity == actualActivity) {
+        for (int i = 0; i < matrix.size; i++) {
+            // Scored as predict(DayRecord) would, without the recent trend
+            scoreInto(matrix.features[i], matrix.dayOfWeek[i], matrix.stableBehaviorCodes[i], values, scores);
+            if (DayFeatureMatrix.argMax(scores) == DayFeatureMatrix.argMax(matrix.activityLevels[i])) {
                 correctPredictions++;
             }
         }
         
-        return (double) correctPredictions / trainingData.size();
+        return (double) correctPredictions / matrix.size;
     }
     
     /**
@@ -646,10 +414,10 @@ public class UserBehaviorModel {
         ActivityType predictedActivity = result.getPredictedActivity();
         ActivityType actualActivity = result.getActualActivity();
         
-        if (predictedActivity == actualActivity) {
+        if (predictedActivity != null && predictedActivity == actualActivity) {
             // Reinforce activity preference
-            double currentPreference = activityPreferences.getOrDefault(predictedActivity, 0.5);
-            activityPreferences.put(predictedActivity, Math.min(1.0, currentPreference + (LEARNING_RATE * 0.1)));
+            int predicted = predictedActivity.ordinal();
+            activityPreferences[predicted] = Math.min(1.0, activityPreferences[predicted] + (LEARNING_RATE * 0.1));
         }
     }
     
@@ -664,12 +432,16 @@ public class UserBehaviorModel {
         
         if (predictedActivity != actualActivity) {
             // Reduce preference for incorrect prediction
-            double currentPreference = activityPreferences.getOrDefault(predictedActivity, 0.5);
-            activityPreferences.put(predictedActivity, Math.max(0.0, currentPreference - (LEARNING_RATE * 0.05)));
+            if (predictedActivity != null) {
+                int predicted = predictedActivity.ordinal();
+                activityPreferences[predicted] = Math.max(0.0, activityPreferences[predicted] - (LEARNING_RATE * 0.05));
+            }
             
             // Increase preference for actual activity
-            double actualPreference = activityPreferences.getOrDefault(actualActivity, 0.5);
-            activityPreferences.put(actualActivity, Math.min(1.0, actualPreference + (LEARNING_RATE * 0.05)));
+            if (actualActivity != null) {
+                int actual = actualActivity.ordinal();
+                activityPreferences[actual] = Math.min(1.0, activityPreferences[actual] + (LEARNING_RATE * 0.05));
+            }
         }
     }
     
@@ -683,9 +455,9 @@ public class UserBehaviorModel {
         stats.put("training_data_size", trainingDataSize);
         stats.put("training_accuracy", trainingAccuracy);
         stats.put("last_training_time", lastTrainingTime);
-        stats.put("behavior_patterns_count", behaviorPatterns.size());
-        stats.put("feature_weights", new HashMap<>(featureWeights));
-        stats.put("activity_preferences", new HashMap<>(activityPreferences));
+        stats.put("behavior_patterns_count", countPatterns());
+        stats.put("feature_weights", getFeatureWeights());
+        stats.put("activity_preferences", getActivityPreferences());
         stats.put("average_step_count", averageStepCount);
         stats.put("average_active_minutes", averageActiveMinutes);
         stats.put("average_screen_time", averageScreenTime);
@@ -694,6 +466,14 @@ public class UserBehaviorModel {
         return stats;
     }
     
+    private int countPatterns() {
+        int count = 0;
+        for (int samples : patternSamples) {
+            if (samples > 0) count++;
+        }
+        return count;
+    }
+    
     // Getters
     public boolean isTrained() {
         return isTrained;
@@ -711,87 +491,20 @@ public class UserBehaviorModel {
         return lastTrainingTime;
     }
     
-    public Map<String, Double> getFeatureWeights() {
-        return new HashMap<>(featureWeights);
+    public Map<ActivityType, Map<String, Double>> getFeatureWeights() {
+        Map<ActivityType, Map<String, Double>> weights = new EnumMap<>(ActivityType.class);
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            Map<String, Double> activityWeights = new HashMap<>();
+            for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+                activityWeights.put(FEATURE_NAMES[feature], featureWeights[activity][feature]);
+            }
+            activityWeights.put("bias", featureWeights[activity][FEATURE_COUNT]);
+            weights.put(DayFeatureMatrix.ACTIVITY_TYPES[activity], activityWeights);
+        }
+        return weights;
     }
     
     public Map<ActivityType, Double> getActivityPreferences() {
-        return new HashMap<>(activityPreferences);
-    }
-    
-    /**
-     * Inner class for user behavior pattern representation
-     */
-    private static class UserBehaviorPattern {
-        private int sampleCount;
-        private double avgStepCount;
-        private double avgActiveMinutes;
-        private double avgScreenTime;
-        private double avgPlacesVisited;
-        private double avgActivityScore;
-        private Map<ActivityType, Double> activityLevels;
-        
-        public UserBehaviorPattern() {
-            this.sampleCount = 0;
-            this.avgStepCount = 0.0;
-            this.avgActiveMinutes = 0.0;
-            this.avgScreenTime = 0.0;
-            this.avgPlacesVisited = 0.0;
-            this.avgActivityScore = 0.0;
-            this.activityLevels = new HashMap<>();
-        }
-        
-        public void addDataPoint(DayRecord record) {
-            sampleCount++;
-            
-            // Update averages
-            avgStepCount = ((avgStepCount * (sampleCount - 1)) + record.getStepCount()) / sampleCount;
-            avgActiveMinutes = ((avgActiveMinutes * (sampleCount - 1)) + record.getActiveMinutes()) / sampleCount;
-            avgScreenTime = ((avgScreenTime * (sampleCount - 1)) + record.getScreenTimeMinutes()) / sampleCount;
-            avgPlacesVisited = ((avgPlacesVisited * (sampleCount - 1)) + record.getPlacesVisited()) / sampleCount;
-            avgActivityScore = ((avgActivityScore * (sampleCount - 1)) + record.getActivityScore()) / sampleCount;
-            
-            // Update activity levels
-            for (ActivityType activityType : ActivityType.values()) {
-                double activityLevel = calculateActivityLevel(activityType, record);
-                double currentLevel = activityLevels.getOrDefault(activityType, 0.0);
-                activityLevels.put(activityType, ((currentLevel * (sampleCount - 1)) + activityLevel) / sampleCount);
-            }
-        }
-        
-        public double getActivityLevel(ActivityType activityType) {
-            return activityLevels.getOrDefault(activityType, 0.0);
-        }
-        
-        public int getSampleCount() {
-            return sampleCount;
-        }
-        
-        private double calculateActivityLevel(ActivityType activityType, DayRecord record) {
-            switch (activityType) {
-                case OUTDOOR_EXERCISE:
-                    return Math.min(1.0, record.getStepCount() / 15000.0);
-                case INDOOR_EXERCISE:
-                    return Math.min(1.0, record.getActiveMinutes() / 60.0);
-                case SOCIAL_ACTIVITY:
-                    return Math.min(1.0, record.getPlacesVisited() / 5.0);
-                case WORK_PRODUCTIVITY:
-                    return Math.min(1.0, record.getProductivityScore() / 100.0);
-                case RECREATIONAL:
-                    return Math.min(1.0, record.getPhotoCount() / 10.0);
-                case RELAXATION:
-                    return Math.min(1.0, Math.max(0.0, (480 - record.getScreenTimeMinutes()) / 480.0));
-                case TRAVEL:
-                    return Math.min(1.0, record.getTotalTravelDistance() / 10000.0);
-                case PHOTOGRAPHY:
-                    return Math.min(1.0, record.getPhotoCount() / 20.0);
-                case INDOOR_ACTIVITIES:
-                    return Math.min(1.0, record.getScreenTimeMinutes() / 360.0);
-                case OUTDOOR_LEISURE:
-                    return Math.min(1.0, (record.getStepCount() / 10000.0 + record.getPlacesVisited() / 3.0) / 2.0);
-                default:
-                    return 0.0;
-            }
-        }
+        return DayFeatureMatrix.toMap(activityPreferences);
     }
-}
\ No newline at end of file
+}
@@ -4,10 +4,12 @@ import android.content.Context;
 import android.util.Log;
 
 import com.locallife.database.DatabaseHelper;
+import com.locallife.model.ActivitySuitabilityTable;
 import com.locallife.model.ActivityType;
 import com.locallife.model.DayRecord;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -26,8 +28,10 @@ public class WeatherActivityCorrelationService {
     public WeatherActivityCorrelationService(Context context) {
         this.context = context;
         this.databaseHelper = new DatabaseHelper(context);
-        this.correlationCache = new HashMap<>();
-        this.activityWeatherPreferences = new HashMap<>();
+        // Filled by the analysis thread while recommendation strategies read them on the analytics pool;
+        // each entry is complete before it is put
+        this.correlationCache = new ConcurrentHashMap<>();
+        this.activityWeatherPreferences = new ConcurrentHashMap<>();
         
         // Initialize correlation analysis
         initializeCorrelationAnalysis();
@@ -359,9 +363,10 @@ public class WeatherActivityCorrelationService {
             correlations.putAll(cachedCorrelation.getActivityScores());
         } else {
             // Fallback to weather suitability scores
+            double[] suitability = new double[ActivityType.values().length];
+            ActivitySuitabilityTable.lookupAll(temperature, weatherCondition, humidity, windSpeed, 0.0, suitability);
             for (ActivityType activityType : ActivityType.values()) {
-                double suitability = activityType.getWeatherSuitability(temperature, weatherCondition, humidity, windSpeed, 0.0);
-                correlations.put(activityType, suitability);
+                correlations.put(activityType, suitability[activityType.ordinal()]);
             }
         }
         
@@ -2,26 +2,39 @@ package com.locallife.service;
 
 import android.util.Log;
 
+import com.locallife.model.ActivitySuitabilityTable;
 import com.locallife.model.ActivityType;
 import com.locallife.model.DayRecord;
 import com.locallife.model.PredictionResult;
 
 import java.util.*;
-import java.util.stream.Collectors;
+
+import static com.locallife.service.DayFeatureMatrix.ACTIVITY_COUNT;
+import static com.locallife.service.DayFeatureMatrix.WEATHER_CODES;
 
 /**
- * Machine Learning model for predicting activity based on weather patterns
+ * Machine Learning model for predicting activity based on weather patterns.
+ *
+ * Training reads a shared DayFeatureMatrix; pattern statistics live in [weather code][activity]
+ * tables and the feature weights in an [activity][weather column] table, the last column
+ * holding each activity's bias.
  */
 public class WeatherPatternModel {
     private static final String TAG = "WeatherPatternModel";
     private static final double LEARNING_RATE = 0.01;
     private static final int MIN_TRAINING_SAMPLES = 20;
+    private static final double RIDGE_LAMBDA = 1e-3;
+    
+    // Weights apply to DayFeatureMatrix columns TEMPERATURE..UV_INDEX, in this order
+    private static final String[] FEATURE_NAMES = {"temperature", "humidity", "weather_condition", "wind_speed", "uv_index"};
+    private static final int FEATURE_COUNT = FEATURE_NAMES.length;
     
     private boolean isTrained = false;
-    private Map<String, WeatherPattern> weatherPatterns;
-    private Map<ActivityType, Map<String, Double>> activityWeatherWeights;
-    private Map<String, Double> featureWeights;
-    private double bias;
+    private final int[] patternSamples;
+    private final double[][] patternActivityScores;
+    private final double[][] activityWeatherWeights;
+    private final double[][] featureWeights;
+    private final ModelOptimizer optimizer = new RidgeRegressionOptimizer(RIDGE_LAMBDA);
     
     // Training statistics
     private int trainingDataSize;
@@ -29,24 +42,45 @@ public class WeatherPatternModel {
     private Date lastTrainingTime;
     
     public WeatherPatternModel() {
-        this.weatherPatterns = new HashMap<>();
-        this.activityWeatherWeights = new HashMap<>();
-        this.featureWeights = new HashMap<>();
-        this.bias = 0.0;
+        this.patternSamples = new int[WEATHER_CODES];
+        this.patternActivityScores = new double[WEATHER_CODES][ACTIVITY_COUNT];
+        this.activityWeatherWeights = new double[WEATHER_CODES][ACTIVITY_COUNT];
+        this.featureWeights = new double[ACTIVITY_COUNT][FEATURE_COUNT + 1];
         
         // Initialize feature weights
         initializeFeatureWeights();
     }
     
+    private WeatherPatternModel(WeatherPatternModel source) {
+        this.isTrained = source.isTrained;
+        this.patternSamples = source.patternSamples;
+        this.patternActivityScores = source.patternActivityScores;
+        this.activityWeatherWeights = DayFeatureMatrix.copyRows(source.activityWeatherWeights);
+        this.featureWeights = source.featureWeights;
+        this.trainingDataSize = source.trainingDataSize;
+        this.trainingAccuracy = source.trainingAccuracy;
+        this.lastTrainingTime = source.lastTrainingTime;
+    }
+    
+    /**
+     * A trained copy for feedback to update while this one keeps serving predictions. Only
+     * the weights feedback changes are copied; the copy must not be trained again.
+     */
+    WeatherPatternModel copyForFeedback() {
+        return new WeatherPatternModel(this);
+    }
+    
     /**
-     * Initialize feature weights for weather-based prediction
+     * Initialize feature weights for weather-based prediction, the same for every activity
      */
     private void initializeFeatureWeights() {
-        featureWeights.put("temperature", 0.3);
-        featureWeights.put("humidity", 0.2);
-        featureWeights.put("weather_condition", 0.25);
-        featureWeights.put("wind_speed", 0.15);
-        featureWeights.put("uv_index", 0.1);
+        for (double[] weights : featureWeights) {
+            weights[DayFeatureMatrix.TEMPERATURE] = 0.3;
+            weights[DayFeatureMatrix.HUMIDITY] = 0.2;
+            weights[DayFeatureMatrix.WEATHER_CONDITION] = 0.25;
+            weights[DayFeatureMatrix.WIND_SPEED] = 0.15;
+            weights[DayFeatureMatrix.UV_INDEX] = 0.1;
+        }
     }
     
     /**
@@ -57,97 +91,96 @@ public class WeatherPatternModel {
             Log.w(TAG, "Insufficient training data: " + historicalData.size() + " samples");
             return;
         }
+        train(DayFeatureMatrix.of(historicalData));
+    }
+    
+    /**
+     * Train the model from a feature matrix shared with the other models
+     */
+    void train(DayFeatureMatrix matrix) {
+        if (matrix.size < MIN_TRAINING_SAMPLES) {
+            Log.w(TAG, "Insufficient training data: " + matrix.size + " samples");
+            return;
+        }
         
-        Log.d(TAG, "Training weather pattern model with " + historicalData.size() + " samples");
-        
-        // Extract weather patterns
-        extractWeatherPatterns(historicalData);
+        Log.d(TAG, "Training weather pattern model with " + matrix.size + " samples");
         
-        // Train activity-weather associations
-        trainActivityWeatherAssociations(historicalData);
+        // Extract weather patterns and train activity-weather associations
+        learnPatterns(matrix);
         
         // Optimize feature weights
-        optimizeFeatureWeights(historicalData);
+        optimizeFeatureWeights(matrix);
         
         this.isTrained = true;
-        this.trainingDataSize = historicalData.size();
+        this.trainingDataSize = matrix.size;
         this.lastTrainingTime = new Date();
         
         // Calculate training accuracy
-        this.trainingAccuracy = calculateTrainingAccuracy(historicalData);
+        this.trainingAccuracy = calculateTrainingAccuracy(matrix);
         
         Log.d(TAG, "Model training completed with accuracy: " + String.format("%.2f%%", trainingAccuracy * 100));
     }
     
     /**
-     * Extract weather patterns from historical data
+     * Accumulate per-pattern activity averages and smooth the activity-weather weights in
+     * one pass over the days
      */
-    private void extractWeatherPatterns(List<DayRecord> historicalData) {
-        for (DayRecord record : historicalData) {
-            String patternKey = createWeatherPatternKey(record);
-            
-            WeatherPattern pattern = weatherPatterns.computeIfAbsent(patternKey, k -> new WeatherPattern());
-            pattern.addDataPoint(record);
+    private void learnPatterns(DayFeatureMatrix matrix) {
+        boolean[] weighted = new boolean[WEATHER_CODES];
+        for (double[] weights : activityWeatherWeights) {
+            Arrays.fill(weights, 0.0);
         }
         
-        Log.d(TAG, "Extracted " + weatherPatterns.size() + " weather patterns");
-    }
-    
-    /**
-     * Train activity-weather associations
-     */
-    private void trainActivityWeatherAssociations(List<DayRecord> historicalData) {
-        for (ActivityType activityType : ActivityType.values()) {
-            Map<String, Double> weatherWeights = new HashMap<>();
+        for (int i = 0; i < matrix.size; i++) {
+            int code = matrix.weatherCodes[i];
+            double[] levels = matrix.activityLevels[i];
             
-            for (DayRecord record : historicalData) {
-                String patternKey = createWeatherPatternKey(record);
-                double activityLevel = calculateActivityLevel(activityType, record);
+            int samples = ++patternSamples[code];
+            double[] averages = patternActivityScores[code];
+            double[] weights = activityWeatherWeights[code];
+            for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+                averages[activity] = ((averages[activity] * (samples - 1)) + levels[activity]) / samples;
                 
-                // Update weights based on activity level
-                weatherWeights.merge(patternKey, activityLevel, (existing, newValue) -> {
-                    return existing + (LEARNING_RATE * (newValue - existing));
-                });
+                // Move the weight toward the observed level
+                weights[activity] = weighted[code]
+                        ? weights[activity] + (LEARNING_RATE * (levels[activity] - weights[activity]))
+                        : levels[activity];
             }
-            
-            activityWeatherWeights.put(activityType, weatherWeights);
+            weighted[code] = true;
         }
+        
+        Log.d(TAG, "Extracted " + countPatterns() + " weather patterns");
     }
     
     /**
-     * Optimize feature weights using simple gradient descent
+     * Fit each activity's feature weights and bias to its level on the day by closed-form
+     * ridge regression, so the weather features shift the ranking between activities
      */
-    private void optimizeFeatureWeights(List<DayRecord> historicalData) {
-        for (int iteration = 0; iteration < 100; iteration++) {
-            Map<String, Double> gradients = new HashMap<>();
-            
-            for (String feature : featureWeights.keySet()) {
-                gradients.put(feature, 0.0);
-            }
-            
-            // Calculate gradients
-            for (DayRecord record : historicalData) {
-                Map<ActivityType, Double> predictions = predict(record);
-                Map<ActivityType, Double> actuals = calculateActualActivities(record);
+    private void optimizeFeatureWeights(DayFeatureMatrix matrix) {
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            int fitted = activity;
+            optimizer.optimize(new ModelOptimizer.LeastSquaresObjective() {
+                @Override
+                public int sampleCount() {
+                    return matrix.size;
+                }
                 
-                for (ActivityType activityType : ActivityType.values()) {
-                    double predicted = predictions.getOrDefault(activityType, 0.0);
-                    double actual = actuals.getOrDefault(activityType, 0.0);
-                    double error = actual - predicted;
-                    
-                    // Update gradients
-                    for (String feature : featureWeights.keySet()) {
-                        double featureValue = getFeatureValue(feature, record);
-                        gradients.merge(feature, error * featureValue, Double::sum);
-                    }
+                @Override
+                public int dimension() {
+                    return FEATURE_COUNT + 1;
                 }
-            }
-            
-            // Update weights
-            for (String feature : featureWeights.keySet()) {
-                double gradient = gradients.get(feature) / historicalData.size();
-                featureWeights.put(feature, featureWeights.get(feature) + LEARNING_RATE * gradient);
-            }
+                
+                @Override
+                public void row(int sample, double[] row) {
+                    System.arraycopy(matrix.features[sample], 0, row, 0, FEATURE_COUNT);
+                    row[FEATURE_COUNT] = 1.0;
+                }
+                
+                @Override
+                public double target(int sample) {
+                    return matrix.activityLevels[sample][fitted];
+                }
+            }, featureWeights[activity]);
         }
     }
     
@@ -160,314 +193,97 @@ public class WeatherPatternModel {
             return getDefaultPredictions();
         }
         
-        Map<ActivityType, Double> predictions = new HashMap<>();
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            double score = calculateActivityScore(activityType, weatherContext);
-            predictions.put(activityType, score);
-        }
-        
-        // Normalize predictions
-        return normalizePredictions(predictions);
-    }
-    
-    /**
-     * Predict activity probabilities based on day record
-     */
-    public Map<ActivityType, Double> predict(DayRecord record) {
-        if (!isTrained) {
-            Log.w(TAG, "Model not trained, returning default predictions");
-            return getDefaultPredictions();
-        }
-        
-        Map<ActivityType, Double> predictions = new HashMap<>();
-        String patternKey = createWeatherPatternKey(record);
+        double[] scores = new double[ACTIVITY_COUNT];
+        int code = DayFeatureMatrix.weatherCode(weatherContext);
+        double[] patternScores = patternSamples[code] > 0 ? patternActivityScores[code] : null;
         
-        for (ActivityType activityType : ActivityType.values()) {
-            Map<String, Double> weatherWeights = activityWeatherWeights.get(activityType);
-            double score = weatherWeights.getOrDefault(patternKey, 0.0);
-            
-            // Apply feature weights
-            score *= calculateFeatureScore(record);
-            
-            predictions.put(activityType, score);
-        }
-        
-        return normalizePredictions(predictions);
-    }
-    
-    /**
-     * Calculate activity score for a specific activity type and weather context
-     */
-    private double calculateActivityScore(ActivityType activityType, PredictionResult.WeatherContext weatherContext) {
-        double score = 0.0;
-        
-        // Weather suitability score
-        double weatherSuitability = activityType.getWeatherSuitability(
+        // Weather suitability scores, all activities in one table pass
+        ActivitySuitabilityTable.lookupAll(
             weatherContext.getTemperature(),
             weatherContext.getWeatherCondition(),
             weatherContext.getHumidity(),
             weatherContext.getWindSpeed(),
-            weatherContext.getUvIndex()
+            weatherContext.getUvIndex(),
+            scores
         );
         
-        score += weatherSuitability * 0.6;
-        
-        // Pattern-based score
-        String patternKey = createWeatherPatternKey(weatherContext);
-        WeatherPattern pattern = weatherPatterns.get(patternKey);
-        if (pattern != null) {
-            score += pattern.getActivityScore(activityType) * 0.4;
-        }
-        
-        return Math.max(0.0, Math.min(1.0, score));
-    }
-    
-    /**
-     * Calculate feature score for a day record
-     */
-    private double calculateFeatureScore(DayRecord record) {
-        double score = 0.0;
-        
-        // Temperature score
-        double tempScore = normalizeTemperature(record.getTemperature());
-        score += tempScore * featureWeights.get("temperature");
-        
-        // Humidity score
-        double humidityScore = normalizeHumidity(record.getHumidity());
-        score += humidityScore * featureWeights.get("humidity");
-        
-        // Weather condition score
-        double conditionScore = getWeatherConditionScore(record.getWeatherCondition());
-        score += conditionScore * featureWeights.get("weather_condition");
-        
-        // Wind speed score
-        double windScore = normalizeWindSpeed(record.getWindSpeed());
-        score += windScore * featureWeights.get("wind_speed");
-        
-        // UV index score
-        double uvScore = normalizeUVIndex(record.getUvIndex());
-        score += uvScore * featureWeights.get("uv_index");
-        
-        return score + bias;
-    }
-    
-    /**
-     * Calculate actual activity levels from a day record
-     */
-    private Map<ActivityType, Double> calculateActualActivities(DayRecord record) {
-        Map<ActivityType, Double> actuals = new HashMap<>();
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            double level = calculateActivityLevel(activityType, record);
-            actuals.put(activityType, level);
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            double score = scores[activity] * 0.6;
+            
+            // Pattern-based score
+            if (patternScores != null) {
+                score += patternScores[activity] * 0.4;
+            }
+            
+            scores[activity] = Math.max(0.0, Math.min(1.0, score));
         }
         
-        return actuals;
+        // Normalize predictions
+        return DayFeatureMatrix.normalize(scores) ? DayFeatureMatrix.toMap(scores) : getDefaultPredictions();
     }
     
     /**
-     * Calculate activity level for a specific activity type
+     * Predict activity probabilities based on day record
      */
-    private double calculateActivityLevel(ActivityType activityType, DayRecord record) {
-        switch (activityType) {
-            case OUTDOOR_EXERCISE:
-                return Math.min(1.0, record.getStepCount() / 15000.0);
-            case INDOOR_EXERCISE:
-                return Math.min(1.0, record.getActiveMinutes() / 60.0);
-            case SOCIAL_ACTIVITY:
-                return Math.min(1.0, record.getPlacesVisited() / 5.0);
-            case WORK_PRODUCTIVITY:
-                return Math.min(1.0, record.getProductivityScore() / 100.0);
-            case RECREATIONAL:
-                return Math.min(1.0, record.getPhotoCount() / 10.0);
-            case RELAXATION:
-                return Math.min(1.0, Math.max(0.0, (480 - record.getScreenTimeMinutes()) / 480.0));
-            case TRAVEL:
-                return Math.min(1.0, record.getTotalTravelDistance() / 10000.0);
-            case PHOTOGRAPHY:
-                return Math.min(1.0, record.getPhotoCount() / 20.0);
-            case INDOOR_ACTIVITIES:
-                return Math.min(1.0, record.getScreenTimeMinutes() / 360.0);
-            case OUTDOOR_LEISURE:
-                return Math.min(1.0, (record.getStepCount() / 10000.0 + record.getPlacesVisited() / 3.0) / 2.0);
-            default:
-                return 0.0;
+    public Map<ActivityType, Double> predict(DayRecord record) {
+        if (!isTrained) {
+            Log.w(TAG, "Model not trained, returning default predictions");
+            return getDefaultPredictions();
         }
-    }
-    
-    /**
-     * Create weather pattern key for grouping similar weather conditions
-     */
-    private String createWeatherPatternKey(DayRecord record) {
-        int tempRange = (int) (record.getTemperature() / 5) * 5; // 5-degree ranges
-        int humidityRange = (int) (record.getHumidity() / 20) * 20; // 20% ranges
-        String condition = normalizeWeatherCondition(record.getWeatherCondition());
-        
-        return String.format("%d_%d_%s", tempRange, humidityRange, condition);
-    }
-    
-    /**
-     * Create weather pattern key for weather context
-     */
-    private String createWeatherPatternKey(PredictionResult.WeatherContext context) {
-        int tempRange = (int) (context.getTemperature() / 5) * 5;
-        int humidityRange = (int) (context.getHumidity() / 20) * 20;
-        String condition = normalizeWeatherCondition(context.getWeatherCondition());
         
-        return String.format("%d_%d_%s", tempRange, humidityRange, condition);
-    }
-    
-    /**
-     * Normalize weather condition strings
-     */
-    private String normalizeWeatherCondition(String condition) {
-        if (condition == null) return "unknown";
-        
-        String normalized = condition.toLowerCase();
-        if (normalized.contains("clear") || normalized.contains("sunny")) return "clear";
-        if (normalized.contains("cloud") || normalized.contains("overcast")) return "cloudy";
-        if (normalized.contains("rain") || normalized.contains("drizzle")) return "rain";
-        if (normalized.contains("storm") || normalized.contains("thunder")) return "storm";
-        if (normalized.contains("snow") || normalized.contains("sleet")) return "snow";
-        if (normalized.contains("fog") || normalized.contains("mist")) return "fog";
-        
-        return "unknown";
-    }
-    
-    /**
-     * Get feature value for gradient calculation
-     */
-    private double getFeatureValue(String feature, DayRecord record) {
-        switch (feature) {
-            case "temperature":
-                return normalizeTemperature(record.getTemperature());
-            case "humidity":
-                return normalizeHumidity(record.getHumidity());
-            case "weather_condition":
-                return getWeatherConditionScore(record.getWeatherCondition());
-            case "wind_speed":
-                return normalizeWindSpeed(record.getWindSpeed());
-            case "uv_index":
-                return normalizeUVIndex(record.getUvIndex());
-            default:
-                return 0.0;
-        }
-    }
-    
-    /**
-     * Normalize temperature to 0-1 range
-     */
-    private double normalizeTemperature(double temperature) {
-        // Normalize to roughly 0-1 range, assuming -20°C to 50°C range
-        return Math.max(0.0, Math.min(1.0, (temperature + 20) / 70.0));
-    }
-    
-    /**
-     * Normalize humidity to 0-1 range
-     */
-    private double normalizeHumidity(double humidity) {
-        return Math.max(0.0, Math.min(1.0, humidity / 100.0));
-    }
-    
-    /**
-     * Normalize wind speed to 0-1 range
-     */
-    private double normalizeWindSpeed(double windSpeed) {
-        // Normalize to 0-1 range, assuming 0-50 km/h range
-        return Math.max(0.0, Math.min(1.0, windSpeed / 50.0));
-    }
-    
-    /**
-     * Normalize UV index to 0-1 range
-     */
-    private double normalizeUVIndex(double uvIndex) {
-        // Normalize to 0-1 range, assuming 0-12 UV index range
-        return Math.max(0.0, Math.min(1.0, uvIndex / 12.0));
-    }
-    
-    /**
-     * Get weather condition score
-     */
-    private double getWeatherConditionScore(String condition) {
-        String normalized = normalizeWeatherCondition(condition);
+        double[] row = new double[DayFeatureMatrix.FEATURE_COUNT];
+        DayFeatureMatrix.extractRow(record, row);
+        int code = DayFeatureMatrix.weatherCode(record.getTemperature(), record.getHumidity(), record.getWeatherCondition());
         
-        switch (normalized) {
-            case "clear":
-                return 1.0;
-            case "cloudy":
-                return 0.7;
-            case "rain":
-                return 0.4;
-            case "storm":
-                return 0.2;
-            case "snow":
-                return 0.3;
-            case "fog":
-                return 0.5;
-            default:
-                return 0.5;
-        }
+        double[] scores = new double[ACTIVITY_COUNT];
+        scoreInto(row, code, scores);
+        return DayFeatureMatrix.toMap(scores);
     }
     
     /**
-     * Normalize prediction scores to sum to 1.0
+     * Normalized activity scores for one feature row and weather code
      */
-    private Map<ActivityType, Double> normalizePredictions(Map<ActivityType, Double> predictions) {
-        double sum = predictions.values().stream().mapToDouble(Double::doubleValue).sum();
-        
-        if (sum == 0.0) {
-            return getDefaultPredictions();
+    private void scoreInto(double[] row, int code, double[] scores) {
+        double[] weights = activityWeatherWeights[code];
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            // Level the feature weights expect for this activity; a negative fit scores nothing
+            double[] activityFeatureWeights = featureWeights[activity];
+            double featureScore = activityFeatureWeights[FEATURE_COUNT];
+            for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+                featureScore += row[feature] * activityFeatureWeights[feature];
+            }
+            scores[activity] = weights[activity] * Math.max(0.0, featureScore);
         }
         
-        Map<ActivityType, Double> normalized = new HashMap<>();
-        for (Map.Entry<ActivityType, Double> entry : predictions.entrySet()) {
-            normalized.put(entry.getKey(), entry.getValue() / sum);
+        if (!DayFeatureMatrix.normalize(scores)) {
+            Arrays.fill(scores, 1.0 / ACTIVITY_COUNT);
         }
-        
-        return normalized;
     }
     
     /**
      * Get default predictions when model is not trained
      */
     private Map<ActivityType, Double> getDefaultPredictions() {
-        Map<ActivityType, Double> defaults = new HashMap<>();
-        double defaultScore = 1.0 / ActivityType.values().length;
-        
-        for (ActivityType activityType : ActivityType.values()) {
-            defaults.put(activityType, defaultScore);
-        }
-        
-        return defaults;
+        double[] defaults = new double[ACTIVITY_COUNT];
+        Arrays.fill(defaults, 1.0 / ACTIVITY_COUNT);
+        return DayFeatureMatrix.toMap(defaults);
     }
     
     /**
      * Calculate training accuracy
      */
-    private double calculateTrainingAccuracy(List<DayRecord> trainingData) {
+    private double calculateTrainingAccuracy(DayFeatureMatrix matrix) {
         int correctPredictions = 0;
+        double[] scores = new double[ACTIVITY_COUNT];
         
-        for (DayRecord record : trainingData) {
-            Map<ActivityType, Double> predictions = predict(record);
-            Map<ActivityType, Double> actuals = calculateActualActivities(record);
-            
-            ActivityType predictedActivity = predictions.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(ActivityType.INDOOR_ACTIVITIES);
-            
-            ActivityType actualActivity = actuals.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElse(ActivityType.INDOOR_ACTIVITIES);
-            
-            if (predictedActivity == actualActivity) {
+        for (int i = 0; i < matrix.size; i++) {
+            scoreInto(matrix.features[i], matrix.weatherCodes[i], scores);
+            if (DayFeatureMatrix.argMax(scores) == DayFeatureMatrix.argMax(matrix.activityLevels[i])) {
                 correctPredictions++;
             }
         }
         
-        return (double) correctPredictions / trainingData.size();
+        return (double) correctPredictions / matrix.size;
     }
     
     /**
@@ -479,15 +295,11 @@ public class WeatherPatternModel {
         ActivityType predictedActivity = result.getPredictedActivity();
         ActivityType actualActivity = result.getActualActivity();
         
-        if (predictedActivity == actualActivity && result.getWeatherContext() != null) {
-            String patternKey = createWeatherPatternKey(result.getWeatherContext());
+        if (predictedActivity != null && predictedActivity == actualActivity && result.getWeatherContext() != null) {
+            int code = DayFeatureMatrix.weatherCode(result.getWeatherContext());
             
             // Reinforce the pattern
-            Map<String, Double> weatherWeights = activityWeatherWeights.get(predictedActivity);
-            if (weatherWeights != null) {
-                double currentWeight = weatherWeights.getOrDefault(patternKey, 0.0);
-                weatherWeights.put(patternKey, currentWeight + (LEARNING_RATE * 0.1));
-            }
+            activityWeatherWeights[code][predictedActivity.ordinal()] += LEARNING_RATE * 0.1;
         }
     }
     
@@ -501,20 +313,17 @@ public class WeatherPatternModel {
         ActivityType actualActivity = result.getActualActivity();
         
         if (predictedActivity != actualActivity && result.getWeatherContext() != null) {
-            String patternKey = createWeatherPatternKey(result.getWeatherContext());
+            double[] weights = activityWeatherWeights[DayFeatureMatrix.weatherCode(result.getWeatherContext())];
             
             // Reduce weight for incorrect prediction
-            Map<String, Double> weatherWeights = activityWeatherWeights.get(predictedActivity);
-            if (weatherWeights != null) {
-                double currentWeight = weatherWeights.getOrDefault(patternKey, 0.0);
-                weatherWeights.put(patternKey, Math.max(0.0, currentWeight - (LEARNING_RATE * 0.05)));
+            if (predictedActivity != null) {
+                int predicted = predictedActivity.ordinal();
+                weights[predicted] = Math.max(0.0, weights[predicted] - (LEARNING_RATE * 0.05));
             }
             
             // Increase weight for actual activity
-            Map<String, Double> actualWeights = activityWeatherWeights.get(actualActivity);
-            if (actualWeights != null) {
-                double currentWeight = actualWeights.getOrDefault(patternKey, 0.0);
-                actualWeights.put(patternKey, currentWeight + (LEARNING_RATE * 0.05));
+            if (actualActivity != null) {
+                weights[actualActivity.ordinal()] += LEARNING_RATE * 0.05;
             }
         }
     }
@@ -529,12 +338,20 @@ public class WeatherPatternModel {
         stats.put("training_data_size", trainingDataSize);
         stats.put("training_accuracy", trainingAccuracy);
         stats.put("last_training_time", lastTrainingTime);
-        stats.put("weather_patterns_count", weatherPatterns.size());
-        stats.put("feature_weights", new HashMap<>(featureWeights));
+        stats.put("weather_patterns_count", countPatterns());
+        stats.put("feature_weights", getFeatureWeights());
         
         return stats;
     }
     
+    private int countPatterns() {
+        int count = 0;
+        for (int samples : patternSamples) {
+            if (samples > 0) count++;
+        }
+        return count;
+    }
+    
     // Getters
     public boolean isTrained() {
         return isTrained;
@@ -552,80 +369,16 @@ public class WeatherPatternModel {
         return lastTrainingTime;
     }
     
-    public Map<String, Double> getFeatureWeights() {
-        return new HashMap<>(featureWeights);
-    }
-    
-    /**
-     * Inner class for weather pattern representation
-     */
-    private static class WeatherPattern {
-        private int sampleCount;
-        private Map<ActivityType, Double> activityScores;
-        private double avgTemperature;
-        private double avgHumidity;
-        private double avgWindSpeed;
-        private double avgUVIndex;
-        
-        public WeatherPattern() {
-            this.sampleCount = 0;
-            this.activityScores = new HashMap<>();
-            this.avgTemperature = 0.0;
-            this.avgHumidity = 0.0;
-            this.avgWindSpeed = 0.0;
-            this.avgUVIndex = 0.0;
-        }
-        
-        public void addDataPoint(DayRecord record) {
-            sampleCount++;
-            
-            // Update averages
-            avgTemperature = ((avgTemperature * (sampleCount - 1)) + record.getTemperature()) / sampleCount;
-            avgHumidity = ((avgHumidity * (sampleCount - 1)) + record.getHumidity()) / sampleCount;
-            avgWindSpeed = ((avgWindSpeed * (sampleCount - 1)) + record.getWindSpeed()) / sampleCount;
-            avgUVIndex = ((avgUVIndex * (sampleCount - 1)) + record.getUvIndex()) / sampleCount;
-            
-            // Update activity scores
-            for (ActivityType activityType : ActivityType.values()) {
-                double activityLevel = calculateActivityLevel(activityType, record);
-                double currentScore = activityScores.getOrDefault(activityType, 0.0);
-                activityScores.put(activityType, ((currentScore * (sampleCount - 1)) + activityLevel) / sampleCount);
-            }
-        }
-        
-        public double getActivityScore(ActivityType activityType) {
-            return activityScores.getOrDefault(activityType, 0.0);
-        }
-        
-        public int getSampleCount() {
-            return sampleCount;
-        }
-        
-        private double calculateActivityLevel(ActivityType activityType, DayRecord record) {
-            switch (activityType) {
-                case OUTDOOR_EXERCISE:
-                    return Math.min(1.0, record.getStepCount() / 15000.0);
-                case INDOOR_EXERCISE:
-                    return Math.min(1.0, record.getActiveMinutes() / 60.0);
-                case SOCIAL_ACTIVITY:
-                    return Math.min(1.0, record.getPlacesVisited() / 5.0);
-                case WORK_PRODUCTIVITY:
-                    return Math.min(1.0, record.getProductivityScore() / 100.0);
-                case RECREATIONAL:
-                    return Math.min(1.0, record.getPhotoCount() / 10.0);
-                case RELAXATION:
-                    return Math.min(1.0, Math.max(0.0, (480 - record.getScreenTimeMinutes()) / 480.0));
-                case TRAVEL:
-                    return Math.min(1.0, record.getTotalTravelDistance() / 10000.0);
-                case PHOTOGRAPHY:
-                    return Math.min(1.0, record.getPhotoCount() / 20.0);
-                case INDOOR_ACTIVITIES:
-                    return Math.min(1.0, record.getScreenTimeMinutes() / 360.0);
-                case OUTDOOR_LEISURE:
-                    return Math.min(1.0, (record.getStepCount() / 10000.0 + record.getPlacesVisited() / 3.0) / 2.0);
-                default:
-                    return 0.0;
+    public Map<ActivityType, Map<String, Double>> getFeatureWeights() {
+        Map<ActivityType, Map<String, Double>> weights = new EnumMap<>(ActivityType.class);
+        for (int activity = 0; activity < ACTIVITY_COUNT; activity++) {
+            Map<String, Double> activityWeights = new HashMap<>();
+            for (int feature = 0; feature < FEATURE_COUNT; feature++) {
+                activityWeights.put(FEATURE_NAMES[feature], featureWeights[activity][feature]);
             }
+            activityWeights.put("bias", featureWeights[activity][FEATURE_COUNT]);
+            weights.put(DayFeatureMatrix.ACTIVITY_TYPES[activity], activityWeights);
         }
+        return weights;
     }
-}
\ No newline at end of file
+}
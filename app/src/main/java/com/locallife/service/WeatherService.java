@@ -4,6 +4,7 @@ import android.content.Context;
 import android.location.Location;
 import android.util.Log;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -14,10 +15,14 @@ import java.io.InputStreamReader;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -37,6 +42,7 @@ public class WeatherService {
     private DatabaseHelper databaseHelper;
     private ExecutorService executorService;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    private volatile WeatherForecast latestForecast;
     
     // Weather code mappings
     private static final Map<Integer, String> WEATHER_CODES = new HashMap<>();
@@ -151,6 +157,124 @@ public class WeatherService {
         }
     }
     
+    public interface ForecastCallback {
+        void onForecastReceived(WeatherForecast forecast);
+        void onError(String error);
+    }
+    
+    /**
+     * One day of a daily forecast
+     */
+    public static class DailyForecast {
+        private final String date;
+        private final float temperatureMax;
+        private final float temperatureMin;
+        private final float humidity;
+        private final int weatherCode;
+        private final float windSpeed;
+        private final double uvIndex;
+        private final float precipitation;
+        private final long daylightMinutes;
+        
+        public DailyForecast(String date, float temperatureMax, float temperatureMin, float humidity,
+                             int weatherCode, float windSpeed, double uvIndex, float precipitation,
+                             long daylightMinutes) {
+            this.date = date;
+            this.temperatureMax = temperatureMax;
+            this.temperatureMin = temperatureMin;
+            this.humidity = humidity;
+            this.weatherCode = weatherCode;
+            this.windSpeed = windSpeed;
+            this.uvIndex = uvIndex;
+            this.precipitation = precipitation;
+            this.daylightMinutes = daylightMinutes;
+        }
+        
+        public String getDate() { return date; }
+        public float getTemperatureMax() { return temperatureMax; }
+        public float getTemperatureMin() { return temperatureMin; }
+        public float getHumidity() { return humidity; }
+        public int getWeatherCode() { return weatherCode; }
+        public String getCondition() { return getWeatherCondition(weatherCode); }
+        public float getWindSpeed() { return windSpeed; }
+        public double getUvIndex() { return uvIndex; }
+        public float getPrecipitation() { return precipitation; }
+        public long getDaylightMinutes() { return daylightMinutes; }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof DailyForecast)) return false;
+            DailyForecast that = (DailyForecast) o;
+            return date.equals(that.date)
+                    && Float.compare(temperatureMax, that.temperatureMax) == 0
+                    && Float.compare(temperatureMin, that.temperatureMin) == 0
+                    && Float.compare(humidity, that.humidity) == 0
+                    && weatherCode == that.weatherCode
+                    && Float.compare(windSpeed, that.windSpeed) == 0
+                    && Double.compare(uvIndex, that.uvIndex) == 0
+                    && Float.compare(precipitation, that.precipitation) == 0
+                    && daylightMinutes == that.daylightMinutes;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(date, temperatureMax, temperatureMin, humidity, weatherCode, windSpeed, uvIndex,
+                    precipitation, daylightMinutes);
+        }
+        
+        /**
+         * Temperature at the given hour, following a daily curve from the minimum at 03:00
+         * to the maximum at 15:00
+         */
+        public float getTemperatureAt(int hour) {
+            double warmth = 0.5 - 0.5 * Math.cos(2 * Math.PI * (hour - 3) / 24.0);
+            return (float) (temperatureMin + (temperatureMax - temperatureMin) * warmth);
+        }
+    }
+    
+    /**
+     * A multi-day forecast as fetched. The version changes only when the days do; a refetch
+     * that returns the same days keeps it, so anything computed from a forecast can be
+     * cached under its version.
+     */
+    public static class WeatherForecast {
+        private final long version;
+        private final Date fetchedAt;
+        private final List<DailyForecast> days;
+        private final int contentHash;
+        
+        public WeatherForecast(long version, Date fetchedAt, List<DailyForecast> days) {
+            this.version = version;
+            this.fetchedAt = fetchedAt;
+            this.days = Collections.unmodifiableList(new ArrayList<>(days));
+            this.contentHash = this.days.hashCode();
+        }
+        
+        public long getVersion() { return version; }
+        public Date getFetchedAt() { return fetchedAt; }
+        public List<DailyForecast> getDays() { return days; }
+        
+        /**
+         * The forecast for a 'yyyy-MM-dd' date, or null if it is not covered
+         */
+        public DailyForecast getDay(String date) {
+            for (DailyForecast day : days) {
+                if (day.getDate().equals(date)) {
+                    return day;
+                }
+            }
+            return null;
+        }
+        
+        /**
+         * Whether the given days are the ones this forecast holds
+         */
+        boolean hasDays(List<DailyForecast> otherDays) {
+            return contentHash == otherDays.hashCode() && days.equals(otherDays);
+        }
+    }
+    
     public WeatherService(Context context) {
         this.context = context;
         this.databaseHelper = DatabaseHelper.getInstance(context);
@@ -209,6 +333,44 @@ public class WeatherService {
         });
     }
     
+    /**
+     * Fetch the daily forecast for the given number of days, starting today
+     */
+    public void getDailyForecast(double latitude, double longitude, int days, ForecastCallback callback) {
+        executorService.execute(() -> {
+            try {
+                String url = buildForecastUrl(latitude, longitude, days);
+                String response = makeHttpRequest(url);
+                WeatherForecast forecast = parseDailyForecast(response);
+                latestForecast = forecast;
+                
+                callback.onForecastReceived(forecast);
+                
+            } catch (Exception e) {
+                Log.e(TAG, "Error fetching daily forecast", e);
+                callback.onError("Failed to fetch daily forecast: " + e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Get the daily forecast for the current location (if available)
+     */
+    public void getCurrentLocationForecast(int days, ForecastCallback callback) {
+        // Same default location as getCurrentLocationWeather until LocationService is integrated
+        double defaultLat = 37.7749;
+        double defaultLng = -122.4194;
+        
+        getDailyForecast(defaultLat, defaultLng, days, callback);
+    }
+    
+    /**
+     * The most recently fetched daily forecast, or null if none has been fetched yet
+     */
+    public WeatherForecast getLatestForecast() {
+        return latestForecast;
+    }
+    
     /**
      * Get weather for current location (if available)
      */
@@ -236,7 +398,8 @@ public class WeatherService {
                 "latitude=" + latitude +
                 "&longitude=" + longitude +
                 "&current=temperature_2m,relative_humidity_2m,weather_code,wind_speed_10m,wind_direction_10m,precipitation,cloud_cover,surface_pressure,visibility" +
-                "&daily=temperature_2m_max,temperature_2m_min,precipitation_sum,weather_code" +
+                "&daily=temperature_2m_max,temperature_2m_min,precipitation_sum,weather_code," +
+                "relative_humidity_2m_mean,wind_speed_10m_max,uv_index_max,daylight_duration" +
                 "&forecast_days=" + days +
                 "&timezone=auto";
     }
@@ -318,6 +481,45 @@ public class WeatherService {
         throw new JSONException("No current weather data in forecast response");
     }
     
+    private WeatherForecast parseDailyForecast(String response) throws JSONException {
+        JSONObject daily = new JSONObject(response).getJSONObject("daily");
+        JSONArray dates = daily.getJSONArray("time");
+        JSONArray temperatureMax = daily.getJSONArray("temperature_2m_max");
+        JSONArray temperatureMin = daily.getJSONArray("temperature_2m_min");
+        JSONArray weatherCodes = daily.getJSONArray("weather_code");
+        JSONArray precipitation = daily.optJSONArray("precipitation_sum");
+        JSONArray humidity = daily.optJSONArray("relative_humidity_2m_mean");
+        JSONArray windSpeed = daily.optJSONArray("wind_speed_10m_max");
+        JSONArray uvIndex = daily.optJSONArray("uv_index_max");
+        JSONArray daylight = daily.optJSONArray("daylight_duration");
+        
+        List<DailyForecast> days = new ArrayList<>(dates.length());
+        for (int i = 0; i < dates.length(); i++) {
+            days.add(new DailyForecast(
+                    dates.getString(i),
+                    (float) temperatureMax.getDouble(i),
+                    (float) temperatureMin.getDouble(i),
+                    (float) optDouble(humidity, i, 60.0),
+                    weatherCodes.getInt(i),
+                    (float) optDouble(windSpeed, i, 0.0),
+                    optDouble(uvIndex, i, 0.0),
+                    (float) optDouble(precipitation, i, 0.0),
+                    (long) (optDouble(daylight, i, 12 * 3600.0) / 60)
+            ));
+        }
+        
+        // The refetch every 30 minutes usually returns the same days; keeping the version
+        // then spares the week of predictions cached under it
+        long fetchedAt = System.currentTimeMillis();
+        WeatherForecast previous = latestForecast;
+        long version = previous != null && previous.hasDays(days) ? previous.getVersion() : fetchedAt;
+        return new WeatherForecast(version, new Date(fetchedAt), days);
+    }
+    
+    private static double optDouble(JSONArray values, int index, double fallback) {
+        return values != null ? values.optDouble(index, fallback) : fallback;
+    }
+    
     private void saveWeatherToDatabase(WeatherData weatherData) {
         try {
             String currentDate = dateFormat.format(weatherData.getTimestamp());
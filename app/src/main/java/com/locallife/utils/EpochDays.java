@@ -0,0 +1,105 @@
+package com.locallife.utils;
+
+import java.util.TimeZone;
+
+/**
+ * Allocation-free conversions between 'yyyy-MM-dd' date keys, epoch days and epoch millis.
+ * Epoch days count local calendar days since 1970-01-01, matching the text date keys
+ * the collectors write. Uses the proleptic Gregorian civil-calendar algorithm so it
+ * works on API 24 without java.time.
+ */
+public final class EpochDays {
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    private EpochDays() {
+    }
+
+    /**
+     * Parse a 'yyyy-MM-dd' key into an epoch day, or Integer.MIN_VALUE if it is malformed
+     */
+    public static int fromDateKey(String date) {
+        if (date == null || date.length() < 10 || date.charAt(4) != '-' || date.charAt(7) != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int year = digits(date, 0, 4);
+        int month = digits(date, 5, 7);
+        int day = digits(date, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return Integer.MIN_VALUE;
+        }
+        return fromCivil(year, month, day);
+    }
+
+    /**
+     * Format an epoch day as a 'yyyy-MM-dd' key
+     */
+    public static String toDateKey(int epochDay) {
+        // Inverse of fromCivil, shifted so eras start on March 1st
+        int z = epochDay + 719468;
+        int era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int mp = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        char[] chars = new char[10];
+        chars[0] = (char) ('0' + year / 1000 % 10);
+        chars[1] = (char) ('0' + year / 100 % 10);
+        chars[2] = (char) ('0' + year / 10 % 10);
+        chars[3] = (char) ('0' + year % 10);
+        chars[4] = '-';
+        chars[5] = (char) ('0' + month / 10);
+        chars[6] = (char) ('0' + month % 10);
+        chars[7] = '-';
+        chars[8] = (char) ('0' + day / 10);
+        chars[9] = (char) ('0' + day % 10);
+        return new String(chars);
+    }
+
+    /**
+     * Local calendar epoch day containing the given instant
+     */
+    public static int fromMillis(long epochMillis) {
+        long local = epochMillis + TimeZone.getDefault().getOffset(epochMillis);
+        return (int) Math.floorDiv(local, MILLIS_PER_DAY);
+    }
+
+    /**
+     * Instant of local midnight starting the given epoch day
+     */
+    public static long startOfDayMillis(int epochDay) {
+        long utcMidnight = epochDay * MILLIS_PER_DAY;
+        // Offset at the target instant can differ from the guess across DST changes; one correction is enough
+        long guess = utcMidnight - TimeZone.getDefault().getOffset(utcMidnight);
+        return utcMidnight - TimeZone.getDefault().getOffset(guess);
+    }
+
+    /**
+     * Today's local epoch day
+     */
+    public static int today() {
+        return fromMillis(System.currentTimeMillis());
+    }
+
+    static int fromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int digits(String s, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+}
@@ -0,0 +1,136 @@
+package com.locallife.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Helpers for per-day int[24] hour-of-day counters. Collectors keep one array per day in
+ * memory and flush it with the day record as a short comma-separated column; analytics sum
+ * the arrays with plain loops instead of querying raw samples.
+ */
+public final class HourlyHistogram {
+    public static final int HOURS = 24;
+    private static final long MILLIS_PER_HOUR = 60 * 60 * 1000L;
+
+    private HourlyHistogram() {
+    }
+
+    /**
+     * Local hour of day (0-23) for an epoch-millis timestamp
+     */
+    public static int hourOf(long epochMillis) {
+        long local = epochMillis + TimeZone.getDefault().getOffset(epochMillis);
+        return (int) (Math.floorMod(local, EpochDays.MILLIS_PER_DAY) / MILLIS_PER_HOUR);
+    }
+
+    /**
+     * Add the milliseconds of [startMs, endMs) that fall within the day starting at
+     * dayStartMs to the hours they cover
+     */
+    public static void addSpan(int[] hourlyMs, long dayStartMs, long startMs, long endMs) {
+        long time = Math.max(startMs, dayStartMs);
+        long end = Math.min(endMs, EpochDays.startOfDayMillis(EpochDays.fromMillis(dayStartMs) + 1));
+        while (time < end) {
+            long local = time + TimeZone.getDefault().getOffset(time);
+            long hourEnd = Math.min(end, time + MILLIS_PER_HOUR - Math.floorMod(local, MILLIS_PER_HOUR));
+            hourlyMs[hourOf(time)] += (int) (hourEnd - time);
+            time = hourEnd;
+        }
+    }
+
+    /**
+     * Add every hour of source into target
+     */
+    public static void addInto(int[] target, int[] source) {
+        if (source == null) {
+            return;
+        }
+        for (int hour = 0; hour < HOURS; hour++) {
+            target[hour] += source[hour];
+        }
+    }
+
+    public static int total(int[] counts) {
+        int total = 0;
+        for (int hour = 0; hour < HOURS; hour++) {
+            total += counts[hour];
+        }
+        return total;
+    }
+
+    /**
+     * The count hours with the highest values, busiest first; hours with no activity are skipped
+     */
+    public static List<Integer> peakHours(int[] counts, int count) {
+        return rankHours(counts, count, true);
+    }
+
+    /**
+     * The count hours with the lowest values, quietest first
+     */
+    public static List<Integer> lowHours(int[] counts, int count) {
+        return rankHours(counts, count, false);
+    }
+
+    private static List<Integer> rankHours(int[] counts, int count, boolean highest) {
+        List<Integer> hours = new ArrayList<>(count);
+        boolean[] taken = new boolean[HOURS];
+        for (int i = 0; i < count; i++) {
+            int best = -1;
+            for (int hour = 0; hour < HOURS; hour++) {
+                if (taken[hour] || (highest && counts[hour] <= 0)) {
+                    continue;
+                }
+                if (best < 0 || (highest ? counts[hour] > counts[best] : counts[hour] < counts[best])) {
+                    best = hour;
+                }
+            }
+            if (best < 0) {
+                break;
+            }
+            taken[best] = true;
+            hours.add(best);
+        }
+        return hours;
+    }
+
+    /**
+     * Comma-separated form used for the day_records column and SharedPreferences
+     */
+    public static String format(int[] counts) {
+        StringBuilder sb = new StringBuilder(HOURS * 4);
+        for (int hour = 0; hour < HOURS; hour++) {
+            if (hour > 0) {
+                sb.append(',');
+            }
+            sb.append(counts[hour]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parse the form written by format, or null if there is none
+     */
+    public static int[] parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        int[] counts = new int[HOURS];
+        int hour = 0;
+        int current = 0;
+        for (int i = 0; i < value.length() && hour < HOURS; i++) {
+            char c = value.charAt(i);
+            if (c == ',') {
+                counts[hour++] = current;
+                current = 0;
+            } else if (c >= '0' && c <= '9') {
+                current = current * 10 + (c - '0');
+            }
+        }
+        if (hour < HOURS) {
+            counts[hour] = current;
+        }
+        return counts;
+    }
+}
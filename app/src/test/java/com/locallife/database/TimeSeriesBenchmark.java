@@ -0,0 +1,171 @@
+package com.locallife.database;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Benchmark for TimeSeriesCodec on synthetic day-long series shaped like the real
+ * sensors: one-minute step and battery readings with scheduler jitter, cumulative screen
+ * minutes and ten-minute temperature readings. Reports bytes per sample against the
+ * 16 bytes of a plain (long, double) pair, plus encode and decode throughput.
+ */
+public class TimeSeriesBenchmark {
+    private static final String TAG = "TimeSeriesBenchmark";
+    private static final long DEFAULT_SEED = 42L;
+    private static final long MINUTE = 60 * 1000L;
+    private static final int RAW_BYTES_PER_SAMPLE = 16;
+
+    /**
+     * Size and speed figures for one synthetic series
+     */
+    public static class SeriesResult {
+        private final String metric;
+        private final int samples;
+        private final int encodedBytes;
+        private final long encodeNanos;
+        private final long decodeNanos;
+        private final int rounds;
+
+        SeriesResult(String metric, int samples, int encodedBytes, long encodeNanos, long decodeNanos, int rounds) {
+            this.metric = metric;
+            this.samples = samples;
+            this.encodedBytes = encodedBytes;
+            this.encodeNanos = encodeNanos;
+            this.decodeNanos = decodeNanos;
+            this.rounds = rounds;
+        }
+
+        public String getMetric() { return metric; }
+        public int getSamples() { return samples; }
+        public int getEncodedBytes() { return encodedBytes; }
+        public double getBytesPerSample() { return samples == 0 ? 0 : (double) encodedBytes / samples; }
+        public double getCompressionRatio() { return encodedBytes == 0 ? 0 : (double) samples * RAW_BYTES_PER_SAMPLE / encodedBytes; }
+        public double getEncodeSamplesPerSecond() { return encodeNanos == 0 ? 0 : (double) samples * rounds * 1e9 / encodeNanos; }
+        public double getDecodeSamplesPerSecond() { return decodeNanos == 0 ? 0 : (double) samples * rounds * 1e9 / decodeNanos; }
+    }
+
+    public static class BenchmarkReport {
+        private final List<SeriesResult> results = new ArrayList<>();
+
+        public List<SeriesResult> getResults() { return results; }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format(Locale.US, "%-16s %8s %8s %10s %8s %14s %14s%n",
+                    "metric", "samples", "bytes", "B/sample", "ratio", "encode/s", "decode/s"));
+            for (SeriesResult result : results) {
+                sb.append(String.format(Locale.US, "%-16s %8d %8d %10.2f %7.1fx %14.0f %14.0f%n",
+                        result.getMetric(), result.getSamples(), result.getEncodedBytes(),
+                        result.getBytesPerSample(), result.getCompressionRatio(),
+                        result.getEncodeSamplesPerSecond(), result.getDecodeSamplesPerSecond()));
+            }
+            return sb.toString();
+        }
+    }
+
+    private final Random random = new Random(DEFAULT_SEED);
+
+    /**
+     * Encode and decode each synthetic day the given number of times
+     */
+    public BenchmarkReport run(int rounds) {
+        BenchmarkReport report = new BenchmarkReport();
+        long dayStart = 1700000000000L - 1700000000000L % (24 * 60 * MINUTE);
+
+        int minutes = 24 * 60;
+        long[] timestamps = new long[minutes];
+        double[] steps = new double[minutes];
+        double[] battery = new double[minutes];
+        double[] screen = new double[minutes];
+        double total = 0;
+        double level = 100;
+        double screenMinutes = 0;
+        for (int i = 0; i < minutes; i++) {
+            timestamps[i] = dayStart + i * MINUTE + random.nextInt(200);
+            boolean awake = i >= 7 * 60 && i < 23 * 60;
+            if (awake && random.nextDouble() < 0.3) {
+                total += random.nextInt(120);
+            }
+            steps[i] = total;
+            if (random.nextDouble() < (awake ? 0.08 : 0.01)) {
+                level = Math.max(5, level - 1);
+            }
+            battery[i] = level;
+            if (awake && random.nextDouble() < 0.25) {
+                screenMinutes++;
+            }
+            screen[i] = screenMinutes;
+        }
+
+        int readings = 24 * 6;
+        long[] weatherTimes = new long[readings];
+        double[] temperature = new double[readings];
+        for (int i = 0; i < readings; i++) {
+            weatherTimes[i] = dayStart + i * 10 * MINUTE;
+            temperature[i] = Math.round((14 + 6 * Math.sin(i * Math.PI / readings)) * 10) / 10.0;
+        }
+
+        report.results.add(measure("steps", TimeSeriesCodec.Kind.INTEGER, timestamps, steps, rounds));
+        report.results.add(measure("battery_level", TimeSeriesCodec.Kind.INTEGER, timestamps, battery, rounds));
+        report.results.add(measure("screen_time", TimeSeriesCodec.Kind.INTEGER, timestamps, screen, rounds));
+        report.results.add(measure("temperature", TimeSeriesCodec.Kind.DOUBLE, weatherTimes, temperature, rounds));
+
+        Log.i(TAG, report.toString());
+        return report;
+    }
+
+    private SeriesResult measure(String metric, TimeSeriesCodec.Kind kind, long[] timestamps, double[] values,
+                                 int rounds) {
+        byte[] blob = encode(kind, timestamps, values);
+        verify(metric, blob, timestamps, values);
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            blob = encode(kind, timestamps, values);
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        // Fold the decoded values into a checksum so the loop cannot be optimized away
+        double checksum = 0;
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(blob);
+            while (decoder.next()) {
+                checksum += decoder.value() + decoder.timestamp();
+            }
+        }
+        long decodeNanos = System.nanoTime() - start;
+        if (Double.isNaN(checksum)) {
+            Log.w(TAG, metric + " decoded NaN");
+        }
+
+        return new SeriesResult(metric, timestamps.length, blob.length, encodeNanos, decodeNanos, rounds);
+    }
+
+    private static byte[] encode(TimeSeriesCodec.Kind kind, long[] timestamps, double[] values) {
+        TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(kind);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], values[i]);
+        }
+        return encoder.toByteArray();
+    }
+
+    private static void verify(String metric, byte[] blob, long[] timestamps, double[] values) {
+        TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(blob);
+        int index = 0;
+        while (decoder.next()) {
+            if (decoder.timestamp() != timestamps[index] || decoder.value() != values[index]) {
+                throw new IllegalStateException(metric + " round trip differs at sample " + index);
+            }
+            index++;
+        }
+        if (index != timestamps.length) {
+            throw new IllegalStateException(metric + " decoded " + index + " of " + timestamps.length + " samples");
+        }
+    }
+}
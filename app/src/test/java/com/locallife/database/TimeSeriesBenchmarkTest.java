@@ -0,0 +1,32 @@
+package com.locallife.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the TimeSeriesCodec benchmark on the JVM. The benchmark checks every round trip
+ * itself; the assertions guard the sizes the codec was chosen for.
+ */
+public class TimeSeriesBenchmarkTest {
+
+    @Test
+    public void syntheticDaysRoundTripAndStayCompact() {
+        TimeSeriesBenchmark.BenchmarkReport report = new TimeSeriesBenchmark().run(5);
+
+        assertEquals(4, report.getResults().size());
+        // Jittered minute readings of whole numbers take a few bytes each
+        for (int i = 0; i < 3; i++) {
+            TimeSeriesBenchmark.SeriesResult result = report.getResults().get(i);
+            assertTrue(result.getMetric() + " uses " + result.getBytesPerSample() + " bytes per sample",
+                    result.getBytesPerSample() < 4);
+        }
+        for (TimeSeriesBenchmark.SeriesResult result : report.getResults()) {
+            assertTrue(result.getMetric() + " has no samples", result.getSamples() > 0);
+            // Against a plain 16-byte (long, double) pair; XOR-coded doubles compress least
+            assertTrue(result.getMetric() + " compresses " + result.getCompressionRatio() + "x",
+                    result.getCompressionRatio() > 2);
+        }
+    }
+}
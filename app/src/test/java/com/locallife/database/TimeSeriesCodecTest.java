@@ -0,0 +1,114 @@
+package com.locallife.database;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimeSeriesCodecTest {
+    private static final long DAY_START = 1700006400000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    @Test
+    public void integerSeriesRoundTrips() {
+        long[] timestamps = {DAY_START, DAY_START + MINUTE, DAY_START + 2 * MINUTE + 150, DAY_START + 3 * MINUTE};
+        double[] values = {100, 99, 99, 97};
+
+        byte[] blob = encode(TimeSeriesCodec.Kind.INTEGER, timestamps, values);
+
+        assertEquals(TimeSeriesCodec.Kind.INTEGER, TimeSeriesCodec.kindOf(blob));
+        assertEquals(4, TimeSeriesCodec.countOf(blob));
+        assertDecodes(blob, timestamps, values);
+    }
+
+    @Test
+    public void negativeDeltasAndOutOfOrderTimestampsRoundTrip() {
+        long[] timestamps = {DAY_START + 5 * MINUTE, DAY_START, DAY_START + 10 * MINUTE, DAY_START + 10 * MINUTE};
+        double[] values = {-40, 1_000_000, -3, Long.MIN_VALUE / 4};
+
+        assertDecodes(encode(TimeSeriesCodec.Kind.INTEGER, timestamps, values), timestamps, values);
+    }
+
+    @Test
+    public void doubleSeriesRoundTripsExactly() {
+        long[] timestamps = new long[6];
+        double[] values = {14.2, 14.2, 14.3, -0.0, Double.NaN, 1e-300};
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = DAY_START + i * 10 * MINUTE;
+        }
+
+        assertDecodes(encode(TimeSeriesCodec.Kind.DOUBLE, timestamps, values), timestamps, values);
+    }
+
+    @Test
+    public void resumedEncoderMatchesOneContinuousEncode() {
+        long[] timestamps = new long[100];
+        double[] values = new double[100];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = DAY_START + i * MINUTE + (i % 7) * 10;
+            values[i] = 20 + Math.sin(i / 10.0);
+        }
+
+        TimeSeriesCodec.Encoder first = new TimeSeriesCodec.Encoder(TimeSeriesCodec.Kind.DOUBLE);
+        for (int i = 0; i < 40; i++) {
+            first.add(timestamps[i], values[i]);
+        }
+        TimeSeriesCodec.Encoder resumed = TimeSeriesCodec.Encoder.resume(first.toByteArray());
+        for (int i = 40; i < timestamps.length; i++) {
+            resumed.add(timestamps[i], values[i]);
+        }
+
+        byte[] blob = resumed.toByteArray();
+        assertEquals(timestamps.length, resumed.getCount());
+        assertArrayEquals(encode(TimeSeriesCodec.Kind.DOUBLE, timestamps, values), blob);
+        assertDecodes(blob, timestamps, values);
+    }
+
+    @Test
+    public void steadyIntervalCostsOneByteForTheTimestamp() {
+        long[] timestamps = new long[60];
+        double[] values = new double[60];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = DAY_START + i * MINUTE;
+            values[i] = 80;
+        }
+
+        byte[] blob = encode(TimeSeriesCodec.Kind.INTEGER, timestamps, values);
+
+        // After the first two samples each costs one timestamp byte and one value byte
+        assertTrue(blob.length + " bytes", blob.length <= TimeSeriesCodec.HEADER_SIZE + 20 + 2 * 58);
+    }
+
+    @Test
+    public void emptyBlobDecodesNothing() {
+        byte[] blob = new TimeSeriesCodec.Encoder(TimeSeriesCodec.Kind.INTEGER).toByteArray();
+
+        assertEquals(0, TimeSeriesCodec.countOf(blob));
+        assertFalse(new TimeSeriesCodec.Decoder(blob).next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBlobsItDidNotWrite() {
+        new TimeSeriesCodec.Decoder(new byte[]{1, 2, 3});
+    }
+
+    private static byte[] encode(TimeSeriesCodec.Kind kind, long[] timestamps, double[] values) {
+        TimeSeriesCodec.Encoder encoder = new TimeSeriesCodec.Encoder(kind);
+        for (int i = 0; i < timestamps.length; i++) {
+            encoder.add(timestamps[i], values[i]);
+        }
+        return encoder.toByteArray();
+    }
+
+    private static void assertDecodes(byte[] blob, long[] timestamps, double[] values) {
+        TimeSeriesCodec.Decoder decoder = new TimeSeriesCodec.Decoder(blob);
+        for (int i = 0; i < timestamps.length; i++) {
+            assertTrue("sample " + i, decoder.next());
+            assertEquals("timestamp " + i, timestamps[i], decoder.timestamp());
+            assertEquals("value " + i, Double.doubleToLongBits(values[i]), Double.doubleToLongBits(decoder.value()));
+        }
+        assertFalse(decoder.next());
+    }
+}
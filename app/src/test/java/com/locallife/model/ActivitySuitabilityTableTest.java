@@ -0,0 +1,101 @@
+package com.locallife.model;
+
+import com.locallife.service.WeatherService;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the table with ActivityType.computeWeatherSuitability for every condition
+ * WeatherService reports. Each input is swept past every threshold in half steps with the
+ * others held at mild values, then mixed at random. Conditions are classified in weather
+ * code order, so "Heavy rain" builds its class before "Heavy freezing rain" is looked up.
+ */
+public class ActivitySuitabilityTableTest {
+
+    @Test
+    public void lookupMatchesRulesForEveryWeatherServiceCondition() {
+        for (String condition : conditions()) {
+            for (float temperature = -10f; temperature <= 45f; temperature += 0.5f) {
+                assertMatches(temperature, condition, 50f, 10f, 4.0);
+            }
+            for (float humidity = 0f; humidity <= 100f; humidity += 0.5f) {
+                assertMatches(20f, condition, humidity, 10f, 4.0);
+            }
+            for (float windSpeed = 0f; windSpeed <= 40f; windSpeed += 0.5f) {
+                assertMatches(20f, condition, 50f, windSpeed, 4.0);
+            }
+            for (double uvIndex = 0; uvIndex <= 12; uvIndex += 0.5) {
+                assertMatches(20f, condition, 50f, 10f, uvIndex);
+            }
+        }
+    }
+
+    @Test
+    public void lookupMatchesRulesForRandomInputs() {
+        List<String> conditions = conditions();
+        Random random = new Random(47L);
+        for (int i = 0; i < 20000; i++) {
+            assertMatches(-10f + random.nextFloat() * 55f,
+                    conditions.get(random.nextInt(conditions.size())),
+                    random.nextFloat() * 100f,
+                    random.nextFloat() * 40f,
+                    random.nextInt(12) + (random.nextBoolean() ? 0 : random.nextDouble()));
+        }
+    }
+
+    @Test
+    public void lookupAllMatchesLookup() {
+        double[] scores = new double[ActivityType.values().length];
+        for (String condition : conditions()) {
+            ActivitySuitabilityTable.lookupAll(26f, condition, 70f, 25f, 6.0, scores);
+            for (ActivityType activityType : ActivityType.values()) {
+                assertEquals(activityType + " in " + condition,
+                        ActivitySuitabilityTable.lookup(activityType, 26f, condition, 70f, 25f, 6.0),
+                        scores[activityType.ordinal()], 0);
+            }
+        }
+    }
+
+    @Test
+    public void missingReadingsFallBackToRules() {
+        for (ActivityType activityType : ActivityType.values()) {
+            assertEquals(activityType.toString(),
+                    activityType.computeWeatherSuitability(Float.NaN, "Clear sky", 50f, 10f, 4.0),
+                    ActivitySuitabilityTable.lookup(activityType, Float.NaN, "Clear sky", 50f, 10f, 4.0), 0);
+        }
+    }
+
+    // Every description WeatherService maps a weather code to, including "Unknown", then null
+    private static List<String> conditions() {
+        Set<String> conditions = new LinkedHashSet<>();
+        for (int code = 0; code <= 100; code++) {
+            conditions.add(WeatherService.getWeatherCondition(code));
+        }
+        assertTrue(conditions.contains("Heavy freezing rain"));
+        List<String> list = new ArrayList<>(conditions);
+        list.add(null);
+        return list;
+    }
+
+    private static void assertMatches(float temperature, String condition, float humidity, float windSpeed,
+                                      double uvIndex) {
+        for (ActivityType activityType : ActivityType.values()) {
+            double expected = activityType.computeWeatherSuitability(temperature, condition, humidity, windSpeed,
+                    uvIndex);
+            double actual = ActivitySuitabilityTable.lookup(activityType, temperature, condition, humidity,
+                    windSpeed, uvIndex);
+            assertEquals(String.format(Locale.US, "%s at %.2f/%s/%.2f/%.2f/%.2f", activityType, temperature,
+                    condition, humidity, windSpeed, uvIndex), expected, actual, 0);
+        }
+    }
+}
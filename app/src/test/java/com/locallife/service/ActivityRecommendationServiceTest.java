@@ -0,0 +1,110 @@
+package com.locallife.service;
+
+import com.locallife.model.ActivityType;
+import com.locallife.model.Recommendation;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ActivityRecommendationServiceTest {
+
+    @Test
+    public void dropsRecommendationsBelowTheMinimumScore() {
+        List<Recommendation> top = ActivityRecommendationService.selectTopRecommendations(Arrays.asList(
+                merged(recommendation(ActivityType.OUTDOOR_EXERCISE, 0.39, null)),
+                merged(recommendation(ActivityType.INDOOR_EXERCISE, 0.4, null)),
+                merged(recommendation(ActivityType.RELAXATION, 0.8, null))), 10);
+
+        assertEquals(Arrays.asList(ActivityType.RELAXATION, ActivityType.INDOOR_EXERCISE), types(top));
+    }
+
+    @Test
+    public void equalScoresRankInActivityOrder() {
+        List<Recommendation> top = ActivityRecommendationService.selectTopRecommendations(Arrays.asList(
+                merged(recommendation(ActivityType.PHOTOGRAPHY, 0.6, null)),
+                merged(recommendation(ActivityType.OUTDOOR_EXERCISE, 0.6, null)),
+                merged(recommendation(ActivityType.TRAVEL, 0.6, null))), 10);
+
+        assertEquals(Arrays.asList(ActivityType.OUTDOOR_EXERCISE, ActivityType.TRAVEL, ActivityType.PHOTOGRAPHY),
+                types(top));
+    }
+
+    @Test
+    public void keepsTheBestKInOrder() {
+        List<ActivityRecommendationService.MergedRecommendation> candidates = Arrays.asList(
+                merged(recommendation(ActivityType.OUTDOOR_EXERCISE, 0.5, null)),
+                merged(recommendation(ActivityType.INDOOR_EXERCISE, 0.9, null)),
+                merged(recommendation(ActivityType.SOCIAL_ACTIVITY, 0.7, null)),
+                merged(recommendation(ActivityType.WORK_PRODUCTIVITY, 0.95, null)),
+                merged(recommendation(ActivityType.RECREATIONAL, 0.7, null)));
+
+        assertEquals(Arrays.asList(ActivityType.WORK_PRODUCTIVITY, ActivityType.INDOOR_EXERCISE,
+                        ActivityType.SOCIAL_ACTIVITY),
+                types(ActivityRecommendationService.selectTopRecommendations(candidates, 3)));
+        assertTrue(ActivityRecommendationService.selectTopRecommendations(candidates, 0).isEmpty());
+    }
+
+    @Test
+    public void mergeAveragesConfidenceAndKeepsTheBestRecommendation() {
+        Recommendation weak = recommendation(ActivityType.OUTDOOR_EXERCISE, 0.5, "Mild weather.");
+        Recommendation strong = recommendation(ActivityType.OUTDOOR_EXERCISE, 0.9, "You walk most mornings.");
+        ActivityRecommendationService.MergedRecommendation merged = merged(weak, strong);
+
+        Recommendation result = merged.toRecommendation();
+
+        assertSame(strong, result);
+        assertEquals(0.7, result.getConfidenceScore(), 1e-9);
+        assertEquals("Mild weather. You walk most mornings.", result.getReasoning());
+    }
+
+    @Test
+    public void mergeKeepsTheFirstOnTiesAndSkipsMissingReasoning() {
+        Recommendation first = recommendation(ActivityType.RELAXATION, 0.6, null);
+        Recommendation second = recommendation(ActivityType.RELAXATION, 0.6, "Quiet evening.");
+
+        Recommendation result = merged(first, second).toRecommendation();
+
+        assertSame(first, result);
+        assertEquals(0.6, result.getConfidenceScore(), 1e-9);
+        assertEquals("Quiet evening.", result.getReasoning());
+    }
+
+    @Test
+    public void minimumScoreAppliesToTheAveragedConfidence() {
+        List<Recommendation> top = ActivityRecommendationService.selectTopRecommendations(Arrays.asList(
+                merged(recommendation(ActivityType.TRAVEL, 0.6, null), recommendation(ActivityType.TRAVEL, 0.1, null)),
+                merged(recommendation(ActivityType.PHOTOGRAPHY, 0.45, null))), 10);
+
+        assertEquals(Arrays.asList(ActivityType.PHOTOGRAPHY), types(top));
+    }
+
+    private static Recommendation recommendation(ActivityType activityType, double confidence, String reasoning) {
+        Recommendation recommendation = new Recommendation(activityType, activityType.name(), null, confidence);
+        recommendation.setReasoning(reasoning);
+        return recommendation;
+    }
+
+    private static ActivityRecommendationService.MergedRecommendation merged(Recommendation... recommendations) {
+        ActivityRecommendationService.MergedRecommendation merged =
+                new ActivityRecommendationService.MergedRecommendation();
+        for (Recommendation recommendation : recommendations) {
+            merged.add(recommendation);
+        }
+        return merged;
+    }
+
+    private static List<ActivityType> types(List<Recommendation> recommendations) {
+        List<ActivityType> types = new ArrayList<>();
+        for (Recommendation recommendation : recommendations) {
+            types.add(recommendation.getActivityType());
+        }
+        return types;
+    }
+}
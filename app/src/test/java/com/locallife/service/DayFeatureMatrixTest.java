@@ -0,0 +1,152 @@
+package com.locallife.service;
+
+import com.locallife.model.ActivityType;
+import com.locallife.model.DayRecord;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DayFeatureMatrixTest {
+
+    @Test
+    public void rowsAreSortedByDateAndNormalized() {
+        List<DayRecord> records = Arrays.asList(
+                day("2024-01-03", 40, 25000, 35f, 95f, "Thunderstorm"),
+                day("2024-01-01", 10, 0, -40f, 0f, "Clear sky"),
+                day("2024-01-02", 20, 8000, 18f, 60f, "Partly cloudy"));
+
+        DayFeatureMatrix matrix = DayFeatureMatrix.of(records);
+
+        assertEquals(3, matrix.size);
+        assertArrayEquals(new double[]{10, 20, 40}, matrix.activityScores, 0);
+        assertEquals(25000 + 8000, matrix.totalSteps);
+        for (double[] row : matrix.features) {
+            assertEquals(DayFeatureMatrix.FEATURE_COUNT, row.length);
+            for (double value : row) {
+                assertTrue(Arrays.toString(row), value >= 0 && value <= 1);
+            }
+        }
+        // Step count is capped at 20000, temperature clamped at the bottom of its range
+        assertEquals(1.0, matrix.features[2][DayFeatureMatrix.STEP_COUNT], 0);
+        assertEquals(0.0, matrix.features[0][DayFeatureMatrix.TEMPERATURE], 0);
+        assertEquals(1.0, matrix.features[0][DayFeatureMatrix.WEATHER_CONDITION], 0);
+    }
+
+    @Test
+    public void dayOfWeekStartsOnMonday() {
+        assertEquals(0, DayFeatureMatrix.dayOfWeek("2024-01-01"));
+        assertEquals(5, DayFeatureMatrix.dayOfWeek("2024-01-06"));
+        assertEquals(6, DayFeatureMatrix.dayOfWeek("2024-01-07"));
+        assertEquals(3, DayFeatureMatrix.dayOfWeek("1970-01-01"));
+        assertEquals(0, DayFeatureMatrix.dayOfWeek("not a date"));
+    }
+
+    @Test
+    public void weatherConditionsMapToTheirClass() {
+        assertEquals(DayFeatureMatrix.CONDITION_CLEAR, DayFeatureMatrix.normalizeWeatherCondition("Mainly clear"));
+        assertEquals(DayFeatureMatrix.CONDITION_CLEAR, DayFeatureMatrix.normalizeWeatherCondition("SUNNY"));
+        assertEquals(DayFeatureMatrix.CONDITION_CLOUDY, DayFeatureMatrix.normalizeWeatherCondition("Overcast"));
+        assertEquals(DayFeatureMatrix.CONDITION_RAIN, DayFeatureMatrix.normalizeWeatherCondition("Heavy freezing rain"));
+        assertEquals(DayFeatureMatrix.CONDITION_RAIN, DayFeatureMatrix.normalizeWeatherCondition("Light drizzle"));
+        assertEquals(DayFeatureMatrix.CONDITION_STORM, DayFeatureMatrix.normalizeWeatherCondition("Thunderstorm"));
+        assertEquals(DayFeatureMatrix.CONDITION_SNOW, DayFeatureMatrix.normalizeWeatherCondition("Snow grains"));
+        assertEquals(DayFeatureMatrix.CONDITION_SNOW, DayFeatureMatrix.normalizeWeatherCondition("Slight snow showers"));
+        assertEquals(DayFeatureMatrix.CONDITION_FOG, DayFeatureMatrix.normalizeWeatherCondition("Depositing rime fog"));
+        assertEquals(DayFeatureMatrix.CONDITION_UNKNOWN, DayFeatureMatrix.normalizeWeatherCondition("Unknown"));
+        assertEquals(DayFeatureMatrix.CONDITION_UNKNOWN, DayFeatureMatrix.normalizeWeatherCondition(null));
+    }
+
+    @Test
+    public void weatherCodesAreDistinctAndInRange() {
+        Set<Integer> codes = new HashSet<>();
+        // One value per temperature and humidity band, with the coldest band clamped
+        float[] temperatures = {-60f, -7f, 0f, 7f, 22f, 61f};
+        float[] humidities = {0f, 25f, 45f, 65f, 85f, 100f};
+        String[] conditions = {"Clear sky", "Overcast", "Slight rain", "Thunderstorm", "Heavy snow", "Fog", null};
+        for (float temperature : temperatures) {
+            for (float humidity : humidities) {
+                for (String condition : conditions) {
+                    int code = DayFeatureMatrix.weatherCode(temperature, humidity, condition);
+                    assertTrue(code + " out of range", code >= 0 && code < DayFeatureMatrix.WEATHER_CODES);
+                    codes.add(code);
+                }
+            }
+        }
+        assertEquals(6 * 6 * 7, codes.size());
+        assertEquals(DayFeatureMatrix.weatherCode(100f, 100f, "Fog"), DayFeatureMatrix.weatherCode(200f, 150f, "fog"));
+    }
+
+    @Test
+    public void behaviorCodesFollowTheRecentTrend() {
+        DayRecord[] days = new DayRecord[10];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = day(String.format("2024-02-%02d", i + 1), 10 + i * 10, 5000, 15f, 50f, "Clear sky");
+        }
+
+        DayFeatureMatrix matrix = DayFeatureMatrix.of(Arrays.asList(days));
+
+        assertEquals(matrix.stableBehaviorCodes[0], matrix.behaviorCodes[0]);
+        for (int i = 1; i < days.length; i++) {
+            assertEquals("day " + i, DayFeatureMatrix.TREND_INCREASING,
+                    matrix.behaviorCodes[i] - matrix.stableBehaviorCodes[i]);
+            assertTrue(matrix.behaviorCodes[i] < DayFeatureMatrix.BEHAVIOR_CODES);
+        }
+        // 2024-02-03 is a Saturday
+        assertEquals(DayFeatureMatrix.behaviorCode(days[2], 5, DayFeatureMatrix.TREND_STABLE) - DayFeatureMatrix.TRENDS,
+                DayFeatureMatrix.behaviorCode(days[2], 4, DayFeatureMatrix.TREND_STABLE));
+    }
+
+    @Test
+    public void activityLevelsAreCappedAtOne() {
+        DayRecord record = day("2024-03-01", 50, 30000, 20f, 40f, "Clear sky");
+        record.setScreenTimeMinutes(240);
+        double[] levels = new double[DayFeatureMatrix.ACTIVITY_COUNT];
+
+        DayFeatureMatrix.activityLevelsInto(record, levels);
+
+        assertEquals(1.0, levels[ActivityType.OUTDOOR_EXERCISE.ordinal()], 0);
+        assertEquals(0.5, levels[ActivityType.RELAXATION.ordinal()], 1e-9);
+        for (double level : levels) {
+            assertTrue(level <= 1.0);
+        }
+    }
+
+    @Test
+    public void normalizeScalesToOneAndLeavesZerosAlone() {
+        double[] scores = new double[DayFeatureMatrix.ACTIVITY_COUNT];
+        assertFalse(DayFeatureMatrix.normalize(scores));
+        assertEquals(0.0, scores[0], 0);
+
+        scores[1] = 3;
+        scores[4] = 1;
+        assertTrue(DayFeatureMatrix.normalize(scores));
+        assertEquals(0.75, scores[1], 1e-12);
+        assertEquals(1, DayFeatureMatrix.argMax(scores));
+
+        Map<ActivityType, Double> map = DayFeatureMatrix.toMap(scores);
+        assertEquals(DayFeatureMatrix.ACTIVITY_COUNT, map.size());
+        assertEquals(0.25, map.get(DayFeatureMatrix.ACTIVITY_TYPES[4]), 1e-12);
+    }
+
+    private static DayRecord day(String date, float activityScore, int steps, float temperature, float humidity,
+                                 String condition) {
+        DayRecord record = new DayRecord();
+        record.setDate(date);
+        record.setActivityScore(activityScore);
+        record.setStepCount(steps);
+        record.setTemperature(temperature);
+        record.setHumidity(humidity);
+        record.setWeatherCondition(condition);
+        return record;
+    }
+}
@@ -0,0 +1,102 @@
+package com.locallife.service;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MinibatchSgdOptimizerTest {
+
+    @Test
+    public void convergesToTheRidgeSolution() {
+        RidgeRegressionOptimizerTest.TableObjective objective = noisyLine(2000, 11L);
+        double[] exact = new double[3];
+        new RidgeRegressionOptimizer(1e-9).optimize(objective, exact);
+
+        MinibatchSgdOptimizer sgd = new MinibatchSgdOptimizer(0.5, 256, 500, 10, 1e-9, 42L);
+        double[] weights = new double[3];
+        sgd.optimize(objective, weights);
+
+        assertArrayEquals(exact, weights, 0.02);
+        assertTrue(sgd.getBestLoss() < 0.01);
+    }
+
+    @Test
+    public void sameSeedGivesTheSameWeights() {
+        RidgeRegressionOptimizerTest.TableObjective objective = noisyLine(1000, 3L);
+        double[] first = new double[3];
+        double[] second = new double[3];
+
+        new MinibatchSgdOptimizer(0.3, 200, 20, 20, 0, 7L).optimize(objective, first);
+        new MinibatchSgdOptimizer(0.3, 200, 20, 20, 0, 7L).optimize(objective, second);
+
+        assertArrayEquals(first, second, 0);
+    }
+
+    @Test
+    public void stopsOnceTheLossStopsImproving() {
+        MinibatchSgdOptimizer sgd = new MinibatchSgdOptimizer(0.5, 128, 1000, 3, 1e-4, 1L);
+
+        sgd.optimize(noisyLine(500, 5L), new double[3]);
+
+        assertTrue(sgd.getEpochsRun() + " epochs", sgd.getEpochsRun() < 1000);
+    }
+
+    @Test
+    public void keepsTheBestWeightsAndProjectsEveryStep() {
+        // The unconstrained fit has a negative slope; projection holds it at zero
+        double[][] rows = new double[100][];
+        double[] targets = new double[100];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new double[]{i / 100.0, 1.0};
+            targets[i] = 1 - i / 100.0;
+        }
+        double[] weights = new double[2];
+
+        new MinibatchSgdOptimizer(0.5, 32, 200, 5, 1e-9, 9L).optimize(
+                new RidgeRegressionOptimizerTest.TableObjective(rows, targets, null) {
+                    @Override
+                    public void project(double[] w) {
+                        w[0] = Math.max(0, w[0]);
+                    }
+                }, weights);
+
+        assertEquals(0.0, weights[0], 0);
+        assertEquals(0.5, weights[1], 0.05);
+    }
+
+    @Test
+    public void noSamplesLeavesTheWeights() {
+        MinibatchSgdOptimizer sgd = new MinibatchSgdOptimizer(0.1, 10, 10, 2, 0, 1L);
+        double[] weights = {0.4, -0.2};
+
+        sgd.optimize(new RidgeRegressionOptimizerTest.TableObjective(new double[0][], new double[0], null), weights);
+
+        assertArrayEquals(new double[]{0.4, -0.2}, weights, 0);
+        assertEquals(0, sgd.getEpochsRun());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositiveLearningRate() {
+        new MinibatchSgdOptimizer(0, 10, 10, 2, 0, 1L);
+    }
+
+    /**
+     * y = 0.8 x0 - 0.4 x1 + 0.2 plus a little noise, x in [0, 1)
+     */
+    private static RidgeRegressionOptimizerTest.TableObjective noisyLine(int samples, long seed) {
+        Random random = new Random(seed);
+        double[][] rows = new double[samples][];
+        double[] targets = new double[samples];
+        for (int i = 0; i < samples; i++) {
+            double x0 = random.nextDouble();
+            double x1 = random.nextDouble();
+            rows[i] = new double[]{x0, x1, 1.0};
+            targets[i] = 0.8 * x0 - 0.4 * x1 + 0.2 + random.nextGaussian() * 0.01;
+        }
+        return new RidgeRegressionOptimizerTest.TableObjective(rows, targets, null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.locallife.service;
+
+import com.locallife.database.SyntheticDataGenerator;
+import com.locallife.model.ActivityType;
+import com.locallife.model.DayRecord;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Walk-forward backtest over a year of synthetic days. The thresholds are loose: they catch
+ * a model that stops learning or returns something other than a distribution, not small
+ * changes in accuracy.
+ */
+public class ModelBacktesterTest {
+    private static final int DAYS = 365;
+    private static final int WARMUP_DAYS = 60;
+    private static final int STEP_DAYS = 7;
+
+    @Test
+    public void everyModelScoresEveryDayAfterTheWarmup() {
+        ModelBacktester.BacktestReport report = backtest();
+
+        assertEquals((DAYS - WARMUP_DAYS + STEP_DAYS - 1) / STEP_DAYS, report.getFolds());
+        assertEquals(ModelBacktester.Model.values().length, report.getReports().size());
+        for (ModelBacktester.ModelReport model : report.getReports().values()) {
+            String name = model.getModel().name();
+            assertEquals(name, DAYS - WARMUP_DAYS, model.getPredictions());
+
+            double predicted = 0;
+            double observed = 0;
+            for (ActivityType activityType : ActivityType.values()) {
+                predicted += model.getMeanPredicted(activityType);
+                observed += model.getObservedFrequency(activityType);
+            }
+            assertEquals(name + " predictions sum to one", 1.0, predicted, 1e-6);
+            assertEquals(name, 1.0, observed, 1e-9);
+
+            assertTrue(name + " log loss " + model.getLogLoss(),
+                    model.getLogLoss() > 0 && model.getLogLoss() < Math.log(ActivityType.values().length) + 1);
+            assertTrue(name + " calibration error " + model.getExpectedCalibrationError(),
+                    model.getExpectedCalibrationError() >= 0 && model.getExpectedCalibrationError() <= 1);
+        }
+    }
+
+    @Test
+    public void activityPatternModelBeatsGuessing() {
+        ModelBacktester.ModelReport model = backtest().getReports().get(ModelBacktester.Model.ACTIVITY_PATTERN);
+
+        assertTrue("top-1 " + model.getTopOneAccuracy(),
+                model.getTopOneAccuracy() > 2.0 / ActivityType.values().length);
+        assertTrue("log loss " + model.getLogLoss(), model.getLogLoss() < Math.log(ActivityType.values().length));
+    }
+
+    @Test
+    public void repeatedRunsGiveTheSameScores() {
+        ModelBacktester.BacktestReport first = backtest();
+        ModelBacktester.BacktestReport second = backtest();
+
+        for (ModelBacktester.Model model : ModelBacktester.Model.values()) {
+            ModelBacktester.ModelReport a = first.getReports().get(model);
+            ModelBacktester.ModelReport b = second.getReports().get(model);
+            assertEquals(model.name(), a.getTopOneAccuracy(), b.getTopOneAccuracy(), 0);
+            assertEquals(model.name(), a.getLogLoss(), b.getLogLoss(), 0);
+        }
+    }
+
+    private static ModelBacktester.BacktestReport backtest() {
+        List<DayRecord> history = SyntheticDataGenerator.generateDayRecords(DAYS, 7L);
+        return new ModelBacktester(WARMUP_DAYS, STEP_DAYS).run(history);
+    }
+}
@@ -0,0 +1,124 @@
+package com.locallife.service;
+
+import com.locallife.model.MoodEntry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the analyses a window derives from its aggregates against hand-computed values
+ * for six entries over one week. 2024-01-01 was a Monday.
+ */
+public class MoodAnalyticsSnapshotTest {
+
+    @Test
+    public void trendComparesTheHalvesOfTheDailyAverages() {
+        MoodAnalyticsService.MoodTrendAnalysis trend = week().getTrendAnalysis();
+
+        assertEquals(6.0f, trend.getAverageMood(), 1e-6f);
+        assertEquals(Arrays.asList(4.0f, 4.0f, 8.0f, 8.0f), trend.getDailyAverages());
+        assertEquals(4.0f, trend.getMoodChange(), 1e-6f);
+        assertEquals("improving", trend.getTrend());
+    }
+
+    @Test
+    public void volatilityIsThePopulationStandardDeviation() {
+        // Scores 3 5 4 8 7 9: mean 6, squares average 244 / 6
+        assertEquals((float) Math.sqrt(244.0 / 6 - 36), week().getTrendAnalysis().getVolatility(), 1e-5f);
+    }
+
+    @Test
+    public void weekdaysFollowTheEpochDay() {
+        MoodAnalyticsService.WeeklyMoodPattern pattern = week().getWeeklyPattern();
+        Map<String, Float> averages = pattern.getDayOfWeekAverages();
+
+        assertEquals(4.0f, averages.get("Monday"), 0);
+        assertEquals(4.0f, averages.get("Tuesday"), 0);
+        assertEquals(5.0f, averages.get("Wednesday"), 0);
+        assertEquals(8.0f, averages.get("Saturday"), 0);
+        assertEquals(8.0f, averages.get("Sunday"), 0);
+        // Ties go to the earlier day of the week
+        assertEquals("Saturday", pattern.getBestDay());
+        assertEquals("Monday", pattern.getWorstDay());
+    }
+
+    @Test
+    public void weekdaysBeforeTheEpochWrapAround() {
+        // 1969-12-31 was a Wednesday, epoch day -1
+        MoodAnalyticsService.WeeklyMoodPattern pattern = window(entry("1969-12-31", MoodEntry.MoodLevel.AMAZING, null))
+                .getWeeklyPattern();
+
+        assertEquals(9.0f, pattern.getDayOfWeekAverages().get("Wednesday"), 0);
+        assertEquals("Wednesday", pattern.getBestDay());
+    }
+
+    @Test
+    public void triggersAreSplitTrimmedAndAveraged() {
+        MoodAnalyticsService.MoodTriggerAnalysis triggers = week().getTriggerAnalysis();
+
+        assertEquals(2, (int) triggers.getTriggerFrequency().get("work"));
+        assertEquals(2, (int) triggers.getTriggerFrequency().get("traffic"));
+        assertEquals(2, (int) triggers.getTriggerFrequency().get("friends"));
+        assertEquals(1, (int) triggers.getTriggerFrequency().get("exercise"));
+        assertEquals(4, triggers.getTriggerFrequency().size());
+        assertEquals(3.5f, triggers.getTriggerMoodImpact().get("traffic"), 1e-6f);
+        assertEquals(7.5f, triggers.getTriggerMoodImpact().get("friends"), 1e-6f);
+        assertEquals(new HashSet<>(Arrays.asList("friends", "exercise")),
+                new HashSet<>(triggers.getTopPositiveTriggers()));
+        assertEquals(Collections.singletonList("traffic"), triggers.getTopNegativeTriggers());
+    }
+
+    @Test
+    public void distributionListsOnlyLevelsWithEntries() {
+        List<MoodTrackingService.MoodDistribution> distribution = week().getDistribution();
+
+        List<String> levels = new ArrayList<>();
+        List<Integer> counts = new ArrayList<>();
+        for (MoodTrackingService.MoodDistribution bucket : distribution) {
+            levels.add(bucket.getMoodLevel());
+            counts.add(bucket.getCount());
+        }
+        assertEquals(Arrays.asList("sad", "neutral", "happy", "very_happy"), levels);
+        assertEquals(Arrays.asList(2, 1, 1, 2), counts);
+    }
+
+    @Test
+    public void emptyWindowIsNeutral() {
+        MoodAnalyticsSnapshot.Window window = window();
+
+        assertEquals(5.0f, window.getTrendAnalysis().getAverageMood(), 0);
+        assertEquals("stable", window.getTrendAnalysis().getTrend());
+        assertEquals(0.0f, window.getTrendAnalysis().getVolatility(), 0);
+        assertTrue(window.getTriggerAnalysis().getTriggerFrequency().isEmpty());
+        assertTrue(window.getDistribution().isEmpty());
+    }
+
+    private static MoodAnalyticsSnapshot.Window week() {
+        return window(
+                entry("2024-01-01", MoodEntry.MoodLevel.BAD, "work, traffic"),
+                entry("2024-01-01", MoodEntry.MoodLevel.NEUTRAL, "work"),
+                entry("2024-01-02", MoodEntry.MoodLevel.POOR, " traffic ,"),
+                entry("2024-01-06", MoodEntry.MoodLevel.EXCELLENT, "friends"),
+                entry("2024-01-07", MoodEntry.MoodLevel.VERY_GOOD, "friends,exercise"),
+                entry("2024-01-07", MoodEntry.MoodLevel.AMAZING, null));
+    }
+
+    private static MoodAnalyticsSnapshot.Window window(MoodEntry... entries) {
+        return new MoodAnalyticsSnapshot.Window(MoodAnalyticsSnapshot.MoodAggregates.of(Arrays.asList(entries)));
+    }
+
+    private static MoodEntry entry(String date, MoodEntry.MoodLevel level, String triggers) {
+        MoodEntry entry = new MoodEntry(date, level, level.getEmoji());
+        entry.setTriggers(triggers);
+        return entry;
+    }
+}
@@ -0,0 +1,154 @@
+package com.locallife.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RidgeRegressionOptimizerTest {
+
+    @Test
+    public void recoversAnExactLinearFit() {
+        // y = 2 x0 - 3 x1 + 0.5
+        double[][] rows = new double[50][];
+        double[] targets = new double[50];
+        for (int i = 0; i < rows.length; i++) {
+            double x0 = i / 10.0;
+            double x1 = Math.sin(i);
+            rows[i] = new double[]{x0, x1, 1.0};
+            targets[i] = 2 * x0 - 3 * x1 + 0.5;
+        }
+        double[] weights = new double[3];
+
+        new RidgeRegressionOptimizer(1e-10).optimize(new TableObjective(rows, targets, null), weights);
+
+        assertArrayEquals(new double[]{2, -3, 0.5}, weights, 1e-6);
+    }
+
+    @Test
+    public void sampleWeightCountsAsRepeatedSamples() {
+        double[][] rows = {{1, 1}, {2, 1}, {3, 1}};
+        double[] targets = {1, 3, 2};
+        double[] weighted = new double[2];
+        new RidgeRegressionOptimizer(0.1).optimize(new TableObjective(rows, targets, new double[]{1, 3, 1}), weighted);
+
+        double[][] repeatedRows = {{1, 1}, {2, 1}, {2, 1}, {2, 1}, {3, 1}};
+        double[] repeatedTargets = {1, 3, 3, 3, 2};
+        double[] repeated = new double[2];
+        new RidgeRegressionOptimizer(0.1).optimize(new TableObjective(repeatedRows, repeatedTargets, null), repeated);
+
+        assertArrayEquals(repeated, weighted, 1e-12);
+    }
+
+    @Test
+    public void largerPenaltyShrinksTheWeights() {
+        double[][] rows = {{1, 0}, {0, 1}, {1, 1}, {2, 1}};
+        double[] targets = {1, 2, 3, 4};
+        double[] loose = new double[2];
+        double[] tight = new double[2];
+
+        new RidgeRegressionOptimizer(1e-6).optimize(new TableObjective(rows, targets, null), loose);
+        new RidgeRegressionOptimizer(10).optimize(new TableObjective(rows, targets, null), tight);
+
+        assertTrue(norm(tight) < norm(loose));
+    }
+
+    @Test
+    public void noSamplesLeavesTheWeights() {
+        double[] weights = {0.3, 0.7};
+
+        new RidgeRegressionOptimizer(1).optimize(new TableObjective(new double[0][], new double[0], null), weights);
+
+        assertArrayEquals(new double[]{0.3, 0.7}, weights, 0);
+    }
+
+    @Test
+    public void solutionIsProjected() {
+        double[][] rows = {{1}, {2}};
+        double[] targets = {-1, -2};
+        double[] weights = new double[1];
+
+        new RidgeRegressionOptimizer(1e-6).optimize(new TableObjective(rows, targets, null) {
+            @Override
+            public void project(double[] w) {
+                w[0] = Math.max(0, w[0]);
+            }
+        }, weights);
+
+        assertEquals(0.0, weights[0], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsObjectivesWithoutAClosedForm() {
+        new RidgeRegressionOptimizer(1).optimize(new ModelOptimizer.Objective() {
+            @Override
+            public int sampleCount() {
+                return 1;
+            }
+
+            @Override
+            public int dimension() {
+                return 1;
+            }
+
+            @Override
+            public double accumulate(int sample, double[] weights, double[] gradient, double[] scratch) {
+                return 0;
+            }
+        }, new double[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsANonPositivePenalty() {
+        new RidgeRegressionOptimizer(0);
+    }
+
+    private static double norm(double[] weights) {
+        double sum = 0;
+        for (double weight : weights) {
+            sum += weight * weight;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Least squares over fixed rows and targets, with optional sample weights
+     */
+    static class TableObjective implements ModelOptimizer.LeastSquaresObjective {
+        private final double[][] rows;
+        private final double[] targets;
+        private final double[] weights;
+
+        TableObjective(double[][] rows, double[] targets, double[] weights) {
+            this.rows = rows;
+            this.targets = targets;
+            this.weights = weights;
+        }
+
+        @Override
+        public int sampleCount() {
+            return rows.length;
+        }
+
+        @Override
+        public int dimension() {
+            return rows.length == 0 ? 2 : rows[0].length;
+        }
+
+        @Override
+        public double weight(int sample) {
+            return weights != null ? weights[sample] : 1.0;
+        }
+
+        @Override
+        public void row(int sample, double[] row) {
+            System.arraycopy(rows[sample], 0, row, 0, rows[sample].length);
+        }
+
+        @Override
+        public double target(int sample) {
+            return targets[sample];
+        }
+    }
+}
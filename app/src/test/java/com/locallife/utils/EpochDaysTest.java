@@ -0,0 +1,70 @@
+package com.locallife.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+public class EpochDaysTest {
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void dateKeysMatchTheCalendar() {
+        // Every day from 1900 to 2100, across leap years and the 1900/2000/2100 century rules
+        for (LocalDate date = LocalDate.of(1900, 1, 1); date.getYear() <= 2100; date = date.plusDays(1)) {
+            int epochDay = (int) date.toEpochDay();
+            assertEquals(date.toString(), epochDay, EpochDays.fromDateKey(date.toString()));
+            assertEquals(date.toString(), EpochDays.toDateKey(epochDay));
+        }
+    }
+
+    @Test
+    public void malformedKeysAreRejected() {
+        String[] keys = {null, "", "2024-1-01", "2024/01/01", "2024-13-01", "2024-00-10", "2024-01-32", "20x4-01-01"};
+        for (String key : keys) {
+            assertEquals(key, Integer.MIN_VALUE, EpochDays.fromDateKey(key));
+        }
+        // Trailing time of day is ignored, as in timestamps stored as text
+        assertEquals(19723, EpochDays.fromDateKey("2024-01-01 08:30:00"));
+    }
+
+    @Test
+    public void millisUseTheLocalCalendarDay() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        long utcMidnight = 19723 * EpochDays.MILLIS_PER_DAY;
+
+        // 2024-01-01 00:00 UTC is still New Year's Eve in New York
+        assertEquals(19722, EpochDays.fromMillis(utcMidnight));
+        assertEquals(19723, EpochDays.fromMillis(utcMidnight + 5 * 60 * 60 * 1000L));
+    }
+
+    @Test
+    public void startOfDayIsLocalMidnightAcrossDaylightSaving() {
+        String[] zones = {"UTC", "Europe/Berlin", "America/New_York", "Australia/Lord_Howe", "Asia/Kolkata"};
+        for (String zone : zones) {
+            TimeZone.setDefault(TimeZone.getTimeZone(zone));
+            // 2024-03-01 through 2024-11-30 covers both DST transitions in each hemisphere
+            for (int epochDay = 19783; epochDay < 20057; epochDay++) {
+                long expected = LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.of(zone)).toInstant().toEpochMilli();
+                long start = EpochDays.startOfDayMillis(epochDay);
+                assertEquals(zone + " " + EpochDays.toDateKey(epochDay), expected, start);
+                assertEquals(zone + " " + EpochDays.toDateKey(epochDay), epochDay, EpochDays.fromMillis(start));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.locallife.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class HourlyHistogramTest {
+    private static final long HOUR = 60 * 60 * 1000L;
+    private static final long MINUTE = 60 * 1000L;
+
+    private TimeZone defaultZone;
+
+    @Before
+    public void setUp() {
+        defaultZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Europe/Berlin"));
+    }
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(defaultZone);
+    }
+
+    @Test
+    public void hourOfUsesLocalTime() {
+        long dayStart = EpochDays.startOfDayMillis(EpochDays.fromDateKey("2024-01-15"));
+
+        assertEquals(0, HourlyHistogram.hourOf(dayStart));
+        assertEquals(13, HourlyHistogram.hourOf(dayStart + 13 * HOUR + 59 * MINUTE));
+        assertEquals(23, HourlyHistogram.hourOf(dayStart - 1));
+    }
+
+    @Test
+    public void spanIsSplitAtHourBoundaries() {
+        long dayStart = EpochDays.startOfDayMillis(EpochDays.fromDateKey("2024-01-15"));
+        int[] hourly = new int[HourlyHistogram.HOURS];
+
+        HourlyHistogram.addSpan(hourly, dayStart, dayStart + 8 * HOUR + 45 * MINUTE, dayStart + 10 * HOUR + 15 * MINUTE);
+
+        assertEquals(15 * MINUTE, hourly[8]);
+        assertEquals(HOUR, hourly[9]);
+        assertEquals(15 * MINUTE, hourly[10]);
+        assertEquals(90 * MINUTE, HourlyHistogram.total(hourly));
+    }
+
+    @Test
+    public void spanBeforeTheDayIsClipped() {
+        long dayStart = EpochDays.startOfDayMillis(EpochDays.fromDateKey("2024-01-15"));
+        int[] hourly = new int[HourlyHistogram.HOURS];
+
+        HourlyHistogram.addSpan(hourly, dayStart, dayStart - 30 * MINUTE, dayStart + 20 * MINUTE);
+
+        assertEquals(20 * MINUTE, hourly[0]);
+        assertEquals(20 * MINUTE, HourlyHistogram.total(hourly));
+    }
+
+    @Test
+    public void spanPastTheDayIsClipped() {
+        long dayStart = EpochDays.startOfDayMillis(EpochDays.fromDateKey("2024-01-15"));
+        long nextDayStart = EpochDays.startOfDayMillis(EpochDays.fromDateKey("2024-01-16"));
+        int[] hourly = new int[HourlyHistogram.HOURS];
+
+        HourlyHistogram.addSpan(hourly, dayStart, nextDayStart - 10 * MINUTE, nextDayStart + 40 * MINUTE);
+
+        assertEquals(10 * MINUTE, hourly[23]);
+        assertEquals(0, hourly[0]);
+        assertEquals(10 * MINUTE, HourlyHistogram.total(hourly));
+    }
+
+    @Test
+    public void spanAcrossTheSpringForwardGapLandsInLocalHours() {
+        // Clocks in Berlin jump from 02:00 to 03:00 on 2024-03-31
+        long dayStart = EpochDays.startOfDayMillis(EpochDays.fromDateKey("2024-03-31"));
+        int[] hourly = new int[HourlyHistogram.HOURS];
+
+        HourlyHistogram.addSpan(hourly, dayStart, dayStart + HOUR + 30 * MINUTE, dayStart + 2 * HOUR + 30 * MINUTE);
+
+        assertEquals(30 * MINUTE, hourly[1]);
+        assertEquals(0, hourly[2]);
+        assertEquals(30 * MINUTE, hourly[3]);
+    }
+
+    @Test
+    public void peakAndLowHoursAreRankedAndSkipIdleHoursForPeaks() {
+        int[] counts = new int[HourlyHistogram.HOURS];
+        Arrays.fill(counts, 5);
+        counts[8] = 900;
+        counts[12] = 1200;
+        counts[18] = 700;
+        counts[3] = 0;
+
+        assertEquals(Arrays.asList(12, 8, 18), HourlyHistogram.peakHours(counts, 3));
+        assertEquals(Arrays.asList(3, 0), HourlyHistogram.lowHours(counts, 2));
+        assertEquals(Collections.emptyList(), HourlyHistogram.peakHours(new int[HourlyHistogram.HOURS], 3));
+    }
+
+    @Test
+    public void formatAndParseRoundTrip() {
+        int[] counts = new int[HourlyHistogram.HOURS];
+        for (int hour = 0; hour < HourlyHistogram.HOURS; hour++) {
+            counts[hour] = hour * 137;
+        }
+        int[] target = new int[HourlyHistogram.HOURS];
+        HourlyHistogram.addInto(target, HourlyHistogram.parse(HourlyHistogram.format(counts)));
+        HourlyHistogram.addInto(target, null);
+
+        assertArrayEquals(counts, target);
+        assertNull(HourlyHistogram.parse(""));
+        assertNull(HourlyHistogram.parse(null));
+    }
+}